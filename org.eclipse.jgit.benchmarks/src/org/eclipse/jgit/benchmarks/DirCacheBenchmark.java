@@ -0,0 +1,154 @@
+/*
+ * Copyright (C) 2019, Google LLC.
+ * and other copyright owners as documented in the project's IP log.
+ *
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Distribution License v1.0 which
+ * accompanies this distribution, is reproduced below, and is
+ * available at http://www.eclipse.org/org/documents/edl-v10.php
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or
+ * without modification, are permitted provided that the following
+ * conditions are met:
+ *
+ * - Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * - Redistributions in binary form must reproduce the above
+ *   copyright notice, this list of conditions and the following
+ *   disclaimer in the documentation and/or other materials provided
+ *   with the distribution.
+ *
+ * - Neither the name of the Eclipse Foundation, Inc. nor the
+ *   names of its contributors may be used to endorse or promote
+ *   products derived from this software without specific prior
+ *   written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND
+ * CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+package org.eclipse.jgit.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.jgit.dircache.DirCache;
+import org.eclipse.jgit.dircache.DirCacheBuilder;
+import org.eclipse.jgit.dircache.DirCacheEntry;
+import org.eclipse.jgit.lib.FileMode;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.util.FS;
+import org.eclipse.jgit.util.FileUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+@State(Scope.Thread)
+public class DirCacheBenchmark {
+	@State(Scope.Benchmark)
+	public static class BenchmarkState {
+		@Param({ "1000", "100000" })
+		int entries;
+
+		File dir;
+
+		File indexFile;
+
+		DirCache dirCache;
+
+		@Setup
+		public void setupBenchmark() throws IOException {
+			dir = Files.createTempDirectory("jgit-bench").toFile(); //$NON-NLS-1$
+			indexFile = new File(dir, "index"); //$NON-NLS-1$
+
+			Random rng = new Random(42);
+			byte[] id = new byte[20];
+			DirCache dc = DirCache.lock(indexFile, FS.DETECTED);
+			DirCacheBuilder b = dc.builder();
+			for (int i = 0; i < entries; i++) {
+				rng.nextBytes(id);
+				DirCacheEntry e = new DirCacheEntry(String.format(
+						"src/d%04d/File%06d.java", //$NON-NLS-1$
+						Integer.valueOf(i / 100), Integer.valueOf(i)));
+				e.setFileMode(FileMode.REGULAR_FILE);
+				e.setObjectId(ObjectId.fromRaw(id));
+				e.setLength(rng.nextInt(1 << 16));
+				e.setLastModified(1250379778000L + i);
+				b.add(e);
+			}
+			b.finish();
+			dc.write();
+			dc.commit();
+			dirCache = DirCache.read(indexFile, FS.DETECTED);
+		}
+
+		@TearDown
+		public void teardown() throws IOException {
+			FileUtils.delete(dir, FileUtils.RECURSIVE | FileUtils.RETRY);
+		}
+	}
+
+	@Benchmark
+	@BenchmarkMode({ Mode.AverageTime })
+	@OutputTimeUnit(TimeUnit.MILLISECONDS)
+	@Warmup(iterations = 2, time = 1, timeUnit = TimeUnit.SECONDS)
+	@Measurement(iterations = 5, time = 2, timeUnit = TimeUnit.SECONDS)
+	public DirCache read(BenchmarkState state) throws IOException {
+		return DirCache.read(state.indexFile, FS.DETECTED);
+	}
+
+	@Benchmark
+	@BenchmarkMode({ Mode.AverageTime })
+	@OutputTimeUnit(TimeUnit.MILLISECONDS)
+	@Warmup(iterations = 2, time = 1, timeUnit = TimeUnit.SECONDS)
+	@Measurement(iterations = 5, time = 2, timeUnit = TimeUnit.SECONDS)
+	public void write(BenchmarkState state) throws IOException {
+		File out = new File(state.dir, "index.out"); //$NON-NLS-1$
+		DirCache dc = DirCache.lock(out, FS.DETECTED);
+		DirCacheBuilder b = dc.builder();
+		DirCache src = state.dirCache;
+		for (int i = 0; i < src.getEntryCount(); i++) {
+			b.add(src.getEntry(i));
+		}
+		b.finish();
+		dc.write();
+		dc.commit();
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		Options opt = new OptionsBuilder()
+				.include(DirCacheBenchmark.class.getSimpleName())
+				.forks(1).jvmArgs("-ea").build();
+		new Runner(opt).run();
+	}
+}
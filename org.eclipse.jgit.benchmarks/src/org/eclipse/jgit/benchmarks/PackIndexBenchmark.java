@@ -0,0 +1,165 @@
+/*
+ * Copyright (C) 2019, Google LLC.
+ * and other copyright owners as documented in the project's IP log.
+ *
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Distribution License v1.0 which
+ * accompanies this distribution, is reproduced below, and is
+ * available at http://www.eclipse.org/org/documents/edl-v10.php
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or
+ * without modification, are permitted provided that the following
+ * conditions are met:
+ *
+ * - Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * - Redistributions in binary form must reproduce the above
+ *   copyright notice, this list of conditions and the following
+ *   disclaimer in the documentation and/or other materials provided
+ *   with the distribution.
+ *
+ * - Neither the name of the Eclipse Foundation, Inc. nor the
+ *   names of its contributors may be used to endorse or promote
+ *   products derived from this software without specific prior
+ *   written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND
+ * CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+package org.eclipse.jgit.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.jgit.internal.storage.file.PackIndex;
+import org.eclipse.jgit.internal.storage.file.PackIndexWriter;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.transport.PackedObjectInfo;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+@State(Scope.Thread)
+public class PackIndexBenchmark {
+	private static final int LOOKUPS = 1024;
+
+	@State(Scope.Benchmark)
+	public static class BenchmarkState {
+		@Param({ "10000", "1000000" })
+		int objects;
+
+		byte[] rawIndex;
+
+		PackIndex index;
+
+		ObjectId[] present;
+
+		ObjectId[] missing;
+
+		@Setup
+		public void setupBenchmark() throws IOException {
+			Random rng = new Random(42);
+			byte[] id = new byte[20];
+			List<PackedObjectInfo> list = new ArrayList<>(objects);
+			long offset = 12;
+			for (int i = 0; i < objects; i++) {
+				rng.nextBytes(id);
+				PackedObjectInfo oe = new PackedObjectInfo(
+						ObjectId.fromRaw(id));
+				oe.setOffset(offset);
+				oe.setCRC(rng.nextInt());
+				offset += 20 + rng.nextInt(4096);
+				list.add(oe);
+			}
+			Collections.sort(list);
+
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			PackIndexWriter.createVersion(out, 2).write(list, new byte[20]);
+			rawIndex = out.toByteArray();
+			index = PackIndex.read(new ByteArrayInputStream(rawIndex));
+
+			present = new ObjectId[LOOKUPS];
+			missing = new ObjectId[LOOKUPS];
+			for (int i = 0; i < LOOKUPS; i++) {
+				present[i] = list.get(rng.nextInt(objects)).copy();
+				rng.nextBytes(id);
+				missing[i] = ObjectId.fromRaw(id);
+			}
+		}
+	}
+
+	@Benchmark
+	@BenchmarkMode({ Mode.AverageTime })
+	@OutputTimeUnit(TimeUnit.MICROSECONDS)
+	@Warmup(iterations = 2, time = 100, timeUnit = TimeUnit.MILLISECONDS)
+	@Measurement(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+	public long findOffsetPresent(BenchmarkState state) {
+		long sum = 0;
+		for (ObjectId id : state.present) {
+			sum += state.index.findOffset(id);
+		}
+		return sum;
+	}
+
+	@Benchmark
+	@BenchmarkMode({ Mode.AverageTime })
+	@OutputTimeUnit(TimeUnit.MICROSECONDS)
+	@Warmup(iterations = 2, time = 100, timeUnit = TimeUnit.MILLISECONDS)
+	@Measurement(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+	public long findOffsetMissing(BenchmarkState state) {
+		long sum = 0;
+		for (ObjectId id : state.missing) {
+			sum += state.index.findOffset(id);
+		}
+		return sum;
+	}
+
+	@Benchmark
+	@BenchmarkMode({ Mode.AverageTime })
+	@OutputTimeUnit(TimeUnit.MILLISECONDS)
+	@Warmup(iterations = 2, time = 1, timeUnit = TimeUnit.SECONDS)
+	@Measurement(iterations = 5, time = 2, timeUnit = TimeUnit.SECONDS)
+	public PackIndex read(BenchmarkState state) throws IOException {
+		return PackIndex.read(new ByteArrayInputStream(state.rawIndex));
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		Options opt = new OptionsBuilder()
+				.include(PackIndexBenchmark.class.getSimpleName())
+				.forks(1).jvmArgs("-ea").build();
+		new Runner(opt).run();
+	}
+}
@@ -0,0 +1,159 @@
+/*
+ * Copyright (C) 2019, Google LLC.
+ * and other copyright owners as documented in the project's IP log.
+ *
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Distribution License v1.0 which
+ * accompanies this distribution, is reproduced below, and is
+ * available at http://www.eclipse.org/org/documents/edl-v10.php
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or
+ * without modification, are permitted provided that the following
+ * conditions are met:
+ *
+ * - Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * - Redistributions in binary form must reproduce the above
+ *   copyright notice, this list of conditions and the following
+ *   disclaimer in the documentation and/or other materials provided
+ *   with the distribution.
+ *
+ * - Neither the name of the Eclipse Foundation, Inc. nor the
+ *   names of its contributors may be used to endorse or promote
+ *   products derived from this software without specific prior
+ *   written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND
+ * CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+package org.eclipse.jgit.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.util.MutableInteger;
+import org.eclipse.jgit.util.RawParseUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+@State(Scope.Thread)
+public class RawParseUtilsBenchmark {
+	@State(Scope.Benchmark)
+	public static class BenchmarkState {
+		byte[] commit;
+
+		byte[] text;
+
+		int authorPtr;
+
+		@Setup
+		public void setupBenchmark() {
+			commit = Constants.encode("tree 9788669ad918b6fcce64af8882fc9a81cb6aba67\n"
+					+ "parent 4b825dc642cb6eb9a060e54bf8d69288fbee4904\n"
+					+ "author A U Thor <author@example.com> 1218123387 +0700\n"
+					+ "committer C O Mitter <committer@example.com> 1218123390 -0500\n"
+					+ "encoding UTF-8\n"
+					+ "\n"
+					+ "Summary line of the commit message\n"
+					+ "\n"
+					+ "Body of the commit message.\n");
+			authorPtr = RawParseUtils.author(commit, 0);
+
+			StringBuilder b = new StringBuilder();
+			for (int i = 0; i < 10000; i++) {
+				b.append("line ").append(i).append(" of some text\n");
+			}
+			text = Constants.encode(b.toString());
+		}
+	}
+
+	@Benchmark
+	@BenchmarkMode({ Mode.AverageTime })
+	@OutputTimeUnit(TimeUnit.NANOSECONDS)
+	@Warmup(iterations = 2, time = 100, timeUnit = TimeUnit.MILLISECONDS)
+	@Measurement(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+	public void parseCommitHeaders(BenchmarkState state, Blackhole bh) {
+		byte[] c = state.commit;
+		bh.consume(RawParseUtils.author(c, 0));
+		bh.consume(RawParseUtils.committer(c, 0));
+		bh.consume(RawParseUtils.encoding(c, 0));
+		bh.consume(RawParseUtils.commitMessage(c, 0));
+	}
+
+	@Benchmark
+	@BenchmarkMode({ Mode.AverageTime })
+	@OutputTimeUnit(TimeUnit.NANOSECONDS)
+	@Warmup(iterations = 2, time = 100, timeUnit = TimeUnit.MILLISECONDS)
+	@Measurement(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+	public Object parsePersonIdent(BenchmarkState state) {
+		return RawParseUtils.parsePersonIdent(state.commit, state.authorPtr);
+	}
+
+	@Benchmark
+	@BenchmarkMode({ Mode.AverageTime })
+	@OutputTimeUnit(TimeUnit.MICROSECONDS)
+	@Warmup(iterations = 2, time = 100, timeUnit = TimeUnit.MILLISECONDS)
+	@Measurement(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+	public int nextLFAndParseBase10(BenchmarkState state) {
+		byte[] t = state.text;
+		MutableInteger p = new MutableInteger();
+		int sum = 0;
+		for (int ptr = 0; ptr < t.length; ptr = RawParseUtils.nextLF(t, ptr)) {
+			sum += RawParseUtils.parseBase10(t, ptr + 5, p);
+		}
+		return sum;
+	}
+
+	@Benchmark
+	@BenchmarkMode({ Mode.AverageTime })
+	@OutputTimeUnit(TimeUnit.MICROSECONDS)
+	@Warmup(iterations = 2, time = 100, timeUnit = TimeUnit.MILLISECONDS)
+	@Measurement(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+	public Object lineMap(BenchmarkState state) {
+		return RawParseUtils.lineMap(state.text, 0, state.text.length);
+	}
+
+	@Benchmark
+	@BenchmarkMode({ Mode.AverageTime })
+	@OutputTimeUnit(TimeUnit.MICROSECONDS)
+	@Warmup(iterations = 2, time = 100, timeUnit = TimeUnit.MILLISECONDS)
+	@Measurement(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+	public String decode(BenchmarkState state) {
+		return RawParseUtils.decode(state.text);
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		Options opt = new OptionsBuilder()
+				.include(RawParseUtilsBenchmark.class.getSimpleName())
+				.forks(1).jvmArgs("-ea").build();
+		new Runner(opt).run();
+	}
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright (C) 2019, Google LLC.
+ * and other copyright owners as documented in the project's IP log.
+ *
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Distribution License v1.0 which
+ * accompanies this distribution, is reproduced below, and is
+ * available at http://www.eclipse.org/org/documents/edl-v10.php
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or
+ * without modification, are permitted provided that the following
+ * conditions are met:
+ *
+ * - Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * - Redistributions in binary form must reproduce the above
+ *   copyright notice, this list of conditions and the following
+ *   disclaimer in the documentation and/or other materials provided
+ *   with the distribution.
+ *
+ * - Neither the name of the Eclipse Foundation, Inc. nor the
+ *   names of its contributors may be used to endorse or promote
+ *   products derived from this software without specific prior
+ *   written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND
+ * CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+package org.eclipse.jgit.benchmarks;
+
+import static org.eclipse.jgit.lib.Constants.OBJ_BLOB;
+
+import java.io.IOException;
+
+import org.eclipse.jgit.internal.storage.dfs.DfsRepositoryDescription;
+import org.eclipse.jgit.internal.storage.dfs.InMemoryRepository;
+import org.eclipse.jgit.lib.CommitBuilder;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.FileMode;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectInserter;
+import org.eclipse.jgit.lib.PersonIdent;
+import org.eclipse.jgit.lib.RefUpdate;
+import org.eclipse.jgit.lib.TreeFormatter;
+
+/**
+ * Builds a linear history in an {@link InMemoryRepository}.
+ * <p>
+ * The tree holds {@code files} blobs spread over directories of 16 entries.
+ * Every commit rewrites one blob, so consecutive trees share most of their
+ * content, much like a real project does.
+ */
+class SyntheticHistory {
+	private static final int FILES_PER_DIR = 16;
+
+	final InMemoryRepository repo;
+
+	final ObjectId head;
+
+	SyntheticHistory(int commits, int files) throws IOException {
+		repo = new InMemoryRepository(
+				new DfsRepositoryDescription("benchmark")); //$NON-NLS-1$
+		int dirs = (files + FILES_PER_DIR - 1) / FILES_PER_DIR;
+		ObjectId[] blobs = new ObjectId[files];
+		ObjectId[] trees = new ObjectId[dirs];
+		PersonIdent ident = new PersonIdent("A U Thor", //$NON-NLS-1$
+				"author@example.com", 1250379778000L, 0); //$NON-NLS-1$
+		ObjectId parent = null;
+		try (ObjectInserter ins = repo.newObjectInserter()) {
+			for (int i = 0; i < files; i++) {
+				blobs[i] = blob(ins, i, 0);
+			}
+			for (int d = 0; d < dirs; d++) {
+				trees[d] = dirTree(ins, blobs, d);
+			}
+			for (int c = 0; c < commits; c++) {
+				if (c > 0) {
+					int f = (int) ((c * 2654435761L) % files);
+					blobs[f] = blob(ins, f, c);
+					trees[f / FILES_PER_DIR] = dirTree(ins, blobs,
+							f / FILES_PER_DIR);
+				}
+				TreeFormatter root = new TreeFormatter();
+				for (int d = 0; d < dirs; d++) {
+					root.append(String.format("d%05d", //$NON-NLS-1$
+							Integer.valueOf(d)), FileMode.TREE, trees[d]);
+				}
+				CommitBuilder cb = new CommitBuilder();
+				cb.setTreeId(root.insertTo(ins));
+				if (parent != null) {
+					cb.setParentId(parent);
+				}
+				PersonIdent when = new PersonIdent(ident,
+						ident.getWhen().getTime() + c * 1000L, 0);
+				cb.setAuthor(when);
+				cb.setCommitter(when);
+				cb.setMessage("commit " + c + "\n"); //$NON-NLS-1$ //$NON-NLS-2$
+				parent = ins.insert(cb);
+			}
+			ins.flush();
+		}
+		head = parent;
+		RefUpdate u = repo.updateRef(Constants.R_HEADS + Constants.MASTER);
+		u.setNewObjectId(head);
+		u.forceUpdate();
+	}
+
+	private static ObjectId blob(ObjectInserter ins, int file, int rev)
+			throws IOException {
+		StringBuilder b = new StringBuilder();
+		for (int line = 0; line < 20; line++) {
+			b.append("file ").append(file) //$NON-NLS-1$
+					.append(" line ").append(line) //$NON-NLS-1$
+					.append(" revision ").append(rev).append('\n'); //$NON-NLS-1$
+		}
+		return ins.insert(OBJ_BLOB, Constants.encode(b.toString()));
+	}
+
+	private static ObjectId dirTree(ObjectInserter ins, ObjectId[] blobs,
+			int dir) throws IOException {
+		TreeFormatter fmt = new TreeFormatter();
+		int end = Math.min(blobs.length, (dir + 1) * FILES_PER_DIR);
+		for (int i = dir * FILES_PER_DIR; i < end; i++) {
+			fmt.append(String.format("f%05d.txt", Integer.valueOf(i)), //$NON-NLS-1$
+					FileMode.REGULAR_FILE, blobs[i]);
+		}
+		return fmt.insertTo(ins);
+	}
+}
@@ -47,6 +47,8 @@
 import java.util.Date;
 import java.util.Properties;
 
+import org.eclipse.jgit.internal.storage.dfs.DfsRepositoryDescription;
+import org.eclipse.jgit.internal.storage.dfs.InMemoryRepository;
 import org.eclipse.jgit.junit.RepositoryTestCase;
 import org.eclipse.jgit.util.GitDateParser;
 import org.eclipse.jgit.util.SystemReader;
@@ -92,4 +94,12 @@ public void testGCmoreCommits() throws Exception {
 								.getInstance().getLocale())).call();
 		assertTrue(res.size() == 7);
 	}
+
+	@Test(expected = UnsupportedOperationException.class)
+	public void testReachableStatisticsOfDfsRepository() throws Exception {
+		try (Git dfs = Git.wrap(new InMemoryRepository(
+				new DfsRepositoryDescription("dfs")))) {
+			dfs.gc().getReachableStatistics("refs/heads/");
+		}
+	}
 }
@@ -43,6 +43,7 @@
 
 package org.eclipse.jgit.dircache;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
@@ -50,6 +51,7 @@
 import static org.junit.Assert.fail;
 
 import java.io.File;
+import java.io.FileInputStream;
 import java.text.MessageFormat;
 
 import org.eclipse.jgit.errors.CorruptObjectException;
@@ -59,6 +61,9 @@
 import org.eclipse.jgit.lib.Constants;
 import org.eclipse.jgit.lib.FileMode;
 import org.eclipse.jgit.lib.ObjectInserter;
+import org.eclipse.jgit.storage.file.FileBasedConfig;
+import org.eclipse.jgit.util.IO;
+import org.eclipse.jgit.util.NB;
 import org.eclipse.jgit.util.SystemReader;
 import org.junit.Test;
 
@@ -235,6 +240,131 @@ public void testDetectUnmergedPaths() throws Exception {
 		assertTrue(dc.hasUnmergedPaths());
 	}
 
+	@Test
+	public void testWriteReadIndexVersion4() throws Exception {
+		StringBuilder longPath = new StringBuilder("a/");
+		for (int i = 0; i < 5000; i++)
+			longPath.append((char) ('a' + (i % 26)));
+		final String[] paths = { longPath.toString(), "a/b/c", "a/b/d", "a/bc",
+				"b", "b.c/d/e/f" };
+
+		FileBasedConfig cfg = db.getConfig();
+		cfg.setInt("index", null, "version", 4);
+		cfg.save();
+
+		final DirCache dc = db.lockDirCache();
+		final DirCacheBuilder b = dc.builder();
+		for (String path : paths) {
+			DirCacheEntry e = new DirCacheEntry(path);
+			e.setFileMode(FileMode.REGULAR_FILE);
+			b.add(e);
+		}
+		assertTrue(b.commit());
+
+		final byte[] hdr = new byte[8];
+		try (FileInputStream in = new FileInputStream(
+				new File(db.getDirectory(), "index"))) {
+			IO.readFully(in, hdr, 0, hdr.length);
+		}
+		assertEquals(4, NB.decodeInt32(hdr, 4));
+
+		final DirCache dc2 = db.readDirCache();
+		assertEquals(paths.length, dc2.getEntryCount());
+		for (int i = 0; i < paths.length; i++)
+			assertEquals(paths[i], dc2.getEntry(i).getPathString());
+	}
+
+	@Test
+	public void testWriteIndexVersion3WithoutExtendedFlags()
+			throws Exception {
+		FileBasedConfig cfg = db.getConfig();
+		cfg.setInt("index", null, "version", 3);
+		cfg.save();
+
+		final DirCache dc = db.lockDirCache();
+		final DirCacheBuilder b = dc.builder();
+		DirCacheEntry e = new DirCacheEntry("a");
+		e.setFileMode(FileMode.REGULAR_FILE);
+		b.add(e);
+		assertTrue(b.commit());
+
+		final byte[] hdr = new byte[8];
+		try (FileInputStream in = new FileInputStream(
+				new File(db.getDirectory(), "index"))) {
+			IO.readFully(in, hdr, 0, hdr.length);
+		}
+		assertEquals(3, NB.decodeInt32(hdr, 4));
+		assertEquals(1, db.readDirCache().getEntryCount());
+	}
+
+	@Test
+	public void testWriteReadEntryOffsetTable() throws Exception {
+		final String[] paths = new String[25000];
+		for (int i = 0; i < paths.length; i++)
+			paths[i] = String.format("d%02d/f%05d", Integer.valueOf(i / 1000),
+					Integer.valueOf(i));
+
+		FileBasedConfig cfg = db.getConfig();
+		cfg.setInt("index", null, "version", 4);
+		cfg.setInt("index", null, "threads", 4);
+		cfg.save();
+
+		final DirCache dc = db.lockDirCache();
+		final DirCacheBuilder b = dc.builder();
+		for (String path : paths) {
+			DirCacheEntry e = new DirCacheEntry(path);
+			e.setFileMode(FileMode.REGULAR_FILE);
+			b.add(e);
+		}
+		assertTrue(b.commit());
+
+		final byte[] raw = IO.readFully(new File(db.getDirectory(), "index"));
+		final int eoie = raw.length - Constants.OBJECT_ID_LENGTH - 32;
+		assertEquals("EOIE", new String(raw, eoie, 4, UTF_8));
+
+		final DirCache dc2 = db.readDirCache();
+		assertEquals(paths.length, dc2.getEntryCount());
+		for (int i = 0; i < paths.length; i++)
+			assertEquals(paths[i], dc2.getEntry(i).getPathString());
+
+		cfg.setInt("index", null, "threads", 1);
+		cfg.save();
+		final DirCache dc3 = db.readDirCache();
+		assertEquals(paths.length, dc3.getEntryCount());
+		for (int i = 0; i < paths.length; i++)
+			assertEquals(paths[i], dc3.getEntry(i).getPathString());
+	}
+
+	@Test
+	public void testNoEntryOffsetTableByDefault() throws Exception {
+		final DirCache dc = db.lockDirCache();
+		final DirCacheBuilder b = dc.builder();
+		for (int i = 0; i < 25000; i++) {
+			DirCacheEntry e = new DirCacheEntry(
+					String.format("f%05d", Integer.valueOf(i)));
+			e.setFileMode(FileMode.REGULAR_FILE);
+			b.add(e);
+		}
+		assertTrue(b.commit());
+
+		final File index = new File(db.getDirectory(), "index");
+		byte[] raw = IO.readFully(index);
+		int eoie = raw.length - Constants.OBJECT_ID_LENGTH - 32;
+		assertFalse("EOIE".equals(new String(raw, eoie, 4, UTF_8)));
+		assertEquals(25000, db.readDirCache().getEntryCount());
+
+		// "1" is a number of threads, not a boolean.
+		FileBasedConfig cfg = db.getConfig();
+		cfg.setInt("index", null, "threads", 1);
+		cfg.save();
+		final DirCache dc2 = db.lockDirCache();
+		dc2.write();
+		assertTrue(dc2.commit());
+		raw = IO.readFully(index);
+		eoie = raw.length - Constants.OBJECT_ID_LENGTH - 32;
+		assertFalse("EOIE".equals(new String(raw, eoie, 4, UTF_8)));
+	}
+
 	@Test
 	public void testFindOnEmpty() throws Exception {
 		final DirCache dc = DirCache.newInCore();
@@ -0,0 +1,287 @@
+/*
+ * Copyright (C) 2019, Google LLC.
+ * and other copyright owners as documented in the project's IP log.
+ *
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Distribution License v1.0 which
+ * accompanies this distribution, is reproduced below, and is
+ * available at http://www.eclipse.org/org/documents/edl-v10.php
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or
+ * without modification, are permitted provided that the following
+ * conditions are met:
+ *
+ * - Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * - Redistributions in binary form must reproduce the above
+ *   copyright notice, this list of conditions and the following
+ *   disclaimer in the documentation and/or other materials provided
+ *   with the distribution.
+ *
+ * - Neither the name of the Eclipse Foundation, Inc. nor the
+ *   names of its contributors may be used to endorse or promote
+ *   products derived from this software without specific prior
+ *   written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND
+ * CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.eclipse.jgit.dircache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.junit.RepositoryTestCase;
+import org.eclipse.jgit.lib.ConfigConstants;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.FileMode;
+import org.eclipse.jgit.lib.ObjectInserter;
+import org.eclipse.jgit.lib.StoredConfig;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.treewalk.FileTreeIterator;
+import org.eclipse.jgit.treewalk.TreeWalk;
+import org.eclipse.jgit.treewalk.filter.SkipWorkTreeFilter;
+import org.junit.Test;
+
+public class SparseCheckoutTest extends RepositoryTestCase {
+	@Test
+	public void testParseAndFormat() {
+		SparseCheckout sc = SparseCheckout.parse(
+				"/*\n!/*/\n/a/\n!/a/*/\n/a/b/\n/c\\*/\n");
+		assertNotNull(sc);
+		assertEquals(new HashSet<>(Arrays.asList("a/b", "c*")),
+				sc.getDirectories());
+		assertTrue(sc.includes("top"));
+		assertTrue(sc.includes("a/x"));
+		assertTrue(sc.includes("a/b/c/d"));
+		assertTrue(sc.includes("c*/x"));
+		assertFalse(sc.includes("a/c/x"));
+		assertFalse(sc.includes("d/x"));
+		assertFalse(sc.excludesDirectory("a"));
+		assertFalse(sc.excludesDirectory("a/b/c"));
+		assertTrue(sc.excludesDirectory("a/c"));
+
+		assertEquals("/*\n!/*/\n/a/\n!/a/*/\n/a/b/\n/c\\*/\n", sc.toString());
+		assertEquals(sc.toString(),
+				SparseCheckout.cone(Arrays.asList("a/b/", "c*", "a/b/c"))
+						.toString());
+
+		assertNull(SparseCheckout.parse("*.txt\n"));
+		assertNull(SparseCheckout.parse("/a/b/c*\n"));
+		assertNull(SparseCheckout.parse("/a/\n"));
+		assertNull(SparseCheckout.parse("/*\n/a/\n"));
+		assertNull(SparseCheckout.parse("!/*/\n/a/\n"));
+		assertNotNull(SparseCheckout.parse("/*\n!/*/\n"));
+	}
+
+	@Test
+	public void testCheckout() throws Exception {
+		try (Git git = new Git(db)) {
+			writeTrashFile("top", "top");
+			writeTrashFile("a/x", "a/x");
+			writeTrashFile("a/b/y", "a/b/y");
+			writeTrashFile("c/z", "c/z");
+			git.add().addFilepattern(".").call();
+			RevCommit first = git.commit().setMessage("first").call();
+			writeTrashFile("c/z", "changed");
+			writeTrashFile("c/d/w", "new");
+			git.add().addFilepattern(".").call();
+			git.commit().setMessage("second").call();
+
+			assertNull(SparseCheckout.read(db));
+			SparseCheckout.cone(Arrays.asList("a/b")).write(db);
+			assertEquals(Collections.singleton("a/b"),
+					SparseCheckout.read(db).getDirectories());
+			assertTrue(new File(db.getDirectory(),
+					Constants.INFO_SPARSE_CHECKOUT).isFile());
+
+			StoredConfig config = db.getConfig();
+			config.setBoolean(ConfigConstants.CONFIG_CORE_SECTION, null,
+					ConfigConstants.CONFIG_KEY_SPARSE_CHECKOUT_CONE, false);
+			assertNull(SparseCheckout.read(db));
+			config.setBoolean(ConfigConstants.CONFIG_CORE_SECTION, null,
+					ConfigConstants.CONFIG_KEY_SPARSE_CHECKOUT_CONE, true);
+			assertNotNull(SparseCheckout.read(db));
+
+			git.checkout().setName(first.name()).call();
+			assertEquals(
+					"[a/b/y, mode:100644, content:a/b/y]"
+							+ "[a/x, mode:100644, content:a/x]"
+							+ "[c/z, mode:100644, content:c/z]"
+							+ "[top, mode:100644, content:top]",
+					indexState(CONTENT));
+			assertFalse(new File(trash, "c").exists());
+			DirCache dc = db.readDirCache();
+			assertTrue(dc.getEntry("c/z").isSkipWorkTree());
+			assertFalse(dc.getEntry("a/x").isSkipWorkTree());
+			assertTrue(git.status().call().isClean());
+
+			SparseCheckout.cone(Arrays.asList("c")).write(db);
+			git.checkout().setName("master").call();
+			assertFalse(new File(trash, "a/b/y").exists());
+			assertEquals("changed", read("c/z"));
+			assertEquals("new", read("c/d/w"));
+			dc = db.readDirCache();
+			assertTrue(dc.getEntry("a/b/y").isSkipWorkTree());
+			assertFalse(dc.getEntry("c/d/w").isSkipWorkTree());
+			assertTrue(git.status().call().isClean());
+		}
+	}
+
+	@Test
+	public void testIsSparseDirectory() throws Exception {
+		DirCache dc = DirCache.newInCore();
+		DirCacheBuilder b = dc.builder();
+		b.add(entry("a/b/y", true));
+		b.add(entry("a/x", true));
+		b.add(entry("c/d/w", true));
+		b.add(entry("c/z", false));
+		b.add(entry("top", false));
+		b.finish();
+
+		try (TreeWalk tw = new TreeWalk(db)) {
+			tw.addTree(new DirCacheIterator(dc));
+			List<String> sparse = new ArrayList<>();
+			while (tw.next()) {
+				if (tw.getTree(0, DirCacheIterator.class).isSparseDirectory())
+					sparse.add(tw.getPathString());
+				if (tw.isSubtree())
+					tw.enterSubtree();
+			}
+			assertEquals(Arrays.asList("a", "a/b", "c/d"), sparse);
+		}
+	}
+
+	@Test
+	public void testSkipWorkTreeFilter() throws Exception {
+		try (Git git = new Git(db)) {
+			writeTrashFile("top", "top");
+			writeTrashFile("a/x", "a/x");
+			writeTrashFile("c/old", "c/old");
+			writeTrashFile("c/z", "c/z");
+			git.add().addFilepattern(".").call();
+			RevCommit commit = git.commit().setMessage("commit").call();
+			SparseCheckout.cone(Arrays.asList("a")).write(db);
+			git.checkout().setName(commit.name()).setForce(true).call();
+			assertFalse(new File(trash, "c").exists());
+
+			// The sparse directory matches HEAD and is skipped as a whole.
+			DirCache dc = db.lockDirCache();
+			try (ObjectInserter ins = db.newObjectInserter()) {
+				dc.writeTree(ins);
+			}
+			assertEquals(Arrays.asList("a", "top"),
+					walk(commit, dc, false));
+
+			// A working tree entry at its path is walked.
+			writeTrashFile("c/new", "new");
+			assertEquals(Arrays.asList("a", "c", "top"),
+					walk(commit, dc, false));
+			assertEquals(Arrays.asList("a/x", "c/new", "top"),
+					walk(commit, dc, true));
+			new File(trash, "c/new").delete();
+			new File(trash, "c").delete();
+
+			// So is a path only in HEAD, i.e. a staged deletion.
+			DirCacheEditor ed = dc.editor();
+			ed.add(new DirCacheEditor.DeletePath("c/old"));
+			assertTrue(ed.commit());
+			assertEquals(Arrays.asList("a/x", "c/old", "top"),
+					walk(commit, dc, true));
+			assertEquals(Collections.singleton("c/old"),
+					git.status().call().getRemoved());
+		}
+	}
+
+	@Test
+	public void testCheckoutPathsSkipsSparseFiles() throws Exception {
+		try (Git git = new Git(db)) {
+			writeTrashFile("a/x", "a/x");
+			writeTrashFile("c/z", "c/z");
+			git.add().addFilepattern(".").call();
+			RevCommit first = git.commit().setMessage("first").call();
+			writeTrashFile("a/x", "changed");
+			writeTrashFile("c/z", "changed");
+			git.add().addFilepattern(".").call();
+			git.commit().setMessage("second").call();
+			SparseCheckout.cone(Arrays.asList("a")).write(db);
+			git.checkout().setName("master").setForce(true).call();
+			assertFalse(new File(trash, "c").exists());
+
+			git.checkout().addPath("c/z").call();
+			assertFalse(new File(trash, "c").exists());
+
+			git.checkout().setStartPoint(first).addPath("a/x").addPath("c/z")
+					.call();
+			assertEquals("a/x", read("a/x"));
+			assertFalse(new File(trash, "c").exists());
+			assertEquals(
+					"[a/x, mode:100644, content:a/x]"
+							+ "[c/z, mode:100644, content:c/z]",
+					indexState(CONTENT));
+			assertTrue(db.readDirCache().getEntry("c/z").isSkipWorkTree());
+		}
+	}
+
+	@Test
+	public void testCopyMetaDataKeepsExtendedFlags() {
+		DirCacheEntry skipped = entry("a", true);
+		DirCacheEntry e = new DirCacheEntry("longer/path");
+		e.copyMetaData(skipped);
+		assertTrue(e.isSkipWorkTree());
+		assertEquals(FileMode.REGULAR_FILE, e.getFileMode());
+		assertEquals("longer/path", e.getPathString());
+
+		e.copyMetaData(entry("b", false));
+		assertFalse(e.isSkipWorkTree());
+		assertEquals("longer/path", e.getPathString());
+	}
+
+	private static DirCacheEntry entry(String path, boolean skipWorkTree) {
+		DirCacheEntry e = new DirCacheEntry(path);
+		e.setFileMode(FileMode.REGULAR_FILE);
+		e.setSkipWorkTree(skipWorkTree);
+		return e;
+	}
+
+	private List<String> walk(RevCommit head, DirCache dc, boolean recursive)
+			throws Exception {
+		List<String> paths = new ArrayList<>();
+		try (TreeWalk tw = new TreeWalk(db)) {
+			tw.addTree(head.getTree());
+			tw.addTree(new DirCacheIterator(dc));
+			tw.addTree(new FileTreeIterator(db));
+			tw.setFilter(new SkipWorkTreeFilter(1));
+			tw.setRecursive(recursive);
+			while (tw.next())
+				paths.add(tw.getPathString());
+		}
+		return paths;
+	}
+}
@@ -0,0 +1,165 @@
+/*
+ * Copyright (C) 2019, Google LLC.
+ * and other copyright owners as documented in the project's IP log.
+ *
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Distribution License v1.0 which
+ * accompanies this distribution, is reproduced below, and is
+ * available at http://www.eclipse.org/org/documents/edl-v10.php
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or
+ * without modification, are permitted provided that the following
+ * conditions are met:
+ *
+ * - Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * - Redistributions in binary form must reproduce the above
+ *   copyright notice, this list of conditions and the following
+ *   disclaimer in the documentation and/or other materials provided
+ *   with the distribution.
+ *
+ * - Neither the name of the Eclipse Foundation, Inc. nor the
+ *   names of its contributors may be used to endorse or promote
+ *   products derived from this software without specific prior
+ *   written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND
+ * CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.eclipse.jgit.dircache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+
+import org.eclipse.jgit.dircache.UntrackedCache.Directory;
+import org.eclipse.jgit.junit.RepositoryTestCase;
+import org.eclipse.jgit.lib.FileMode;
+import org.eclipse.jgit.lib.ObjectId;
+import org.junit.Test;
+
+public class UntrackedCacheTest extends RepositoryTestCase {
+	private static final ObjectId ID = ObjectId
+			.fromString("cc30ca8b9b10bb92f8e5c96ee94348c6c4ac93e6");
+
+	@Test
+	public void testWriteAndRead() throws Exception {
+		UntrackedCache cache = new UntrackedCache("Location /test", 0, ID,
+				null);
+		Directory a = new Directory("a");
+		a.addUntracked("x");
+		a.addUntracked("y");
+		a.setLastModified(1234567);
+		a.setExcludeId(ID);
+		Directory b = new Directory("b");
+		b.setLastModified(2000);
+		a.addChild(b);
+		cache.put("", a);
+		cache.setExcludeId("", null);
+
+		DirCache dc = db.lockDirCache();
+		dc.setUntrackedCache(cache);
+		dc.write();
+		assertTrue(dc.commit());
+
+		cache = DirCache.read(db).getUntrackedCache();
+		assertNotNull(cache);
+		assertTrue(cache.hasIdent("Location /test"));
+		assertFalse(cache.hasIdent("Location /other"));
+		assertEquals(0, cache.getDirFlags());
+		assertEquals(ID, cache.getInfoExcludeId());
+		assertNull(cache.getExcludesFileId());
+		assertEquals(".gitignore", cache.getExcludePerDir());
+
+		Directory root = cache.getRoot();
+		assertFalse(root.isValid());
+		assertNull(root.getExcludeId());
+		a = cache.find("a");
+		assertTrue(a.isValid());
+		assertEquals(Arrays.asList("x", "y"), a.getUntracked());
+		assertEquals(1234567, a.getLastModified());
+		assertEquals(ID, a.getExcludeId());
+		b = cache.find("a/b");
+		assertTrue(b.isValid());
+		assertEquals(2000, b.getLastModified());
+		assertNull(b.getExcludeId());
+		assertNull(cache.find("a/c"));
+	}
+
+	@Test
+	public void testWriteAndReadEmpty() throws Exception {
+		DirCache dc = db.lockDirCache();
+		dc.setUntrackedCache(new UntrackedCache("Location /test", 0, null,
+				null));
+		dc.write();
+		assertTrue(dc.commit());
+
+		UntrackedCache cache = DirCache.read(db).getUntrackedCache();
+		assertNotNull(cache);
+		assertNull(cache.getRoot());
+		assertNull(cache.getInfoExcludeId());
+	}
+
+	@Test
+	public void testInvalidatedByIndexChange() throws Exception {
+		UntrackedCache cache = new UntrackedCache("Location /test", 0, null,
+				null);
+		for (String path : new String[] { "a", "a/b", "c" }) {
+			int slash = path.lastIndexOf('/');
+			Directory d = new Directory(path.substring(slash + 1));
+			d.setLastModified(1000);
+			cache.put(slash < 0 ? "" : path.substring(0, slash), d);
+		}
+		DirCache dc = DirCache.newInCore();
+		dc.setUntrackedCache(cache);
+
+		DirCacheBuilder b = dc.builder();
+		DirCacheEntry e = new DirCacheEntry("a/b/f");
+		e.setFileMode(FileMode.REGULAR_FILE);
+		b.add(e);
+		b.finish();
+
+		assertFalse(cache.find("a").isValid());
+		assertFalse(cache.find("a/b").isValid());
+		assertTrue(cache.find("c").isValid());
+	}
+
+	@Test
+	public void testExcludeIdChangeInvalidatesSubtree() throws Exception {
+		UntrackedCache cache = new UntrackedCache("Location /test", 0, null,
+				null);
+		Directory a = new Directory("a");
+		a.setLastModified(1000);
+		Directory b = new Directory("b");
+		b.setLastModified(1000);
+		a.addChild(b);
+		cache.put("", a);
+
+		cache.setExcludeId("a", null);
+		assertTrue(cache.find("a/b").isValid());
+
+		cache.setExcludeId("a", ID);
+		assertFalse(cache.find("a").isValid());
+		assertFalse(cache.find("a/b").isValid());
+		assertEquals(ID, cache.find("a").getExcludeId());
+	}
+}
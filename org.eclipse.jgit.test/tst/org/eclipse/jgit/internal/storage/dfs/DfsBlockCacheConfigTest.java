@@ -40,8 +40,13 @@
 
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 
 import org.eclipse.jgit.internal.JGitText;
+import org.eclipse.jgit.internal.storage.pack.PackExt;
+import org.eclipse.jgit.lib.Config;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
@@ -85,4 +90,27 @@ public void validBlockSize() {
 
 		assertThat(config.getBlockSize(), is(65536));
 	}
+
+	@Test
+	public void offHeapFromConfig() {
+		Config rc = new Config();
+		assertFalse(new DfsBlockCacheConfig().fromConfig(rc).isOffHeap());
+		rc.setBoolean("core", "dfs", "offHeap", true);
+		assertTrue(new DfsBlockCacheConfig().fromConfig(rc).isOffHeap());
+	}
+
+	@Test
+	public void retentionWeights() {
+		DfsBlockCacheConfig config = new DfsBlockCacheConfig();
+		assertEquals(0, config.getRetentionWeight(PackExt.PACK));
+		assertEquals(3, config.getRetentionWeight(PackExt.INDEX));
+		assertEquals(3, config.getRetentionWeight(PackExt.BITMAP_INDEX));
+		assertEquals(3, config.getRetentionWeight(PackExt.REFTABLE));
+
+		config.setRetentionWeight(PackExt.PACK, 1);
+		assertEquals(1, config.getRetentionWeight(PackExt.PACK));
+
+		thrown.expect(IllegalArgumentException.class);
+		config.setRetentionWeight(PackExt.INDEX, -1);
+	}
 }
@@ -45,17 +45,30 @@
 
 import static org.eclipse.jgit.lib.Constants.OBJ_BLOB;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.Deque;
 import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.stream.LongStream;
 
+import org.eclipse.jgit.internal.storage.pack.PackExt;
+import org.eclipse.jgit.internal.storage.pack.PackWriter;
 import org.eclipse.jgit.junit.TestRng;
+import org.eclipse.jgit.lib.NullProgressMonitor;
 import org.eclipse.jgit.lib.ObjectId;
 import org.eclipse.jgit.lib.ObjectInserter;
 import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.storage.pack.PackConfig;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
@@ -136,10 +149,215 @@ public void weirdBlockSize() throws Exception {
 		}
 	}
 
+	@SuppressWarnings("resource")
+	@Test
+	public void offHeapBlocks() throws Exception {
+		resetCache(new DfsBlockCacheConfig().setOffHeap(true));
+		DfsRepositoryDescription repo = new DfsRepositoryDescription("test");
+		InMemoryRepository r1 = new InMemoryRepository(repo);
+		byte[] content = rng.nextBytes(424242);
+		ObjectId id;
+		try (ObjectInserter ins = r1.newObjectInserter()) {
+			id = ins.insert(OBJ_BLOB, content);
+			ins.flush();
+		}
+
+		DfsPackFile pack = r1.getObjectDatabase().getPacks()[0];
+		DfsBlock block = cache.get(pack.key, 0);
+		assertTrue(block.isDirect());
+
+		resetCache(new DfsBlockCacheConfig().setOffHeap(true));
+		List<DfsPackDescription> packs = r1.getObjectDatabase().listPacks();
+		InMemoryRepository r2 = new InMemoryRepository(repo);
+		r2.getObjectDatabase().commitPack(packs, Collections.emptyList());
+		try (ObjectReader rdr = r2.newObjectReader()) {
+			byte[] actual = rdr.open(id, OBJ_BLOB).getBytes();
+			assertTrue(Arrays.equals(content, actual));
+		}
+		assertTrue(LongStream.of(cache.getMissCount()).sum() > 0);
+		block = cache.get(pack.key, 0);
+		assertTrue(block.isDirect());
+
+		// Reuse the stored representation, copying blocks as-is.
+		byte[] actual = writePack(r2, id);
+		resetCache(new DfsBlockCacheConfig());
+		InMemoryRepository r3 = new InMemoryRepository(repo);
+		r3.getObjectDatabase().commitPack(packs, Collections.emptyList());
+		assertTrue(Arrays.equals(writePack(r3, id), actual));
+	}
+
+	@SuppressWarnings("resource")
+	@Test
+	public void offHeapCacheSmallerThanPack() throws Exception {
+		resetCache(new DfsBlockCacheConfig().setOffHeap(true)
+				.setBlockSize(512).setBlockLimit(8 * 512));
+		DfsRepositoryDescription repo = new DfsRepositoryDescription("test");
+		InMemoryRepository r1 = new InMemoryRepository(repo);
+		Random random = new Random(42);
+		byte[][] content = new byte[8][];
+		ObjectId[] id = new ObjectId[content.length];
+		try (ObjectInserter ins = r1.newObjectInserter()) {
+			for (int i = 0; i < content.length; i++) {
+				content[i] = new byte[4000 + i];
+				random.nextBytes(content[i]);
+				id[i] = ins.insert(OBJ_BLOB, content[i]);
+			}
+			ins.flush();
+		}
+
+		// Blocks are evicted while still pinned by the reader; their slots
+		// must not be reused until the blocks are unreachable.
+		for (int pass = 0; pass < 3; pass++) {
+			try (ObjectReader rdr = r1.newObjectReader()) {
+				for (int i = 0; i < content.length; i++) {
+					byte[] actual = rdr.open(id[i], OBJ_BLOB).getBytes();
+					assertTrue(Arrays.equals(content[i], actual));
+				}
+			}
+			System.gc();
+		}
+		assertTrue(LongStream.of(cache.getEvictions()).sum() > 0);
+	}
+
+	@SuppressWarnings("resource")
+	@Test
+	public void heapBlocksByDefault() throws Exception {
+		DfsRepositoryDescription repo = new DfsRepositoryDescription("test");
+		InMemoryRepository r1 = new InMemoryRepository(repo);
+		try (ObjectInserter ins = r1.newObjectInserter()) {
+			ins.insert(OBJ_BLOB, rng.nextBytes(4096));
+			ins.flush();
+		}
+		DfsPackFile pack = r1.getObjectDatabase().getPacks()[0];
+		assertFalse(cache.<DfsBlock> get(pack.key, 0).isDirect());
+	}
+
+	@Test
+	public void retentionWeightKeepsIndexDuringPackScan() {
+		assertEquals(-1, scanPackUntilIndexEvicted(5, 500));
+		assertTrue(scanPackUntilIndexEvicted(0, 500) >= 0);
+	}
+
+	private int scanPackUntilIndexEvicted(int weight, int blocks) {
+		resetCache(new DfsBlockCacheConfig().setBlockSize(512)
+				.setBlockLimit(16 * 512).setConcurrencyLevel(1)
+				.setRetentionWeight(PackExt.INDEX, weight));
+		DfsRepositoryDescription repo = new DfsRepositoryDescription("test");
+		DfsStreamKey idx = DfsStreamKey.of(repo, "a.idx", PackExt.INDEX);
+		DfsStreamKey pack = DfsStreamKey.of(repo, "a.pack", PackExt.PACK);
+		cache.putRef(idx, 512, new Object());
+		for (int i = 0; i < blocks; i++) {
+			cache.put(new DfsBlock(pack, i * 512L, new byte[512]));
+			if (i % 24 == 23 && cache.get(idx, 0) == null) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	@Test
+	public void customEvictionPolicy() {
+		List<DfsStreamKey> evicted = new ArrayList<>();
+		DfsBlockCacheEvictionPolicy fifo = new DfsBlockCacheEvictionPolicy() {
+			private final Deque<Entry> queue = new ArrayDeque<>();
+
+			@Override
+			public synchronized void add(Entry e) {
+				queue.add(e);
+			}
+
+			@Override
+			public synchronized Entry evict() {
+				Entry e = queue.poll();
+				if (e != null) {
+					evicted.add(((DfsBlockCache.Ref<?>) e).key);
+				}
+				return e;
+			}
+		};
+		resetCache(new DfsBlockCacheConfig().setBlockSize(512)
+				.setBlockLimit(4 * 512).setEvictionPolicy(cfg -> fifo));
+
+		DfsRepositoryDescription repo = new DfsRepositoryDescription("test");
+		DfsStreamKey[] keys = new DfsStreamKey[6];
+		for (int i = 0; i < keys.length; i++) {
+			keys[i] = DfsStreamKey.of(repo, "p" + i, PackExt.PACK);
+			cache.put(new DfsBlock(keys[i], 0, new byte[512]));
+			// Unlike a clock, FIFO evicts regardless of recent reads.
+			cache.get(keys[0], 0);
+		}
+		assertEquals(Arrays.asList(keys[0], keys[1]), evicted);
+		assertEquals(2, LongStream.of(cache.getEvictions()).sum());
+		assertEquals(4 * 512, LongStream.of(cache.getCurrentSize()).sum());
+	}
+
+	@SuppressWarnings("resource")
+	@Test
+	public void concurrentReadsWithEviction() throws Exception {
+		resetCache(new DfsBlockCacheConfig().setBlockSize(512)
+				.setBlockLimit(8 * 512).setConcurrencyLevel(4));
+		DfsRepositoryDescription repo = new DfsRepositoryDescription("test");
+		InMemoryRepository r1 = new InMemoryRepository(repo);
+		Random random = new Random(42);
+		byte[][] content = new byte[16][];
+		ObjectId[] id = new ObjectId[content.length];
+		try (ObjectInserter ins = r1.newObjectInserter()) {
+			for (int i = 0; i < content.length; i++) {
+				content[i] = new byte[2000 + i];
+				random.nextBytes(content[i]);
+				id[i] = ins.insert(OBJ_BLOB, content[i]);
+			}
+			ins.flush();
+		}
+
+		ExecutorService pool = Executors.newFixedThreadPool(4);
+		try {
+			List<Future<?>> tasks = new ArrayList<>();
+			for (int t = 0; t < 4; t++) {
+				int first = t;
+				tasks.add(pool.submit(() -> {
+					try (ObjectReader rdr = r1.newObjectReader()) {
+						for (int n = 0; n < 200; n++) {
+							int i = (first + n * 7) % content.length;
+							assertTrue(Arrays.equals(content[i],
+									rdr.open(id[i], OBJ_BLOB).getBytes()));
+						}
+					}
+					return null;
+				}));
+			}
+			for (Future<?> f : tasks) {
+				f.get();
+			}
+		} finally {
+			pool.shutdown();
+		}
+		assertTrue(LongStream.of(cache.getEvictions()).sum() > 0);
+		assertTrue(LongStream.of(cache.getCurrentSize()).sum() <= 8 * 512);
+	}
+
+	private static byte[] writePack(InMemoryRepository repo, ObjectId id)
+			throws Exception {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		PackConfig cfg = new PackConfig(repo);
+		try (ObjectReader rdr = repo.newObjectReader();
+				PackWriter pw = new PackWriter(cfg, rdr)) {
+			pw.preparePack(NullProgressMonitor.INSTANCE,
+					Collections.singleton(id), PackWriter.NONE);
+			pw.writePack(NullProgressMonitor.INSTANCE,
+					NullProgressMonitor.INSTANCE, out);
+		}
+		return out.toByteArray();
+	}
+
 	private void resetCache() {
-		DfsBlockCache.reconfigure(new DfsBlockCacheConfig()
+		resetCache(new DfsBlockCacheConfig()
 				.setBlockSize(512)
 				.setBlockLimit(1 << 20));
+	}
+
+	private void resetCache(DfsBlockCacheConfig cfg) {
+		DfsBlockCache.reconfigure(cfg);
 		cache = DfsBlockCache.getInstance();
 	}
 }
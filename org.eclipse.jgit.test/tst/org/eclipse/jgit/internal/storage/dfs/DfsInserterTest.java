@@ -48,7 +48,9 @@
 import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
+import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.ByteBuffer;
 import java.util.Arrays;
 import java.util.Collection;
@@ -58,15 +60,19 @@
 import java.util.zip.Deflater;
 
 import org.eclipse.jgit.internal.storage.dfs.DfsObjDatabase.PackSource;
+import org.eclipse.jgit.internal.storage.file.PackIndex;
+import org.eclipse.jgit.internal.storage.file.PackIndex.MutableEntry;
 import org.eclipse.jgit.internal.storage.pack.PackExt;
 import org.eclipse.jgit.junit.JGitTestUtil;
 import org.eclipse.jgit.junit.TestRng;
 import org.eclipse.jgit.lib.AbbreviatedObjectId;
 import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.NullProgressMonitor;
 import org.eclipse.jgit.lib.ObjectId;
 import org.eclipse.jgit.lib.ObjectInserter;
 import org.eclipse.jgit.lib.ObjectLoader;
 import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.transport.PackParser;
 import org.eclipse.jgit.util.IO;
 import org.eclipse.jgit.util.RawParseUtils;
 import org.junit.Before;
@@ -250,6 +256,30 @@ public void testNoCheckExisting() throws IOException {
 		assertTrue(p2.hasObject(reader, fooId));
 	}
 
+	@Test
+	public void testParsePackWithThreads() throws IOException {
+		String name = "pack-df2982f284bbabb6bdb59ee3fcc6eb0983e20371";
+		try (InputStream in = new FileInputStream(
+				JGitTestUtil.getTestResourceFile(name + ".pack"));
+				ObjectInserter ins = db.newObjectInserter()) {
+			PackParser p = ins.newPackParser(in);
+			p.setThreads(4);
+			p.parse(NullProgressMonitor.INSTANCE);
+			ins.flush();
+		}
+
+		PackIndex idx = PackIndex
+				.open(JGitTestUtil.getTestResourceFile(name + ".idx"));
+		assertEquals(1, db.getObjectDatabase().getPacks().length);
+		try (ObjectReader reader = db.newObjectReader()) {
+			for (MutableEntry e : idx) {
+				ObjectLoader ldr = reader.open(e.toObjectId());
+				assertEquals(e.toObjectId(), new ObjectInserter.Formatter()
+						.idFor(ldr.getType(), ldr.getCachedBytes()));
+			}
+		}
+	}
+
 	private static String readString(ObjectLoader loader) throws IOException {
 		return RawParseUtils.decode(readStream(loader));
 	}
@@ -0,0 +1,227 @@
+/*
+ * Copyright (C) 2019, Google LLC.
+ * and other copyright owners as documented in the project's IP log.
+ *
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Distribution License v1.0 which
+ * accompanies this distribution, is reproduced below, and is
+ * available at http://www.eclipse.org/org/documents/edl-v10.php
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or
+ * without modification, are permitted provided that the following
+ * conditions are met:
+ *
+ * - Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * - Redistributions in binary form must reproduce the above
+ *   copyright notice, this list of conditions and the following
+ *   disclaimer in the documentation and/or other materials provided
+ *   with the distribution.
+ *
+ * - Neither the name of the Eclipse Foundation, Inc. nor the
+ *   names of its contributors may be used to endorse or promote
+ *   products derived from this software without specific prior
+ *   written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND
+ * CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+package org.eclipse.jgit.internal.storage.dfs;
+
+import static org.eclipse.jgit.lib.Constants.OBJ_BLOB;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.LongStream;
+
+import org.eclipse.jgit.internal.storage.pack.PackOutputStream;
+import org.eclipse.jgit.internal.storage.pack.PackWriter;
+import org.eclipse.jgit.lib.Config;
+import org.eclipse.jgit.lib.NullProgressMonitor;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectInserter;
+import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.storage.pack.PackConfig;
+import org.junit.Before;
+import org.junit.Test;
+
+public class DfsPrefetcherTest {
+	private static final int BLOCK = 512;
+
+	private DfsRepositoryDescription repo;
+
+	private List<DfsPackDescription> packs;
+
+	private ObjectId id;
+
+	private DfsBlockCache cache;
+
+	@Before
+	public void setUp() throws Exception {
+		DfsBlockCache.reconfigure(new DfsBlockCacheConfig()
+				.setBlockSize(BLOCK).setBlockLimit(1 << 20));
+		repo = new DfsRepositoryDescription("test");
+		InMemoryRepository r1 = new InMemoryRepository(repo);
+		byte[] content = new byte[32 * BLOCK];
+		new Random(42).nextBytes(content);
+		try (ObjectInserter ins = r1.newObjectInserter()) {
+			id = ins.insert(OBJ_BLOB, content);
+			ins.flush();
+		}
+		packs = r1.getObjectDatabase().listPacks();
+
+		// Start from an empty cache, so only reads below load blocks.
+		DfsBlockCache.reconfigure(new DfsBlockCacheConfig()
+				.setBlockSize(BLOCK).setBlockLimit(1 << 20));
+		cache = DfsBlockCache.getInstance();
+	}
+
+	@Test
+	public void disabledByDefault() throws Exception {
+		try (DfsReader rdr = open().getObjectDatabase().newReader()) {
+			assertEquals(0, rdr.getOptions().getPrefetchLimit());
+			assertNull(rdr.beginPrefetch());
+		}
+	}
+
+	@Test
+	public void prefetchLimitFromConfig() {
+		Config cfg = new Config();
+		cfg.setInt("core", "dfs", "prefetchLimit", 1 << 20);
+		assertEquals(1 << 20,
+				new DfsReaderOptions().fromConfig(cfg).getPrefetchLimit());
+	}
+
+	@SuppressWarnings("resource")
+	@Test
+	public void loadsOnlyUpToLimitAhead() throws Exception {
+		AtomicInteger tasks = new AtomicInteger();
+		InMemoryRepository r = open();
+		r.getObjectDatabase().getReaderOptions().setPrefetchLimit(4 * BLOCK)
+				.setPrefetchExecutor(t -> {
+					tasks.incrementAndGet();
+					t.run();
+				});
+		DfsPackFile pack = r.getObjectDatabase().getPacks()[0];
+		try (DfsReader rdr = r.getObjectDatabase().newReader()) {
+			DfsPrefetcher prefetch = rdr.beginPrefetch();
+			for (int i = 0; i < 16; i++) {
+				prefetch.add(pack, i * BLOCK, (i + 1) * BLOCK);
+			}
+
+			prefetch.advance(0);
+			for (int i = 0; i < 4; i++) {
+				assertTrue(cache.contains(pack.key, i * BLOCK));
+			}
+			assertFalse(cache.contains(pack.key, 4 * BLOCK));
+
+			prefetch.advance(3);
+			for (int i = 4; i < 7; i++) {
+				assertTrue(cache.contains(pack.key, i * BLOCK));
+			}
+			assertFalse(cache.contains(pack.key, 7 * BLOCK));
+			assertEquals(7, tasks.get());
+
+			// Loads by the prefetcher are not charged to the reader.
+			assertEquals(0, rdr.getIoStats().getReadBlocksCount());
+		}
+	}
+
+	@SuppressWarnings("resource")
+	@Test
+	public void overlappingRangesLoadOnce() throws Exception {
+		AtomicInteger tasks = new AtomicInteger();
+		InMemoryRepository r = open();
+		r.getObjectDatabase().getReaderOptions().setPrefetchLimit(64 * BLOCK)
+				.setPrefetchExecutor(t -> {
+					tasks.incrementAndGet();
+					t.run();
+				});
+		DfsPackFile pack = r.getObjectDatabase().getPacks()[0];
+		try (DfsReader rdr = r.getObjectDatabase().newReader()) {
+			DfsPrefetcher prefetch = rdr.beginPrefetch();
+			prefetch.add(pack, 10, 20);
+			prefetch.add(pack, 30, 40);
+			prefetch.skip();
+			prefetch.add(pack, 100, BLOCK + 10);
+			prefetch.advance(0);
+		}
+		assertTrue(cache.contains(pack.key, 0));
+		assertTrue(cache.contains(pack.key, BLOCK));
+		assertEquals(2, LongStream.of(cache.getMissCount()).sum());
+	}
+
+	@SuppressWarnings("resource")
+	@Test
+	public void copyPackAsIsReadsAhead() throws Exception {
+		InMemoryRepository r = open();
+		r.getObjectDatabase().getReaderOptions().setPrefetchLimit(4 * BLOCK)
+				.setPrefetchExecutor(Runnable::run);
+		DfsPackFile pack = r.getObjectDatabase().getPacks()[0];
+		ByteArrayOutputStream buf = new ByteArrayOutputStream();
+		try (DfsReader rdr = r.getObjectDatabase().newReader();
+				PackWriter pw = new PackWriter(new PackConfig(r), rdr)) {
+			PackOutputStream out = new PackOutputStream(
+					NullProgressMonitor.INSTANCE, buf, pw);
+			rdr.copyPackAsIs(out, new DfsCachedPack(pack));
+			out.flush();
+
+			// Every block was loaded ahead of the copy.
+			assertEquals(0, rdr.getIoStats().getReadBlocksCount());
+		}
+		assertEquals(pack.length - 12 - 20, buf.size());
+		assertTrue(cache.contains(pack.key, pack.alignToBlock(pack.length - 1)));
+	}
+
+	@Test
+	public void packMatchesWithoutPrefetch() throws Exception {
+		byte[] expected = writePack(open());
+		DfsBlockCache.reconfigure(new DfsBlockCacheConfig()
+				.setBlockSize(BLOCK).setBlockLimit(1 << 20));
+		InMemoryRepository r = open();
+		r.getObjectDatabase().getReaderOptions().setPrefetchLimit(4 * BLOCK);
+		assertArrayEquals(expected, writePack(r));
+	}
+
+	private InMemoryRepository open() throws Exception {
+		InMemoryRepository r = new InMemoryRepository(repo);
+		r.getObjectDatabase().commitPack(packs, Collections.emptyList());
+		return r;
+	}
+
+	private byte[] writePack(InMemoryRepository r) throws Exception {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		try (ObjectReader rdr = r.newObjectReader();
+				PackWriter pw = new PackWriter(new PackConfig(r), rdr)) {
+			pw.preparePack(NullProgressMonitor.INSTANCE,
+					Collections.singleton(id), PackWriter.NONE);
+			pw.writePack(NullProgressMonitor.INSTANCE,
+					NullProgressMonitor.INSTANCE, out);
+		}
+		return out.toByteArray();
+	}
+}
@@ -0,0 +1,176 @@
+/*
+ * Copyright (C) 2019, Google LLC.
+ * and other copyright owners as documented in the project's IP log.
+ *
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Distribution License v1.0 which
+ * accompanies this distribution, is reproduced below, and is
+ * available at http://www.eclipse.org/org/documents/edl-v10.php
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or
+ * without modification, are permitted provided that the following
+ * conditions are met:
+ *
+ * - Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * - Redistributions in binary form must reproduce the above
+ *   copyright notice, this list of conditions and the following
+ *   disclaimer in the documentation and/or other materials provided
+ *   with the distribution.
+ *
+ * - Neither the name of the Eclipse Foundation, Inc. nor the
+ *   names of its contributors may be used to endorse or promote
+ *   products derived from this software without specific prior
+ *   written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND
+ * CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+package org.eclipse.jgit.internal.storage.file;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+
+import org.eclipse.jgit.lib.CommitGraph;
+import org.eclipse.jgit.lib.CommitGraph.CommitData;
+import org.eclipse.jgit.lib.ConfigConstants;
+import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.storage.file.FileBasedConfig;
+import org.junit.Test;
+
+public class CommitGraphTest extends GcTestCase {
+	@Test
+	public void gcWritesCommitGraph() throws Exception {
+		RevCommit a = tr.commit().add("a", "a").create();
+		RevCommit b = tr.commit().parent(a).add("b", "b").create();
+		RevCommit c = tr.commit().parent(a).add("c", "c").create();
+		RevCommit d = tr.commit().parent(a).add("d", "d").create();
+		RevCommit merge = tr.commit().parent(b).parent(c).create();
+		RevCommit octopus = tr.commit().parent(merge).parent(d).parent(b)
+				.create();
+		tr.update("refs/heads/master", octopus);
+
+		gc.gc();
+
+		File graphFile = repo.getObjectDatabase().getCommitGraphFile();
+		assertTrue(graphFile.isFile());
+		CommitGraphFile graph = CommitGraphFile.open(graphFile);
+		assertEquals(6, graph.getCommitCnt());
+
+		assertCommitData(graph, a, 1);
+		assertCommitData(graph, b, 2);
+		assertCommitData(graph, c, 2);
+		assertCommitData(graph, d, 2);
+		assertCommitData(graph, merge, 3);
+		assertCommitData(graph, octopus, 4);
+		assertEquals(-1, graph.findGraphPosition(a.getTree()));
+	}
+
+	@Test
+	public void revWalkParsesCommitsFromGraph() throws Exception {
+		RevCommit a = tr.commit().add("a", "a").create();
+		RevCommit b = tr.commit().parent(a).add("b", "b").create();
+		RevCommit c = tr.commit().parent(a).add("c", "c").create();
+		RevCommit merge = tr.commit().parent(b).parent(c).create();
+		tr.update("refs/heads/master", merge);
+		gc.gc();
+
+		try (RevWalk rw = new RevWalk(repo)) {
+			rw.setRetainBody(false);
+			assertNotNull(rw.getObjectReader().getCommitGraph());
+			RevCommit m = rw.parseCommit(merge);
+			assertEquals(merge.getTree(), m.getTree());
+			assertEquals(merge.getCommitTime(), m.getCommitTime());
+			assertEquals(2, m.getParentCount());
+			assertEquals(b, m.getParent(0));
+			assertEquals(c, m.getParent(1));
+			assertNull(m.getRawBuffer());
+
+			rw.markStart(m);
+			assertEquals(m, rw.next());
+			assertEquals(c, rw.next());
+			assertEquals(b, rw.next());
+			RevCommit root = rw.next();
+			assertEquals(a, root);
+			assertEquals(0, root.getParentCount());
+			assertEquals(a.getTree(), root.getTree());
+			assertNull(rw.next());
+		}
+
+		try (RevWalk rw = new RevWalk(repo)) {
+			RevCommit m = rw.parseCommit(merge);
+			assertEquals(merge.getFullMessage(), m.getFullMessage());
+		}
+	}
+
+	@Test
+	public void commitGraphCanBeDisabled() throws Exception {
+		RevCommit a = tr.commit().add("a", "a").create();
+		tr.update("refs/heads/master", a);
+		gc.gc();
+		assertTrue(repo.getObjectDatabase().getCommitGraphFile().isFile());
+
+		FileBasedConfig config = repo.getConfig();
+		config.setBoolean(ConfigConstants.CONFIG_CORE_SECTION, null,
+				ConfigConstants.CONFIG_KEY_COMMIT_GRAPH, false);
+		config.save();
+		try (ObjectReader reader = repo.newObjectReader()) {
+			assertNull(reader.getCommitGraph());
+		}
+	}
+
+	@Test
+	public void gcWithoutWriteCommitGraph() throws Exception {
+		RevCommit a = tr.commit().add("a", "a").create();
+		tr.update("refs/heads/master", a);
+
+		FileBasedConfig config = repo.getConfig();
+		config.setBoolean(ConfigConstants.CONFIG_GC_SECTION, null,
+				ConfigConstants.CONFIG_KEY_WRITE_COMMIT_GRAPH, false);
+		config.save();
+		gc.gc();
+		assertFalse(repo.getObjectDatabase().getCommitGraphFile().exists());
+	}
+
+	private static void assertCommitData(CommitGraph graph, RevCommit c,
+			int generation) {
+		int pos = graph.findGraphPosition(c);
+		assertTrue(pos >= 0);
+		assertEquals(c, graph.getObjectId(pos));
+
+		CommitData data = graph.getCommitData(pos);
+		assertEquals(c.getTree(), data.getTree());
+		assertEquals(c.getCommitTime(), data.getCommitTime());
+		assertEquals(generation, data.getGeneration());
+
+		int[] parents = new int[c.getParentCount()];
+		for (int i = 0; i < parents.length; i++) {
+			parents[i] = graph.findGraphPosition(c.getParent(i));
+		}
+		assertArrayEquals(parents, data.getParents());
+	}
+}
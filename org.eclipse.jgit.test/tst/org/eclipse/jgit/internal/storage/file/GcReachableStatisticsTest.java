@@ -0,0 +1,103 @@
+/*
+ * Copyright (C) 2019, Google LLC.
+ * and other copyright owners as documented in the project's IP log.
+ *
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Distribution License v1.0 which
+ * accompanies this distribution, is reproduced below, and is
+ * available at http://www.eclipse.org/org/documents/edl-v10.php
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or
+ * without modification, are permitted provided that the following
+ * conditions are met:
+ *
+ * - Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * - Redistributions in binary form must reproduce the above
+ *   copyright notice, this list of conditions and the following
+ *   disclaimer in the documentation and/or other materials provided
+ *   with the distribution.
+ *
+ * - Neither the name of the Eclipse Foundation, Inc. nor the
+ *   names of its contributors may be used to endorse or promote
+ *   products derived from this software without specific prior
+ *   written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND
+ * CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.eclipse.jgit.internal.storage.file;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Map;
+
+import org.eclipse.jgit.internal.storage.file.GC.ReachableStatistics;
+import org.eclipse.jgit.junit.TestRepository.BranchBuilder;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.junit.Test;
+
+public class GcReachableStatisticsTest extends GcTestCase {
+	@Test
+	public void testCountByNamespace() throws Exception {
+		BranchBuilder main = tr.branch("refs/heads/main");
+		RevCommit base = null;
+		for (int i = 0; i < 10; i++) {
+			String name = "f" + i;
+			base = main.commit().add(name, name).create();
+		}
+		gc.setExpireAgeMillis(0);
+		gc.gc();
+
+		// One more commit on a separate namespace, only loose.
+		tr.branch("refs/changes/01").commit().parent(base).add("g", "g")
+				.create();
+		tr.lightweightTag("v1", tr.tag("v1", base));
+
+		Map<String, ReachableStatistics> stats = gc.getReachableStatistics(
+				Arrays.asList("refs/heads/", "refs/changes/", "refs/tags/",
+						""));
+
+		ReachableStatistics heads = stats.get("refs/heads/");
+		assertEquals(10, heads.numberOfCommits);
+		assertEquals(10, heads.numberOfTrees);
+		assertEquals(10, heads.numberOfBlobs);
+		assertEquals(0, heads.numberOfTags);
+		assertEquals(30, heads.getNumberOfObjects());
+		// The pack written by gc holds exactly these objects, between its
+		// 12 byte header and 20 byte trailer.
+		PackFile pack = repo.getObjectDatabase().getPacks().iterator().next();
+		assertEquals(pack.getPackFile().length() - 32, heads.sizeOfObjects);
+
+		ReachableStatistics changes = stats.get("refs/changes/");
+		assertEquals(11, changes.numberOfCommits);
+		assertEquals(11, changes.numberOfBlobs);
+		assertTrue(changes.sizeOfObjects > heads.sizeOfObjects);
+
+		ReachableStatistics tags = stats.get("refs/tags/");
+		assertEquals(1, tags.numberOfTags);
+		assertEquals(31, tags.getNumberOfObjects());
+
+		ReachableStatistics all = stats.get("");
+		assertEquals(11, all.numberOfCommits);
+		assertEquals(1, all.numberOfTags);
+		assertEquals(34, all.getNumberOfObjects());
+	}
+}
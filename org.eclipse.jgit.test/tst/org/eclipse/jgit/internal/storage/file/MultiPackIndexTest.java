@@ -0,0 +1,299 @@
+/*
+ * Copyright (C) 2019, Google LLC.
+ * and other copyright owners as documented in the project's IP log.
+ *
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Distribution License v1.0 which
+ * accompanies this distribution, is reproduced below, and is
+ * available at http://www.eclipse.org/org/documents/edl-v10.php
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or
+ * without modification, are permitted provided that the following
+ * conditions are met:
+ *
+ * - Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * - Redistributions in binary form must reproduce the above
+ *   copyright notice, this list of conditions and the following
+ *   disclaimer in the documentation and/or other materials provided
+ *   with the distribution.
+ *
+ * - Neither the name of the Eclipse Foundation, Inc. nor the
+ *   names of its contributors may be used to endorse or promote
+ *   products derived from this software without specific prior
+ *   written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND
+ * CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+package org.eclipse.jgit.internal.storage.file;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.eclipse.jgit.internal.storage.file.PackIndex.MutableEntry;
+import org.eclipse.jgit.internal.storage.pack.PackWriter;
+import org.eclipse.jgit.lib.ConfigConstants;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.NullProgressMonitor;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectInserter;
+import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.revwalk.RevBlob;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevObject;
+import org.eclipse.jgit.storage.file.FileBasedConfig;
+import org.eclipse.jgit.util.FileUtils;
+import org.junit.Test;
+
+public class MultiPackIndexTest extends GcTestCase {
+	@Test
+	public void writeCoversAllPacks() throws Exception {
+		createPacks(3);
+		List<PackFile> packs = new ArrayList<>(
+				repo.getObjectDatabase().getPacks());
+		assertEquals(3, packs.size());
+
+		gc.writeMultiPackIndex();
+		File midxFile = repo.getObjectDatabase().getMultiPackIndexFile();
+		assertTrue(midxFile.isFile());
+		MultiPackIndexFile midx = MultiPackIndexFile.open(midxFile);
+
+		String[] names = midx.getPackNames();
+		assertEquals(3, names.length);
+		String[] sorted = names.clone();
+		Arrays.sort(sorted);
+		assertEquals(Arrays.asList(sorted), Arrays.asList(names));
+
+		Set<ObjectId> all = new HashSet<>();
+		for (PackFile p : packs) {
+			for (MutableEntry e : p) {
+				all.add(e.toObjectId());
+			}
+		}
+		assertEquals(all.size(), midx.getObjectCount());
+
+		for (PackFile p : packs) {
+			String idxName = "pack-" + p.getPackName() + ".idx";
+			for (MutableEntry e : p) {
+				int pos = midx.findPosition(e.toObjectId());
+				assertTrue(pos >= 0);
+				assertEquals(e.toObjectId(), midx.getObjectId(pos));
+				if (names[midx.getPackId(pos)].equals(idxName)) {
+					assertEquals(e.getOffset(), midx.getOffset(pos));
+				}
+			}
+		}
+		assertEquals(-1, midx.findPosition(ObjectId.zeroId()));
+	}
+
+	@Test
+	public void objectDirectoryUsesMultiPackIndex() throws Exception {
+		List<RevCommit> commits = createPacks(3);
+		gc.writeMultiPackIndex();
+
+		// Objects in a pack written after the multi-pack-index must still
+		// be found.
+		RevBlob blob = tr.blob("not covered");
+		RevCommit last = tr.commit().add("n", blob).create();
+		tr.update("refs/heads/other", last);
+		writePack(last);
+		commits.add(last);
+
+		ObjectDirectory odb = repo.getObjectDatabase();
+		assertEquals(4, odb.getPacks().size());
+		try (ObjectReader reader = repo.newObjectReader()) {
+			for (RevCommit c : commits) {
+				assertTrue(odb.has(c));
+				assertTrue(odb.hasPackedObject(c));
+				assertNotNull(reader.open(c).getBytes());
+				assertEquals(reader.open(c).getSize(),
+						reader.getObjectSize(c, ObjectReader.OBJ_ANY));
+			}
+			assertEquals("not covered",
+					new String(reader.open(blob).getBytes(), "UTF-8"));
+			assertFalse(odb.has(ObjectId.zeroId()));
+		}
+	}
+
+	@Test
+	public void deletedPackFallsBackToPackIndexes() throws Exception {
+		List<RevCommit> commits = createPacks(2);
+		gc.writeMultiPackIndex();
+
+		// Repacking into a single pack deletes the covered packs, leaving a
+		// multi-pack-index pointing to packs that are gone.
+		FileBasedConfig config = repo.getConfig();
+		config.setBoolean(ConfigConstants.CONFIG_GC_SECTION, null,
+				ConfigConstants.CONFIG_KEY_WRITE_MULTI_PACK_INDEX, false);
+		config.save();
+		File midxFile = repo.getObjectDatabase().getMultiPackIndexFile();
+		byte[] midx = Files.readAllBytes(midxFile.toPath());
+		gc.setPackExpireAgeMillis(0);
+		fsTick();
+		gc.gc();
+		assertFalse(midxFile.exists());
+		Files.write(midxFile.toPath(), midx);
+
+		try (ObjectReader reader = repo.newObjectReader()) {
+			for (RevCommit c : commits) {
+				assertTrue(repo.getObjectDatabase().has(c));
+				assertNotNull(reader.open(c).getBytes());
+			}
+		}
+	}
+
+	@Test
+	public void staleOffsetsOfRewrittenPackAreIgnored() throws Exception {
+		createPacks(1);
+		RevBlob a = tr.blob("a");
+		RevBlob b = tr.blob("b");
+		RevBlob c = tr.blob("c");
+		RevCommit tip = tr.commit().add("a", a).add("b", b).add("c", c)
+				.create();
+		tr.update("refs/heads/abc", tip);
+		List<RevObject> objects = new ArrayList<>(Arrays.asList(tip,
+				tr.getRevWalk().parseTree(tip.getTree()), a, b, c));
+		writePack(objects);
+		gc.writeMultiPackIndex();
+
+		// Writing the same objects in another order keeps the pack name but
+		// moves the objects, leaving stale offsets in the multi-pack-index.
+		Collections.reverse(objects);
+		writePack(objects);
+		try (FileRepository r = new FileRepository(repo.getDirectory());
+				ObjectReader reader = r.newObjectReader()) {
+			for (RevBlob blob : Arrays.asList(a, b, c)) {
+				assertEquals(blob, new ObjectInserter.Formatter().idFor(
+						Constants.OBJ_BLOB, reader.open(blob).getBytes()));
+				assertTrue(r.getObjectDatabase().hasPackedObject(blob));
+			}
+		}
+	}
+
+	@Test
+	public void gcWritesMultiPackIndexOnlyIfConfigured() throws Exception {
+		createPacks(2);
+		gc.setPackExpireAgeMillis(0);
+		fsTick();
+		gc.gc();
+		File midxFile = repo.getObjectDatabase().getMultiPackIndexFile();
+		assertFalse(midxFile.exists());
+
+		// A kept pack survives garbage collection, leaving two packs.
+		PackFile kept = repo.getObjectDatabase().getPacks().iterator().next();
+		File keep = new File(kept.getPackFile().getParentFile(),
+				"pack-" + kept.getPackName() + ".keep");
+		assertTrue(keep.createNewFile());
+		RevCommit c = tr.commit().add("x", "x").create();
+		tr.update("refs/heads/x", c);
+
+		FileBasedConfig config = repo.getConfig();
+		config.setBoolean(ConfigConstants.CONFIG_GC_SECTION, null,
+				ConfigConstants.CONFIG_KEY_WRITE_MULTI_PACK_INDEX, true);
+		config.save();
+		fsTick();
+		gc.gc();
+		assertTrue(midxFile.isFile());
+		assertEquals(2, MultiPackIndexFile.open(midxFile).getPackNames().length);
+	}
+
+	@Test
+	public void multiPackIndexCanBeDisabled() throws Exception {
+		List<RevCommit> commits = createPacks(2);
+		gc.writeMultiPackIndex();
+
+		FileBasedConfig config = repo.getConfig();
+		config.setBoolean(ConfigConstants.CONFIG_CORE_SECTION, null,
+				ConfigConstants.CONFIG_KEY_MULTI_PACK_INDEX, false);
+		config.save();
+		try (FileRepository r = new FileRepository(repo.getDirectory())) {
+			for (RevCommit c : commits) {
+				assertTrue(r.getObjectDatabase().has(c));
+			}
+		}
+	}
+
+	private List<RevCommit> createPacks(int n) throws Exception {
+		List<RevCommit> commits = new ArrayList<>();
+		for (int i = 0; i < n; i++) {
+			RevCommit c = tr.commit().add("f" + i, "content " + i).create();
+			tr.update("refs/heads/b" + i, c);
+			commits.add(c);
+			writePack(c);
+		}
+		return commits;
+	}
+
+	private void writePack(RevCommit tip) throws Exception {
+		try (PackWriter pw = new PackWriter(repo)) {
+			pw.preparePack(NullProgressMonitor.INSTANCE,
+					Collections.singleton(tip), PackWriter.NONE);
+			writePack(pw);
+		}
+	}
+
+	private void writePack(List<RevObject> objects) throws Exception {
+		try (PackWriter pw = new PackWriter(repo)) {
+			pw.preparePack(objects.iterator());
+			writePack(pw);
+		}
+	}
+
+	private void writePack(PackWriter pw) throws Exception {
+		ObjectDirectory odb = repo.getObjectDatabase();
+		File packDir = odb.getPackDirectory();
+		String base = "pack-" + pw.computeName().name();
+		File pack = new File(packDir, base + ".pack");
+
+		// The objects may be read from a pack of the same name, so that
+		// pack must not be overwritten while writing.
+		File tmpPack = File.createTempFile("incoming_", ".pack", packDir);
+		File tmpIdx = File.createTempFile("incoming_", ".idx", packDir);
+		try (OutputStream out = new FileOutputStream(tmpPack)) {
+			pw.writePack(NullProgressMonitor.INSTANCE,
+					NullProgressMonitor.INSTANCE, out);
+		}
+		try (OutputStream out = new FileOutputStream(tmpIdx)) {
+			pw.writeIndex(out);
+		}
+		FileUtils.rename(tmpPack, pack);
+		FileUtils.rename(tmpIdx, new File(packDir, base + ".idx"));
+		odb.openPack(pack);
+		for (PackFile p : odb.getPacks()) {
+			for (MutableEntry e : p) {
+				FileUtils.delete(odb.fileFor(e.toObjectId()),
+						FileUtils.SKIP_MISSING);
+			}
+		}
+	}
+}
@@ -43,6 +43,7 @@
 package org.eclipse.jgit.internal.storage.file;
 
 import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
@@ -64,8 +65,11 @@
 import org.eclipse.jgit.lib.ConfigConstants;
 import org.eclipse.jgit.lib.Constants;
 import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectInserter;
 import org.eclipse.jgit.revwalk.RevCommit;
 import org.eclipse.jgit.storage.file.FileBasedConfig;
+import org.eclipse.jgit.util.sha1.SHA1;
+import org.eclipse.jgit.util.sha1.SHA1.Sha1Implementation;
 import org.junit.Assume;
 import org.junit.Rule;
 import org.junit.Test;
@@ -218,6 +222,32 @@ public void testShallowFileCorrupt()
 		dir.getShallowCommits();
 	}
 
+	@Test
+	public void testSha1ImplementationFromConfig() throws Exception {
+		FileRepository repository = createBareRepository();
+		byte[] data = "trusted content".getBytes(UTF_8);
+		ObjectId expected;
+		try (ObjectInserter ins = repository.newObjectInserter()) {
+			assertEquals(SHA1.getDefaultImplementation(),
+					ins.getSha1Implementation());
+			expected = ins.insert(Constants.OBJ_BLOB, data);
+		}
+
+		FileBasedConfig cfg = repository.getConfig();
+		cfg.setEnum(ConfigConstants.CONFIG_CORE_SECTION, null,
+				ConfigConstants.CONFIG_KEY_SHA1_IMPLEMENTATION,
+				Sha1Implementation.JDKNATIVE);
+		cfg.save();
+		try (FileRepository r = new FileRepository(repository.getDirectory());
+				ObjectInserter ins = r.newObjectInserter()) {
+			assertEquals(Sha1Implementation.JDKNATIVE,
+					ins.getSha1Implementation());
+			assertEquals(expected, ins.idFor(Constants.OBJ_BLOB, data));
+			assertEquals(expected, ins.insert(Constants.OBJ_BLOB, data,
+					0, data.length));
+		}
+	}
+
 	private Collection<Callable<ObjectId>> blobInsertersForTheSameFanOutDir(
 			final ObjectDirectory dir) {
 		Callable<ObjectId> callable = new Callable<ObjectId>() {
@@ -56,33 +56,52 @@
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.nio.file.Files;
 import java.security.MessageDigest;
 import java.text.MessageFormat;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import java.util.zip.Deflater;
 
 import org.eclipse.jgit.errors.LargeObjectException;
+import org.eclipse.jgit.errors.MissingObjectException;
+import org.eclipse.jgit.errors.PackMismatchException;
 import org.eclipse.jgit.internal.JGitText;
 import org.eclipse.jgit.internal.storage.pack.DeltaEncoder;
 import org.eclipse.jgit.internal.storage.pack.PackExt;
+import org.eclipse.jgit.internal.storage.pack.PackOutputStream;
+import org.eclipse.jgit.internal.storage.pack.PackWriter;
+import org.eclipse.jgit.internal.storage.pack.ParallelSizeLookup;
 import org.eclipse.jgit.junit.JGitTestUtil;
 import org.eclipse.jgit.junit.LocalDiskRepositoryTestCase;
 import org.eclipse.jgit.junit.TestRepository;
 import org.eclipse.jgit.junit.TestRng;
+import org.eclipse.jgit.lib.AsyncObjectLoaderQueue;
+import org.eclipse.jgit.lib.AsyncObjectSizeQueue;
 import org.eclipse.jgit.lib.Constants;
 import org.eclipse.jgit.lib.NullProgressMonitor;
 import org.eclipse.jgit.lib.ObjectId;
 import org.eclipse.jgit.lib.ObjectInserter;
 import org.eclipse.jgit.lib.ObjectLoader;
+import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.lib.ObjectReaderStatistics;
 import org.eclipse.jgit.lib.ObjectStream;
 import org.eclipse.jgit.lib.Repository;
 import org.eclipse.jgit.revwalk.RevBlob;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevObject;
 import org.eclipse.jgit.storage.file.WindowCacheConfig;
+import org.eclipse.jgit.storage.file.WindowCacheMXBean;
 import org.eclipse.jgit.transport.PackParser;
 import org.eclipse.jgit.transport.PackedObjectInfo;
+import org.eclipse.jgit.util.FileUtils;
 import org.eclipse.jgit.util.IO;
 import org.eclipse.jgit.util.NB;
 import org.eclipse.jgit.util.TemporaryBuffer;
@@ -251,6 +270,40 @@ public void testDelta_SmallObjectChain() throws Exception {
 		}
 	}
 
+	@Test
+	public void testDelta_ReaderStatistics() throws Exception {
+		try (ObjectInserter.Formatter fmt = new ObjectInserter.Formatter()) {
+			byte[] data0 = new byte[512];
+			Arrays.fill(data0, (byte) 0xf3);
+			ObjectId id0 = fmt.idFor(Constants.OBJ_BLOB, data0);
+
+			TemporaryBuffer.Heap pack = new TemporaryBuffer.Heap(64 * 1024);
+			packHeader(pack, 2);
+			objectHeader(pack, Constants.OBJ_BLOB, data0.length);
+			deflate(pack, data0);
+
+			byte[] data1 = clone(0x01, data0);
+			byte[] delta1 = delta(data0, data1);
+			ObjectId id1 = fmt.idFor(Constants.OBJ_BLOB, data1);
+			objectHeader(pack, Constants.OBJ_REF_DELTA, delta1.length);
+			id0.copyRawTo(pack);
+			deflate(pack, delta1);
+
+			digest(pack);
+			PackParser ip = index(pack.toByteArray());
+			ip.setAllowThin(true);
+			ip.parse(NullProgressMonitor.INSTANCE);
+
+			ObjectReaderStatistics stats = wc.getStatistics();
+			assertEquals(0, stats.getDeltaCount());
+			assertArrayEquals(data1, wc.open(id1).getCachedBytes());
+			assertEquals(1, stats.getDeltaCount());
+			assertEquals(data1.length, stats.getDeltaBytes());
+			assertTrue(stats.getInflatedBytes() >= data0.length);
+			assertTrue(stats.getCacheHits() + stats.getReadCount() > 0);
+		}
+	}
+
 	@Test
 	public void testDelta_FailsOver2GiB() throws Exception {
 		try (ObjectInserter.Formatter fmt = new ObjectInserter.Formatter()) {
@@ -328,6 +381,277 @@ public void testConfigurableStreamFileThreshold() throws Exception {
 		}
 	}
 
+	@Test
+	public void testCopyCachedPackBypassesWindowCache() throws Exception {
+		RevBlob blob = tr.blob(randomBytes(200 * 1024));
+		RevCommit commit = tr.branch("master").commit().add("A", blob)
+				.create();
+		new GC(repo).gc();
+		PackFile pack = repo.getObjectDatabase().getPacks().iterator().next();
+
+		TemporaryBuffer.Heap out = new TemporaryBuffer.Heap(1024 * 1024);
+		WindowCacheMXBean stats = WindowCache.getInstance().getStats();
+		try (PackWriter pw = new PackWriter(repo, wc)) {
+			pw.setUseBitmaps(true);
+			pw.setUseCachedPacks(true);
+			pw.setReuseValidatingObjects(false);
+			pw.preparePack(NullProgressMonitor.INSTANCE,
+					Collections.singleton(commit), PackWriter.NONE);
+
+			long misses = stats.getMissCount();
+			pw.writePack(NullProgressMonitor.INSTANCE,
+					NullProgressMonitor.INSTANCE, out);
+			assertEquals(misses, stats.getMissCount());
+			assertEquals(1, pw.getStatistics().getReusedPacks().size());
+		}
+
+		byte[] expected = IO.readFully(pack.getPackFile());
+		byte[] actual = out.toByteArray();
+		assertEquals(expected.length, actual.length);
+		assertArrayEquals(Arrays.copyOfRange(expected, 12, expected.length - 20),
+				Arrays.copyOfRange(actual, 12, actual.length - 20));
+	}
+
+	@Test
+	public void testCopyLargeObjectAsIs() throws Exception {
+		byte[] data = randomBytes(200 * 1024);
+		RevBlob blob = tr.blob(data);
+		tr.branch("master").commit().add("A", blob).create();
+		tr.packAndPrune();
+
+		TemporaryBuffer.Heap out = new TemporaryBuffer.Heap(1024 * 1024);
+		try (PackWriter pw = new PackWriter(repo, wc)) {
+			pw.setReuseValidatingObjects(true);
+			pw.preparePack(Collections.<RevObject> singleton(blob).iterator());
+			pw.writePack(NullProgressMonitor.INSTANCE,
+					NullProgressMonitor.INSTANCE, out);
+			assertEquals(1, pw.getStatistics().getReusedObjects());
+		}
+
+		try (Repository dst = createBareRepository();
+				ObjectInserter ins = dst.newObjectInserter()) {
+			PackParser p = ins.newPackParser(out.openInputStream());
+			p.parse(NullProgressMonitor.INSTANCE);
+			ins.flush();
+			assertArrayEquals(data,
+					dst.open(blob).getCachedBytes(Integer.MAX_VALUE));
+		}
+	}
+
+	@Test
+	public void testInterruptedCopyDoesNotClosePack() throws Exception {
+		byte[] data = randomBytes(200 * 1024);
+		RevBlob blob = tr.blob(data);
+		tr.branch("master").commit().add("A", blob).create();
+		tr.packAndPrune();
+
+		TemporaryBuffer.Heap out = new TemporaryBuffer.Heap(1024 * 1024);
+		try (PackWriter pw = new PackWriter(repo, wc)) {
+			pw.preparePack(Collections.<RevObject> singleton(blob).iterator());
+			Thread.currentThread().interrupt();
+			try {
+				pw.writePack(NullProgressMonitor.INSTANCE,
+						NullProgressMonitor.INSTANCE, out);
+			} finally {
+				Thread.interrupted();
+			}
+			assertEquals(1, pw.getStatistics().getReusedObjects());
+		}
+		assertArrayEquals(data,
+				repo.open(blob).getCachedBytes(Integer.MAX_VALUE));
+	}
+
+	@Test
+	public void testConcurrentCopiesAsIs() throws Exception {
+		List<RevBlob> blobs = new ArrayList<>();
+		TestRepository<Repository>.CommitBuilder cb = tr.branch("master")
+				.commit();
+		for (int i = 0; i < 4; i++) {
+			RevBlob blob = tr.blob(randomBytes(200 * 1024 + i));
+			blobs.add(blob);
+			cb.add("f" + i, blob);
+		}
+		cb.create();
+		tr.packAndPrune();
+
+		byte[] expected = writeReusedPack(blobs);
+		ExecutorService pool = Executors.newFixedThreadPool(4);
+		try {
+			List<Future<byte[]>> copies = new ArrayList<>();
+			for (int i = 0; i < 16; i++)
+				copies.add(pool.submit(() -> writeReusedPack(blobs)));
+			for (Future<byte[]> f : copies)
+				assertArrayEquals(expected, f.get());
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	@Test
+	public void testCopyFromReplacedPackFails() throws Exception {
+		RevBlob blob = tr.blob(randomBytes(200 * 1024));
+		tr.branch("master").commit().add("f", blob).create();
+		tr.packAndPrune();
+		PackFile pack = repo.getObjectDatabase().getPacks().iterator().next();
+		assertEquals(200 * 1024, wc.open(blob).getSize());
+
+		// Replace the open pack under its name by one with another trailer.
+		File file = pack.getPackFile();
+		byte[] data = Files.readAllBytes(file.toPath());
+		data[data.length - 1] ^= 1;
+		File tmp = new File(file.getParentFile(), "tmp.pack");
+		Files.write(tmp.toPath(), data);
+		FileUtils.rename(tmp, file);
+
+		try (PackWriter pw = new PackWriter(repo)) {
+			PackOutputStream out = new PackOutputStream(
+					NullProgressMonitor.INSTANCE, new ByteArrayOutputStream(),
+					pw);
+			pack.copyPackAsIs(out);
+			fail("copied from a replaced pack");
+		} catch (PackMismatchException e) {
+			// Expected, the offsets of this pack do not apply to the new file.
+		}
+	}
+
+	@Test
+	public void testBatchedLookupInPackOrder() throws Exception {
+		List<RevBlob> packed = new ArrayList<>();
+		for (int i = 0; i < 10; i++)
+			packed.add(tr.blob("packed " + i));
+		TestRepository<Repository>.CommitBuilder cb = tr.branch("master")
+				.commit();
+		for (int i = 0; i < packed.size(); i++)
+			cb.add("f" + i, packed.get(i));
+		cb.create();
+		tr.packAndPrune();
+		RevBlob loose = tr.blob("loose");
+
+		PackFile pack = repo.getObjectDatabase().getPacks().iterator().next();
+		List<ObjectId> want = new ArrayList<>();
+		want.add(loose);
+		for (int i = packed.size() - 1; 0 <= i; i--)
+			want.add(packed.get(i));
+
+		List<ObjectId> seen = new ArrayList<>();
+		AsyncObjectLoaderQueue<ObjectId> q = wc.open(want, true);
+		try {
+			long lastOffset = 0;
+			while (q.next()) {
+				ObjectId id = q.getCurrent();
+				seen.add(id);
+				if (id.equals(loose))
+					continue;
+				long offset = pack.findOffset(id);
+				assertTrue(lastOffset < offset);
+				lastOffset = offset;
+				assertArrayEquals(wc.open(id).getCachedBytes(),
+						q.open().getCachedBytes());
+			}
+		} finally {
+			q.release();
+		}
+		assertEquals(want.size(), seen.size());
+		assertEquals(loose, seen.get(seen.size() - 1));
+
+		ObjectId missing = ObjectId
+				.fromString("c0ffee09d0b63d694bf49bc1e6847473f42d4a8c");
+		want.add(0, missing);
+		AsyncObjectSizeQueue<ObjectId> sq = wc.getObjectSize(want, true);
+		int cnt = 0;
+		try {
+			for (;;) {
+				try {
+					if (!sq.next())
+						break;
+				} catch (MissingObjectException e) {
+					assertEquals(missing, sq.getCurrent());
+					continue;
+				}
+				assertEquals(wc.open(sq.getCurrent()).getSize(), sq.getSize());
+				cnt++;
+			}
+		} finally {
+			sq.release();
+		}
+		assertEquals(want.size() - 1, cnt);
+	}
+
+	@Test
+	public void testParallelSizeLookup() throws Exception {
+		List<ObjectId> want = insertBlobs(
+				2 * ParallelSizeLookup.MIN_CHUNK + 10);
+		ExecutorService pool = Executors.newFixedThreadPool(4);
+		try {
+			wc.setBatchExecutor(pool);
+			assertEquals(want.size(), checkSizes(want));
+		} finally {
+			wc.setBatchExecutor(null);
+			pool.shutdown();
+		}
+	}
+
+	@Test
+	public void testParallelSizeLookupOnBatchExecutor() throws Exception {
+		List<ObjectId> want = insertBlobs(4 * ParallelSizeLookup.MIN_CHUNK);
+		// The only thread of the executor looks up the batch, so it must not
+		// wait for the chunks it queued on the same executor.
+		ExecutorService pool = Executors.newSingleThreadExecutor();
+		try {
+			wc.setBatchExecutor(pool, 4);
+			Future<Integer> cnt = pool
+					.submit(() -> Integer.valueOf(checkSizes(want)));
+			assertEquals(want.size(), cnt.get(1, TimeUnit.MINUTES).intValue());
+		} finally {
+			wc.setBatchExecutor(null);
+			pool.shutdown();
+		}
+	}
+
+	private byte[] writeReusedPack(List<RevBlob> blobs) throws IOException {
+		TemporaryBuffer.Heap out = new TemporaryBuffer.Heap(4 * 1024 * 1024);
+		try (ObjectReader or = repo.newObjectReader();
+				PackWriter pw = new PackWriter(repo, or)) {
+			pw.setReuseValidatingObjects(true);
+			pw.preparePack(new ArrayList<RevObject>(blobs).iterator());
+			pw.writePack(NullProgressMonitor.INSTANCE,
+					NullProgressMonitor.INSTANCE, out);
+			assertEquals(blobs.size(), pw.getStatistics().getReusedObjects());
+		}
+		return out.toByteArray();
+	}
+
+	private List<ObjectId> insertBlobs(int cnt) throws IOException {
+		List<ObjectId> ids = new ArrayList<>();
+		try (PackInserter ins = repo.getObjectDatabase().newPackInserter()) {
+			for (int i = 0; i < cnt; i++)
+				ids.add(ins.insert(Constants.OBJ_BLOB,
+						Constants.encode("blob " + i)));
+			ins.flush();
+		}
+		return ids;
+	}
+
+	private int checkSizes(List<ObjectId> want) throws IOException {
+		AsyncObjectSizeQueue<ObjectId> q = wc.getObjectSize(want, true);
+		int cnt = 0;
+		try {
+			while (q.next()) {
+				assertEquals(wc.open(q.getCurrent()).getSize(), q.getSize());
+				cnt++;
+			}
+		} finally {
+			q.release();
+		}
+		return cnt;
+	}
+
+	private static byte[] randomBytes(int cnt) {
+		byte[] data = new byte[cnt];
+		new Random(cnt).nextBytes(data);
+		return data;
+	}
+
 	private static byte[] clone(int first, byte[] base) {
 		byte[] r = new byte[base.length];
 		System.arraycopy(base, 1, r, 1, r.length - 1);
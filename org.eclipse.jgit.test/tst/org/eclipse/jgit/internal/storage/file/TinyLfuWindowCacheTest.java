@@ -0,0 +1,139 @@
+/*
+ * Copyright (C) 2019, Google LLC.
+ * and other copyright owners as documented in the project's IP log.
+ *
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Distribution License v1.0 which
+ * accompanies this distribution, is reproduced below, and is
+ * available at http://www.eclipse.org/org/documents/edl-v10.php
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or
+ * without modification, are permitted provided that the following
+ * conditions are met:
+ *
+ * - Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * - Redistributions in binary form must reproduce the above
+ *   copyright notice, this list of conditions and the following
+ *   disclaimer in the documentation and/or other materials provided
+ *   with the distribution.
+ *
+ * - Neither the name of the Eclipse Foundation, Inc. nor the
+ *   names of its contributors may be used to endorse or promote
+ *   products derived from this software without specific prior
+ *   written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND
+ * CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+package org.eclipse.jgit.internal.storage.file;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.eclipse.jgit.junit.LocalDiskRepositoryTestCase;
+import org.eclipse.jgit.junit.TestRepository;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevBlob;
+import org.eclipse.jgit.storage.file.WindowCacheConfig;
+import org.eclipse.jgit.storage.file.WindowCacheConfig.Policy;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TinyLfuWindowCacheTest extends LocalDiskRepositoryTestCase {
+	private static final int WINDOW_SIZE = 4096;
+
+	private static final int LIMIT = 16 * WINDOW_SIZE;
+
+	private PackFile pack;
+
+	@Override
+	@Before
+	public void setUp() throws Exception {
+		super.setUp();
+
+		FileRepository repo = createBareRepository();
+		TestRepository<Repository> tr = new TestRepository<>(repo);
+		byte[] data = new byte[64 * WINDOW_SIZE];
+		new Random(42).nextBytes(data);
+		RevBlob blob = tr.blob(data);
+		tr.branch("master").commit().add("blob", blob).create();
+		tr.packAndPrune();
+		pack = repo.getObjectDatabase().getPacks().iterator().next();
+
+		WindowCacheConfig cfg = new WindowCacheConfig();
+		cfg.setPackedGitCachePolicy(Policy.TINYLFU);
+		cfg.setPackedGitWindowSize(WINDOW_SIZE);
+		cfg.setPackedGitLimit(LIMIT);
+		cfg.install();
+	}
+
+	@Override
+	@After
+	public void tearDown() throws Exception {
+		new WindowCacheConfig().install();
+		super.tearDown();
+	}
+
+	@Test
+	public void testScanDoesNotEvictFrequentlyUsedWindows() throws Exception {
+		// The cache has a single segment of 16 windows: 1 in the admission
+		// window, 15 in the main area of which 12 are protected.
+		ByteWindow[] hot = new ByteWindow[12];
+		for (int i = 0; i < hot.length; i++)
+			hot[i] = get(i);
+		// Move the last hot window out of the admission window, so that the
+		// next hits promote all hot windows to the protected area.
+		get(63);
+		for (int round = 0; round < 4; round++) {
+			for (int i = 0; i < hot.length; i++)
+				assertSame(hot[i], get(i));
+		}
+
+		// Windows read once only compete with the windows on probation.
+		for (int i = hot.length; i < 60; i++) {
+			get(i);
+			assertTrue(WindowCache.getInstance().getOpenBytes() <= LIMIT);
+		}
+
+		for (int i = 0; i < hot.length; i++)
+			assertSame("window " + i, hot[i], get(i));
+	}
+
+	@Test
+	public void testPurgeReleasesWindows() throws Exception {
+		for (int i = 0; i < 20; i++)
+			get(i);
+		WindowCache cache = WindowCache.getInstance();
+		assertEquals(1, cache.getOpenFiles());
+		assertEquals(LIMIT, cache.getOpenBytes());
+
+		WindowCache.purge(pack);
+		assertEquals(0, cache.getOpenFiles());
+		assertEquals(0, cache.getOpenBytes());
+	}
+
+	private ByteWindow get(int window) throws Exception {
+		return WindowCache.get(pack, (long) window * WINDOW_SIZE);
+	}
+}
@@ -45,15 +45,24 @@
 
 import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 import java.io.BufferedReader;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.lang.management.ManagementFactory;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
 
 import org.eclipse.jgit.errors.CorruptObjectException;
 import org.eclipse.jgit.junit.JGitTestUtil;
@@ -61,12 +70,29 @@
 import org.eclipse.jgit.lib.ObjectId;
 import org.eclipse.jgit.lib.ObjectLoader;
 import org.eclipse.jgit.storage.file.WindowCacheConfig;
+import org.eclipse.jgit.storage.file.WindowCacheConfig.Policy;
+import org.eclipse.jgit.storage.file.WindowCacheMXBean;
+import org.eclipse.jgit.storage.file.WindowCacheStats;
 import org.eclipse.jgit.test.resources.SampleDataRepositoryTestCase;
 import org.eclipse.jgit.util.MutableInteger;
 import org.junit.Before;
 import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameter;
+import org.junit.runners.Parameterized.Parameters;
 
+@RunWith(Parameterized.class)
 public class WindowCacheGetTest extends SampleDataRepositoryTestCase {
+	@Parameter
+	public Policy policy;
+
+	@Parameters(name = "policy={0}")
+	public static Collection<Object[]> data() {
+		return Arrays.asList(new Object[][] { { Policy.CLOCK },
+				{ Policy.TINYLFU } });
+	}
+
 	private List<TestObject> toLoad;
 
 	@Override
@@ -97,6 +123,7 @@ public void setUp() throws Exception {
 	@Test
 	public void testCache_Defaults() throws IOException {
 		WindowCacheConfig cfg = new WindowCacheConfig();
+		cfg.setPackedGitCachePolicy(policy);
 		cfg.install();
 		doCacheTests();
 		checkLimits(cfg);
@@ -104,20 +131,62 @@ public void testCache_Defaults() throws IOException {
 		final WindowCache cache = WindowCache.getInstance();
 		assertEquals(6, cache.getOpenFiles());
 		assertEquals(17346, cache.getOpenBytes());
+
+		WindowCacheMXBean stats = cache.getStats();
+		assertSame(stats, WindowCacheStats.getStats());
+		assertEquals(6, stats.getOpenFileCount());
+		assertEquals(17346, stats.getOpenByteCount());
+		assertEquals(0, stats.getEvictionCount());
+		assertEquals(0, stats.getLoadFailureCount());
+		assertEquals(stats.getMissCount(), stats.getLoadSuccessCount());
+		assertTrue(stats.getHitCount() > 0);
+		assertEquals(stats.getHitCount() + stats.getMissCount(),
+				stats.getRequestCount());
+		assertTrue(stats.getTotalLoadTime() > 0);
+		assertEquals(6, stats.getOpenByteCountPerPack().size());
+		assertEquals(17346, sum(stats.getOpenByteCountPerPack()));
+		assertEquals(stats.getHitCount(), sum(stats.getHitCountPerPack()));
+		assertEquals(stats.getMissCount(), sum(stats.getMissCountPerPack()));
+
+		stats.resetCounters();
+		assertEquals(0, stats.getHitCount());
+		assertEquals(0, stats.getMissCount());
+		assertEquals(17346, stats.getOpenByteCount());
+	}
+
+	@Test
+	public void testCache_StatsMBean() throws Exception {
+		WindowCacheConfig cfg = new WindowCacheConfig();
+		cfg.setPackedGitCachePolicy(policy);
+		cfg.install();
+		doCacheTests();
+
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		ObjectName name = new ObjectName("org.eclipse.jgit:type=WindowCache");
+		assertEquals(Long.valueOf(WindowCache.getInstance().getOpenBytes()),
+				server.getAttribute(name, "OpenByteCount"));
+		assertNotNull(server.getAttribute(name, "HitCountPerPack"));
+
+		cfg.setExposeStatsViaJmx(false);
+		cfg.install();
+		assertFalse(server.isRegistered(name));
 	}
 
 	@Test
 	public void testCache_TooFewFiles() throws IOException {
 		final WindowCacheConfig cfg = new WindowCacheConfig();
+		cfg.setPackedGitCachePolicy(policy);
 		cfg.setPackedGitOpenFiles(2);
 		cfg.install();
 		doCacheTests();
 		checkLimits(cfg);
+		assertTrue(WindowCache.getInstance().getStats().getEvictionCount() > 0);
 	}
 
 	@Test
 	public void testCache_TooSmallLimit() throws IOException {
 		final WindowCacheConfig cfg = new WindowCacheConfig();
+		cfg.setPackedGitCachePolicy(policy);
 		cfg.setPackedGitWindowSize(4096);
 		cfg.setPackedGitLimit(4096);
 		cfg.install();
@@ -133,6 +202,13 @@ private static void checkLimits(WindowCacheConfig cfg) {
 		assertTrue(0 < cache.getOpenBytes());
 	}
 
+	private static long sum(Map<String, Long> counts) {
+		long sum = 0;
+		for (Long c : counts.values())
+			sum += c.longValue();
+		return sum;
+	}
+
 	private void doCacheTests() throws IOException {
 		for (TestObject o : toLoad) {
 			final ObjectLoader or = db.open(o.id, o.type);
@@ -44,6 +44,8 @@
 package org.eclipse.jgit.internal.storage.pack;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
 import java.io.IOException;
@@ -59,9 +61,11 @@
 import org.eclipse.jgit.internal.storage.pack.PackWriterBitmapPreparer.BitmapCommit;
 import org.eclipse.jgit.junit.TestRepository.BranchBuilder;
 import org.eclipse.jgit.junit.TestRepository.CommitBuilder;
+import org.eclipse.jgit.lib.BitmapIndex;
 import org.eclipse.jgit.lib.Constants;
 import org.eclipse.jgit.lib.NullProgressMonitor;
 import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectReader;
 import org.eclipse.jgit.revwalk.RevCommit;
 import org.eclipse.jgit.storage.pack.PackConfig;
 import org.junit.Test;
@@ -220,6 +224,103 @@ public void testBitmapsForExcessiveBranches() throws Exception {
 				gc.getStatistics().numberOfBitmaps);
 	}
 
+	@Test
+	public void testIncrementalBitmaps() throws Exception {
+		PackConfig config = new PackConfig(repo);
+		config.setBitmapIncremental(true);
+		gc.setPackConfig(config);
+		gc.setPackExpireAgeMillis(0); // immediately delete old packs
+		gc.setExpireAgeMillis(0);
+
+		BranchBuilder bb = tr.branch("refs/heads/main");
+		RevCommit old = null;
+		for (int i = 0; i < 100; i++) {
+			String str = "A" + i;
+			old = bb.commit().message(str).add(str, str).create();
+		}
+		gc.gc();
+		assertEquals(100, gc.getStatistics().numberOfBitmaps);
+
+		// The 50 new commits get new bitmaps. Of the previous bitmaps only
+		// those within the 100 newest commits are carried over; the others
+		// are thinned out like in testBitmapSpansNoMerges.
+		RevCommit tip = null;
+		for (int i = 100; i < 150; i++) {
+			String str = "A" + i;
+			tip = bb.commit().message(str).add(str, str).create();
+		}
+		gc.gc();
+		assertEquals(100, gc.getStatistics().numberOfBitmaps);
+
+		for (int i = 150; i < 160; i++) {
+			String str = "A" + i;
+			tip = bb.commit().message(str).add(str, str).create();
+		}
+		gc.gc();
+		assertEquals(100, gc.getStatistics().numberOfBitmaps);
+
+		try (ObjectReader reader = repo.newObjectReader()) {
+			BitmapIndex index = reader.getBitmapIndex();
+			assertEquals(100 * 3, index.newBitmapBuilder()
+					.or(index.getBitmap(old)).cardinality());
+			assertEquals(160 * 3, index.newBitmapBuilder()
+					.or(index.getBitmap(tip)).cardinality());
+		}
+	}
+
+	@Test
+	public void testIncrementalBitmapsAfterRewriteAndDelete()
+			throws Exception {
+		PackConfig config = new PackConfig(repo);
+		config.setBitmapIncremental(true);
+		gc.setPackConfig(config);
+		gc.setPackExpireAgeMillis(0); // immediately delete old packs
+		gc.setExpireAgeMillis(0);
+
+		BranchBuilder main = tr.branch("refs/heads/main");
+		RevCommit base = null;
+		for (int i = 0; i < 10; i++) {
+			String str = "A" + i;
+			base = main.commit().message(str).add(str, str).create();
+		}
+		RevCommit oldMain = base;
+		for (int i = 10; i < 20; i++) {
+			String str = "A" + i;
+			oldMain = main.commit().message(str).add(str, str).create();
+		}
+		BranchBuilder topic = tr.branch("refs/heads/topic");
+		RevCommit oldTopic = null;
+		for (int i = 0; i < 10; i++) {
+			String str = "T" + i;
+			oldTopic = topic.commit().message(str).add(str, str).create();
+		}
+		gc.gc();
+		assertEquals(30, gc.getStatistics().numberOfBitmaps);
+
+		// Force-push main onto a new history from base and delete topic. The
+		// old main is still in the reflog, but not in the pack of the heads;
+		// the old topic is pruned.
+		tr.update("refs/heads/main", base);
+		RevCommit tip = null;
+		for (int i = 10; i < 15; i++) {
+			String str = "B" + i;
+			tip = main.commit().message(str).add(str, str).create();
+		}
+		tr.delete("refs/heads/topic");
+		tr.tick(1);
+		gc.gc();
+		assertEquals(15, gc.getStatistics().numberOfBitmaps);
+
+		assertFalse(repo.getObjectDatabase().has(oldTopic));
+		try (ObjectReader reader = repo.newObjectReader()) {
+			BitmapIndex index = reader.getBitmapIndex();
+			assertNull(index.getBitmap(oldMain));
+			assertNull(index.getBitmap(oldTopic));
+			assertEquals(15 * 3, index.newBitmapBuilder()
+					.or(index.getBitmap(tip)).cardinality());
+		}
+	}
+
 	@Test
 	public void testSelectionOrderingWithChains() throws Exception {
 		/*-
@@ -48,6 +48,7 @@
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 
 import java.io.File;
@@ -57,6 +58,7 @@
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.TreeSet;
+import java.util.concurrent.ForkJoinPool;
 
 import org.eclipse.jgit.api.Git;
 import org.eclipse.jgit.api.MergeResult;
@@ -67,6 +69,7 @@
 import org.eclipse.jgit.dircache.DirCacheEditor;
 import org.eclipse.jgit.dircache.DirCacheEditor.PathEdit;
 import org.eclipse.jgit.dircache.DirCacheEntry;
+import org.eclipse.jgit.dircache.UntrackedCache;
 import org.eclipse.jgit.junit.RepositoryTestCase;
 import org.eclipse.jgit.lib.CoreConfig.AutoCRLF;
 import org.eclipse.jgit.lib.IndexDiff.StageState;
@@ -74,6 +77,7 @@
 import org.eclipse.jgit.revwalk.RevCommit;
 import org.eclipse.jgit.storage.file.FileBasedConfig;
 import org.eclipse.jgit.treewalk.FileTreeIterator;
+import org.eclipse.jgit.util.FS;
 import org.eclipse.jgit.util.IO;
 import org.junit.Test;
 
@@ -541,6 +545,151 @@ public void testUntrackedNotIgnoredFolders() throws Exception {
 		}
 	}
 
+	@Test
+	public void testParallelDiff() throws Exception {
+		try (Git git = new Git(db)) {
+			writeTrashFile(".gitignore", "*.log\n/build\n");
+			writeTrashFile("a/x", "x");
+			writeTrashFile("a/y", "y");
+			writeTrashFile("b/c/z", "z");
+			writeTrashFile("c", "c");
+			writeTrashFile("d/e", "e");
+			git.add().addFilepattern(".").call();
+			git.commit().setMessage("initial").call();
+
+			writeTrashFile("a/x", "modified");
+			writeTrashFile("a/debug.log", "ignored");
+			writeTrashFile("b/staged", "added");
+			git.add().addFilepattern("b/staged").call();
+			writeTrashFile("build/out", "ignored");
+			writeTrashFile("top", "untracked");
+			writeTrashFile("target/com/A.java", "");
+			deleteTrashFile("c");
+			git.rm().addFilepattern("d/e").call();
+
+			IndexDiff diff = new IndexDiff(db, Constants.HEAD,
+					new FileTreeIterator(db));
+			diff.setExecutor(ForkJoinPool.commonPool());
+			assertTrue(diff.diff());
+			assertEquals(Collections.singleton("b/staged"), diff.getAdded());
+			assertEquals(Collections.EMPTY_SET, diff.getChanged());
+			assertEquals(Collections.singleton("d/e"), diff.getRemoved());
+			assertEquals(Collections.singleton("c"), diff.getMissing());
+			assertEquals(Collections.singleton("a/x"), diff.getModified());
+			assertEquals(
+					new HashSet<>(Arrays.asList("top", "target/com/A.java")),
+					diff.getUntracked());
+			assertEquals(new HashSet<>(Arrays.asList("a/debug.log", "build")),
+					diff.getIgnoredNotInIndex());
+			assertEquals(Collections.singleton("target"),
+					diff.getUntrackedFolders());
+			assertEquals(
+					new HashSet<>(Arrays.asList("a/x", "b/staged", "c", "d/e",
+							"top", "target/com/A.java")),
+					diff.getPathsWithIndexMode(FileMode.REGULAR_FILE));
+		}
+	}
+
+	@Test
+	public void testUntrackedCache() throws Exception {
+		try (Git git = new Git(db)) {
+			StoredConfig config = db.getConfig();
+			config.setBoolean(ConfigConstants.CONFIG_CORE_SECTION, null,
+					ConfigConstants.CONFIG_KEY_UNTRACKED_CACHE, true);
+			config.save();
+			writeTrashFile("src/A.java", "");
+			git.add().addFilepattern("src").call();
+			git.commit().setMessage("initial").call();
+
+			writeTrashFile("target/a", "");
+			writeTrashFile("target/sub/b", "");
+			long old = System.currentTimeMillis() - 60000;
+			File target = new File(trash, "target");
+			File sub = new File(target, "sub");
+			assertTrue(sub.setLastModified(old));
+			assertTrue(target.setLastModified(old));
+
+			IndexDiff diff = new IndexDiff(db, Constants.HEAD,
+					new FileTreeIterator(db));
+			diff.diff();
+			assertEquals(
+					new HashSet<>(Arrays.asList("target/a", "target/sub/b")),
+					diff.getUntracked());
+			assertNotNull(db.readDirCache().getUntrackedCache()
+					.find("target"));
+
+			// Hide the deletion from the cache: the cached result is used.
+			deleteTrashFile("target/sub/b");
+			assertTrue(sub.setLastModified(old));
+			diff = new IndexDiff(db, Constants.HEAD, new FileTreeIterator(db));
+			diff.diff();
+			assertEquals(
+					new HashSet<>(Arrays.asList("target/a", "target/sub/b")),
+					diff.getUntracked());
+			assertEquals(Collections.singleton("target"),
+					diff.getUntrackedFolders());
+
+			// Modes of cached files are read from the working tree.
+			FS fs = db.getFS();
+			if (fs.supportsExecute()) {
+				assertTrue(fs.setExecute(new File(target, "a"), true));
+				assertTrue(target.setLastModified(old));
+				diff = new IndexDiff(db, Constants.HEAD,
+						new FileTreeIterator(db));
+				diff.diff();
+				assertTrue(diff.getUntracked().contains("target/sub/b"));
+				assertTrue(diff.getPathsWithIndexMode(FileMode.EXECUTABLE_FILE)
+						.contains("target/a"));
+				assertFalse(diff.getPathsWithIndexMode(FileMode.REGULAR_FILE)
+						.contains("target/a"));
+			}
+
+			// A modified directory is scanned again.
+			assertTrue(sub.setLastModified(old + 5000));
+			diff = new IndexDiff(db, Constants.HEAD, new FileTreeIterator(db));
+			diff.diff();
+			assertEquals(Collections.singleton("target/a"),
+					diff.getUntracked());
+
+			// So is a directory with changed ignore rules.
+			writeTrashFile(".gitignore", "/target/a\n");
+			diff = new IndexDiff(db, Constants.HEAD, new FileTreeIterator(db));
+			diff.diff();
+			assertEquals(Collections.singleton(".gitignore"),
+					diff.getUntracked());
+			assertEquals(Collections.singleton("target/a"),
+					diff.getIgnoredNotInIndex());
+		}
+	}
+
+	@Test
+	public void testUntrackedCacheOfCGitIsKept() throws Exception {
+		try (Git git = new Git(db)) {
+			writeTrashFile("src/A.java", "");
+			git.add().addFilepattern("src").call();
+			git.commit().setMessage("initial").call();
+			writeTrashFile("target/a", "");
+
+			// DIR_SHOW_OTHER_DIRECTORIES | DIR_HIDE_EMPTY_DIRECTORIES
+			int cgitFlags = 6;
+			DirCache dc = db.readDirCache();
+			assertTrue(dc.writeUntrackedCache(
+					new UntrackedCache("cgit", cgitFlags, null, null)));
+			long indexModified = db.getIndexFile().lastModified();
+
+			IndexDiff diff = new IndexDiff(db, Constants.HEAD,
+					new FileTreeIterator(db));
+			diff.diff();
+			assertEquals(Collections.singleton("target/a"),
+					diff.getUntracked());
+			assertEquals(indexModified, db.getIndexFile().lastModified());
+			UntrackedCache cache = db.readDirCache().getUntrackedCache();
+			assertNotNull(cache);
+			assertEquals(cgitFlags, cache.getDirFlags());
+			assertTrue(cache.hasIdent("cgit"));
+		}
+	}
+
 	@Test
 	public void testAssumeUnchanged() throws Exception {
 		try (Git git = new Git(db)) {
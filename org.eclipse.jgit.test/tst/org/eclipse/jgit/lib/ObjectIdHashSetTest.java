@@ -0,0 +1,148 @@
+/*
+ * Copyright (C) 2019, Google LLC.
+ * and other copyright owners as documented in the project's IP log.
+ *
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Distribution License v1.0 which
+ * accompanies this distribution, is reproduced below, and is
+ * available at http://www.eclipse.org/org/documents/edl-v10.php
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or
+ * without modification, are permitted provided that the following
+ * conditions are met:
+ *
+ * - Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * - Redistributions in binary form must reproduce the above
+ *   copyright notice, this list of conditions and the following
+ *   disclaimer in the documentation and/or other materials provided
+ *   with the distribution.
+ *
+ * - Neither the name of the Eclipse Foundation, Inc. nor the
+ *   names of its contributors may be used to endorse or promote
+ *   products derived from this software without specific prior
+ *   written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND
+ * CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.eclipse.jgit.lib;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Set;
+
+import org.junit.Test;
+
+public class ObjectIdHashSetTest {
+	@Test
+	public void testEmptySet() {
+		ObjectIdHashSet s = new ObjectIdHashSet();
+		assertTrue(s.isEmpty());
+		assertEquals(0, s.size());
+		assertFalse(s.iterator().hasNext());
+		assertFalse(s.contains(id(1)));
+		assertFalse(s.contains(ObjectId.zeroId()));
+	}
+
+	@Test
+	public void testAddAndContains() {
+		ObjectIdHashSet s = new ObjectIdHashSet();
+		assertTrue(s.add(id(1)));
+		assertTrue(s.add(id(2)));
+		assertFalse(s.add(id(1)));
+		assertEquals(2, s.size());
+		assertTrue(s.contains(id(1)));
+		assertTrue(s.contains(id(2)));
+		assertFalse(s.contains(id(3)));
+	}
+
+	@Test
+	public void testZeroId() {
+		ObjectIdHashSet s = new ObjectIdHashSet();
+		assertTrue(s.add(ObjectId.zeroId()));
+		assertFalse(s.add(ObjectId.zeroId()));
+		assertTrue(s.contains(ObjectId.zeroId()));
+		assertEquals(1, s.size());
+
+		Iterator<ObjectId> i = s.iterator();
+		assertTrue(i.hasNext());
+		assertEquals(ObjectId.zeroId(), i.next());
+		assertFalse(i.hasNext());
+	}
+
+	@Test
+	public void testAddCopiesMutableId() {
+		ObjectIdHashSet s = new ObjectIdHashSet();
+		MutableObjectId buf = new MutableObjectId();
+		buf.fromObjectId(id(1));
+		s.add(buf);
+		buf.fromObjectId(id(2));
+		assertTrue(s.contains(id(1)));
+		assertFalse(s.contains(id(2)));
+	}
+
+	@Test
+	public void testGrowAndIterate() {
+		testGrowAndIterate(false);
+	}
+
+	@Test
+	public void testGrowAndIterateOffHeap() {
+		testGrowAndIterate(true);
+	}
+
+	private static void testGrowAndIterate(boolean offHeap) {
+		ObjectIdHashSet s = new ObjectIdHashSet(0, offHeap);
+		assertEquals(offHeap, s.isOffHeap());
+		Set<ObjectId> expected = new HashSet<>();
+		for (int i = 0; i < 10000; i++) {
+			ObjectId id = id(i);
+			assertTrue(s.add(id));
+			expected.add(id);
+		}
+		assertEquals(expected.size(), s.size());
+		for (ObjectId id : expected) {
+			assertTrue(s.contains(id));
+		}
+		assertFalse(s.contains(id(10000)));
+
+		Set<ObjectId> actual = new HashSet<>();
+		for (ObjectId id : s) {
+			assertTrue(actual.add(id));
+		}
+		assertEquals(expected, actual);
+
+		s.clear();
+		assertTrue(s.isEmpty());
+		assertFalse(s.contains(id(1)));
+	}
+
+	private static ObjectId id(int val) {
+		// Vary the second word too, it selects the slot in the table.
+		MutableObjectId buf = new MutableObjectId();
+		buf.setByte(0, val & 0xff);
+		buf.setByte(4, (val >>> 8) & 0xff);
+		buf.setByte(19, 1);
+		return buf.toObjectId();
+	}
+}
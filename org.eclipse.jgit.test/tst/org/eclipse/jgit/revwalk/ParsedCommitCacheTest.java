@@ -0,0 +1,215 @@
+/*
+ * Copyright (C) 2019, Google LLC.
+ * and other copyright owners as documented in the project's IP log.
+ *
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Distribution License v1.0 which
+ * accompanies this distribution, is reproduced below, and is
+ * available at http://www.eclipse.org/org/documents/edl-v10.php
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or
+ * without modification, are permitted provided that the following
+ * conditions are met:
+ *
+ * - Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * - Redistributions in binary form must reproduce the above
+ *   copyright notice, this list of conditions and the following
+ *   disclaimer in the documentation and/or other materials provided
+ *   with the distribution.
+ *
+ * - Neither the name of the Eclipse Foundation, Inc. nor the
+ *   names of its contributors may be used to endorse or promote
+ *   products derived from this software without specific prior
+ *   written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND
+ * CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.eclipse.jgit.revwalk;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.Collections;
+
+import org.eclipse.jgit.errors.MissingObjectException;
+import org.eclipse.jgit.lib.AnyObjectId;
+import org.eclipse.jgit.lib.ObjectLoader;
+import org.eclipse.jgit.lib.ObjectReader;
+import org.junit.Test;
+
+public class ParsedCommitCacheTest extends RevWalkTestCase {
+	@Test
+	public void testWalkFromCache() throws Exception {
+		RevCommit a = commit();
+		RevCommit b = commit(a);
+		RevCommit c = commit(b);
+		RevCommit d = commit(a, c);
+
+		ParsedCommitCache cache = new ParsedCommitCache(100);
+		try (RevWalk w = new RevWalk(db)) {
+			w.setRetainBody(false);
+			w.markStart(w.parseCommit(d));
+			for (RevCommit n; (n = w.next()) != null;) {
+				assertTrue(cache.add(n));
+			}
+		}
+		assertEquals(4, cache.size());
+
+		try (CountingReader reader = new CountingReader();
+				RevWalk w = new RevWalk(reader)) {
+			w.setRetainBody(false);
+			w.setParsedCommitCache(cache);
+			RevCommit t = w.parseCommit(d);
+			assertEquals(2, t.getParentCount());
+			assertEquals(d.getTree(), t.getTree());
+			assertEquals(d.getCommitTime(), t.getCommitTime());
+
+			w.markStart(t);
+			assertEquals(d, w.next());
+			assertEquals(c, w.next());
+			assertEquals(b, w.next());
+			assertEquals(a, w.next());
+			assertNull(w.next());
+			assertEquals(0, reader.opened);
+		}
+	}
+
+	@Test
+	public void testAsyncParseFromCache() throws Exception {
+		RevCommit a = commit();
+		RevCommit b = commit(a);
+
+		ParsedCommitCache cache = new ParsedCommitCache(100);
+		try (RevWalk w = new RevWalk(db)) {
+			assertTrue(cache.add(w.parseCommit(b)));
+		}
+
+		try (CountingReader reader = new CountingReader();
+				RevWalk w = new RevWalk(reader)) {
+			w.setRetainBody(false);
+			w.setParsedCommitCache(cache);
+			AsyncRevObjectQueue q = w.parseAny(Collections.singleton(b),
+					true);
+			RevCommit t = (RevCommit) q.next();
+			assertNull(q.next());
+			q.release();
+			assertEquals(b, t);
+			assertEquals(a, t.getParent(0));
+			assertEquals(0, reader.opened);
+		}
+	}
+
+	@Test
+	public void testIgnoredWhenRetainingBody() throws Exception {
+		RevCommit a = commit();
+
+		ParsedCommitCache cache = new ParsedCommitCache(100);
+		try (RevWalk w = new RevWalk(db)) {
+			assertTrue(cache.add(w.parseCommit(a)));
+		}
+
+		try (CountingReader reader = new CountingReader();
+				RevWalk w = new RevWalk(reader)) {
+			w.setParsedCommitCache(cache);
+			assertSame(cache, w.getParsedCommitCache());
+			w.parseCommit(a);
+			assertEquals(1, reader.opened);
+		}
+	}
+
+	@Test
+	public void testShallowAndUnparsedCommitsAreNotAdded() throws Exception {
+		RevCommit a = commit();
+		RevCommit b = commit(a);
+
+		ParsedCommitCache cache = new ParsedCommitCache(100);
+		try (RevWalk w = new RevWalk(db)) {
+			assertFalse(cache.add(w.lookupCommit(b)));
+			w.assumeShallow(Collections.singleton(b));
+			assertFalse(cache.add(w.parseCommit(b)));
+		}
+		assertEquals(0, cache.size());
+	}
+
+	@Test
+	public void testRootCommitIsAdded() throws Exception {
+		RevCommit a = commit();
+
+		ParsedCommitCache cache = new ParsedCommitCache(100);
+		try (RevWalk w = new RevWalk(db)) {
+			w.setRetainBody(false);
+			w.setParsedCommitCache(cache);
+			assertTrue(cache.add(w.parseCommit(a)));
+		}
+		try (RevWalk w = new RevWalk(db)) {
+			w.setRetainBody(false);
+			w.setParsedCommitCache(cache);
+			RevCommit c = w.parseCommit(a);
+			assertEquals(0, c.getParentCount());
+			assertTrue(cache.add(c));
+		}
+		assertEquals(1, cache.size());
+	}
+
+	@Test
+	public void testLimit() throws Exception {
+		RevCommit a = commit();
+		RevCommit b = commit(a);
+
+		ParsedCommitCache cache = new ParsedCommitCache(1);
+		try (RevWalk w = new RevWalk(db)) {
+			assertTrue(cache.add(w.parseCommit(a)));
+			assertTrue(cache.add(w.parseCommit(a)));
+			assertFalse(cache.add(w.parseCommit(b)));
+		}
+		assertEquals(1, cache.size());
+		assertTrue(cache.contains(a));
+		assertFalse(cache.contains(b));
+	}
+
+	private class CountingReader extends ObjectReader.Filter {
+		private final ObjectReader delegate = db.newObjectReader();
+
+		int opened;
+
+		@Override
+		protected ObjectReader delegate() {
+			return delegate;
+		}
+
+		@Override
+		public ObjectLoader open(AnyObjectId objectId)
+				throws MissingObjectException, IOException {
+			opened++;
+			return super.open(objectId);
+		}
+
+		@Override
+		public ObjectLoader open(AnyObjectId objectId, int typeHint)
+				throws MissingObjectException, IOException {
+			opened++;
+			return super.open(objectId, typeHint);
+		}
+	}
+}
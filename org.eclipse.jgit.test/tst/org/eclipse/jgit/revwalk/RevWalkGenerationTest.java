@@ -0,0 +1,205 @@
+/*
+ * Copyright (C) 2019, Google LLC.
+ * and other copyright owners as documented in the project's IP log.
+ *
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Distribution License v1.0 which
+ * accompanies this distribution, is reproduced below, and is
+ * available at http://www.eclipse.org/org/documents/edl-v10.php
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or
+ * without modification, are permitted provided that the following
+ * conditions are met:
+ *
+ * - Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * - Redistributions in binary form must reproduce the above
+ *   copyright notice, this list of conditions and the following
+ *   disclaimer in the documentation and/or other materials provided
+ *   with the distribution.
+ *
+ * - Neither the name of the Eclipse Foundation, Inc. nor the
+ *   names of its contributors may be used to endorse or promote
+ *   products derived from this software without specific prior
+ *   written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND
+ * CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+package org.eclipse.jgit.revwalk;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.eclipse.jgit.internal.storage.file.GC;
+import org.eclipse.jgit.lib.CommitGraph;
+import org.eclipse.jgit.lib.RefUpdate;
+import org.junit.Test;
+
+public class RevWalkGenerationTest extends RevWalkTestCase {
+	@Test
+	public void testUnknownGenerationWithoutGraph() throws Exception {
+		final RevCommit a = commit();
+		final RevCommit b = commit(a);
+
+		try (RevWalk w = new RevWalk(db)) {
+			RevCommit c = w.parseCommit(b);
+			assertEquals(CommitGraph.GENERATION_NUMBER_INFINITY,
+					w.getGeneration(c));
+		}
+	}
+
+	@Test
+	public void testComputeGenerations() throws Exception {
+		final RevCommit a = commit();
+		final RevCommit b = commit(a);
+		final RevCommit c = commit(a);
+		final RevCommit d = commit(b);
+		final RevCommit m = commit(c, d);
+
+		try (RevWalk w = new RevWalk(db)) {
+			w.setComputeGenerations(true);
+			assertEquals(4, w.getGeneration(w.parseCommit(m)));
+			assertEquals(1, w.lookupCommit(a).generation);
+			assertEquals(2, w.lookupCommit(b).generation);
+			assertEquals(2, w.lookupCommit(c).generation);
+			assertEquals(3, w.lookupCommit(d).generation);
+		}
+	}
+
+	@Test
+	public void testGenerationsFromCommitGraph() throws Exception {
+		final RevCommit a = commit();
+		final RevCommit b = commit(a);
+		final RevCommit c = commit(b);
+		writeCommitGraph(c);
+
+		try (RevWalk w = new RevWalk(db)) {
+			assertEquals(3, w.getGeneration(w.parseCommit(c)));
+			assertEquals(1, w.getGeneration(w.parseCommit(a)));
+		}
+	}
+
+	@Test
+	public void testIsMergedIntoWithGenerations() throws Exception {
+		final RevCommit a = commit();
+		final RevCommit b = commit(a);
+		final RevCommit c = commit(b);
+		final RevCommit side = commit(a);
+		final RevCommit m = commit(c, side);
+		final RevCommit other = commit(side);
+
+		rw.setComputeGenerations(true);
+		assertTrue(rw.isMergedInto(a, m));
+		assertTrue(rw.isMergedInto(b, m));
+		assertTrue(rw.isMergedInto(side, m));
+		assertTrue(rw.isMergedInto(m, m));
+		assertFalse(rw.isMergedInto(m, c));
+		assertFalse(rw.isMergedInto(other, m));
+		assertFalse(rw.isMergedInto(c, other));
+	}
+
+	@Test
+	public void testIsMergedIntoWithCommitGraph() throws Exception {
+		final RevCommit a = commit();
+		final RevCommit b = commit(a);
+		final RevCommit side = commit(a);
+		final RevCommit m = commit(b, side);
+		writeCommitGraph(m);
+		final RevCommit n = commit(m);
+
+		try (RevWalk w = new RevWalk(db)) {
+			w.setRetainBody(false);
+			RevCommit wa = w.parseCommit(a);
+			RevCommit wb = w.parseCommit(b);
+			RevCommit wm = w.parseCommit(m);
+			RevCommit wn = w.parseCommit(n);
+			RevCommit wside = w.parseCommit(side);
+			assertTrue(w.isMergedInto(wa, wn));
+			assertTrue(w.isMergedInto(wside, wm));
+			assertTrue(w.isMergedInto(wm, wn));
+			assertFalse(w.isMergedInto(wn, wm));
+			assertFalse(w.isMergedInto(wb, wside));
+		}
+	}
+
+	@Test
+	public void testIsMergedIntoOldCommitTime() throws Exception {
+		final int threeDaysInSecs = 3 * 24 * 60 * 60;
+		final RevCommit f = commit();
+		final RevCommit b = commit(f);
+		final RevCommit o = commit(-threeDaysInSecs, commit(commit(commit(b))));
+		final RevCommit n = commit(commit(commit(commit(commit(f)))));
+		final RevCommit t = commit(n, o);
+
+		rw.setComputeGenerations(true);
+		assertTrue(rw.isMergedInto(b, t));
+	}
+
+	@Test
+	public void testFindUnreachable() throws Exception {
+		final RevCommit a = commit();
+		final RevCommit b = commit(a);
+		final RevCommit c = commit(b);
+		final RevCommit side = commit(a);
+		final RevCommit other = commit(side);
+
+		rw.setComputeGenerations(true);
+		assertNull(rw.findUnreachable(Arrays.asList(a, b, c),
+				Collections.singletonList(c)));
+		assertNull(rw.findUnreachable(Arrays.asList(b, side),
+				Arrays.asList(c, other)));
+		assertSame(other, rw.findUnreachable(Arrays.asList(a, other),
+				Collections.singletonList(c)));
+		assertSame(c, rw.findUnreachable(Collections.singletonList(c),
+				Collections.singletonList(b)));
+
+		// Flags used by the walk must not leak into later walks.
+		markStart(c);
+		assertSame(c, rw.next());
+		assertSame(b, rw.next());
+		assertSame(a, rw.next());
+		assertNull(rw.next());
+	}
+
+	@Test
+	public void testFindUnreachableWithoutGenerations() throws Exception {
+		final RevCommit a = commit();
+		final RevCommit b = commit(a);
+		final RevCommit side = commit(a);
+
+		assertNull(rw.findUnreachable(Collections.singletonList(a),
+				Collections.singletonList(b)));
+		assertSame(side, rw.findUnreachable(Collections.singletonList(side),
+				Collections.singletonList(b)));
+	}
+
+	private void writeCommitGraph(RevCommit tip) throws Exception {
+		RefUpdate u = db.updateRef("refs/heads/master");
+		u.setNewObjectId(tip);
+		u.forceUpdate();
+		new GC(db).writeCommitGraph();
+	}
+}
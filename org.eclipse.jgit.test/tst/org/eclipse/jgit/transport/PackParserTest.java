@@ -46,7 +46,9 @@
 
 package org.eclipse.jgit.transport;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
@@ -57,10 +59,14 @@
 import java.io.InputStream;
 import java.security.MessageDigest;
 import java.text.MessageFormat;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
 import java.util.zip.Deflater;
 
 import org.eclipse.jgit.errors.TooLargeObjectInPackException;
 import org.eclipse.jgit.internal.JGitText;
+import org.eclipse.jgit.internal.storage.file.FileRepository;
 import org.eclipse.jgit.internal.storage.file.ObjectDirectoryPackParser;
 import org.eclipse.jgit.internal.storage.file.PackFile;
 import org.eclipse.jgit.junit.JGitTestUtil;
@@ -72,6 +78,7 @@
 import org.eclipse.jgit.lib.ObjectInserter;
 import org.eclipse.jgit.lib.Repository;
 import org.eclipse.jgit.revwalk.RevBlob;
+import org.eclipse.jgit.util.IO;
 import org.eclipse.jgit.util.NB;
 import org.eclipse.jgit.util.TemporaryBuffer;
 import org.eclipse.jgit.util.io.UnionInputStream;
@@ -159,6 +166,115 @@ public void testTinyThinPack() throws Exception {
 		p.parse(NullProgressMonitor.INSTANCE);
 	}
 
+	@Test
+	public void testLowMemoryIndexingMatchesDefault() throws Exception {
+		assertIndexMatchesDefault(p -> {
+			p.setLowMemoryIndexing(true);
+			((PackParser) p).setSpillRunSize(7);
+		});
+	}
+
+	@Test
+	public void testParallelDeltaResolutionMatchesDefault() throws Exception {
+		assertIndexMatchesDefault(p -> p.setThreads(4));
+	}
+
+	@Test
+	public void testParallelDeltaResolutionOnExecutor() throws Exception {
+		ExecutorService pool = Executors.newFixedThreadPool(3);
+		try {
+			assertIndexMatchesDefault(p -> {
+				p.setThreads(3);
+				p.setExecutor(pool);
+			});
+			assertIndexMatchesDefault(p -> {
+				p.setThreads(2);
+				p.setExecutor(r -> r.run());
+			});
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	@Test
+	public void testParallelLowMemoryIndexingMatchesDefault()
+			throws Exception {
+		assertIndexMatchesDefault(p -> {
+			p.setThreads(4);
+			p.setLowMemoryIndexing(true);
+			((PackParser) p).setSpillRunSize(7);
+		});
+	}
+
+	private void assertIndexMatchesDefault(
+			Consumer<ObjectDirectoryPackParser> configure) throws Exception {
+		for (String name : new String[] {
+				"pack-34be9032ac282b11fa9babdc2b2a93ca996c9c2f.pack",
+				"pack-df2982f284bbabb6bdb59ee3fcc6eb0983e20371.pack" }) {
+			File packFile = JGitTestUtil.getTestResourceFile(name);
+			PackFile expect = parse(createBareRepository(), packFile,
+					p -> { /* default */ });
+			FileRepository other = createBareRepository();
+			PackFile actual = parse(other, packFile, configure);
+
+			assertEquals(expect.getPackName(), actual.getPackName());
+			assertArrayEquals(IO.readFully(indexFile(expect)),
+					IO.readFully(indexFile(actual)));
+			assertNoSpillFiles(other);
+		}
+	}
+
+	private static PackFile parse(Repository repo, File packFile,
+			Consumer<ObjectDirectoryPackParser> configure) throws IOException {
+		try (InputStream is = new FileInputStream(packFile);
+				ObjectInserter ins = repo.newObjectInserter()) {
+			ObjectDirectoryPackParser p = (ObjectDirectoryPackParser) ins
+					.newPackParser(is);
+			p.setIndexVersion(2);
+			configure.accept(p);
+			p.parse(NullProgressMonitor.INSTANCE);
+			return p.getPackFile();
+		}
+	}
+
+	@Test
+	public void testLowMemoryIndexingThinPack() throws Exception {
+		TestRepository d = new TestRepository<Repository>(db);
+		RevBlob a = d.blob("a");
+
+		TemporaryBuffer.Heap pack = new TemporaryBuffer.Heap(1024);
+
+		packHeader(pack, 2);
+
+		pack.write((Constants.OBJ_REF_DELTA) << 4 | 4);
+		a.copyRawTo(pack);
+		deflate(pack, new byte[] { 0x1, 0x1, 0x1, 'b' });
+
+		int pos = (int) pack.length();
+		pack.write((Constants.OBJ_OFS_DELTA) << 4 | 4);
+		pack.write(pos - 12);
+		deflate(pack, new byte[] { 0x1, 0x1, 0x1, 'c' });
+
+		digest(pack);
+
+		ObjectDirectoryPackParser p = (ObjectDirectoryPackParser) index(
+				new ByteArrayInputStream(pack.toByteArray()));
+		p.setAllowThin(true);
+		p.setLowMemoryIndexing(true);
+		((PackParser) p).setSpillRunSize(1);
+		p.parse(NullProgressMonitor.INSTANCE);
+
+		assertEquals(3, p.getObjectCount());
+		PackFile file = p.getPackFile();
+		ObjectId b = blobId("b");
+		ObjectId c = blobId("c");
+		assertTrue(file.hasObject(a));
+		assertTrue(file.hasObject(b));
+		assertTrue(file.hasObject(c));
+		assertArrayEquals(Constants.encode("c"), db.open(c).getBytes());
+		assertNoSpillFiles(db);
+	}
+
 	@Test
 	public void testPackWithDuplicateBlob() throws Exception {
 		final byte[] data = Constants.encode("0123456789abcdefg");
@@ -475,6 +591,22 @@ private static void digest(TemporaryBuffer.Heap buf) throws IOException {
 		buf.write(md.digest());
 	}
 
+	private static ObjectId blobId(String content) {
+		return new ObjectInserter.Formatter().idFor(Constants.OBJ_BLOB,
+				Constants.encode(content));
+	}
+
+	private static File indexFile(PackFile pack) {
+		String path = pack.getPackFile().getPath();
+		return new File(path.substring(0, path.length() - 5) + ".idx");
+	}
+
+	private static void assertNoSpillFiles(FileRepository repo) {
+		String[] names = repo.getObjectDatabase().getDirectory().list();
+		for (String n : names)
+			assertFalse(n, n.endsWith(".spill"));
+	}
+
 	private ObjectInserter inserter;
 
 	@After
@@ -253,6 +253,32 @@ public void testFetchWithBlobSizeFilter() throws IOException {
 		assertEquals(15, request.getFilterBlobLimit());
 	}
 
+	@Test
+	public void testFetchWithTreeDepthFilter() throws IOException {
+		PacketLineIn pckIn = formatAsPacketLine(PacketLineIn.DELIM,
+				"filter tree:3",
+				PacketLineIn.END);
+		ProtocolV2Parser parser = new ProtocolV2Parser(
+				ConfigBuilder.start().allowFilter().done());
+		FetchV2Request request = parser.parseFetchRequest(pckIn,
+				testRepo.getRepository().getRefDatabase());
+		assertEquals(3, request.getFilterSpec().getTreeDepthLimit());
+		assertEquals(-1, request.getFilterSpec().getBlobLimit());
+	}
+
+	@Test
+	public void testFetchWithInvalidTreeDepthFilter() throws IOException {
+		PacketLineIn pckIn = formatAsPacketLine(PacketLineIn.DELIM,
+				"filter tree:-1",
+				PacketLineIn.END);
+		ProtocolV2Parser parser = new ProtocolV2Parser(
+				ConfigBuilder.start().allowFilter().done());
+
+		thrown.expect(PackProtocolException.class);
+		parser.parseFetchRequest(pckIn,
+				testRepo.getRepository().getRefDatabase());
+	}
+
 	@Test
 	public void testFetchMustNotHaveMultipleFilters() throws IOException {
 		PacketLineIn pckIn = formatAsPacketLine(PacketLineIn.DELIM,
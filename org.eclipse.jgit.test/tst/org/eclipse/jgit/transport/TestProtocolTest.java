@@ -44,6 +44,7 @@
 package org.eclipse.jgit.transport;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
@@ -51,6 +52,7 @@
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.eclipse.jgit.api.Git;
 import org.eclipse.jgit.api.errors.InvalidRemoteException;
@@ -60,6 +62,7 @@
 import org.eclipse.jgit.internal.storage.dfs.InMemoryRepository;
 import org.eclipse.jgit.junit.TestRepository;
 import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectReaderStatistics;
 import org.eclipse.jgit.lib.Repository;
 import org.eclipse.jgit.revwalk.RevCommit;
 import org.eclipse.jgit.storage.pack.PackStatistics;
@@ -302,6 +305,61 @@ public ReceivePack create(User req, Repository db)
 		}
 	}
 
+	@Test
+	public void testFetchReaderStatistics() throws Exception {
+		remote.branch("master").commit().add("readme.txt", "fetched").create();
+
+		AtomicReference<PackStatistics> stats = new AtomicReference<>();
+		TestProtocol<User> proto = registerProto(new UploadPackFactory<User>() {
+			@Override
+			public UploadPack create(User req, Repository db) {
+				UploadPack up = new UploadPack(db);
+				up.setPostUploadHook(new PostUploadHook() {
+					@Override
+					public void onPostUpload(PackStatistics s) {
+						stats.set(s);
+					}
+				});
+				return up;
+			}
+		}, new DefaultReceive());
+		URIish uri = proto.register(new User("user"), remote.getRepository());
+
+		try (Git git = new Git(local.getRepository())) {
+			git.fetch().setRemote(uri.toString()).setRefSpecs(MASTER).call();
+		}
+		ObjectReaderStatistics rs = stats.get().getReaderStatistics();
+		assertNotNull(rs);
+		assertTrue(rs.getInflatedBytes() > 0);
+		assertTrue(rs.getCacheHits() + rs.getReadCount() > 0);
+	}
+
+	@Test
+	public void testPushReaderStatistics() throws Exception {
+		local.branch("master").commit().add("readme.txt", "pushed").create();
+
+		AtomicReference<ReceivedPackStatistics> stats = new AtomicReference<>();
+		TestProtocol<User> proto = registerProto(new DefaultUpload(),
+				new ReceivePackFactory<User>() {
+					@Override
+					public ReceivePack create(User req, Repository db) {
+						ReceivePack rp = new ReceivePack(db);
+						rp.setPostReceiveHook((p, cmds) -> stats
+								.set(p.getReceivedPackStatistics()));
+						return rp;
+					}
+				});
+		URIish uri = proto.register(new User("user"), remote.getRepository());
+
+		try (Git git = new Git(local.getRepository())) {
+			git.push().setRemote(uri.toString()).setRefSpecs(HEADS).call();
+		}
+		ObjectReaderStatistics rs = stats.get().getReaderStatistics();
+		assertNotNull(rs);
+		// The connectivity check parses the received objects.
+		assertTrue(rs.getInflatedBytes() > 0);
+	}
+
 	private TestProtocol<User> registerDefault() {
 		return registerProto(new DefaultUpload(), new DefaultReceive());
 	}
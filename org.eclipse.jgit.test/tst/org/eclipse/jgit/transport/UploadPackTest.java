@@ -8,6 +8,7 @@
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
@@ -23,6 +24,7 @@
 
 import org.eclipse.jgit.errors.PackProtocolException;
 import org.eclipse.jgit.errors.TransportException;
+import org.eclipse.jgit.events.RefsChangedEvent;
 import org.eclipse.jgit.internal.storage.dfs.DfsGarbageCollector;
 import org.eclipse.jgit.internal.storage.dfs.DfsRepositoryDescription;
 import org.eclipse.jgit.internal.storage.dfs.InMemoryRepository;
@@ -34,10 +36,12 @@
 import org.eclipse.jgit.lib.Repository;
 import org.eclipse.jgit.lib.Sets;
 import org.eclipse.jgit.lib.TextProgressMonitor;
+import org.eclipse.jgit.revwalk.ParsedCommitCache;
 import org.eclipse.jgit.revwalk.RevBlob;
 import org.eclipse.jgit.revwalk.RevCommit;
 import org.eclipse.jgit.revwalk.RevTag;
 import org.eclipse.jgit.revwalk.RevTree;
+import org.eclipse.jgit.revwalk.RevWalk;
 import org.eclipse.jgit.transport.UploadPack.RequestPolicy;
 import org.eclipse.jgit.transport.resolver.ServiceNotAuthorizedException;
 import org.eclipse.jgit.transport.resolver.ServiceNotEnabledException;
@@ -233,6 +237,86 @@ public UploadPack create(Object req, Repository db)
 		}
 	}
 
+	@Test
+	public void testFetchWithTreeZeroFilter() throws Exception {
+		InMemoryRepository server2 = newRepo("server2");
+		TestRepository<InMemoryRepository> remote2 =
+				new TestRepository<>(server2);
+		RevBlob blob1 = remote2.blob("foobar");
+		RevTree subtree = remote2.tree(remote2.file("1", blob1));
+		RevTree tree = remote2.tree(remote2.file("a/1", blob1));
+		RevCommit commit = remote2.commit(tree);
+		remote2.update("master", commit);
+
+		server2.getConfig().setBoolean("uploadpack", null, "allowfilter", true);
+
+		testProtocol = new TestProtocol<>(
+				new UploadPackFactory<Object>() {
+					@Override
+					public UploadPack create(Object req, Repository db)
+							throws ServiceNotEnabledException,
+							ServiceNotAuthorizedException {
+						UploadPack up = new UploadPack(db);
+						return up;
+					}
+				}, null);
+		uri = testProtocol.register(ctx, server2);
+
+		try (Transport tn = testProtocol.open(uri, client, "server2")) {
+			tn.setFilterSpec(FilterSpec.withTreeDepthLimit(0));
+			tn.fetch(NullProgressMonitor.INSTANCE,
+					Collections.singletonList(new RefSpec(commit.name())));
+			assertTrue(client.hasObject(commit.toObjectId()));
+			assertFalse(client.hasObject(tree.toObjectId()));
+			assertFalse(client.hasObject(subtree.toObjectId()));
+			assertFalse(client.hasObject(blob1.toObjectId()));
+		}
+	}
+
+	@Test
+	public void testFetchWithTreeDepthFilter() throws Exception {
+		InMemoryRepository server2 = newRepo("server2");
+		TestRepository<InMemoryRepository> remote2 =
+				new TestRepository<>(server2);
+		RevBlob blob1 = remote2.blob("foobar");
+		RevBlob blob2 = remote2.blob("fooba");
+		RevTree subtree = remote2.tree(remote2.file("1", blob1));
+		// The same subtree is at depth 1 in the first commit and at depth 2
+		// in the second commit, which is walked first.
+		RevTree tree1 = remote2.tree(remote2.file("b/1", blob1));
+		RevTree tree2 = remote2.tree(remote2.file("a/b/1", blob1),
+				remote2.file("x/y/2", blob2));
+		RevCommit commit1 = remote2.commit(tree1);
+		RevCommit commit2 = remote2.commit(tree2, commit1);
+		remote2.update("master", commit2);
+
+		server2.getConfig().setBoolean("uploadpack", null, "allowfilter", true);
+
+		testProtocol = new TestProtocol<>(
+				new UploadPackFactory<Object>() {
+					@Override
+					public UploadPack create(Object req, Repository db)
+							throws ServiceNotEnabledException,
+							ServiceNotAuthorizedException {
+						UploadPack up = new UploadPack(db);
+						return up;
+					}
+				}, null);
+		uri = testProtocol.register(ctx, server2);
+
+		try (Transport tn = testProtocol.open(uri, client, "server2")) {
+			tn.setFilterSpec(FilterSpec.withTreeDepthLimit(3));
+			tn.fetch(NullProgressMonitor.INSTANCE,
+					Collections.singletonList(new RefSpec(commit2.name())));
+			assertTrue(client.hasObject(commit1.toObjectId()));
+			assertTrue(client.hasObject(tree1.toObjectId()));
+			assertTrue(client.hasObject(tree2.toObjectId()));
+			assertTrue(client.hasObject(subtree.toObjectId()));
+			assertTrue(client.hasObject(blob1.toObjectId()));
+			assertFalse(client.hasObject(blob2.toObjectId()));
+		}
+	}
+
 	@Test
 	public void testFetchExplicitBlobWithFilter() throws Exception {
 		InMemoryRepository server2 = newRepo("server2");
@@ -1815,4 +1899,22 @@ public Map<String, Ref> filter(Map<String, Ref> refs) {
 			return new HashMap<>();
 		}
 	}
+
+	@Test
+	public void testSharedCommitCacheClearedWhenRefsChange() throws Exception {
+		RevCommit commit = remote.commit().message("1").create();
+		remote.update("master", commit);
+		server.getConfig().setInt("uploadpack", null, "commitcachesize", 10);
+
+		ParsedCommitCache cache = new UploadPack(server).getParsedCommitCache();
+		assertNotNull(cache);
+		assertSame(cache, new UploadPack(server).getParsedCommitCache());
+		try (RevWalk rw = new RevWalk(server)) {
+			assertTrue(cache.add(rw.parseCommit(commit)));
+		}
+		assertEquals(1, cache.size());
+
+		server.fireEvent(new RefsChangedEvent());
+		assertEquals(0, cache.size());
+	}
 }
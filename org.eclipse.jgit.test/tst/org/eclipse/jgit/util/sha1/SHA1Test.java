@@ -45,6 +45,7 @@
 
 import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 import static org.junit.Assume.assumeTrue;
@@ -54,10 +55,13 @@
 import java.nio.ByteBuffer;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
+import java.util.Random;
 
 import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.MutableObjectId;
 import org.eclipse.jgit.lib.ObjectId;
 import org.eclipse.jgit.util.IO;
+import org.eclipse.jgit.util.sha1.SHA1.Sha1Implementation;
 import org.junit.Test;
 
 public class SHA1Test {
@@ -218,6 +222,43 @@ public void detectsShatteredByDefault() throws IOException {
 		}
 	}
 
+	@Test
+	public void jdkNativeMatchesJava() {
+		byte[] data = new byte[10000];
+		new Random(42).nextBytes(data);
+		for (int len : new int[] { 0, 1, 55, 56, 63, 64, 65, 1000, 10000 }) {
+			SHA1 java = SHA1.newInstance(Sha1Implementation.JAVA);
+			SHA1 jdk = SHA1.newInstance(Sha1Implementation.JDKNATIVE);
+			for (SHA1 s : new SHA1[] { java, jdk }) {
+				s.update(data, 0, len / 2);
+				if (len % 2 == 1) {
+					s.update(data[len / 2]);
+				}
+				s.update(data, len / 2 + len % 2, len / 2);
+			}
+			assertEquals(java.toObjectId(), jdk.toObjectId());
+
+			MutableObjectId id = new MutableObjectId();
+			jdk.reset().update(data, 0, len);
+			jdk.digest(id);
+			java.reset();
+			java.update(data, 0, len);
+			assertEquals(java.toObjectId(), id);
+		}
+	}
+
+	@Test
+	public void jdkNativeDoesNotDetectShattered() throws IOException {
+		byte[] pdf1 = read("shattered-1.pdf", 422435);
+		SHA1 s = SHA1.newInstance(Sha1Implementation.JDKNATIVE)
+				.setDetectCollision(true);
+		s.update(pdf1);
+		assertEquals(
+				ObjectId.fromString("38762cf7f55934b34d179ae6a4c80cadccbb7f0a"),
+				s.toObjectId());
+		assertFalse(s.hasCollision());
+	}
+
 	private static ObjectId blob(byte[] pdf1, SHA1 s) {
 		s.update(Constants.encodedTypeString(Constants.OBJ_BLOB));
 		s.update((byte) ' ');
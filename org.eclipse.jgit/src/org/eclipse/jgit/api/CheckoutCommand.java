@@ -88,7 +88,9 @@
 import org.eclipse.jgit.revwalk.RevTree;
 import org.eclipse.jgit.revwalk.RevWalk;
 import org.eclipse.jgit.treewalk.TreeWalk;
+import org.eclipse.jgit.treewalk.filter.AndTreeFilter;
 import org.eclipse.jgit.treewalk.filter.PathFilterGroup;
+import org.eclipse.jgit.treewalk.filter.SkipWorkTreeFilter;
 
 /**
  * Checkout a branch to the working tree.
@@ -469,7 +471,10 @@ protected CheckoutCommand checkoutPaths() throws IOException,
 	private void checkoutPathsFromIndex(TreeWalk treeWalk, DirCache dc)
 			throws IOException {
 		DirCacheIterator dci = new DirCacheIterator(dc);
-		treeWalk.addTree(dci);
+		int dciPos = treeWalk.addTree(dci);
+		// Files outside of a sparse checkout stay out of the working tree
+		treeWalk.setFilter(AndTreeFilter.create(treeWalk.getFilter(),
+				new SkipWorkTreeFilter(dciPos)));
 
 		String previousPath = null;
 
@@ -532,6 +537,8 @@ private void checkoutPathsFromCommit(TreeWalk treeWalk, DirCache dc,
 				public void apply(DirCacheEntry ent) {
 					ent.setObjectId(blobId);
 					ent.setFileMode(mode);
+					if (ent.isSkipWorkTree())
+						return;
 					checkoutPath(ent, r,
 							new CheckoutMetadata(eolStreamType, filterCommand));
 					actuallyModifiedPaths.add(path);
@@ -45,7 +45,10 @@
 import java.io.IOException;
 import java.text.MessageFormat;
 import java.text.ParseException;
+import java.util.Arrays;
 import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Properties;
 
 import org.eclipse.jgit.api.errors.GitAPIException;
@@ -55,6 +58,7 @@
 import org.eclipse.jgit.internal.storage.dfs.DfsRepository;
 import org.eclipse.jgit.internal.storage.file.FileRepository;
 import org.eclipse.jgit.internal.storage.file.GC;
+import org.eclipse.jgit.internal.storage.file.GC.ReachableStatistics;
 import org.eclipse.jgit.internal.storage.file.GC.RepoStatistics;
 import org.eclipse.jgit.lib.ConfigConstants;
 import org.eclipse.jgit.lib.ProgressMonitor;
@@ -252,6 +256,58 @@ public Properties getStatistics() throws GitAPIException {
 		}
 	}
 
+	/**
+	 * Counts the objects reachable from the refs of some namespaces.
+	 * <p>
+	 * The counts are computed by OR-ing the bitmaps of the repository's
+	 * bitmap index, so they are cheap after a garbage collection that wrote
+	 * bitmaps. The properties of each namespace are numberOfCommits,
+	 * numberOfTrees, numberOfBlobs, numberOfTags and sizeOfObjects, the
+	 * approximate number of bytes used to store the objects.
+	 * <p>
+	 * Only file based repositories are supported.
+	 *
+	 * @param refPrefixes
+	 *            namespaces to count, such as {@code refs/heads/}. The empty
+	 *            string selects all refs.
+	 * @return the statistics of each namespace, keyed by its prefix
+	 * @throws org.eclipse.jgit.api.errors.GitAPIException
+	 *             thrown if the statistics cannot be computed
+	 * @since 5.3
+	 */
+	public Map<String, Properties> getReachableStatistics(
+			String... refPrefixes) throws GitAPIException {
+		try {
+			if (repo instanceof FileRepository) {
+				GC gc = new GC((FileRepository) repo);
+				gc.setProgressMonitor(monitor);
+				Map<String, Properties> ret = new LinkedHashMap<>();
+				for (Map.Entry<String, ReachableStatistics> e : gc
+						.getReachableStatistics(Arrays.asList(refPrefixes))
+						.entrySet()) {
+					ret.put(e.getKey(), toProperties(e.getValue()));
+				}
+				return ret;
+			}
+			throw new UnsupportedOperationException(MessageFormat.format(
+					JGitText.get().unsupportedGC, repo.getClass().toString()));
+		} catch (IOException e) {
+			throw new JGitInternalException(
+					JGitText.get().couldNotGetRepoStatistics, e);
+		}
+	}
+
+	@SuppressWarnings("boxing")
+	private static Properties toProperties(ReachableStatistics stats) {
+		Properties p = new Properties();
+		p.put("numberOfCommits", stats.numberOfCommits); //$NON-NLS-1$
+		p.put("numberOfTrees", stats.numberOfTrees); //$NON-NLS-1$
+		p.put("numberOfBlobs", stats.numberOfBlobs); //$NON-NLS-1$
+		p.put("numberOfTags", stats.numberOfTags); //$NON-NLS-1$
+		p.put("sizeOfObjects", stats.sizeOfObjects); //$NON-NLS-1$
+		return p;
+	}
+
 	@SuppressWarnings("boxing")
 	private static Properties toProperties(RepoStatistics stats) {
 		Properties p = new Properties();
@@ -45,6 +45,7 @@
 import java.io.IOException;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.Executor;
 
 import org.eclipse.jgit.api.errors.GitAPIException;
 import org.eclipse.jgit.api.errors.JGitInternalException;
@@ -75,6 +76,8 @@ public class StatusCommand extends GitCommand<Status> {
 
 	private IgnoreSubmoduleMode ignoreSubmoduleMode = null;
 
+	private Executor executor;
+
 	/**
 	 * Constructor for StatusCommand.
 	 *
@@ -142,11 +145,14 @@ public List<String> getPaths() {
 	 */
 	@Override
 	public Status call() throws GitAPIException, NoWorkTreeException {
+		boolean parallel = executor != null && workingTreeIt == null;
 		if (workingTreeIt == null)
 			workingTreeIt = new FileTreeIterator(repo);
 
 		try {
 			IndexDiff diff = new IndexDiff(repo, Constants.HEAD, workingTreeIt);
+			if (parallel)
+				diff.setExecutor(executor);
 			if (ignoreSubmoduleMode != null)
 				diff.setIgnoreSubmoduleMode(ignoreSubmoduleMode);
 			if (paths != null)
@@ -189,4 +195,25 @@ public StatusCommand setProgressMonitor(ProgressMonitor progressMonitor) {
 		this.progressMonitor = progressMonitor;
 		return this;
 	}
+
+	/**
+	 * Set the executor used to scan the working tree in parallel.
+	 * <p>
+	 * The working tree is split by its top-level entries and the parts are
+	 * scanned concurrently, see
+	 * {@link org.eclipse.jgit.lib.IndexDiff#setExecutor(Executor)}. The
+	 * executor is not used if a working tree iterator was set with
+	 * {@link #setWorkingTreeIt(WorkingTreeIterator)}.
+	 *
+	 * @param executor
+	 *            executor to scan the working tree on, for example a
+	 *            {@link java.util.concurrent.ForkJoinPool}; null to scan on
+	 *            the calling thread.
+	 * @return {@code this}
+	 * @since 5.3
+	 */
+	public StatusCommand setExecutor(Executor executor) {
+		this.executor = executor;
+		return this;
+	}
 }
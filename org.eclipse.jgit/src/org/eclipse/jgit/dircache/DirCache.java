@@ -46,15 +46,24 @@
 package org.eclipse.jgit.dircache;
 
 import static java.nio.charset.StandardCharsets.ISO_8859_1;
+import static org.eclipse.jgit.lib.ConfigConstants.CONFIG_INDEX_SECTION;
+import static org.eclipse.jgit.lib.ConfigConstants.CONFIG_KEY_THREADS;
+import static org.eclipse.jgit.lib.ConfigConstants.CONFIG_KEY_VERSION;
 
 import java.io.BufferedInputStream;
 import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
 import java.io.EOFException;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
 import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.security.DigestOutputStream;
 import java.security.MessageDigest;
 import java.text.MessageFormat;
@@ -62,7 +71,13 @@
 import java.util.Arrays;
 import java.util.Comparator;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
+import org.eclipse.jgit.annotations.Nullable;
 import org.eclipse.jgit.errors.CorruptObjectException;
 import org.eclipse.jgit.errors.IndexReadException;
 import org.eclipse.jgit.errors.LockFailedException;
@@ -73,6 +88,7 @@
 import org.eclipse.jgit.internal.storage.file.FileSnapshot;
 import org.eclipse.jgit.internal.storage.file.LockFile;
 import org.eclipse.jgit.lib.AnyObjectId;
+import org.eclipse.jgit.lib.Config;
 import org.eclipse.jgit.lib.Constants;
 import org.eclipse.jgit.lib.ObjectId;
 import org.eclipse.jgit.lib.ObjectInserter;
@@ -86,7 +102,9 @@
 import org.eclipse.jgit.util.IO;
 import org.eclipse.jgit.util.MutableInteger;
 import org.eclipse.jgit.util.NB;
+import org.eclipse.jgit.util.StringUtils;
 import org.eclipse.jgit.util.TemporaryBuffer;
+import org.eclipse.jgit.util.io.CountingOutputStream;
 import org.eclipse.jgit.util.io.SilentFileInputStream;
 
 /**
@@ -107,10 +125,26 @@ public class DirCache {
 
 	private static final int EXT_TREE = 0x54524545 /* 'TREE' */;
 
+	private static final int EXT_UNTR = 0x554e5452 /* 'UNTR' */;
+
+	private static final int EXT_IEOT = 0x49454f54 /* 'IEOT' */;
+
+	private static final int EXT_EOIE = 0x454f4945 /* 'EOIE' */;
+
+	private static final int IEOT_VERSION = 1;
+
+	/** Length of the EOIE extension: offset and hash of extension headers. */
+	private static final int EOIE_LEN = 4 + Constants.OBJECT_ID_LENGTH;
+
+	/** Number of entries per block recorded by the IEOT extension. */
+	private static final int ENTRIES_PER_BLOCK = 10000;
+
 	private static final DirCacheEntry[] NO_ENTRIES = {};
 
 	private static final byte[] NO_CHECKSUM = {};
 
+	private static final byte[] NO_PATH = {};
+
 	static final Comparator<DirCacheEntry> ENT_CMP = new Comparator<DirCacheEntry>() {
 		@Override
 		public int compare(DirCacheEntry o1, DirCacheEntry o2) {
@@ -191,8 +225,10 @@ public static DirCache read(ObjectReader reader, AnyObjectId treeId)
 	 */
 	public static DirCache read(Repository repository)
 			throws CorruptObjectException, IOException {
-		final DirCache c = read(repository.getIndexFile(), repository.getFS());
+		final DirCache c = new DirCache(repository.getIndexFile(),
+				repository.getFS());
 		c.repository = repository;
+		c.read();
 		return c;
 	}
 
@@ -247,9 +283,13 @@ public static DirCache read(File indexLocation, FS fs)
 	 */
 	public static DirCache lock(File indexLocation, FS fs)
 			throws CorruptObjectException, IOException {
-		final DirCache c = new DirCache(indexLocation, fs);
+		return lock(new DirCache(indexLocation, fs));
+	}
+
+	private static DirCache lock(DirCache c)
+			throws CorruptObjectException, IOException {
 		if (!c.lock())
-			throw new LockFailedException(indexLocation);
+			throw new LockFailedException(c.liveFile);
 
 		try {
 			c.read();
@@ -292,9 +332,11 @@ public static DirCache lock(File indexLocation, FS fs)
 	public static DirCache lock(final Repository repository,
 			final IndexChangedListener indexChangedListener)
 			throws CorruptObjectException, IOException {
-		DirCache c = lock(repository.getIndexFile(), repository.getFS(),
-				indexChangedListener);
+		DirCache c = new DirCache(repository.getIndexFile(),
+				repository.getFS());
 		c.repository = repository;
+		lock(c);
+		c.registerIndexChangedListener(indexChangedListener);
 		return c;
 	}
 
@@ -343,6 +385,9 @@ public static DirCache lock(final File indexLocation, final FS fs,
 	/** Cache tree for this index; null if the cache tree is not available. */
 	private DirCacheTree tree;
 
+	/** Untracked cache extension; null if not present. */
+	private UntrackedCache untrackedCache;
+
 	/** Our active lock (if we hold it); null if we don't have it locked. */
 	private LockFile myLock;
 
@@ -358,6 +403,9 @@ public static DirCache lock(final File indexLocation, final FS fs,
 	/** listener to be informed on commit */
 	private IndexChangedListener indexChangedListener;
 
+	/** Version of the index file read; 0 if none was read. */
+	private int version;
+
 	/** Repository containing this index */
 	private Repository repository;
 
@@ -405,6 +453,8 @@ public DirCacheEditor editor() {
 	}
 
 	void replace(DirCacheEntry[] e, int cnt) {
+		if (untrackedCache != null)
+			invalidateUntracked(e, cnt);
 		sortedEntries = e;
 		entryCnt = cnt;
 		tree = null;
@@ -470,14 +520,54 @@ public void clear() {
 		sortedEntries = NO_ENTRIES;
 		entryCnt = 0;
 		tree = null;
+		untrackedCache = null;
 		readIndexChecksum = NO_CHECKSUM;
 	}
 
-	private void readFrom(InputStream inStream) throws IOException,
+	private void readFrom(FileInputStream inStream) throws IOException,
 			CorruptObjectException {
-		final BufferedInputStream in = new BufferedInputStream(inStream);
-		final MessageDigest md = Constants.newMessageDigest();
+		// If the entries are split into blocks by an offset table, parse the
+		// blocks in parallel while another thread computes the checksum.
+		// Only then is the whole file loaded into memory; the trailer is
+		// checked first so that other indexes are still streamed.
+		//
+		int threads = getThreads();
+		if (threads == 0)
+			threads = Runtime.getRuntime().availableProcessors();
+		if (threads > 1 && EntryBlocks.isRecorded(inStream.getChannel())) {
+			final ByteBuffer buf = IO.readWholeStream(inStream,
+					(int) liveFile.length());
+			final byte[] raw = buf.array();
+			final int rawLen = buf.limit();
+			final InputStream in = new ByteArrayInputStream(raw, 0, rawLen);
+			final EntryBlocks blocks = EntryBlocks.read(raw, rawLen);
+			if (blocks != null) {
+				final ExecutorService pool = Executors.newFixedThreadPool(
+						Math.min(threads, blocks.size() + 1));
+				try {
+					final Future<byte[]> checksum = pool.submit(() -> {
+						MessageDigest d = Constants.newMessageDigest();
+						d.update(raw, 0, rawLen - 20);
+						return d.digest();
+					});
+					readFrom(in, new NullMessageDigest(), raw, blocks, pool,
+							checksum);
+				} finally {
+					pool.shutdownNow();
+				}
+			} else {
+				readFrom(in, Constants.newMessageDigest(), raw, null, null,
+						null);
+			}
+		} else {
+			readFrom(new BufferedInputStream(inStream),
+					Constants.newMessageDigest(), null, null, null, null);
+		}
+	}
 
+	private void readFrom(InputStream in, MessageDigest md, byte[] data,
+			EntryBlocks blocks, ExecutorService pool, Future<byte[]> checksum)
+			throws IOException, CorruptObjectException {
 		// Read the index header and verify we understand it.
 		//
 		final byte[] hdr = new byte[20];
@@ -487,7 +577,7 @@ private void readFrom(InputStream inStream) throws IOException,
 			throw new CorruptObjectException(JGitText.get().notADIRCFile);
 		final int ver = NB.decodeInt32(hdr, 4);
 		boolean extended = false;
-		if (ver == 3)
+		if (ver == 3 || ver == 4)
 			extended = true;
 		else if (ver != 2)
 			throw new CorruptObjectException(MessageFormat.format(
@@ -503,12 +593,26 @@ else if (ver != 2)
 		// Load the individual file entries.
 		//
 		final int infoLength = DirCacheEntry.getMaximumInfoLength(extended);
-		final byte[] infos = new byte[infoLength * entryCnt];
 		sortedEntries = new DirCacheEntry[entryCnt];
 
-		final MutableInteger infoAt = new MutableInteger();
-		for (int i = 0; i < entryCnt; i++)
-			sortedEntries[i] = new DirCacheEntry(infos, infoAt, in, md, smudge_s, smudge_ns);
+		final List<Future<Void>> tasks = new ArrayList<>();
+		if (blocks != null) {
+			for (int b = 0; b < blocks.size(); b++)
+				tasks.add(pool.submit(readBlock(data, blocks, b, infoLength,
+						ver == 4, smudge_s, smudge_ns)));
+			IO.skipFully(in, blocks.end() - 12);
+		} else {
+			final byte[] infos = new byte[infoLength * entryCnt];
+			final MutableInteger infoAt = new MutableInteger();
+			byte[] previousPath = ver == 4 ? NO_PATH : null;
+			for (int i = 0; i < entryCnt; i++) {
+				sortedEntries[i] = new DirCacheEntry(infos, infoAt, in, md,
+						smudge_s, smudge_ns, previousPath);
+				if (previousPath != null)
+					previousPath = sortedEntries[i].path;
+			}
+		}
+		version = ver;
 
 		// After the file entries are index extensions, and then a footer.
 		//
@@ -539,6 +643,18 @@ else if (ver != 2)
 				tree = new DirCacheTree(raw, new MutableInteger(), null);
 				break;
 			}
+			case EXT_UNTR: {
+				if (Integer.MAX_VALUE < sz) {
+					throw new CorruptObjectException(MessageFormat.format(
+							JGitText.get().DIRCExtensionIsTooLargeAt,
+							formatExtensionName(hdr), Long.valueOf(sz)));
+				}
+				final byte[] raw = new byte[(int) sz];
+				IO.readFully(in, raw, 0, raw.length);
+				md.update(raw, 0, raw.length);
+				untrackedCache = UntrackedCache.parse(raw);
+				break;
+			}
 			default:
 				if (hdr[0] >= 'A' && hdr[0] <= 'Z') {
 					// The extension is optional and is here only as
@@ -558,12 +674,60 @@ else if (ver != 2)
 			}
 		}
 
-		readIndexChecksum = md.digest();
+		if (checksum != null) {
+			for (Future<Void> task : tasks)
+				await(task);
+			readIndexChecksum = await(checksum);
+		} else {
+			readIndexChecksum = md.digest();
+		}
 		if (!Arrays.equals(readIndexChecksum, hdr)) {
 			throw new CorruptObjectException(JGitText.get().DIRCChecksumMismatch);
 		}
 	}
 
+	private Callable<Void> readBlock(byte[] data, EntryBlocks blocks, int b,
+			int infoLength, boolean v4, int smudge_s, int smudge_ns) {
+		return () -> {
+			final int first = blocks.first[b];
+			final int cnt = blocks.first[b + 1] - first;
+			final int start = blocks.offsets[b];
+			final InputStream in = new ByteArrayInputStream(data, start,
+					blocks.offsets[b + 1] - start);
+			final MessageDigest md = new NullMessageDigest();
+			final byte[] infos = new byte[infoLength * cnt];
+			final MutableInteger infoAt = new MutableInteger();
+			byte[] previousPath = v4 ? NO_PATH : null;
+			for (int i = first; i < first + cnt; i++) {
+				sortedEntries[i] = new DirCacheEntry(infos, infoAt, in, md,
+						smudge_s, smudge_ns, previousPath);
+				if (previousPath != null)
+					previousPath = sortedEntries[i].path;
+			}
+			if (in.available() != 0)
+				throw new CorruptObjectException(
+						JGitText.get().DIRCCorruptEntryOffsetTable);
+			return null;
+		};
+	}
+
+	private static <T> T await(Future<T> task) throws IOException {
+		try {
+			return task.get();
+		} catch (InterruptedException e) {
+			throw new InterruptedIOException();
+		} catch (ExecutionException e) {
+			Throwable err = e.getCause();
+			if (err instanceof Error)
+				throw (Error) err;
+			if (err instanceof RuntimeException)
+				throw (RuntimeException) err;
+			if (err instanceof IOException)
+				throw (IOException) err;
+			throw new IOException(err.getMessage(), err);
+		}
+	}
+
 	private void skipOptionalExtension(final InputStream in,
 			final MessageDigest md, final byte[] hdr, long sz)
 			throws IOException {
@@ -650,7 +814,8 @@ public void write() throws IOException {
 
 	void writeTo(File dir, OutputStream os) throws IOException {
 		final MessageDigest foot = Constants.newMessageDigest();
-		final DigestOutputStream dos = new DigestOutputStream(os, foot);
+		final CountingOutputStream cnt = new CountingOutputStream(os);
+		final DigestOutputStream dos = new DigestOutputStream(cnt, foot);
 
 		boolean extended = false;
 		for (int i = 0; i < entryCnt; i++) {
@@ -664,7 +829,8 @@ void writeTo(File dir, OutputStream os) throws IOException {
 		//
 		final byte[] tmp = new byte[128];
 		System.arraycopy(SIG_DIRC, 0, tmp, 0, SIG_DIRC.length);
-		NB.encodeInt32(tmp, 4, extended ? 3 : 2);
+		final int ver = getWriteVersion(extended);
+		NB.encodeInt32(tmp, 4, ver);
 		NB.encodeInt32(tmp, 8, entryCnt);
 		dos.write(tmp, 0, 12);
 
@@ -694,11 +860,51 @@ void writeTo(File dir, OutputStream os) throws IOException {
 		if (repository != null && entryCnt > 0)
 			updateSmudgedEntries();
 
+		// Large indexes record where blocks of entries start, so that
+		// readers can parse the blocks in parallel. Like C git, only do so
+		// if index.threads was explicitly configured to use threads.
+		//
+		final int blocks;
+		if (entryCnt > ENTRIES_PER_BLOCK && isThreadsConfigured()
+				&& getThreads() != 1)
+			blocks = (entryCnt + ENTRIES_PER_BLOCK - 1) / ENTRIES_PER_BLOCK;
+		else
+			blocks = 0;
+		final int[] blockOffsets = new int[blocks];
+		final MessageDigest extHeaders = blocks > 0
+				? Constants.newMessageDigest()
+				: null;
+
+		byte[] previousPath = NO_PATH;
 		for (int i = 0; i < entryCnt; i++) {
 			final DirCacheEntry e = sortedEntries[i];
 			if (e.mightBeRacilyClean(smudge_s, smudge_ns))
 				e.smudgeRacilyClean();
-			e.write(dos);
+			final boolean blockStart = blocks > 0
+					&& i % ENTRIES_PER_BLOCK == 0;
+			if (blockStart)
+				blockOffsets[i / ENTRIES_PER_BLOCK] = (int) cnt.getCount();
+			if (ver == 4) {
+				e.write(dos, previousPath, blockStart);
+				previousPath = e.path;
+			} else {
+				e.write(dos);
+			}
+		}
+		final int entriesEnd = (int) cnt.getCount();
+
+		if (extHeaders != null) {
+			NB.encodeInt32(tmp, 0, EXT_IEOT);
+			NB.encodeInt32(tmp, 4, 4 + 8 * blockOffsets.length);
+			NB.encodeInt32(tmp, 8, IEOT_VERSION);
+			dos.write(tmp, 0, 12);
+			extHeaders.update(tmp, 0, 8);
+			for (int b = 0; b < blockOffsets.length; b++) {
+				NB.encodeInt32(tmp, 0, blockOffsets[b]);
+				NB.encodeInt32(tmp, 4, Math.min(ENTRIES_PER_BLOCK,
+						entryCnt - b * ENTRIES_PER_BLOCK));
+				dos.write(tmp, 0, 8);
+			}
 		}
 
 		if (writeTree) {
@@ -712,16 +918,109 @@ void writeTo(File dir, OutputStream os) throws IOException {
 				NB.encodeInt32(tmp, 0, EXT_TREE);
 				NB.encodeInt32(tmp, 4, (int) bb.length());
 				dos.write(tmp, 0, 8);
+				if (extHeaders != null)
+					extHeaders.update(tmp, 0, 8);
 				bb.writeTo(dos, null);
 			} finally {
 				bb.destroy();
 			}
 		}
+		if (untrackedCache != null) {
+			@SuppressWarnings("resource") // Explicitly closed in try block, and
+											// destroyed in finally
+			TemporaryBuffer bb = new TemporaryBuffer.LocalFile(dir, 5 << 20);
+			try {
+				untrackedCache.write(bb);
+				bb.close();
+
+				NB.encodeInt32(tmp, 0, EXT_UNTR);
+				NB.encodeInt32(tmp, 4, (int) bb.length());
+				dos.write(tmp, 0, 8);
+				if (extHeaders != null)
+					extHeaders.update(tmp, 0, 8);
+				bb.writeTo(dos, null);
+			} finally {
+				bb.destroy();
+			}
+		}
+		if (extHeaders != null) {
+			// The end of the entries, and a hash of the headers of the
+			// extensions in between to verify it, must be the last
+			// extension.
+			NB.encodeInt32(tmp, 0, EXT_EOIE);
+			NB.encodeInt32(tmp, 4, EOIE_LEN);
+			NB.encodeInt32(tmp, 8, entriesEnd);
+			System.arraycopy(extHeaders.digest(), 0, tmp, 12,
+					Constants.OBJECT_ID_LENGTH);
+			dos.write(tmp, 0, 8 + EOIE_LEN);
+		}
 		writeIndexChecksum = foot.digest();
 		os.write(writeIndexChecksum);
 		os.close();
 	}
 
+	/**
+	 * Choose the version of the index file to write.
+	 * <p>
+	 * Version 3 or 4 is written if {@code index.version} says so. Version 4
+	 * is also written if the option is not set and version 4 was read.
+	 * Otherwise version 2 is written, or version 3 if entries have extended
+	 * flags.
+	 *
+	 * @param extended
+	 *            whether any entry has extended flags.
+	 * @return the index file version to write.
+	 */
+	private int getWriteVersion(boolean extended) {
+		int ver = version;
+		if (repository != null) {
+			int configured = repository.getConfig().getInt(
+					CONFIG_INDEX_SECTION, null, CONFIG_KEY_VERSION, 0);
+			if (configured == 3)
+				return 3;
+			if (configured != 0)
+				ver = configured;
+		}
+		if (ver == 4)
+			return 4;
+		return extended ? 3 : 2;
+	}
+
+	/**
+	 * Get the number of threads to read the index with from
+	 * {@code index.threads}.
+	 *
+	 * @return the number of threads; 0 to use one per processor.
+	 */
+	private int getThreads() {
+		if (repository == null)
+			return 0;
+		Config cfg = repository.getConfig();
+		try {
+			return Math.max(cfg.getInt(CONFIG_INDEX_SECTION,
+					CONFIG_KEY_THREADS, 0), 0);
+		} catch (IllegalArgumentException e) {
+			// Like C git, also accept a boolean, but only if the value is
+			// not a number: "1" means one thread, not "true".
+			//
+			Boolean enabled = StringUtils.toBooleanOrNull(cfg.getString(
+					CONFIG_INDEX_SECTION, null, CONFIG_KEY_THREADS));
+			if (enabled == null)
+				throw e;
+			return enabled.booleanValue() ? 0 : 1;
+		}
+	}
+
+	/**
+	 * Whether {@code index.threads} is set in the configuration.
+	 *
+	 * @return true if {@code index.threads} is set.
+	 */
+	private boolean isThreadsConfigured() {
+		return repository != null && repository.getConfig().getString(
+				CONFIG_INDEX_SECTION, null, CONFIG_KEY_THREADS) != null;
+	}
+
 	/**
 	 * Commit this change and release the lock.
 	 * <p>
@@ -951,6 +1250,102 @@ public DirCacheTree getCacheTree(boolean build) {
 		return tree;
 	}
 
+	/**
+	 * Get the untracked cache of this index.
+	 *
+	 * @return the untracked cache read from or to be written to the index
+	 *         file; null if the index has none.
+	 * @since 5.3
+	 */
+	@Nullable
+	public UntrackedCache getUntrackedCache() {
+		return untrackedCache;
+	}
+
+	/**
+	 * Set the untracked cache of this index.
+	 * <p>
+	 * The cache is written with the index and its directories are invalidated
+	 * whenever entries are added to or removed from this index.
+	 *
+	 * @param cache
+	 *            the untracked cache; null to remove it from the index.
+	 * @since 5.3
+	 */
+	public void setUntrackedCache(@Nullable UntrackedCache cache) {
+		untrackedCache = cache;
+	}
+
+	/**
+	 * Write the index file with a new untracked cache, if the file is still
+	 * the one this instance was read from.
+	 * <p>
+	 * Unlike {@link #lock()} and {@link #write()}, this gives up silently if
+	 * the index is locked or was modified by someone else, as storing the
+	 * untracked cache is only an optimization.
+	 *
+	 * @param cache
+	 *            the untracked cache to store; null to remove it.
+	 * @return true if the index file was written.
+	 * @throws java.io.IOException
+	 *             the index file could not be written.
+	 * @since 5.3
+	 */
+	public boolean writeUntrackedCache(@Nullable UntrackedCache cache)
+			throws IOException {
+		if (liveFile == null || !lock())
+			return false;
+		try {
+			if (isOutdated() && !hasIndexChecksum(readIndexChecksum))
+				return false;
+			untrackedCache = cache;
+			write();
+			return commit();
+		} finally {
+			unlock();
+		}
+	}
+
+	private boolean hasIndexChecksum(byte[] checksum) throws IOException {
+		if (checksum.length == 0)
+			return !liveFile.exists();
+		try (RandomAccessFile f = new RandomAccessFile(liveFile, "r")) { //$NON-NLS-1$
+			if (f.length() < checksum.length)
+				return false;
+			byte[] buf = new byte[checksum.length];
+			f.seek(f.length() - checksum.length);
+			f.readFully(buf);
+			return Arrays.equals(buf, checksum);
+		} catch (FileNotFoundException e) {
+			return false;
+		}
+	}
+
+	private void invalidateUntracked(DirCacheEntry[] e, int cnt) {
+		int i = 0;
+		int j = 0;
+		while (i < entryCnt || j < cnt) {
+			int cr;
+			if (i == entryCnt)
+				cr = 1;
+			else if (j == cnt)
+				cr = -1;
+			else if (sortedEntries[i] == e[j])
+				cr = 0;
+			else
+				cr = cmp(sortedEntries[i], e[j]);
+
+			if (cr == 0) {
+				i++;
+				j++;
+			} else if (cr < 0) {
+				untrackedCache.invalidate(sortedEntries[i++].getPathString());
+			} else {
+				untrackedCache.invalidate(e[j++].getPathString());
+			}
+		}
+	}
+
 	/**
 	 * Write all index trees to the object store, returning the root tree.
 	 *
@@ -1030,4 +1425,149 @@ private void updateSmudgedEntries() throws IOException {
 			}
 		}
 	}
+
+	/**
+	 * Blocks of entries recorded by the {@code IEOT} extension, which is found
+	 * through the {@code EOIE} extension at the end of the file.
+	 */
+	private static final class EntryBlocks {
+		/** Offset of each block, followed by the end of the entries. */
+		final int[] offsets;
+
+		/** Position of the first entry of each block, followed by the count. */
+		final int[] first;
+
+		private EntryBlocks(int[] offsets, int[] first) {
+			this.offsets = offsets;
+			this.first = first;
+		}
+
+		int size() {
+			return offsets.length - 1;
+		}
+
+		int end() {
+			return offsets[offsets.length - 1];
+		}
+
+		/**
+		 * Check whether an index file ends with the {@code EOIE} extension,
+		 * without reading the rest of the file.
+		 *
+		 * @param fc
+		 *            the index file.
+		 * @return true if the trailer of the file looks like an {@code EOIE}
+		 *         extension.
+		 * @throws IOException
+		 *             the file could not be read.
+		 */
+		static boolean isRecorded(FileChannel fc) throws IOException {
+			final int len = Constants.OBJECT_ID_LENGTH + 8 + EOIE_LEN;
+			final long pos = fc.size() - len;
+			if (pos < 12)
+				return false;
+			final ByteBuffer tail = ByteBuffer.allocate(8);
+			while (tail.hasRemaining()) {
+				if (fc.read(tail, pos + tail.position()) < 0)
+					return false;
+			}
+			final byte[] raw = tail.array();
+			return NB.decodeInt32(raw, 0) == EXT_EOIE
+					&& NB.decodeInt32(raw, 4) == EOIE_LEN;
+		}
+
+		/**
+		 * Locate the blocks of entries of an index file.
+		 *
+		 * @param raw
+		 *            the index file.
+		 * @param len
+		 *            length of the index file within {@code raw}.
+		 * @return the blocks; null if the file does not record them, or if
+		 *         they do not match the file.
+		 */
+		@Nullable
+		static EntryBlocks read(byte[] raw, int len) {
+			final int eoie = len - Constants.OBJECT_ID_LENGTH - 8 - EOIE_LEN;
+			if (eoie < 12 || NB.decodeInt32(raw, eoie) != EXT_EOIE
+					|| NB.decodeInt32(raw, eoie + 4) != EOIE_LEN)
+				return null;
+			final int end = NB.decodeInt32(raw, eoie + 8);
+			if (end < 12 || end > eoie)
+				return null;
+
+			// The EOIE extension holds a hash of the headers of all
+			// extensions before it, to tell it apart from random data.
+			//
+			final MessageDigest md = Constants.newMessageDigest();
+			int ieot = -1;
+			int ieotLen = 0;
+			for (int p = end; p < eoie;) {
+				if (eoie - p < 8)
+					return null;
+				long sz = NB.decodeUInt32(raw, p + 4);
+				if (eoie - p - 8 < sz)
+					return null;
+				if (NB.decodeInt32(raw, p) == EXT_IEOT) {
+					ieot = p + 8;
+					ieotLen = (int) sz;
+				}
+				md.update(raw, p, 8);
+				p += 8 + (int) sz;
+			}
+			final byte[] hash = md.digest();
+			for (int i = 0; i < hash.length; i++)
+				if (hash[i] != raw[eoie + 12 + i])
+					return null;
+
+			if (ieot < 0 || ieotLen < 12 || (ieotLen - 4) % 8 != 0
+					|| NB.decodeInt32(raw, ieot) != IEOT_VERSION)
+				return null;
+			final int n = (ieotLen - 4) / 8;
+			final int entryCnt = NB.decodeInt32(raw, 8);
+			final int[] offsets = new int[n + 1];
+			final int[] first = new int[n + 1];
+			int prev = 11;
+			for (int b = 0; b < n; b++) {
+				offsets[b] = NB.decodeInt32(raw, ieot + 4 + 8 * b);
+				int cnt = NB.decodeInt32(raw, ieot + 8 + 8 * b);
+				if (offsets[b] <= prev || cnt < 0
+						|| entryCnt - first[b] < cnt)
+					return null;
+				prev = offsets[b];
+				first[b + 1] = first[b] + cnt;
+			}
+			offsets[n] = end;
+			if (offsets[0] != 12 || end <= prev || first[n] != entryCnt)
+				return null;
+			return new EntryBlocks(offsets, first);
+		}
+	}
+
+	/** Digest ignoring its input, for data that is checksummed elsewhere. */
+	private static final class NullMessageDigest extends MessageDigest {
+		NullMessageDigest() {
+			super("NULL"); //$NON-NLS-1$
+		}
+
+		@Override
+		protected void engineUpdate(byte input) {
+			// Ignored.
+		}
+
+		@Override
+		protected void engineUpdate(byte[] input, int offset, int len) {
+			// Ignored.
+		}
+
+		@Override
+		protected byte[] engineDigest() {
+			return NO_CHECKSUM;
+		}
+
+		@Override
+		protected void engineReset() {
+			// Nothing to reset.
+		}
+	}
 }
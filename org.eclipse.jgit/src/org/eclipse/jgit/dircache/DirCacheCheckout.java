@@ -89,6 +89,7 @@
 import org.eclipse.jgit.treewalk.WorkingTreeIterator;
 import org.eclipse.jgit.treewalk.WorkingTreeOptions;
 import org.eclipse.jgit.treewalk.filter.PathFilter;
+import org.eclipse.jgit.treewalk.filter.TreeFilter;
 import org.eclipse.jgit.util.FS;
 import org.eclipse.jgit.util.FS.ExecutionResult;
 import org.eclipse.jgit.util.FileUtils;
@@ -163,6 +164,10 @@ public CheckoutMetadata(EolStreamType eolStreamType,
 
 	private ProgressMonitor monitor = NullProgressMonitor.INSTANCE;
 
+	private SparseCheckout sparseCheckout;
+
+	private boolean sparseCheckoutSet;
+
 	/**
 	 * Get list of updated paths and smudgeFilterCommands
 	 *
@@ -304,6 +309,27 @@ public void setProgressMonitor(ProgressMonitor monitor) {
 		this.monitor = monitor != null ? monitor : NullProgressMonitor.INSTANCE;
 	}
 
+	/**
+	 * Set the sparse checkout to apply to the working tree.
+	 * <p>
+	 * Files outside of the sparse checkout are not written to the working tree
+	 * and get the skip-worktree flag set in the index. If not set, the sparse
+	 * checkout configured in the repository is used.
+	 *
+	 * @param sparseCheckout
+	 *            the sparse checkout; null to check out all files.
+	 * @since 5.3
+	 */
+	public void setSparseCheckout(SparseCheckout sparseCheckout) {
+		this.sparseCheckout = sparseCheckout;
+		this.sparseCheckoutSet = true;
+	}
+
+	private void readSparseCheckout() throws IOException {
+		if (!sparseCheckoutSet)
+			sparseCheckout = SparseCheckout.read(repo);
+	}
+
 	/**
 	 * Scan head, index and merge tree. Used during normal checkout or merge
 	 * operations.
@@ -315,14 +341,17 @@ public void preScanTwoTrees() throws CorruptObjectException, IOException {
 		removed.clear();
 		updated.clear();
 		conflicts.clear();
+		readSparseCheckout();
 		walk = new NameConflictTreeWalk(repo);
 		builder = dc.builder();
 
 		addTree(walk, headCommitTree);
 		addTree(walk, mergeCommitTree);
 		int dciPos = walk.addTree(new DirCacheBuildIterator(builder));
-		walk.addTree(workingTree);
+		int wtPos = walk.addTree(workingTree);
 		workingTree.setDirCacheIterator(walk, dciPos);
+		if (sparseCheckout != null)
+			walk.setFilter(new SparseDirectoryFilter(0, 1, dciPos, wtPos));
 
 		while (walk.next()) {
 			processEntry(walk.getTree(0, CanonicalTreeParser.class),
@@ -356,14 +385,17 @@ public void prescanOneTree()
 		removed.clear();
 		updated.clear();
 		conflicts.clear();
+		readSparseCheckout();
 
 		builder = dc.builder();
 
 		walk = new NameConflictTreeWalk(repo);
 		addTree(walk, mergeCommitTree);
 		int dciPos = walk.addTree(new DirCacheBuildIterator(builder));
-		walk.addTree(workingTree);
+		int wtPos = walk.addTree(workingTree);
 		workingTree.setDirCacheIterator(walk, dciPos);
+		if (sparseCheckout != null)
+			walk.setFilter(new SparseDirectoryFilter(-1, 0, dciPos, wtPos));
 
 		while (walk.next()) {
 			processEntry(walk.getTree(0, CanonicalTreeParser.class),
@@ -1225,9 +1257,39 @@ private void conflict(String path, DirCacheEntry e, AbstractTreeIterator h, Abst
 		}
 	}
 
-	private void keep(DirCacheEntry e) {
-		if (e != null && !FileMode.TREE.equals(e.getFileMode()))
+	private void keep(DirCacheEntry e) throws IOException {
+		if (e != null && !FileMode.TREE.equals(e.getFileMode())) {
+			if (sparseCheckout != null && e.getStage() == DirCacheEntry.STAGE_0)
+				keepSparse(e);
 			builder.add(e);
+		}
+	}
+
+	private void keepSparse(DirCacheEntry e) throws IOException {
+		String path = e.getPathString();
+		WorkingTreeIterator f = walk.getTree(walk.getTreeCount() - 1,
+				WorkingTreeIterator.class);
+		if (!sparseCheckout.includes(path)) {
+			// Leaving the sparse checkout: remove the file unless it has
+			// modifications which would get lost
+			if (e.isSkipWorkTree())
+				return;
+			if (f == null)
+				e.setSkipWorkTree(true);
+			else if (!f.isModified(e, true, walk.getObjectReader())) {
+				e.setSkipWorkTree(true);
+				removed.add(path);
+			}
+		} else if (e.isSkipWorkTree()) {
+			// Entering the sparse checkout: write the file unless it already
+			// exists in the working tree
+			e.setSkipWorkTree(false);
+			if (f == null)
+				updated.put(path, new CheckoutMetadata(
+						walk.getEolStreamType(CHECKOUT_OP),
+						walk.getFilterCommand(
+								Constants.ATTR_FILTER_TYPE_SMUDGE)));
+		}
 	}
 
 	private void remove(String path) {
@@ -1237,17 +1299,79 @@ private void remove(String path) {
 	private void update(String path, ObjectId mId, FileMode mode)
 			throws IOException {
 		if (!FileMode.TREE.equals(mode)) {
-			updated.put(path, new CheckoutMetadata(
-					walk.getEolStreamType(CHECKOUT_OP),
-					walk.getFilterCommand(Constants.ATTR_FILTER_TYPE_SMUDGE)));
-
 			DirCacheEntry entry = new DirCacheEntry(path, DirCacheEntry.STAGE_0);
 			entry.setObjectId(mId);
 			entry.setFileMode(mode);
+			if (sparseCheckout != null && !sparseCheckout.includes(path)) {
+				// Outside of the sparse checkout: only the index is updated
+				entry.setSkipWorkTree(true);
+				if (walk.getTree(walk.getTreeCount() - 1,
+						WorkingTreeIterator.class) != null)
+					removed.add(path);
+			} else
+				updated.put(path, new CheckoutMetadata(
+						walk.getEolStreamType(CHECKOUT_OP),
+						walk.getFilterCommand(
+								Constants.ATTR_FILTER_TYPE_SMUDGE)));
 			builder.add(entry);
 		}
 	}
 
+	/**
+	 * Skips the sparse directories outside of the sparse checkout which are
+	 * not changed by the checkout. Their index entries are kept as they are,
+	 * without walking the trees below them.
+	 */
+	private class SparseDirectoryFilter extends TreeFilter {
+		private final int headIdx;
+
+		private final int mergeIdx;
+
+		private final int dciIdx;
+
+		private final int wtIdx;
+
+		SparseDirectoryFilter(int headIdx, int mergeIdx, int dciIdx,
+				int wtIdx) {
+			this.headIdx = headIdx;
+			this.mergeIdx = mergeIdx;
+			this.dciIdx = dciIdx;
+			this.wtIdx = wtIdx;
+		}
+
+		@Override
+		public boolean include(TreeWalk walker) {
+			if (!walker.isSubtree() || walker.getRawMode(mergeIdx) == 0
+					|| walker.getRawMode(wtIdx) != 0)
+				return true;
+			DirCacheIterator i = walker.getTree(dciIdx,
+					DirCacheIterator.class);
+			if (i == null || !i.isSparseDirectory()
+					|| !sparseCheckout.excludesDirectory(
+							walker.getPathString()))
+				return true;
+			if (headIdx >= 0 && walker.idEqual(headIdx, mergeIdx))
+				return false;
+			return !(i.hasId() && walker.idEqual(dciIdx, mergeIdx));
+		}
+
+		@Override
+		public boolean shouldBeRecursive() {
+			return false;
+		}
+
+		@Override
+		public TreeFilter clone() {
+			return this;
+		}
+
+		@SuppressWarnings("nls")
+		@Override
+		public String toString() {
+			return "SPARSE_DIRECTORY";
+		}
+	}
+
 	/**
 	 * If <code>true</code>, will scan first to see if it's possible to check
 	 * out, otherwise throw
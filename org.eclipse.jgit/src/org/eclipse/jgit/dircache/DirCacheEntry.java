@@ -129,14 +129,17 @@ public class DirCacheEntry {
 	private static final int EXTENDED = 0x40;
 	private static final int ASSUME_VALID = 0x80;
 
+	/** {@link #EXTENDED} within the 16 bit value of {@link #P_FLAGS}. */
+	private static final int SHIFTED_EXTENDED = EXTENDED << 8;
+
 	/** In-core flag signaling that the entry should be considered as modified. */
 	private static final int UPDATE_NEEDED = 0x1;
 
 	/** (Possibly shared) header information storage. */
-	private final byte[] info;
+	private byte[] info;
 
 	/** First location within {@link #info} where our header starts. */
-	private final int infoOffset;
+	private int infoOffset;
 
 	/** Our encoded path name, from the root of the repository. */
 	final byte[] path;
@@ -146,7 +149,8 @@ public class DirCacheEntry {
 
 	DirCacheEntry(final byte[] sharedInfo, final MutableInteger infoAt,
 			final InputStream in, final MessageDigest md, final int smudge_s,
-			final int smudge_ns) throws IOException {
+			final int smudge_ns, final byte[] previousPath)
+			throws IOException {
 		info = sharedInfo;
 		infoOffset = infoAt.value;
 
@@ -168,7 +172,10 @@ public class DirCacheEntry {
 
 		int pathLen = NB.decodeUInt16(info, infoOffset + P_FLAGS) & NAME_MASK;
 		int skipped = 0;
-		if (pathLen < NAME_MASK) {
+		if (previousPath != null) {
+			path = readCompressedPath(in, md, previousPath, pathLen);
+			pathLen = path.length;
+		} else if (pathLen < NAME_MASK) {
 			path = new byte[pathLen];
 			IO.readFully(in, path, 0, pathLen);
 			md.update(path, 0, pathLen);
@@ -206,19 +213,75 @@ public class DirCacheEntry {
 
 		// Index records are padded out to the next 8 byte alignment
 		// for historical reasons related to how C Git read the files.
+		// Version 4 dropped the padding.
 		//
-		final int actLen = len + pathLen;
-		final int expLen = (actLen + 8) & ~7;
-		final int padLen = expLen - actLen - skipped;
-		if (padLen > 0) {
-			IO.skipFully(in, padLen);
-			md.update(nullpad, 0, padLen);
+		if (previousPath == null) {
+			final int actLen = len + pathLen;
+			final int expLen = (actLen + 8) & ~7;
+			final int padLen = expLen - actLen - skipped;
+			if (padLen > 0) {
+				IO.skipFully(in, padLen);
+				md.update(nullpad, 0, padLen);
+			}
 		}
 
 		if (mightBeRacilyClean(smudge_s, smudge_ns))
 			smudgeRacilyClean();
 	}
 
+	/**
+	 * Read a path of index version 4. The path is stored as the number of
+	 * bytes to remove from the end of the previous path, followed by the
+	 * NUL-terminated bytes to append. An empty previous path starts a block
+	 * of entries, which ignores the number of bytes to remove.
+	 *
+	 * @param in
+	 *            stream to read the path from.
+	 * @param md
+	 *            digest to update with the bytes read.
+	 * @param previousPath
+	 *            path of the previous entry; empty at the start of a block.
+	 * @param pathLen
+	 *            length of the path from the entry's flags, or
+	 *            {@code NAME_MASK} if the path is at least that long.
+	 * @return the path of the entry.
+	 * @throws java.io.IOException
+	 *             the stream could not be read, or the path is corrupt.
+	 */
+	private static byte[] readCompressedPath(InputStream in,
+			MessageDigest md, byte[] previousPath, int pathLen)
+			throws IOException {
+		long strip = Varint.decode(in, md);
+		if (previousPath.length == 0)
+			strip = 0;
+		else if (strip < 0 || strip > previousPath.length)
+			throw new CorruptObjectException(
+					JGitText.get().DIRCCorruptPathCompression);
+		int prefixLen = previousPath.length - (int) strip;
+
+		byte[] p;
+		if (pathLen < NAME_MASK) {
+			if (pathLen < prefixLen)
+				throw new CorruptObjectException(
+						JGitText.get().DIRCCorruptPathCompression);
+			p = new byte[pathLen];
+			IO.readFully(in, p, prefixLen, pathLen - prefixLen);
+			md.update(p, prefixLen, pathLen - prefixLen);
+			if (Varint.readByte(in, md) != 0)
+				throw new CorruptObjectException(
+						JGitText.get().DIRCCorruptPathCompression);
+		} else {
+			ByteArrayOutputStream tmp = new ByteArrayOutputStream();
+			tmp.write(previousPath, 0, prefixLen);
+			int c;
+			while ((c = Varint.readByte(in, md)) != 0)
+				tmp.write(c);
+			p = tmp.toByteArray();
+		}
+		System.arraycopy(previousPath, 0, p, 0, prefixLen);
+		return p;
+	}
+
 	/**
 	 * Create an empty entry at stage 0.
 	 *
@@ -329,6 +392,23 @@ void write(OutputStream os) throws IOException {
 			os.write(nullpad, 0, expLen - actLen);
 	}
 
+	void write(OutputStream os, byte[] previousPath, boolean blockStart)
+			throws IOException {
+		final int len = isExtended() ? INFO_LEN_EXTENDED : INFO_LEN;
+		os.write(info, infoOffset, len);
+
+		// At the start of a block of entries the whole path is written, so
+		// that it can be read without the previous path.
+		//
+		int common = 0;
+		int max = blockStart ? 0 : Math.min(previousPath.length, path.length);
+		while (common < max && previousPath[common] == path[common])
+			common++;
+		Varint.encode(os, previousPath.length - common);
+		os.write(path, common, path.length - common);
+		os.write(0);
+	}
+
 	/**
 	 * Is it possible for this entry to be accidentally assumed clean?
 	 * <p>
@@ -471,6 +551,21 @@ public boolean isSkipWorkTree() {
 		return (getExtendedFlags() & SKIP_WORKTREE) != 0;
 	}
 
+	/**
+	 * Set whether this entry should be skipped from the working tree.
+	 *
+	 * @param skip
+	 *            true if the file is not checked out, e.g. because it is
+	 *            outside of the sparse checkout; false if it is.
+	 * @since 5.3
+	 */
+	public void setSkipWorkTree(boolean skip) {
+		if (skip)
+			setExtendedFlags(getExtendedFlags() | SKIP_WORKTREE);
+		else
+			setExtendedFlags(getExtendedFlags() & ~SKIP_WORKTREE);
+	}
+
 	/**
 	 * Returns whether this entry is intent to be added to the Index.
 	 *
@@ -722,6 +817,7 @@ public void copyMetaData(DirCacheEntry src) {
 	 *            if true, the stage attribute will not be copied
 	 */
 	void copyMetaData(DirCacheEntry src, boolean keepStage) {
+		final int extendedFlags = src.getExtendedFlags();
 		int origflags = NB.decodeUInt16(info, infoOffset + P_FLAGS);
 		int newflags = NB.decodeUInt16(src.info, src.infoOffset + P_FLAGS);
 		System.arraycopy(src.info, src.infoOffset, info, infoOffset, INFO_LEN);
@@ -733,7 +829,10 @@ void copyMetaData(DirCacheEntry src, boolean keepStage) {
 		else
 			pStageShifted = newflags & SHIFTED_STAGE_MASK;
 		NB.encodeInt16(info, infoOffset + P_FLAGS, pStageShifted | pLen
-				| (newflags & ~NAME_MASK & ~SHIFTED_STAGE_MASK));
+				| (origflags & SHIFTED_EXTENDED)
+				| (newflags & ~NAME_MASK & ~SHIFTED_STAGE_MASK
+						& ~SHIFTED_EXTENDED));
+		setExtendedFlags(extendedFlags);
 	}
 
 	/**
@@ -763,6 +862,25 @@ private int getExtendedFlags() {
 			return 0;
 	}
 
+	private void setExtendedFlags(int flags) {
+		if (isExtended()) {
+			if (flags == 0)
+				info[infoOffset + P_FLAGS] &= ~EXTENDED;
+			else
+				NB.encodeInt16(info, infoOffset + P_FLAGS2, flags >>> 16);
+		} else if (flags != 0) {
+			// The header may be packed in a shared array without room for
+			// the extended flags, so it moves to an array of its own.
+			//
+			final byte[] n = new byte[INFO_LEN_EXTENDED];
+			System.arraycopy(info, infoOffset, n, 0, INFO_LEN);
+			info = n;
+			infoOffset = 0;
+			info[P_FLAGS] |= EXTENDED;
+			NB.encodeInt16(info, P_FLAGS2, flags >>> 16);
+		}
+	}
+
 	private static void checkPath(byte[] path) {
 		try {
 			SystemReader.getInstance().checkPath(path);
@@ -49,6 +49,8 @@
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Map;
 
 import org.eclipse.jgit.attributes.AttributesNode;
 import org.eclipse.jgit.attributes.AttributesRule;
@@ -106,6 +108,9 @@ public class DirCacheIterator extends AbstractTreeIterator {
 	/** The subtree containing {@link #currentEntry} if this is first entry. */
 	protected DirCacheTree currentSubtree;
 
+	/** Trees known to be sparse directories, shared with child iterators. */
+	private final Map<DirCacheTree, Boolean> sparseDirectories;
+
 	/**
 	 * Create a new iterator for an already loaded DirCache instance.
 	 * <p>
@@ -122,6 +127,7 @@ public DirCacheIterator(DirCache dc) {
 		treeStart = 0;
 		treeEnd = tree.getEntrySpan();
 		subtreeId = new byte[Constants.OBJECT_ID_LENGTH];
+		sparseDirectories = new IdentityHashMap<>();
 		if (!eof())
 			parseEntry();
 	}
@@ -133,6 +139,7 @@ public DirCacheIterator(DirCache dc) {
 		treeStart = p.ptr;
 		treeEnd = treeStart + tree.getEntrySpan();
 		subtreeId = p.subtreeId;
+		sparseDirectories = p.sparseDirectories;
 		ptr = p.ptr;
 		parseEntry();
 	}
@@ -294,6 +301,60 @@ public DirCacheEntry getDirCacheEntry() {
 		return currentSubtree == null ? currentEntry : null;
 	}
 
+	/**
+	 * Whether the current entry is a sparse directory.
+	 * <p>
+	 * A sparse directory is a tree whose entries are all merged and have the
+	 * skip-worktree flag set, as is the case for directories outside of the
+	 * cone of a sparse checkout. Walks can treat such a directory as a single
+	 * entry instead of recursing into it.
+	 * <p>
+	 * The index itself is not collapsed: it still holds one entry per file
+	 * below a sparse directory, in memory and on disk. The result is computed
+	 * once per tree and shared with the iterators created for subtrees, so it
+	 * does not reflect flags changed while the walk is in progress.
+	 *
+	 * @return true if this iterator is positioned on a tree, and all entries
+	 *         below it have the skip-worktree flag set.
+	 * @since 5.3
+	 */
+	public boolean isSparseDirectory() {
+		if (currentSubtree == null)
+			return false;
+		return isSparse(currentSubtree, ptr, pathLen + 1);
+	}
+
+	private boolean isSparse(DirCacheTree t, int first, int pathOff) {
+		Boolean sparse = sparseDirectories.get(t);
+		if (sparse == null) {
+			sparse = Boolean.valueOf(computeSparse(t, first, pathOff));
+			sparseDirectories.put(t, sparse);
+		}
+		return sparse.booleanValue();
+	}
+
+	private boolean computeSparse(DirCacheTree t, int first, int pathOff) {
+		final int end = first + t.getEntrySpan();
+		int childIdx = 0;
+		for (int i = first; i < end;) {
+			final DirCacheEntry e = cache.getEntry(i);
+			if (childIdx < t.getChildCount()) {
+				final DirCacheTree st = t.getChild(childIdx);
+				if (st.contains(e.path, pathOff, e.path.length)) {
+					if (!isSparse(st, i, pathOff + st.nameLength() + 1))
+						return false;
+					i += st.getEntrySpan();
+					childIdx++;
+					continue;
+				}
+			}
+			if (!e.isSkipWorkTree() || e.getStage() != DirCacheEntry.STAGE_0)
+				return false;
+			i++;
+		}
+		return end > first;
+	}
+
 	/**
 	 * Retrieves the {@link org.eclipse.jgit.attributes.AttributesNode} for the
 	 * current entry.
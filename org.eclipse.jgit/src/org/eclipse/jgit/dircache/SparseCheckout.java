@@ -0,0 +1,374 @@
+/*
+ * Copyright (C) 2019, Google LLC.
+ * and other copyright owners as documented in the project's IP log.
+ *
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Distribution License v1.0 which
+ * accompanies this distribution, is reproduced below, and is
+ * available at http://www.eclipse.org/org/documents/edl-v10.php
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or
+ * without modification, are permitted provided that the following
+ * conditions are met:
+ *
+ * - Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * - Redistributions in binary form must reproduce the above
+ *   copyright notice, this list of conditions and the following
+ *   disclaimer in the documentation and/or other materials provided
+ *   with the distribution.
+ *
+ * - Neither the name of the Eclipse Foundation, Inc. nor the
+ *   names of its contributors may be used to endorse or promote
+ *   products derived from this software without specific prior
+ *   written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND
+ * CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.eclipse.jgit.dircache;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.eclipse.jgit.annotations.Nullable;
+import org.eclipse.jgit.errors.ConfigInvalidException;
+import org.eclipse.jgit.errors.LockFailedException;
+import org.eclipse.jgit.internal.storage.file.LockFile;
+import org.eclipse.jgit.lib.ConfigConstants;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.lib.StoredConfig;
+import org.eclipse.jgit.storage.file.FileBasedConfig;
+import org.eclipse.jgit.util.FileUtils;
+import org.eclipse.jgit.util.IO;
+import org.eclipse.jgit.util.RawParseUtils;
+
+/**
+ * The directories checked out by a sparse checkout in cone mode.
+ * <p>
+ * In cone mode the files directly in the root of the working tree are always
+ * checked out. So are all files below a set of <em>recursive</em> directories,
+ * and the files directly in the parents of these directories. Files in other
+ * directories have the skip-worktree flag set in the index and are not
+ * present in the working tree.
+ * <p>
+ * The directories are stored in the {@code info/sparse-checkout} file of the
+ * repository in the pattern format of C Git, e.g. for the recursive directory
+ * {@code a/b}:
+ *
+ * <pre>
+ * /*
+ * !/*&#47;
+ * /a/
+ * !/a/*&#47;
+ * /a/b/
+ * </pre>
+ *
+ * @since 5.3
+ */
+public final class SparseCheckout {
+	private static final String CONFIG_WORKTREE = "config.worktree"; //$NON-NLS-1$
+
+	/**
+	 * Read the sparse checkout of a repository.
+	 *
+	 * @param repo
+	 *            the repository.
+	 * @return the sparse checkout; null if {@code core.sparseCheckout} or
+	 *         {@code core.sparseCheckoutCone} is not enabled, or if the
+	 *         patterns are not in cone mode. Patterns in non-cone mode are not
+	 *         supported.
+	 * @throws java.io.IOException
+	 *             the patterns file cannot be read.
+	 */
+	@Nullable
+	public static SparseCheckout read(Repository repo) throws IOException {
+		if (repo.isBare() || repo.getDirectory() == null)
+			return null;
+		final StoredConfig cfg = getConfig(repo);
+		if (!cfg.getBoolean(ConfigConstants.CONFIG_CORE_SECTION,
+				ConfigConstants.CONFIG_KEY_SPARSE_CHECKOUT, false)
+				|| !cfg.getBoolean(ConfigConstants.CONFIG_CORE_SECTION,
+						ConfigConstants.CONFIG_KEY_SPARSE_CHECKOUT_CONE, false))
+			return null;
+		final byte[] raw;
+		try {
+			raw = IO.readFully(new File(repo.getDirectory(),
+					Constants.INFO_SPARSE_CHECKOUT));
+		} catch (FileNotFoundException e) {
+			return null;
+		}
+		return parse(RawParseUtils.decode(raw));
+	}
+
+	/**
+	 * Parse the patterns of a sparse checkout in cone mode.
+	 *
+	 * @param patterns
+	 *            the content of the {@code info/sparse-checkout} file.
+	 * @return the sparse checkout; null if the patterns are not in cone mode,
+	 *         e.g. if the {@code /*} and {@code !/*&#47;} patterns of the root
+	 *         directory are missing.
+	 */
+	@Nullable
+	public static SparseCheckout parse(String patterns) {
+		final Set<String> included = new HashSet<>();
+		final Set<String> parents = new HashSet<>();
+		boolean rootFiles = false;
+		boolean rootDirsExcluded = false;
+		for (String line : IO.readLines(patterns)) {
+			line = line.trim();
+			if (line.isEmpty() || line.startsWith("#")) //$NON-NLS-1$
+				continue;
+			if (line.equals("/*")) { //$NON-NLS-1$
+				rootFiles = true;
+			} else if (line.equals("!/*/")) { //$NON-NLS-1$
+				rootDirsExcluded = true;
+			} else if (line.startsWith("!/") && line.endsWith("/*/") //$NON-NLS-1$ //$NON-NLS-2$
+					&& line.length() > 5) {
+				String dir = unescape(line.substring(2, line.length() - 3));
+				if (dir == null)
+					return null;
+				parents.add(dir);
+			} else if (line.startsWith("/") && line.endsWith("/") //$NON-NLS-1$ //$NON-NLS-2$
+					&& line.length() > 2) {
+				String dir = unescape(line.substring(1, line.length() - 1));
+				if (dir == null)
+					return null;
+				included.add(dir);
+			} else {
+				return null;
+			}
+		}
+		if (!rootFiles || !rootDirsExcluded || !included.containsAll(parents))
+			return null;
+		included.removeAll(parents);
+		return new SparseCheckout(included);
+	}
+
+	/**
+	 * Create a sparse checkout of directories.
+	 *
+	 * @param directories
+	 *            paths of the directories to check out recursively, relative
+	 *            to the root of the working tree.
+	 * @return the sparse checkout.
+	 */
+	public static SparseCheckout cone(Collection<String> directories) {
+		final Set<String> dirs = new HashSet<>();
+		for (String d : directories) {
+			while (d.startsWith("/")) //$NON-NLS-1$
+				d = d.substring(1);
+			while (d.endsWith("/")) //$NON-NLS-1$
+				d = d.substring(0, d.length() - 1);
+			if (!d.isEmpty())
+				dirs.add(d);
+		}
+		return new SparseCheckout(dirs);
+	}
+
+	/**
+	 * C Git stores the sparse checkout settings in the per-worktree
+	 * configuration if {@code extensions.worktreeConfig} is enabled.
+	 *
+	 * @param repo
+	 *            the repository.
+	 * @return the configuration holding the sparse checkout settings.
+	 * @throws java.io.IOException
+	 *             the per-worktree configuration could not be read.
+	 */
+	private static StoredConfig getConfig(Repository repo) throws IOException {
+		final StoredConfig cfg = repo.getConfig();
+		if (!cfg.getBoolean(ConfigConstants.CONFIG_EXTENSIONS_SECTION,
+				ConfigConstants.CONFIG_KEY_WORKTREE_CONFIG, false))
+			return cfg;
+		final FileBasedConfig wt = new FileBasedConfig(cfg,
+				new File(repo.getDirectory(), CONFIG_WORKTREE), repo.getFS());
+		try {
+			wt.load();
+		} catch (ConfigInvalidException e) {
+			throw new IOException(e.getMessage(), e);
+		}
+		return wt;
+	}
+
+	private static String unescape(String s) {
+		final StringBuilder r = new StringBuilder(s.length());
+		for (int i = 0; i < s.length(); i++) {
+			char c = s.charAt(i);
+			if (c == '\\' && i + 1 < s.length())
+				c = s.charAt(++i);
+			else if (c == '*' || c == '?' || c == '[' || c == '\\')
+				return null;
+			r.append(c);
+		}
+		return r.toString();
+	}
+
+	private static String escape(String s) {
+		final StringBuilder r = new StringBuilder(s.length());
+		for (int i = 0; i < s.length(); i++) {
+			char c = s.charAt(i);
+			if (c == '*' || c == '?' || c == '[' || c == '\\')
+				r.append('\\');
+			r.append(c);
+		}
+		return r.toString();
+	}
+
+	/** Directories checked out with all files below them. */
+	private final Set<String> recursive;
+
+	/** Ancestors of {@link #recursive}, including the root "". */
+	private final Set<String> parents;
+
+	private SparseCheckout(Set<String> dirs) {
+		recursive = new HashSet<>();
+		parents = new HashSet<>();
+		parents.add(""); //$NON-NLS-1$
+		for (String d : dirs) {
+			if (!hasRecursiveAncestor(dirs, d))
+				recursive.add(d);
+		}
+		for (String d : recursive) {
+			for (int s = d.indexOf('/'); s > 0; s = d.indexOf('/', s + 1))
+				parents.add(d.substring(0, s));
+		}
+	}
+
+	private static boolean hasRecursiveAncestor(Set<String> dirs, String d) {
+		for (int s = d.lastIndexOf('/'); s > 0; s = d.lastIndexOf('/', s - 1))
+			if (dirs.contains(d.substring(0, s)))
+				return true;
+		return false;
+	}
+
+	/**
+	 * Get the directories checked out recursively.
+	 *
+	 * @return the directories checked out with all files below them.
+	 */
+	public Set<String> getDirectories() {
+		return Collections.unmodifiableSet(recursive);
+	}
+
+	/**
+	 * Whether a file is checked out.
+	 *
+	 * @param path
+	 *            path of the file, relative to the root of the working tree.
+	 * @return true if the file is within the cone of the sparse checkout.
+	 */
+	public boolean includes(String path) {
+		final int s = path.lastIndexOf('/');
+		final String dir = s < 0 ? "" : path.substring(0, s); //$NON-NLS-1$
+		return parents.contains(dir) || isRecursive(dir);
+	}
+
+	/**
+	 * Whether no file below a directory is checked out.
+	 *
+	 * @param dir
+	 *            path of the directory, relative to the root of the working
+	 *            tree.
+	 * @return true if the directory is entirely outside of the cone of the
+	 *         sparse checkout.
+	 */
+	public boolean excludesDirectory(String dir) {
+		return !parents.contains(dir) && !isRecursive(dir);
+	}
+
+	private boolean isRecursive(String dir) {
+		if (recursive.isEmpty())
+			return false;
+		for (String d = dir;;) {
+			if (recursive.contains(d))
+				return true;
+			final int s = d.lastIndexOf('/');
+			if (s < 0)
+				return false;
+			d = d.substring(0, s);
+		}
+	}
+
+	/**
+	 * Save this sparse checkout to a repository and enable it.
+	 * <p>
+	 * This writes the {@code info/sparse-checkout} file and sets
+	 * {@code core.sparseCheckout} and {@code core.sparseCheckoutCone}. The
+	 * working tree is updated by the next checkout.
+	 *
+	 * @param repo
+	 *            the repository.
+	 * @throws java.io.IOException
+	 *             the file or the configuration cannot be written.
+	 */
+	public void write(Repository repo) throws IOException {
+		final File file = new File(repo.getDirectory(),
+				Constants.INFO_SPARSE_CHECKOUT);
+		FileUtils.mkdirs(file.getParentFile(), true);
+		final LockFile lck = new LockFile(file);
+		if (!lck.lock())
+			throw new LockFailedException(file);
+		try {
+			lck.write(toString().getBytes(UTF_8));
+			if (!lck.commit())
+				throw new LockFailedException(file);
+		} finally {
+			lck.unlock();
+		}
+
+		final StoredConfig cfg = getConfig(repo);
+		cfg.setBoolean(ConfigConstants.CONFIG_CORE_SECTION, null,
+				ConfigConstants.CONFIG_KEY_SPARSE_CHECKOUT, true);
+		cfg.setBoolean(ConfigConstants.CONFIG_CORE_SECTION, null,
+				ConfigConstants.CONFIG_KEY_SPARSE_CHECKOUT_CONE, true);
+		cfg.save();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * Formats the patterns of the {@code info/sparse-checkout} file.
+	 */
+	@SuppressWarnings("nls")
+	@Override
+	public String toString() {
+		final StringBuilder r = new StringBuilder();
+		r.append("/*\n!/*/\n");
+		final Set<String> dirs = new TreeSet<>(parents);
+		dirs.addAll(recursive);
+		for (String d : dirs) {
+			if (d.isEmpty())
+				continue;
+			r.append('/').append(escape(d)).append("/\n");
+			if (!recursive.contains(d))
+				r.append("!/").append(escape(d)).append("/*/\n");
+		}
+		return r.toString();
+	}
+}
@@ -0,0 +1,666 @@
+/*
+ * Copyright (C) 2019, Google LLC.
+ * and other copyright owners as documented in the project's IP log.
+ *
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Distribution License v1.0 which
+ * accompanies this distribution, is reproduced below, and is
+ * available at http://www.eclipse.org/org/documents/edl-v10.php
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or
+ * without modification, are permitted provided that the following
+ * conditions are met:
+ *
+ * - Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * - Redistributions in binary form must reproduce the above
+ *   copyright notice, this list of conditions and the following
+ *   disclaimer in the documentation and/or other materials provided
+ *   with the distribution.
+ *
+ * - Neither the name of the Eclipse Foundation, Inc. nor the
+ *   names of its contributors may be used to endorse or promote
+ *   products derived from this software without specific prior
+ *   written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND
+ * CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.eclipse.jgit.dircache;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.TreeMap;
+
+import org.eclipse.jgit.annotations.Nullable;
+import org.eclipse.jgit.errors.CorruptObjectException;
+import org.eclipse.jgit.internal.JGitText;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.util.MutableInteger;
+import org.eclipse.jgit.util.NB;
+import org.eclipse.jgit.util.RawParseUtils;
+
+import com.googlecode.javaewah.EWAHCompressedBitmap;
+
+/**
+ * The 'UNTR' {@link org.eclipse.jgit.dircache.DirCache} extension.
+ * <p>
+ * The untracked cache records, for directories of the working tree, the names
+ * of the untracked files found in them together with the modification time of
+ * the directory and the id of its {@code .gitignore} file. As long as a
+ * directory's modification time and the ignore rules that apply to it are
+ * unchanged, its untracked files are known without listing it again.
+ * <p>
+ * A cache is only usable in the environment it was created in, see
+ * {@link #getIdent()}, and with the same global exclude files, see
+ * {@link #getInfoExcludeId()} and {@link #getExcludesFileId()}.
+ * <p>
+ * The cache is not thread-safe.
+ *
+ * @since 5.3
+ */
+public class UntrackedCache {
+	private static final int STAT_LENGTH = 36;
+
+	private static final int MTIME_OFFSET = 8;
+
+	/** A directory of the working tree in an {@link UntrackedCache}. */
+	public static final class Directory {
+		private final String name;
+
+		private final List<String> untracked = new ArrayList<>();
+
+		private final TreeMap<String, Directory> children = new TreeMap<>();
+
+		private boolean valid;
+
+		private boolean checkOnly;
+
+		private byte[] stat;
+
+		private ObjectId excludeId;
+
+		/**
+		 * Create an invalid directory record.
+		 *
+		 * @param name
+		 *            name of the directory within its parent; the empty string
+		 *            for the root of the working tree.
+		 */
+		public Directory(String name) {
+			this.name = name;
+		}
+
+		/**
+		 * Get the name of this directory within its parent.
+		 *
+		 * @return name of this directory; the empty string for the root.
+		 */
+		public String getName() {
+			return name;
+		}
+
+		/**
+		 * Get the untracked files of this directory.
+		 *
+		 * @return names of the untracked files directly within this
+		 *         directory. Only meaningful if {@link #isValid()}.
+		 */
+		public List<String> getUntracked() {
+			return Collections.unmodifiableList(untracked);
+		}
+
+		/**
+		 * Add an untracked file.
+		 *
+		 * @param fileName
+		 *            name of an untracked file directly within this directory.
+		 */
+		public void addUntracked(String fileName) {
+			untracked.add(fileName);
+		}
+
+		/**
+		 * Get the recorded subdirectories.
+		 *
+		 * @return the subdirectories of this directory, sorted by name.
+		 */
+		public Collection<Directory> getChildren() {
+			return Collections.unmodifiableCollection(children.values());
+		}
+
+		/**
+		 * Get a recorded subdirectory.
+		 *
+		 * @param childName
+		 *            name of the subdirectory.
+		 * @return the subdirectory; null if it is not recorded.
+		 */
+		@Nullable
+		public Directory getChild(String childName) {
+			return children.get(childName);
+		}
+
+		/**
+		 * Record a subdirectory, replacing any record of the same name.
+		 *
+		 * @param child
+		 *            the subdirectory.
+		 */
+		public void addChild(Directory child) {
+			children.put(child.name, child);
+		}
+
+		/**
+		 * Whether the untracked files and the modification time of this
+		 * directory are known.
+		 *
+		 * @return true if the record of this directory can be used.
+		 */
+		public boolean isValid() {
+			return valid;
+		}
+
+		/**
+		 * Get the recorded modification time.
+		 *
+		 * @return modification time of the directory in milliseconds; 0 if
+		 *         this directory is not valid.
+		 */
+		public long getLastModified() {
+			if (stat == null)
+				return 0;
+			long sec = NB.decodeUInt32(stat, MTIME_OFFSET);
+			long nsec = NB.decodeUInt32(stat, MTIME_OFFSET + 4);
+			return sec * 1000 + nsec / 1000000;
+		}
+
+		/**
+		 * Set the modification time and mark this directory valid.
+		 * <p>
+		 * The caller must have recorded all untracked files of the directory
+		 * as they were at this modification time.
+		 *
+		 * @param lastModified
+		 *            modification time of the directory in milliseconds.
+		 */
+		public void setLastModified(long lastModified) {
+			stat = new byte[STAT_LENGTH];
+			NB.encodeInt32(stat, MTIME_OFFSET, (int) (lastModified / 1000));
+			NB.encodeInt32(stat, MTIME_OFFSET + 4,
+					(int) (lastModified % 1000) * 1000000);
+			valid = true;
+			checkOnly = false;
+		}
+
+		/**
+		 * Get the id of the ignore file of this directory.
+		 *
+		 * @return blob id of the {@code .gitignore} file in this directory;
+		 *         null if there was none.
+		 */
+		@Nullable
+		public ObjectId getExcludeId() {
+			return excludeId;
+		}
+
+		/**
+		 * Set the id of the ignore file of this directory.
+		 *
+		 * @param id
+		 *            blob id of the {@code .gitignore} file in this directory;
+		 *            null if there is none.
+		 */
+		public void setExcludeId(@Nullable ObjectId id) {
+			excludeId = id;
+		}
+
+		/** Mark this directory as invalid. */
+		public void invalidate() {
+			valid = false;
+			checkOnly = false;
+			stat = null;
+			untracked.clear();
+		}
+
+		void invalidateAll() {
+			invalidate();
+			for (Directory c : children.values())
+				c.invalidateAll();
+		}
+
+		void collect(List<Directory> all) {
+			all.add(this);
+			for (Directory c : children.values())
+				c.collect(all);
+		}
+	}
+
+	private final byte[] ident;
+
+	private final byte[] infoExcludeStat;
+
+	private final byte[] excludesFileStat;
+
+	private final int dirFlags;
+
+	private final ObjectId infoExcludeId;
+
+	private final ObjectId excludesFileId;
+
+	private final String excludePerDir;
+
+	private Directory root;
+
+	/**
+	 * Create an empty untracked cache.
+	 *
+	 * @param ident
+	 *            description of the environment the cache is valid in.
+	 * @param dirFlags
+	 *            flags describing how untracked files were collected.
+	 * @param infoExcludeId
+	 *            blob id of {@code $GIT_DIR/info/exclude}; null if it does not
+	 *            exist.
+	 * @param excludesFileId
+	 *            blob id of {@code core.excludesFile}; null if it does not
+	 *            exist.
+	 */
+	public UntrackedCache(String ident, int dirFlags,
+			@Nullable ObjectId infoExcludeId,
+			@Nullable ObjectId excludesFileId) {
+		this.ident = (ident + '\0').getBytes(UTF_8);
+		this.infoExcludeStat = new byte[STAT_LENGTH];
+		this.excludesFileStat = new byte[STAT_LENGTH];
+		this.dirFlags = dirFlags;
+		this.infoExcludeId = infoExcludeId;
+		this.excludesFileId = excludesFileId;
+		this.excludePerDir = Constants.DOT_GIT_IGNORE;
+	}
+
+	private UntrackedCache(byte[] ident, byte[] infoExcludeStat,
+			byte[] excludesFileStat, int dirFlags, ObjectId infoExcludeId,
+			ObjectId excludesFileId, String excludePerDir) {
+		this.ident = ident;
+		this.infoExcludeStat = infoExcludeStat;
+		this.excludesFileStat = excludesFileStat;
+		this.dirFlags = dirFlags;
+		this.infoExcludeId = infoExcludeId;
+		this.excludesFileId = excludesFileId;
+		this.excludePerDir = excludePerDir;
+	}
+
+	/**
+	 * Whether the cache was created in the given environment.
+	 *
+	 * @param environment
+	 *            description of the current environment.
+	 * @return true if {@code environment} is one of the environments this
+	 *         cache is valid in.
+	 */
+	public boolean hasIdent(String environment) {
+		byte[] want = environment.getBytes(UTF_8);
+		int ptr = 0;
+		while (ptr < ident.length) {
+			int end = RawParseUtils.next(ident, ptr, '\0');
+			if (end - 1 - ptr == want.length && Arrays.equals(want,
+					Arrays.copyOfRange(ident, ptr, end - 1)))
+				return true;
+			ptr = end;
+		}
+		return false;
+	}
+
+	/**
+	 * Get the environments this cache is valid in.
+	 *
+	 * @return descriptions of the environments, each terminated by a NUL.
+	 */
+	public String getIdent() {
+		return RawParseUtils.decode(ident);
+	}
+
+	/**
+	 * Get the flags describing how untracked files were collected.
+	 *
+	 * @return the flags.
+	 */
+	public int getDirFlags() {
+		return dirFlags;
+	}
+
+	/**
+	 * Get the id of {@code $GIT_DIR/info/exclude}.
+	 *
+	 * @return blob id of the file; null if it did not exist.
+	 */
+	@Nullable
+	public ObjectId getInfoExcludeId() {
+		return infoExcludeId;
+	}
+
+	/**
+	 * Get the id of {@code core.excludesFile}.
+	 *
+	 * @return blob id of the file; null if it did not exist.
+	 */
+	@Nullable
+	public ObjectId getExcludesFileId() {
+		return excludesFileId;
+	}
+
+	/**
+	 * Get the name of the per-directory ignore file.
+	 *
+	 * @return name of the ignore file, usually {@code .gitignore}.
+	 */
+	public String getExcludePerDir() {
+		return excludePerDir;
+	}
+
+	/**
+	 * Get the record of the root of the working tree.
+	 *
+	 * @return the root directory; null if nothing is recorded.
+	 */
+	@Nullable
+	public Directory getRoot() {
+		return root;
+	}
+
+	/**
+	 * Find the record of a directory.
+	 *
+	 * @param path
+	 *            path of the directory, relative to the root of the working
+	 *            tree; the empty string for the root.
+	 * @return the directory; null if it is not recorded.
+	 */
+	@Nullable
+	public Directory find(String path) {
+		Directory d = root;
+		int ptr = 0;
+		while (d != null && ptr < path.length()) {
+			int end = path.indexOf('/', ptr);
+			if (end < 0)
+				end = path.length();
+			d = d.getChild(path.substring(ptr, end));
+			ptr = end + 1;
+		}
+		return d;
+	}
+
+	/**
+	 * Record a directory, replacing any previous record of its path.
+	 * <p>
+	 * Missing parent directories are recorded as invalid.
+	 *
+	 * @param path
+	 *            path of the directory's parent, relative to the root of the
+	 *            working tree; the empty string for the root.
+	 * @param dir
+	 *            the directory.
+	 */
+	public void put(String path, Directory dir) {
+		getOrCreate(path).addChild(dir);
+	}
+
+	/**
+	 * Set the id of the ignore file of a directory.
+	 * <p>
+	 * If the id differs from the recorded one, the rules that applied to the
+	 * directory and everything below it have changed, and all of them are
+	 * invalidated.
+	 *
+	 * @param path
+	 *            path of the directory, relative to the root of the working
+	 *            tree; the empty string for the root.
+	 * @param id
+	 *            blob id of the ignore file; null if there is none.
+	 */
+	public void setExcludeId(String path, @Nullable ObjectId id) {
+		Directory d = getOrCreate(path);
+		if (!Objects.equals(d.getExcludeId(), id)) {
+			d.invalidateAll();
+			d.setExcludeId(id);
+		}
+	}
+
+	/**
+	 * Invalidate the directories whose untracked files may have changed
+	 * because the index entry at {@code path} was added or removed.
+	 *
+	 * @param path
+	 *            path of the index entry.
+	 */
+	public void invalidate(String path) {
+		Directory d = root;
+		int ptr = 0;
+		while (d != null) {
+			d.invalidate();
+			int end = path.indexOf('/', ptr);
+			if (end < 0)
+				break;
+			d = d.getChild(path.substring(ptr, end));
+			ptr = end + 1;
+		}
+	}
+
+	private Directory getOrCreate(String path) {
+		if (root == null)
+			root = new Directory(""); //$NON-NLS-1$
+		Directory d = root;
+		int ptr = 0;
+		while (ptr < path.length()) {
+			int end = path.indexOf('/', ptr);
+			if (end < 0)
+				end = path.length();
+			String name = path.substring(ptr, end);
+			Directory c = d.getChild(name);
+			if (c == null) {
+				c = new Directory(name);
+				d.addChild(c);
+			}
+			d = c;
+			ptr = end + 1;
+		}
+		return d;
+	}
+
+	static UntrackedCache parse(byte[] raw) throws CorruptObjectException {
+		try {
+			MutableInteger ptr = new MutableInteger();
+			int identLen = (int) Varint.decode(raw, ptr);
+			byte[] ident = take(raw, ptr, identLen);
+			byte[] infoExcludeStat = take(raw, ptr, STAT_LENGTH);
+			byte[] excludesFileStat = take(raw, ptr, STAT_LENGTH);
+			int dirFlags = NB.decodeInt32(take(raw, ptr, 4), 0);
+			ObjectId infoExcludeId = decodeId(take(raw, ptr,
+					Constants.OBJECT_ID_LENGTH));
+			ObjectId excludesFileId = decodeId(take(raw, ptr,
+					Constants.OBJECT_ID_LENGTH));
+			UntrackedCache cache = new UntrackedCache(ident, infoExcludeStat,
+					excludesFileStat, dirFlags, infoExcludeId,
+					excludesFileId, decodeString(raw, ptr));
+
+			long dirCnt = Varint.decode(raw, ptr);
+			if (dirCnt == 0)
+				return cache;
+
+			List<Directory> all = new ArrayList<>();
+			cache.root = decodeDirectory(raw, ptr, all);
+			if (all.size() != dirCnt)
+				throw new CorruptObjectException(
+						JGitText.get().DIRCUntrackedCacheCorrupt);
+
+			ByteArrayInputStream bin = new ByteArrayInputStream(raw,
+					ptr.value, raw.length - ptr.value);
+			DataInputStream in = new DataInputStream(bin);
+			EWAHCompressedBitmap valid = new EWAHCompressedBitmap();
+			valid.deserialize(in);
+			EWAHCompressedBitmap checkOnly = new EWAHCompressedBitmap();
+			checkOnly.deserialize(in);
+			EWAHCompressedBitmap hasId = new EWAHCompressedBitmap();
+			hasId.deserialize(in);
+			ptr.value = raw.length - bin.available();
+
+			for (int i = 0; i < all.size(); i++) {
+				Directory d = all.get(i);
+				d.checkOnly = checkOnly.get(i);
+				if (valid.get(i)) {
+					d.valid = true;
+					d.stat = take(raw, ptr, STAT_LENGTH);
+				}
+			}
+			for (int i = 0; i < all.size(); i++) {
+				if (hasId.get(i))
+					all.get(i).excludeId = ObjectId.fromRaw(
+							take(raw, ptr, Constants.OBJECT_ID_LENGTH));
+			}
+			return cache;
+		} catch (IOException | RuntimeException e) {
+			CorruptObjectException err = new CorruptObjectException(
+					JGitText.get().DIRCUntrackedCacheCorrupt);
+			err.initCause(e);
+			throw err;
+		}
+	}
+
+	private static Directory decodeDirectory(byte[] raw, MutableInteger ptr,
+			List<Directory> all) {
+		long untrackedCnt = Varint.decode(raw, ptr);
+		long childCnt = Varint.decode(raw, ptr);
+		Directory d = new Directory(decodeString(raw, ptr));
+		all.add(d);
+		for (long i = 0; i < untrackedCnt; i++)
+			d.untracked.add(decodeString(raw, ptr));
+		for (long i = 0; i < childCnt; i++)
+			d.addChild(decodeDirectory(raw, ptr, all));
+		return d;
+	}
+
+	void write(OutputStream os) throws IOException {
+		Varint.encode(os, ident.length);
+		os.write(ident);
+		os.write(infoExcludeStat);
+		os.write(excludesFileStat);
+		byte[] tmp = new byte[Constants.OBJECT_ID_LENGTH];
+		NB.encodeInt32(tmp, 0, dirFlags);
+		os.write(tmp, 0, 4);
+		encodeId(os, infoExcludeId, tmp);
+		encodeId(os, excludesFileId, tmp);
+		os.write(excludePerDir.getBytes(UTF_8));
+		os.write(0);
+
+		if (root == null) {
+			Varint.encode(os, 0);
+			os.write(0);
+			return;
+		}
+
+		List<Directory> all = new ArrayList<>();
+		root.collect(all);
+		Varint.encode(os, all.size());
+		for (Directory d : all) {
+			Varint.encode(os, d.untracked.size());
+			Varint.encode(os, d.children.size());
+			encodeString(os, d.name);
+			for (String n : d.untracked)
+				encodeString(os, n);
+		}
+
+		EWAHCompressedBitmap valid = new EWAHCompressedBitmap();
+		EWAHCompressedBitmap checkOnly = new EWAHCompressedBitmap();
+		EWAHCompressedBitmap hasId = new EWAHCompressedBitmap();
+		for (int i = 0; i < all.size(); i++) {
+			Directory d = all.get(i);
+			if (d.valid)
+				valid.set(i);
+			if (d.checkOnly)
+				checkOnly.set(i);
+			if (d.excludeId != null)
+				hasId.set(i);
+		}
+		ByteArrayOutputStream bitmaps = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bitmaps);
+		valid.serialize(out);
+		checkOnly.serialize(out);
+		hasId.serialize(out);
+		out.flush();
+		bitmaps.writeTo(os);
+
+		for (Directory d : all) {
+			if (d.valid)
+				os.write(d.stat);
+		}
+		for (Directory d : all) {
+			if (d.excludeId != null) {
+				d.excludeId.copyRawTo(tmp, 0);
+				os.write(tmp);
+			}
+		}
+		os.write(0);
+	}
+
+	private static byte[] take(byte[] raw, MutableInteger ptr, int len) {
+		if (len < 0 || raw.length - ptr.value < len)
+			throw new ArrayIndexOutOfBoundsException(ptr.value + len);
+		byte[] r = Arrays.copyOfRange(raw, ptr.value, ptr.value + len);
+		ptr.value += len;
+		return r;
+	}
+
+	private static ObjectId decodeId(byte[] raw) {
+		ObjectId id = ObjectId.fromRaw(raw);
+		return ObjectId.zeroId().equals(id) ? null : id;
+	}
+
+	private static void encodeId(OutputStream os, ObjectId id, byte[] tmp)
+			throws IOException {
+		(id != null ? id : ObjectId.zeroId()).copyRawTo(tmp, 0);
+		os.write(tmp, 0, Constants.OBJECT_ID_LENGTH);
+	}
+
+	private static String decodeString(byte[] raw, MutableInteger ptr) {
+		int end = RawParseUtils.next(raw, ptr.value, '\0');
+		if (end <= ptr.value || raw[end - 1] != 0)
+			throw new ArrayIndexOutOfBoundsException(end);
+		String s = RawParseUtils.decode(raw, ptr.value, end - 1);
+		ptr.value = end;
+		return s;
+	}
+
+	private static void encodeString(OutputStream os, String s)
+			throws IOException {
+		os.write(s.getBytes(UTF_8));
+		os.write(0);
+	}
+}
@@ -0,0 +1,150 @@
+/*
+ * Copyright (C) 2019, Google LLC.
+ * and other copyright owners as documented in the project's IP log.
+ *
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Distribution License v1.0 which
+ * accompanies this distribution, is reproduced below, and is
+ * available at http://www.eclipse.org/org/documents/edl-v10.php
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or
+ * without modification, are permitted provided that the following
+ * conditions are met:
+ *
+ * - Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * - Redistributions in binary form must reproduce the above
+ *   copyright notice, this list of conditions and the following
+ *   disclaimer in the documentation and/or other materials provided
+ *   with the distribution.
+ *
+ * - Neither the name of the Eclipse Foundation, Inc. nor the
+ *   names of its contributors may be used to endorse or promote
+ *   products derived from this software without specific prior
+ *   written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND
+ * CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.eclipse.jgit.dircache;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+
+import org.eclipse.jgit.internal.JGitText;
+import org.eclipse.jgit.util.MutableInteger;
+
+/**
+ * Variable length integers of the index file format.
+ * <p>
+ * Each byte holds 7 bits, most significant group first, with the high bit
+ * set on all but the last byte. Unlike a plain base-128 encoding, 1 is added
+ * to the value before each further group, so every value has exactly one
+ * encoding. This is the "offset" varint of C git's varint.c, used by the
+ * compressed paths of index version 4 and by the untracked cache extension.
+ */
+final class Varint {
+	/** Maximum number of bytes of an encoded 64 bit value. */
+	private static final int MAX_LENGTH = 10;
+
+	/**
+	 * Decode a value from a buffer.
+	 *
+	 * @param buf
+	 *            buffer holding the encoded value.
+	 * @param ptr
+	 *            position of the first byte of the value in {@code buf};
+	 *            updated to the position after its last byte.
+	 * @return the decoded value.
+	 */
+	static long decode(byte[] buf, MutableInteger ptr) {
+		int c = buf[ptr.value++] & 0xff;
+		long val = c & 0x7f;
+		while ((c & 0x80) != 0) {
+			c = buf[ptr.value++] & 0xff;
+			val = ((val + 1) << 7) | (c & 0x7f);
+		}
+		return val;
+	}
+
+	/**
+	 * Decode a value from a stream.
+	 *
+	 * @param in
+	 *            stream positioned at the first byte of the value.
+	 * @param md
+	 *            digest updated with the bytes read.
+	 * @return the decoded value.
+	 * @throws IOException
+	 *             the stream ended before the last byte of the value.
+	 */
+	static long decode(InputStream in, MessageDigest md) throws IOException {
+		int c = readByte(in, md);
+		long val = c & 0x7f;
+		while ((c & 0x80) != 0) {
+			c = readByte(in, md);
+			val = ((val + 1) << 7) | (c & 0x7f);
+		}
+		return val;
+	}
+
+	/**
+	 * Read one byte that must be present.
+	 *
+	 * @param in
+	 *            stream to read from.
+	 * @param md
+	 *            digest updated with the byte read.
+	 * @return the byte, as an unsigned value.
+	 * @throws IOException
+	 *             the stream has ended.
+	 */
+	static int readByte(InputStream in, MessageDigest md) throws IOException {
+		int c = in.read();
+		if (c < 0)
+			throw new EOFException(JGitText.get().shortReadOfBlock);
+		md.update((byte) c);
+		return c;
+	}
+
+	/**
+	 * Encode a value.
+	 *
+	 * @param os
+	 *            stream to write the encoded value to.
+	 * @param val
+	 *            the value, treated as unsigned.
+	 * @throws IOException
+	 *             the value could not be written.
+	 */
+	static void encode(OutputStream os, long val) throws IOException {
+		byte[] buf = new byte[MAX_LENGTH];
+		int pos = buf.length - 1;
+		buf[pos] = (byte) (val & 0x7f);
+		while ((val >>>= 7) != 0)
+			buf[--pos] = (byte) (0x80 | (--val & 0x7f));
+		os.write(buf, pos, buf.length - pos);
+	}
+
+	private Varint() {
+		// Don't create instances of a static only utility.
+	}
+}
@@ -157,9 +157,11 @@ public static JGitText get() {
 	/***/ public String cannotReadBackDelta;
 	/***/ public String cannotReadBlob;
 	/***/ public String cannotReadCommit;
+	/***/ public String cannotReadCommitGraph;
 	/***/ public String cannotReadFile;
 	/***/ public String cannotReadHEAD;
 	/***/ public String cannotReadIndex;
+	/***/ public String cannotReadMultiPackIndex;
 	/***/ public String cannotReadObject;
 	/***/ public String cannotReadObjectsPath;
 	/***/ public String cannotReadTree;
@@ -192,6 +194,8 @@ public static JGitText get() {
 	/***/ public String commandRejectedByHook;
 	/***/ public String commandWasCalledInTheWrongState;
 	/***/ public String commitAlreadyExists;
+	/***/ public String commitGraphChunkMissing;
+	/***/ public String commitGraphFileIsTooLargeForJgit;
 	/***/ public String commitMessageNotSpecified;
 	/***/ public String commitOnRepoWithoutHEADCurrentlyNotSupported;
 	/***/ public String commitAmendOnInitialNotPossible;
@@ -301,10 +305,13 @@ public static JGitText get() {
 	/***/ public String dirCacheFileIsNotLocked;
 	/***/ public String dirCacheIsNotLocked;
 	/***/ public String DIRCChecksumMismatch;
+	/***/ public String DIRCCorruptEntryOffsetTable;
+	/***/ public String DIRCCorruptPathCompression;
 	/***/ public String DIRCExtensionIsTooLargeAt;
 	/***/ public String DIRCExtensionNotSupportedByThisVersion;
 	/***/ public String DIRCHasTooManyEntries;
 	/***/ public String DIRCUnrecognizedExtendedFlags;
+	/***/ public String DIRCUntrackedCacheCorrupt;
 	/***/ public String dirtyFilesExist;
 	/***/ public String doesNotHandleMode;
 	/***/ public String downloadCancelled;
@@ -497,8 +504,11 @@ public static JGitText get() {
 	/***/ public String lockError;
 	/***/ public String lockOnNotClosed;
 	/***/ public String lockOnNotHeld;
+	/***/ public String lowMemoryIndexingRequiresSortedList;
 	/***/ public String malformedpersonIdentString;
 	/***/ public String maxCountMustBeNonNegative;
+	/***/ public String mbeanRegistrationFailed;
+	/***/ public String mbeanUnregistrationFailed;
 	/***/ public String mergeConflictOnNonNoteEntries;
 	/***/ public String mergeConflictOnNotes;
 	/***/ public String mergeStrategyAlreadyExistsAsDefault;
@@ -526,6 +536,8 @@ public static JGitText get() {
 	/***/ public String month;
 	/***/ public String months;
 	/***/ public String monthsAgo;
+	/***/ public String multiPackIndexChunkMissing;
+	/***/ public String multiPackIndexFileIsTooLargeForJgit;
 	/***/ public String multipleMergeBasesFor;
 	/***/ public String nameMustNotBeNullOrEmpty;
 	/***/ public String need2Arguments;
@@ -548,8 +560,10 @@ public static JGitText get() {
 	/***/ public String noSuchSubmodule;
 	/***/ public String notABoolean;
 	/***/ public String notABundle;
+	/***/ public String notACommitGraph;
 	/***/ public String notADIRCFile;
 	/***/ public String notAGitDirectory;
+	/***/ public String notAMultiPackIndex;
 	/***/ public String notAPACKFile;
 	/***/ public String notARef;
 	/***/ public String notASCIIString;
@@ -562,6 +576,7 @@ public static JGitText get() {
 	/***/ public String noXMLParserAvailable;
 	/***/ public String objectAtHasBadZlibStream;
 	/***/ public String objectAtPathDoesNotHaveId;
+	/***/ public String objectIdSetFull;
 	/***/ public String objectIsCorrupt;
 	/***/ public String objectIsCorrupt3;
 	/***/ public String objectIsNotA;
@@ -678,6 +693,7 @@ public static JGitText get() {
 	/***/ public String resettingHead;
 	/***/ public String resolvingDeltas;
 	/***/ public String resultLengthIncorrect;
+	/***/ public String retentionWeightNegative;
 	/***/ public String rewinding;
 	/***/ public String s3ActionDeletion;
 	/***/ public String s3ActionReading;
@@ -820,10 +836,14 @@ public static JGitText get() {
 	/***/ public String unsupportedAlternates;
 	/***/ public String unsupportedArchiveFormat;
 	/***/ public String unsupportedCommand0;
+	/***/ public String unsupportedCommitGraphHashVersion;
+	/***/ public String unsupportedCommitGraphVersion;
 	/***/ public String unsupportedEncryptionAlgorithm;
 	/***/ public String unsupportedEncryptionVersion;
 	/***/ public String unsupportedGC;
 	/***/ public String unsupportedMark;
+	/***/ public String unsupportedMultiPackIndexHashVersion;
+	/***/ public String unsupportedMultiPackIndexVersion;
 	/***/ public String unsupportedOperationNotAddAtEnd;
 	/***/ public String unsupportedPackIndexVersion;
 	/***/ public String unsupportedPackVersion;
@@ -848,6 +868,8 @@ public static JGitText get() {
 	/***/ public String windowSizeMustBePowerOf2;
 	/***/ public String writerAlreadyInitialized;
 	/***/ public String writeTimedOut;
+	/***/ public String writingCommitGraph;
+	/***/ public String writingMultiPackIndex;
 	/***/ public String writingNotPermitted;
 	/***/ public String writingNotSupported;
 	/***/ public String writingObjects;
@@ -229,6 +229,13 @@ protected int readDatabase(byte[] dst, int pos, int cnt)
 		return n;
 	}
 
+	/** {@inheritDoc} */
+	@Override
+	protected int readDatabase(long position, byte[] dst, int pos, int cnt)
+			throws IOException {
+		return read(position, dst, pos, cnt);
+	}
+
 	int read(long channelPosition, byte[] dst, int pos, int cnt)
 			throws IOException {
 		long block = channelPosition / blockSize;
@@ -138,8 +138,8 @@ DfsBlock readOneBlock(long pos, DfsReader ctx,
 		if (invalid)
 			throw new PackInvalidException(getFileName());
 
-		ctx.stats.readBlock++;
 		long start = System.nanoTime();
+		long readBytes = 0;
 		ReadableChannel rc = fileChannel != null ? fileChannel
 				: ctx.db.openFile(desc, ext);
 		try {
@@ -167,7 +167,7 @@ DfsBlock readOneBlock(long pos, DfsReader ctx,
 			byte[] buf = new byte[size];
 			rc.position(pos);
 			int cnt = read(rc, ByteBuffer.wrap(buf, 0, size));
-			ctx.stats.readBlockBytes += cnt;
+			readBytes = cnt;
 			if (cnt != size) {
 				if (0 <= len) {
 					throw new EOFException(MessageFormat.format(
@@ -192,7 +192,7 @@ DfsBlock readOneBlock(long pos, DfsReader ctx,
 			if (rc != fileChannel) {
 				rc.close();
 			}
-			ctx.stats.readBlockMicros += elapsedMicros(start);
+			ctx.stats.addRead(readBytes, elapsedMicros(start));
 		}
 	}
 
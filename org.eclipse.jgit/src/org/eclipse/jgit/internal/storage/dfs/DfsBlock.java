@@ -53,26 +53,68 @@
 
 import org.eclipse.jgit.internal.storage.pack.PackOutputStream;
 
-/** A cached slice of a {@link BlockBasedFile}. */
+/**
+ * A cached slice of a {@link BlockBasedFile}.
+ * <p>
+ * The slice is held either in a Java heap {@code byte[]}, or in a slot of an
+ * {@link OffHeapBlockStore} outside of the heap.
+ */
 final class DfsBlock {
+	/**
+	 * Largest chunk copied out of an off-heap block at once.
+	 * <p>
+	 * {@link Inflater} in Java 8 can only read from arrays, so off-heap data is
+	 * staged through a per-thread buffer of this size.
+	 */
+	private static final int SCRATCH_SIZE = 64 * 1024;
+
+	private static final ThreadLocal<byte[]> scratch = ThreadLocal
+			.withInitial(() -> new byte[SCRATCH_SIZE]);
+
 	final DfsStreamKey stream;
 	final long start;
 	final long end;
 	private final byte[] block;
+	private final ByteBuffer direct;
+	private final int size;
 
 	DfsBlock(DfsStreamKey p, long pos, byte[] buf) {
 		stream = p;
 		start = pos;
 		end = pos + buf.length;
 		block = buf;
+		direct = null;
+		size = buf.length;
+	}
+
+	DfsBlock(DfsStreamKey p, long pos, ByteBuffer buf) {
+		stream = p;
+		start = pos;
+		end = pos + buf.remaining();
+		block = null;
+		direct = buf;
+		size = buf.remaining();
 	}
 
 	int size() {
-		return block.length;
+		return size;
+	}
+
+	boolean isDirect() {
+		return direct != null;
 	}
 
 	ByteBuffer zeroCopyByteBuffer(int n) {
-		ByteBuffer b = ByteBuffer.wrap(block);
+		ByteBuffer b;
+		if (direct != null) {
+			// The slot may be reused once this block is unreachable, which
+			// the caller's buffer would not prevent. Hand out a copy instead.
+			byte[] tmp = new byte[size];
+			direct.duplicate().get(tmp);
+			b = ByteBuffer.wrap(tmp);
+		} else {
+			b = ByteBuffer.wrap(block);
+		}
 		b.position(n);
 		return b;
 	}
@@ -87,33 +129,74 @@ int copy(long pos, byte[] dstbuf, int dstoff, int cnt) {
 	}
 
 	int copy(int p, byte[] b, int o, int n) {
-		n = Math.min(block.length - p, n);
-		System.arraycopy(block, p, b, o, n);
+		n = Math.min(size - p, n);
+		if (direct != null) {
+			ByteBuffer d = direct.duplicate();
+			d.position(p);
+			d.get(b, o, n);
+		} else {
+			System.arraycopy(block, p, b, o, n);
+		}
 		return n;
 	}
 
+	void copyTo(ByteBuffer dst) {
+		if (direct != null) {
+			dst.put(direct.duplicate());
+		} else {
+			dst.put(block, 0, size);
+		}
+	}
+
 	int setInput(long pos, Inflater inf) throws DataFormatException {
 		int ptr = (int) (pos - start);
-		int cnt = block.length - ptr;
+		int cnt = size - ptr;
 		if (cnt <= 0) {
 			throw new DataFormatException(cnt + " bytes to inflate:" //$NON-NLS-1$
 					+ " at pos=" + pos //$NON-NLS-1$
 					+ "; block.start=" + start //$NON-NLS-1$
 					+ "; ptr=" + ptr //$NON-NLS-1$
-					+ "; block.length=" + block.length); //$NON-NLS-1$
+					+ "; block.length=" + size); //$NON-NLS-1$
+		}
+		if (direct != null) {
+			// Callers drive a single inflater to completion before touching
+			// another, so the thread's scratch buffer is not shared while
+			// the inflater still references it.
+			byte[] tmp = scratch.get();
+			cnt = copy(ptr, tmp, 0, Math.min(cnt, tmp.length));
+			inf.setInput(tmp, 0, cnt);
+		} else {
+			inf.setInput(block, ptr, cnt);
 		}
-		inf.setInput(block, ptr, cnt);
 		return cnt;
 	}
 
 	void crc32(CRC32 out, long pos, int cnt) {
 		int ptr = (int) (pos - start);
-		out.update(block, ptr, cnt);
+		if (direct != null) {
+			ByteBuffer d = direct.duplicate();
+			d.position(ptr);
+			d.limit(ptr + cnt);
+			out.update(d);
+		} else {
+			out.update(block, ptr, cnt);
+		}
 	}
 
 	void write(PackOutputStream out, long pos, int cnt)
 			throws IOException {
-		out.write(block, (int) (pos - start), cnt);
+		int ptr = (int) (pos - start);
+		if (direct != null) {
+			byte[] tmp = scratch.get();
+			while (cnt > 0) {
+				int n = copy(ptr, tmp, 0, Math.min(cnt, tmp.length));
+				out.write(tmp, 0, n);
+				ptr += n;
+				cnt -= n;
+			}
+		} else {
+			out.write(block, ptr, cnt);
+		}
 	}
 
 	void check(Inflater inf, byte[] tmp, long pos, int cnt)
@@ -121,7 +204,20 @@ void check(Inflater inf, byte[] tmp, long pos, int cnt)
 		// Unlike inflate() above the exact byte count is known by the caller.
 		// Push all of it in a single invocation to avoid unnecessary loops.
 		//
-		inf.setInput(block, (int) (pos - start), cnt);
+		int ptr = (int) (pos - start);
+		if (direct != null) {
+			byte[] in = scratch.get();
+			while (cnt > 0) {
+				int n = copy(ptr, in, 0, Math.min(cnt, in.length));
+				inf.setInput(in, 0, n);
+				while (inf.inflate(tmp, 0, tmp.length) > 0)
+					continue;
+				ptr += n;
+				cnt -= n;
+			}
+			return;
+		}
+		inf.setInput(block, ptr, cnt);
 		while (inf.inflate(tmp, 0, tmp.length) > 0)
 			continue;
 	}
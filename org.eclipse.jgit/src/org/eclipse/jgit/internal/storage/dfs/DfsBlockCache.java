@@ -44,12 +44,13 @@
 
 package org.eclipse.jgit.internal.storage.dfs;
 
+import static org.eclipse.jgit.internal.storage.dfs.BlockBasedFile.elapsedMicros;
+
 import java.io.IOException;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.concurrent.atomic.AtomicReferenceArray;
 import java.util.concurrent.locks.ReentrantLock;
-import java.util.stream.LongStream;
 
 import org.eclipse.jgit.annotations.Nullable;
 import org.eclipse.jgit.internal.JGitText;
@@ -71,10 +72,12 @@
  * <p>
  * Its too expensive during object access to be accurate with a least recently
  * used (LRU) algorithm. Strictly ordering every read is a lot of overhead that
- * typically doesn't yield a corresponding benefit to the application. This
- * cache implements a clock replacement algorithm, giving each block one chance
- * to have been accessed during a sweep of the cache to save itself from
- * eviction.
+ * typically doesn't yield a corresponding benefit to the application. Blocks
+ * to evict are chosen by a
+ * {@link org.eclipse.jgit.internal.storage.dfs.DfsBlockCacheEvictionPolicy}.
+ * The default policy implements a clock replacement algorithm, giving each
+ * block at least one chance to have been accessed during a sweep of the cache
+ * to save itself from eviction.
  * <p>
  * Entities created by the cache are held under hard references, preventing the
  * Java VM from clearing anything. Blocks are discarded by the replacement
@@ -152,6 +155,9 @@ public static DfsBlockCache getInstance() {
 	/** As {@link #blockSize} is a power of 2, bits to shift for a / blockSize. */
 	private final int blockSizeShift;
 
+	/** Slots for blocks held outside of the heap; null to keep them on heap. */
+	private final OffHeapBlockStore offHeap;
+
 	/**
 	 * Number of times a block was found in the cache, per pack file extension.
 	 */
@@ -174,13 +180,12 @@ public static DfsBlockCache getInstance() {
 	 */
 	private final AtomicReference<AtomicLong[]> liveBytes;
 
-	/** Protects the clock and its related data. */
-	private final ReentrantLock clockLock;
+	/** Total number of bytes currently loaded in the cache. */
+	private final AtomicLong liveTotal;
 
-	/** Current position of the clock. */
-	private Ref clockHand;
+	/** Selects entries to evict once the cache is full. */
+	private final DfsBlockCacheEvictionPolicy policy;
 
-	@SuppressWarnings("unchecked")
 	private DfsBlockCache(DfsBlockCacheConfig cfg) {
 		tableSize = tableSize(cfg);
 		if (tableSize < 1)
@@ -195,13 +200,12 @@ private DfsBlockCache(DfsBlockCacheConfig cfg) {
 		maxStreamThroughCache = (long) (maxBytes * cfg.getStreamRatio());
 		blockSize = cfg.getBlockSize();
 		blockSizeShift = Integer.numberOfTrailingZeros(blockSize);
+		offHeap = cfg.isOffHeap()
+				? new OffHeapBlockStore(blockSize, maxBytes)
+				: null;
 
-		clockLock = new ReentrantLock(true /* fair */);
-		String none = ""; //$NON-NLS-1$
-		clockHand = new Ref<>(
-				DfsStreamKey.of(new DfsRepositoryDescription(none), none, null),
-				-1, 0, null);
-		clockHand.next = clockHand;
+		liveTotal = new AtomicLong();
+		policy = cfg.getEvictionPolicy().create(cfg);
 
 		statHit = new AtomicReference<>(newCounters());
 		statMiss = new AtomicReference<>(newCounters());
@@ -228,7 +232,7 @@ public long[] getCurrentSize() {
 	 * @return 0..100, defining how full the cache is.
 	 */
 	public long getFillPercentage() {
-		return LongStream.of(getCurrentSize()).sum() * 100 / maxBytes;
+		return liveTotal.get() * 100 / maxBytes;
 	}
 
 	/**
@@ -365,20 +369,24 @@ DfsBlock getOrLoad(BlockBasedFile file, long position, DfsReader ctx,
 		HashEntry e1 = table.get(slot);
 		DfsBlock v = scan(e1, key, position);
 		if (v != null && v.contains(key, requestedPosition)) {
-			ctx.stats.blockCacheHit++;
+			ctx.stats.addCacheHit();
 			getStat(statHit, key).incrementAndGet();
 			return v;
 		}
 
 		reserveSpace(blockSize, key);
 		ReentrantLock regionLock = lockFor(key, position);
-		regionLock.lock();
+		if (!regionLock.tryLock()) {
+			long start = System.nanoTime();
+			regionLock.lock();
+			ctx.stats.addCacheWait(elapsedMicros(start));
+		}
 		try {
 			HashEntry e2 = table.get(slot);
 			if (e2 != e1) {
 				v = scan(e2, key, position);
 				if (v != null) {
-					ctx.stats.blockCacheHit++;
+					ctx.stats.addCacheHit();
 					getStat(statHit, key).incrementAndGet();
 					creditSpace(blockSize, key);
 					return v;
@@ -401,6 +409,7 @@ DfsBlock getOrLoad(BlockBasedFile file, long position, DfsReader ctx,
 				e2 = table.get(slot);
 			}
 
+			v = store(v);
 			Ref<DfsBlock> ref = new Ref<>(key, position, v.size(), v);
 			ref.hot = true;
 			for (;;) {
@@ -409,7 +418,7 @@ DfsBlock getOrLoad(BlockBasedFile file, long position, DfsReader ctx,
 					break;
 				e2 = table.get(slot);
 			}
-			addToClock(ref, blockSize - v.size());
+			track(ref, blockSize - v.size());
 		} finally {
 			regionLock.unlock();
 		}
@@ -421,71 +430,39 @@ DfsBlock getOrLoad(BlockBasedFile file, long position, DfsReader ctx,
 		return getOrLoad(file, requestedPosition, ctx, fileChannel);
 	}
 
-	@SuppressWarnings("unchecked")
 	private void reserveSpace(int reserve, DfsStreamKey key) {
-		clockLock.lock();
-		try {
-			long live = LongStream.of(getCurrentSize()).sum() + reserve;
-			if (maxBytes < live) {
-				Ref prev = clockHand;
-				Ref hand = clockHand.next;
-				do {
-					if (hand.hot) {
-						// Value was recently touched. Clear
-						// hot and give it another chance.
-						hand.hot = false;
-						prev = hand;
-						hand = hand.next;
-						continue;
-					} else if (prev == hand)
-						break;
-
-					// No recent access since last scan, kill
-					// value and remove from clock.
-					Ref dead = hand;
-					hand = hand.next;
-					prev.next = hand;
-					dead.next = null;
-					dead.value = null;
-					live -= dead.size;
-					getStat(liveBytes, dead.key).addAndGet(-dead.size);
-					getStat(statEvict, dead.key).incrementAndGet();
-				} while (maxBytes < live);
-				clockHand = prev;
+		getStat(liveBytes, key).addAndGet(reserve);
+		long live = liveTotal.addAndGet(reserve);
+		while (maxBytes < live) {
+			Ref<?> dead = (Ref<?>) policy.evict();
+			if (dead == null) {
+				break;
 			}
-			getStat(liveBytes, key).addAndGet(reserve);
-		} finally {
-			clockLock.unlock();
+			dead.value = null;
+			live = liveTotal.addAndGet(-dead.size);
+			getStat(liveBytes, dead.key).addAndGet(-dead.size);
+			getStat(statEvict, dead.key).incrementAndGet();
 		}
 	}
 
 	private void creditSpace(int credit, DfsStreamKey key) {
-		clockLock.lock();
-		try {
-			getStat(liveBytes, key).addAndGet(-credit);
-		} finally {
-			clockLock.unlock();
-		}
+		getStat(liveBytes, key).addAndGet(-credit);
+		liveTotal.addAndGet(-credit);
 	}
 
-	@SuppressWarnings("unchecked")
-	private void addToClock(Ref ref, int credit) {
-		clockLock.lock();
-		try {
-			if (credit != 0) {
-				getStat(liveBytes, ref.key).addAndGet(-credit);
-			}
-			Ref ptr = clockHand;
-			ref.next = ptr.next;
-			ptr.next = ref;
-			clockHand = ref;
-		} finally {
-			clockLock.unlock();
+	private void track(Ref ref, int credit) {
+		if (credit != 0) {
+			creditSpace(credit, ref.key);
 		}
+		policy.add(ref);
 	}
 
 	void put(DfsBlock v) {
-		put(v.stream, v.start, v.size(), v);
+		put(v.stream, v.start, v.size(), store(v));
+	}
+
+	private DfsBlock store(DfsBlock v) {
+		return offHeap != null ? offHeap.store(v) : v;
 	}
 
 	<T> Ref<T> putRef(DfsStreamKey key, long size, T v) {
@@ -520,7 +497,7 @@ <T> Ref<T> put(DfsStreamKey key, long pos, int size, T v) {
 					break;
 				e2 = table.get(slot);
 			}
-			addToClock(ref, 0);
+			track(ref, 0);
 		} finally {
 			regionLock.unlock();
 		}
@@ -611,7 +588,7 @@ private static long[] getStatVals(AtomicReference<AtomicLong[]> stat) {
 	}
 
 	private static HashEntry clean(HashEntry top) {
-		while (top != null && top.ref.next == null)
+		while (top != null && !top.ref.has())
 			top = top.next;
 		if (top == null)
 			return null;
@@ -632,12 +609,11 @@ private static final class HashEntry {
 		}
 	}
 
-	static final class Ref<T> {
+	static final class Ref<T> implements DfsBlockCacheEvictionPolicy.Entry {
 		final DfsStreamKey key;
 		final long position;
 		final int size;
 		volatile T value;
-		Ref next;
 		volatile boolean hot;
 
 		Ref(DfsStreamKey key, long position, int size, T v) {
@@ -657,5 +633,24 @@ T get() {
 		boolean has() {
 			return value != null;
 		}
+
+		@Override
+		public PackExt getPackExt() {
+			return key.packExt;
+		}
+
+		@Override
+		public int getSize() {
+			return size;
+		}
+
+		@Override
+		public boolean clearAccessed() {
+			if (hot) {
+				hot = false;
+				return true;
+			}
+			return false;
+		}
 	}
 }
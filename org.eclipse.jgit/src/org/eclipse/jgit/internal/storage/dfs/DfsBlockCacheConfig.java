@@ -48,11 +48,15 @@
 import static org.eclipse.jgit.lib.ConfigConstants.CONFIG_KEY_BLOCK_LIMIT;
 import static org.eclipse.jgit.lib.ConfigConstants.CONFIG_KEY_BLOCK_SIZE;
 import static org.eclipse.jgit.lib.ConfigConstants.CONFIG_KEY_CONCURRENCY_LEVEL;
+import static org.eclipse.jgit.lib.ConfigConstants.CONFIG_KEY_OFF_HEAP;
 import static org.eclipse.jgit.lib.ConfigConstants.CONFIG_KEY_STREAM_RATIO;
 
 import java.text.MessageFormat;
+import java.util.HashMap;
+import java.util.Map;
 
 import org.eclipse.jgit.internal.JGitText;
+import org.eclipse.jgit.internal.storage.pack.PackExt;
 import org.eclipse.jgit.lib.Config;
 
 /**
@@ -70,6 +74,9 @@ public class DfsBlockCacheConfig {
 	private int blockSize;
 	private double streamRatio;
 	private int concurrencyLevel;
+	private boolean offHeap;
+	private DfsBlockCacheEvictionPolicy.Factory evictionPolicy;
+	private final Map<PackExt, Integer> retentionWeights = new HashMap<>();
 
 	/**
 	 * Create a default configuration.
@@ -79,6 +86,10 @@ public DfsBlockCacheConfig() {
 		setBlockSize(64 * KB);
 		setStreamRatio(0.30);
 		setConcurrencyLevel(32);
+		setEvictionPolicy(SegmentedClockEvictionPolicy::new);
+		setRetentionWeight(PackExt.INDEX, 3);
+		setRetentionWeight(PackExt.BITMAP_INDEX, 3);
+		setRetentionWeight(PackExt.REFTABLE, 3);
 	}
 
 	/**
@@ -193,6 +204,108 @@ public DfsBlockCacheConfig setStreamRatio(double ratio) {
 		return this;
 	}
 
+	/**
+	 * Whether cached blocks are stored outside of the Java heap.
+	 *
+	 * @return {@code true} if cached blocks are stored in direct memory
+	 *         outside of the Java heap. <b>Default is false.</b>
+	 * @since 5.3
+	 */
+	public boolean isOffHeap() {
+		return offHeap;
+	}
+
+	/**
+	 * Set whether cached blocks are stored outside of the Java heap.
+	 * <p>
+	 * Off-heap blocks are held in fixed-size slots of direct memory, which the
+	 * garbage collector does not need to scan or copy. The JVM must permit at
+	 * least {@link #getBlockLimit()} bytes of direct memory (see
+	 * {@code -XX:MaxDirectMemorySize}); blocks that do not fit are kept on the
+	 * heap.
+	 *
+	 * @param offHeap
+	 *            {@code true} to store cached blocks in direct memory.
+	 * @return {@code this}
+	 * @since 5.3
+	 */
+	public DfsBlockCacheConfig setOffHeap(boolean offHeap) {
+		this.offHeap = offHeap;
+		return this;
+	}
+
+	/**
+	 * Get the factory of the cache's eviction policy.
+	 *
+	 * @return the factory of the cache's eviction policy. <b>Default is a
+	 *         clock replacement policy split into
+	 *         {@link #getConcurrencyLevel()} independently locked
+	 *         segments, which honors {@link #getRetentionWeight(PackExt)}.</b>
+	 * @since 5.3
+	 */
+	public DfsBlockCacheEvictionPolicy.Factory getEvictionPolicy() {
+		return evictionPolicy;
+	}
+
+	/**
+	 * Set the factory of the cache's eviction policy.
+	 *
+	 * @param factory
+	 *            creates the eviction policy of a new cache; must not be
+	 *            {@code null}.
+	 * @return {@code this}
+	 * @since 5.3
+	 */
+	public DfsBlockCacheConfig setEvictionPolicy(
+			DfsBlockCacheEvictionPolicy.Factory factory) {
+		if (factory == null) {
+			throw new NullPointerException();
+		}
+		evictionPolicy = factory;
+		return this;
+	}
+
+	/**
+	 * Get the retention weight of cached data of a file extension.
+	 *
+	 * @param ext
+	 *            the file extension.
+	 * @return the number of extra passes of the eviction clock that data of
+	 *         {@code ext} survives without being read. <b>Default is 3 for
+	 *         {@link PackExt#INDEX}, {@link PackExt#BITMAP_INDEX} and
+	 *         {@link PackExt#REFTABLE}, and 0 otherwise.</b>
+	 * @since 5.3
+	 */
+	public int getRetentionWeight(PackExt ext) {
+		Integer w = retentionWeights.get(ext);
+		return w != null ? w.intValue() : 0;
+	}
+
+	/**
+	 * Set the retention weight of cached data of a file extension.
+	 * <p>
+	 * Data that is read again before it is evicted is given this many extra
+	 * passes of the eviction clock. A higher weight keeps small, frequently
+	 * used data such as pack indexes cached while large pack files are
+	 * streamed through the cache.
+	 *
+	 * @param ext
+	 *            the file extension.
+	 * @param weight
+	 *            the number of extra passes; must not be negative.
+	 * @return {@code this}
+	 * @since 5.3
+	 */
+	public DfsBlockCacheConfig setRetentionWeight(PackExt ext, int weight) {
+		if (weight < 0) {
+			throw new IllegalArgumentException(MessageFormat.format(
+					JGitText.get().retentionWeightNegative,
+					ext.getExtension(), Integer.valueOf(weight)));
+		}
+		retentionWeights.put(ext, Integer.valueOf(weight));
+		return this;
+	}
+
 	/**
 	 * Update properties by setting fields from the configuration.
 	 * <p>
@@ -233,6 +346,12 @@ public DfsBlockCacheConfig fromConfig(Config rc) {
 				CONFIG_KEY_CONCURRENCY_LEVEL,
 				getConcurrencyLevel()));
 
+		setOffHeap(rc.getBoolean(
+				CONFIG_CORE_SECTION,
+				CONFIG_DFS_SECTION,
+				CONFIG_KEY_OFF_HEAP,
+				isOffHeap()));
+
 		String v = rc.getString(
 				CONFIG_CORE_SECTION,
 				CONFIG_DFS_SECTION,
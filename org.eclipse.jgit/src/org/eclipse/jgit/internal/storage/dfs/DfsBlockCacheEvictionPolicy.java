@@ -0,0 +1,118 @@
+/*
+ * Copyright (C) 2019, Google LLC.
+ * and other copyright owners as documented in the project's IP log.
+ *
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Distribution License v1.0 which
+ * accompanies this distribution, is reproduced below, and is
+ * available at http://www.eclipse.org/org/documents/edl-v10.php
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or
+ * without modification, are permitted provided that the following
+ * conditions are met:
+ *
+ * - Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * - Redistributions in binary form must reproduce the above
+ *   copyright notice, this list of conditions and the following
+ *   disclaimer in the documentation and/or other materials provided
+ *   with the distribution.
+ *
+ * - Neither the name of the Eclipse Foundation, Inc. nor the
+ *   names of its contributors may be used to endorse or promote
+ *   products derived from this software without specific prior
+ *   written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND
+ * CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+package org.eclipse.jgit.internal.storage.dfs;
+
+import org.eclipse.jgit.annotations.Nullable;
+import org.eclipse.jgit.internal.storage.pack.PackExt;
+
+/**
+ * Chooses the entries a {@link DfsBlockCache} evicts once it is full.
+ * <p>
+ * The cache reports every entry it starts to hold through {@link #add(Entry)},
+ * and asks for victims through {@link #evict()} until enough space has been
+ * freed. Implementations must be thread-safe: several threads may add and
+ * evict entries at the same time, and should not all be serialized on a
+ * single lock.
+ *
+ * @since 5.3
+ */
+public interface DfsBlockCacheEvictionPolicy {
+	/** An entry held by the cache. */
+	interface Entry {
+		/**
+		 * Get the extension of the file the entry belongs to.
+		 *
+		 * @return the extension of the file the entry belongs to.
+		 */
+		PackExt getPackExt();
+
+		/**
+		 * Get the number of bytes accounted to the entry.
+		 *
+		 * @return the number of bytes accounted to the entry.
+		 */
+		int getSize();
+
+		/**
+		 * Check whether the entry was read since the previous call, and clear
+		 * that state.
+		 *
+		 * @return {@code true} if the entry was read since the previous call,
+		 *         or was just added to the cache.
+		 */
+		boolean clearAccessed();
+	}
+
+	/** Creates the eviction policy of a new cache. */
+	@FunctionalInterface
+	interface Factory {
+		/**
+		 * Create a policy for a new cache.
+		 *
+		 * @param cfg
+		 *            configuration of the cache.
+		 * @return a new policy, not shared with any other cache.
+		 */
+		DfsBlockCacheEvictionPolicy create(DfsBlockCacheConfig cfg);
+	}
+
+	/**
+	 * Start tracking a new entry.
+	 *
+	 * @param e
+	 *            entry now held by the cache.
+	 */
+	void add(Entry e);
+
+	/**
+	 * Select an entry to evict, and stop tracking it.
+	 * <p>
+	 * An entry is returned at most once.
+	 *
+	 * @return the entry to evict; {@code null} if no entry is tracked.
+	 */
+	@Nullable
+	Entry evict();
+}
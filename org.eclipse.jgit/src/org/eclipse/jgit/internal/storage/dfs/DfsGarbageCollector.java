@@ -725,7 +725,7 @@ private DfsPackDescription writePack(PackSource source, PackWriter pw,
 		pack.setLastModified(startTimeMillis);
 		newPackDesc.add(pack);
 		newPackStats.add(stats);
-		newPackObj.add(pw.getObjectSet());
+		newPackObj.add(pw.getObjectIdSet());
 		return pack;
 	}
 
@@ -444,7 +444,17 @@ private void copyPackThroughCache(PackOutputStream out, DfsReader ctx)
 		try {
 			long position = 12;
 			long remaining = length - (12 + 20);
+			DfsPrefetcher prefetch = ctx.beginPrefetch();
+			long chunk = cache.getBlockSize();
+			if (prefetch != null) {
+				for (long p = 0; p < length; p += chunk) {
+					prefetch.add(this, p, Math.min(p + chunk, length));
+				}
+			}
 			while (0 < remaining) {
+				if (prefetch != null) {
+					prefetch.advance((int) (position / chunk));
+				}
 				DfsBlock b;
 				if (rc != null) {
 					b = cache.getOrLoad(this, position, ctx, rc);
@@ -855,7 +865,9 @@ else if (delta.next == null)
 					throw new LargeObjectException.OutOfMemory(tooBig);
 				}
 
+				long start = System.nanoTime();
 				BinaryDelta.apply(data, cmds, result);
+				ctx.stats.addDelta(result.length, elapsedMicros(start));
 				data = result;
 				delta = delta.next;
 			} while (delta != null);
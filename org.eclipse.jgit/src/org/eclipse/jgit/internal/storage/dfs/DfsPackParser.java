@@ -62,6 +62,7 @@
 import org.eclipse.jgit.lib.ProgressMonitor;
 import org.eclipse.jgit.transport.PackParser;
 import org.eclipse.jgit.transport.PackedObjectInfo;
+import org.eclipse.jgit.transport.TransferConfig;
 
 /**
  * Parses a pack stream into the DFS, by creating a new pack and index.
@@ -132,6 +133,10 @@ protected DfsPackParser(DfsObjDatabase db, DfsInserter ins, InputStream in) {
 		this.objins = ins;
 		this.crc = new CRC32();
 		this.packDigest = Constants.newMessageDigest();
+		TransferConfig tc = db.getRepository().getConfig()
+				.get(TransferConfig.KEY);
+		setLowMemoryIndexing(tc.isLowMemoryIndexing());
+		setThreads(tc.getIndexThreads());
 	}
 
 	/** {@inheritDoc} */
@@ -168,6 +173,7 @@ public PackLock parse(ProgressMonitor receiving, ProgressMonitor resolving)
 
 			return null;
 		} finally {
+			releaseSpilledObjects();
 			blockCache = null;
 			currBuf = null;
 			readBlock = null;
@@ -393,6 +399,44 @@ protected int readDatabase(byte[] dst, int pos, int cnt) throws IOException {
 		return n;
 	}
 
+	/** {@inheritDoc} */
+	@Override
+	protected boolean isParallelDeltaResolutionSupported() {
+		return true;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	protected int readDatabase(long position, byte[] dst, int pos, int cnt)
+			throws IOException {
+		if (cnt == 0)
+			return 0;
+
+		if (currPos <= position) {
+			// Requested read is still buffered. Copy direct from buffer.
+			int p = (int) (position - currPos);
+			int n = Math.min(cnt, currEnd - p);
+			if (n <= 0)
+				return -1;
+			System.arraycopy(currBuf, p, dst, pos, n);
+			return n;
+		}
+
+		long start = toBlockStart(position);
+		DfsBlock b = blockCache.get(packKey, start);
+		if (b == null) {
+			synchronized (this) {
+				int size = (int) Math.min(blockSize, packEnd - start);
+				byte[] buf = new byte[size];
+				if (read(start, buf, 0, size) != size)
+					throw new EOFException();
+				b = new DfsBlock(packKey, start, buf);
+				blockCache.put(b);
+			}
+		}
+		return b.copy(position, dst, pos, cnt);
+	}
+
 	private int read(long pos, byte[] dst, int off, int len) throws IOException {
 		if (len == 0)
 			return 0;
@@ -0,0 +1,313 @@
+/*
+ * Copyright (C) 2019, Google LLC.
+ * and other copyright owners as documented in the project's IP log.
+ *
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Distribution License v1.0 which
+ * accompanies this distribution, is reproduced below, and is
+ * available at http://www.eclipse.org/org/documents/edl-v10.php
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or
+ * without modification, are permitted provided that the following
+ * conditions are met:
+ *
+ * - Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * - Redistributions in binary form must reproduce the above
+ *   copyright notice, this list of conditions and the following
+ *   disclaimer in the documentation and/or other materials provided
+ *   with the distribution.
+ *
+ * - Neither the name of the Eclipse Foundation, Inc. nor the
+ *   names of its contributors may be used to endorse or promote
+ *   products derived from this software without specific prior
+ *   written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND
+ * CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+package org.eclipse.jgit.internal.storage.dfs;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.jgit.util.LongList;
+
+/**
+ * Loads blocks into the {@link DfsBlockCache} ahead of a {@link DfsReader}.
+ * <p>
+ * The reader describes the ranges of files it is about to read, in the order
+ * it reads them, and reports its progress through {@link #advance(int)}.
+ * Ranges ahead of the cursor are loaded on an executor, so that several
+ * round trips to a high latency {@link ReadableChannel} overlap. Loads are
+ * issued only while the bytes not yet consumed by the reader stay below
+ * {@link DfsReaderOptions#getPrefetchLimit()}.
+ * <p>
+ * Prefetching is best effort: a failed or skipped load leaves the block to
+ * be loaded by the reader itself.
+ */
+final class DfsPrefetcher {
+	/** Loads queued for each thread of the default executor. */
+	private static final int QUEUE_PER_THREAD = 16;
+
+	private static final Object defaultExecutorLock = new Object();
+
+	private static Executor defaultExecutor;
+
+	private static Executor defaultExecutor() {
+		synchronized (defaultExecutorLock) {
+			if (defaultExecutor == null) {
+				int threads = Math.max(4,
+						2 * Runtime.getRuntime().availableProcessors());
+				// Loads are best effort. When the queue is full, drop the
+				// oldest queued load: its reader has most likely moved past
+				// it, or will load the blocks on demand.
+				ThreadPoolExecutor pool = new ThreadPoolExecutor(threads,
+						threads, 60, TimeUnit.SECONDS,
+						new ArrayBlockingQueue<>(QUEUE_PER_THREAD * threads),
+						new ThreadFactory() {
+							private final AtomicInteger cnt = new AtomicInteger();
+
+							@Override
+							public Thread newThread(Runnable r) {
+								Thread t = new Thread(r, "JGit-DfsPrefetch-" //$NON-NLS-1$
+										+ cnt.incrementAndGet());
+								t.setContextClassLoader(null);
+								t.setDaemon(true);
+								return t;
+							}
+						}, new ThreadPoolExecutor.DiscardOldestPolicy());
+				pool.allowCoreThreadTimeOut(true);
+				defaultExecutor = pool;
+			}
+			return defaultExecutor;
+		}
+	}
+
+	private final DfsObjDatabase db;
+
+	private final Executor executor;
+
+	private final long limit;
+
+	/** Largest range loaded by one task, allowing loads to overlap. */
+	private final long maxTaskSize;
+
+	private final List<BlockBasedFile> files = new ArrayList<>();
+
+	private final LongList starts = new LongList();
+
+	private final LongList ends = new LongList();
+
+	/** Bytes of new blocks charged by each issued range. */
+	private final LongList charged = new LongList();
+
+	/** Ranges before this index have been submitted, or skipped. */
+	private int issued;
+
+	/** Ranges before this index have been read by the reader. */
+	private int consumed;
+
+	/** Bytes of blocks issued for ranges not yet consumed. */
+	private long ahead;
+
+	/** Blocks issued for the most recent range, to skip overlaps. */
+	private BlockBasedFile lastFile;
+
+	private long lastBlockStart;
+
+	private long lastBlockEnd;
+
+	DfsPrefetcher(DfsReader ctx) {
+		DfsReaderOptions opts = ctx.getOptions();
+		Executor e = opts.getPrefetchExecutor();
+		db = ctx.db;
+		executor = e != null ? e : defaultExecutor();
+		limit = opts.getPrefetchLimit();
+		maxTaskSize = Math.max(limit / 8, 1);
+	}
+
+	/** Forget all ranges; the reader starts a new sequence of reads. */
+	void reset() {
+		files.clear();
+		starts.clear();
+		ends.clear();
+		charged.clear();
+		issued = 0;
+		consumed = 0;
+		ahead = 0;
+		lastFile = null;
+		lastBlockStart = 0;
+		lastBlockEnd = 0;
+	}
+
+	/**
+	 * Append a range the reader will read after all previous ranges.
+	 *
+	 * @param file
+	 *            file to read from.
+	 * @param start
+	 *            first byte of the range.
+	 * @param end
+	 *            byte after the last byte of the range.
+	 */
+	void add(BlockBasedFile file, long start, long end) {
+		files.add(file);
+		starts.add(start);
+		ends.add(Math.max(end, start + 1));
+	}
+
+	/**
+	 * Append a placeholder for a read that is not worth loading ahead, so
+	 * that range indexes keep matching the reader's own sequence.
+	 */
+	void skip() {
+		files.add(null);
+		starts.add(0);
+		ends.add(0);
+	}
+
+	/**
+	 * Note that the reader has consumed all ranges before {@code index}, and
+	 * issue loads for the ranges after it.
+	 *
+	 * @param index
+	 *            index of the range the reader reads next.
+	 */
+	void advance(int index) {
+		index = Math.min(index, files.size());
+		for (; consumed < index; consumed++) {
+			if (consumed < issued) {
+				ahead -= charged.get(consumed);
+			}
+		}
+		while (issued < consumed) {
+			charged.add(0);
+			issued++;
+		}
+
+		while (issued < files.size() && ahead < limit) {
+			BlockBasedFile file = files.get(issued);
+			if (file == null) {
+				charged.add(0);
+				issued++;
+				continue;
+			}
+			long blockSize = blockSize(file);
+			long taskStart = -1;
+			long taskEnd = -1;
+			while (issued < files.size() && files.get(issued) == file
+					&& ahead < limit) {
+				long s0 = file.alignToBlock(starts.get(issued));
+				long e = file.alignToBlock(ends.get(issued) - 1) + blockSize;
+				boolean overlaps = file == lastFile && lastBlockStart <= s0
+						&& s0 <= lastBlockEnd;
+				long s = overlaps ? lastBlockEnd : s0;
+				long n = Math.max(0, e - s);
+				if (n > 0 && taskEnd >= 0
+						&& (s != taskEnd || taskEnd - taskStart >= maxTaskSize)) {
+					break;
+				}
+
+				charged.add(n);
+				ahead += n;
+				issued++;
+				if (n > 0) {
+					if (taskStart < 0) {
+						taskStart = s;
+					}
+					taskEnd = e;
+					if (!overlaps) {
+						lastFile = file;
+						lastBlockStart = s0;
+					}
+					lastBlockEnd = e;
+				}
+			}
+			if (taskStart >= 0) {
+				submit(file, taskStart, taskEnd);
+			}
+		}
+	}
+
+	private long blockSize(BlockBasedFile file) {
+		int size = file.blockSize;
+		return size > 0 ? size : file.cache.getBlockSize();
+	}
+
+	private void submit(BlockBasedFile file, long start, long end) {
+		try {
+			executor.execute(() -> load(file, start, end));
+		} catch (RejectedExecutionException e) {
+			// The executor is saturated; the reader loads the blocks on
+			// demand.
+		}
+	}
+
+	private void load(BlockBasedFile file, long start, long end) {
+		DfsBlockCache cache = file.cache;
+		long pos = nextMissing(file, start, end);
+		if (pos < 0) {
+			return;
+		}
+		try (DfsReader rdr = db.newReader();
+				ReadableChannel rc = db.openFile(file.desc, file.ext)) {
+			rc.setReadAheadBytes((int) Math.min(end - pos, Integer.MAX_VALUE));
+			for (; 0 <= pos; pos = nextMissing(file,
+					file.alignToBlock(pos) + blockSize(file), end)) {
+				cache.getOrLoad(file, pos, rdr, rc);
+			}
+		} catch (IOException | RuntimeException e) {
+			// Best effort; the reader reports errors when loading the block.
+		}
+	}
+
+	/**
+	 * Find the next block in {@code [pos, end)} that is not cached.
+	 *
+	 * @param file
+	 *            the file being prefetched.
+	 * @param pos
+	 *            position to start searching at.
+	 * @param end
+	 *            end of the range to prefetch.
+	 * @return position in the first block that is not cached; -1 if there is
+	 *         no such block, or the file became invalid.
+	 */
+	private long nextMissing(BlockBasedFile file, long pos, long end) {
+		for (; pos < end; pos = file.alignToBlock(pos) + blockSize(file)) {
+			long len = file.length;
+			if (file.invalid() || (0 <= len && len <= pos)) {
+				return -1;
+			}
+			if (!file.cache.contains(file.key, file.alignToBlock(pos))) {
+				return pos;
+			}
+		}
+		return -1;
+	}
+}
@@ -44,6 +44,7 @@
 
 package org.eclipse.jgit.internal.storage.dfs;
 
+import static org.eclipse.jgit.internal.storage.dfs.BlockBasedFile.elapsedMicros;
 import static org.eclipse.jgit.internal.storage.dfs.DfsObjDatabase.PackSource.UNREACHABLE_GARBAGE;
 import static org.eclipse.jgit.lib.Constants.OBJECT_ID_LENGTH;
 
@@ -57,9 +58,11 @@
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.Executor;
 import java.util.zip.DataFormatException;
 import java.util.zip.Inflater;
 
+import org.eclipse.jgit.annotations.Nullable;
 import org.eclipse.jgit.errors.IncorrectObjectTypeException;
 import org.eclipse.jgit.errors.MissingObjectException;
 import org.eclipse.jgit.errors.StoredObjectRepresentationNotAvailableException;
@@ -74,6 +77,7 @@
 import org.eclipse.jgit.internal.storage.pack.ObjectToPack;
 import org.eclipse.jgit.internal.storage.pack.PackOutputStream;
 import org.eclipse.jgit.internal.storage.pack.PackWriter;
+import org.eclipse.jgit.internal.storage.pack.ParallelSizeLookup;
 import org.eclipse.jgit.lib.AbbreviatedObjectId;
 import org.eclipse.jgit.lib.AnyObjectId;
 import org.eclipse.jgit.lib.AsyncObjectLoaderQueue;
@@ -84,6 +88,7 @@
 import org.eclipse.jgit.lib.ObjectId;
 import org.eclipse.jgit.lib.ObjectLoader;
 import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.lib.ObjectReaderStatistics;
 import org.eclipse.jgit.lib.ProgressMonitor;
 import org.eclipse.jgit.util.BlockList;
 
@@ -96,6 +101,9 @@
 public class DfsReader extends ObjectReader implements ObjectReuseAsIs {
 	private static final int MAX_RESOLVE_MATCHES = 256;
 
+	/** Upper bound of an object's header in a pack, including a delta base. */
+	private static final int MAX_HEADER_SIZE = 32;
+
 	/** Temporary buffer large enough for at least one raw object id. */
 	final byte[] tempId = new byte[OBJECT_ID_LENGTH];
 
@@ -109,6 +117,7 @@ public class DfsReader extends ObjectReader implements ObjectReuseAsIs {
 	private DeltaBaseCache baseCache;
 	private DfsPackFile last;
 	private boolean avoidUnreachable;
+	private DfsPrefetcher prefetcher;
 
 	/**
 	 * Initialize a new DfsReader
@@ -125,6 +134,24 @@ DfsReaderOptions getOptions() {
 		return db.getReaderOptions();
 	}
 
+	/**
+	 * Start a new sequence of reads to load ahead of.
+	 *
+	 * @return the reader's prefetcher, emptied; {@code null} if prefetching
+	 *         is disabled.
+	 */
+	@Nullable
+	DfsPrefetcher beginPrefetch() {
+		if (getOptions().getPrefetchLimit() <= 0) {
+			return null;
+		}
+		if (prefetcher == null) {
+			prefetcher = new DfsPrefetcher(this);
+		}
+		prefetcher.reset();
+		return prefetcher;
+	}
+
 	DeltaBaseCache getDeltaBaseCache() {
 		if (baseCache == null)
 			baseCache = new DeltaBaseCache(this);
@@ -318,7 +345,7 @@ public int compare(FoundObject<?> a, FoundObject<?> b) {
 		}
 	}
 
-	private <T extends ObjectId> Iterable<FoundObject<T>> findAll(
+	private <T extends ObjectId> List<FoundObject<T>> findAll(
 			Iterable<T> objectIds) throws IOException {
 		Collection<T> pending = new LinkedList<>();
 		for (T id : objectIds) {
@@ -451,33 +478,63 @@ public void release() {
 		};
 	}
 
-	/** {@inheritDoc} */
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * Large batches are looked up in parallel if a
+	 * {@link #setBatchExecutor(Executor) batch executor} is set.
+	 */
 	@Override
 	public <T extends ObjectId> AsyncObjectSizeQueue<T> getObjectSize(
 			Iterable<T> objectIds, final boolean reportMissing) {
-		Iterable<FoundObject<T>> order;
+		List<FoundObject<T>> order;
+		long[] sizes = null;
 		IOException error = null;
 		try {
 			order = findAll(objectIds);
+			Executor executor = getBatchExecutor();
+			if (executor != null && ParallelSizeLookup
+					.isWorthSplitting(order.size(), getBatchThreads())) {
+				sizes = new ParallelSizeLookup<DfsReader, FoundObject<T>>() {
+					@Override
+					protected DfsReader newReader() {
+						return db.newReader();
+					}
+
+					@Override
+					protected long getSize(DfsReader reader,
+							FoundObject<T> obj) throws IOException {
+						if (obj.pack == null)
+							return -1;
+						return obj.pack.getObjectSize(reader, obj.offset);
+					}
+				}.getSizes(order, executor, getBatchThreads());
+			}
 		} catch (IOException e) {
 			order = Collections.emptyList();
 			error = e;
 		}
 
 		final Iterator<FoundObject<T>> idItr = order.iterator();
+		final long[] knownSizes = sizes;
 		final IOException findAllError = error;
 		return new AsyncObjectSizeQueue<T>() {
 			private FoundObject<T> cur;
+			private int idx = -1;
 			private long sz;
 
 			@Override
 			public boolean next() throws MissingObjectException, IOException {
 				if (idItr.hasNext()) {
 					cur = idItr.next();
+					idx++;
 					if (cur.pack == null)
 						throw new MissingObjectException(cur.id,
 								JGitText.get().unknownObjectType2);
-					sz = cur.pack.getObjectSize(DfsReader.this, cur.offset);
+					if (knownSizes != null)
+						sz = knownSizes[idx];
+					else
+						sz = cur.pack.getObjectSize(DfsReader.this, cur.offset);
 					return true;
 				} else if (findAllError != null) {
 					throw findAllError;
@@ -596,8 +653,19 @@ private void trySelectRepresentation(PackWriter packer,
 				continue;
 			Collections.sort(tmp, OFFSET_SORT);
 			PackReverseIndex rev = pack.getReverseIdx(this);
+			DfsPrefetcher prefetch = beginPrefetch();
+			if (prefetch != null) {
+				for (DfsObjectToPack otp : tmp) {
+					long p = otp.getOffset();
+					prefetch.add(pack, p, p + MAX_HEADER_SIZE);
+				}
+			}
 			DfsObjectRepresentation rep = new DfsObjectRepresentation(pack);
+			int i = 0;
 			for (DfsObjectToPack otp : tmp) {
+				if (prefetch != null) {
+					prefetch.advance(i++);
+				}
 				pack.representation(rep, otp.getOffset(), this, rev);
 				otp.setOffset(0);
 				packer.select(otp, rep);
@@ -679,8 +747,27 @@ public void copyObjectAsIs(PackOutputStream out, ObjectToPack otp,
 	@Override
 	public void writeObjects(PackOutputStream out, List<ObjectToPack> list)
 			throws IOException {
-		for (ObjectToPack otp : list)
+		DfsPrefetcher prefetch = beginPrefetch();
+		if (prefetch == null) {
+			for (ObjectToPack otp : list)
+				out.writeObject(otp);
+			return;
+		}
+
+		for (ObjectToPack otp : list) {
+			DfsObjectToPack src = (DfsObjectToPack) otp;
+			if (src.isReuseAsIs() && src.pack != null) {
+				prefetch.add(src.pack, src.offset,
+						src.offset + MAX_HEADER_SIZE + src.length);
+			} else {
+				prefetch.skip();
+			}
+		}
+		int i = 0;
+		for (ObjectToPack otp : list) {
+			prefetch.advance(i++);
 			out.writeObject(otp);
+		}
 	}
 
 	/** {@inheritDoc} */
@@ -760,11 +847,12 @@ int inflate(DfsPackFile pack, long position, byte[] dstbuf,
 		prepareInflater();
 		pin(pack, position);
 		position += block.setInput(position, inf);
+		long start = System.nanoTime();
 		for (int dstoff = 0;;) {
 			int n = inf.inflate(dstbuf, dstoff, dstbuf.length - dstoff);
 			dstoff += n;
 			if (inf.finished() || (headerOnly && dstoff == dstbuf.length)) {
-				stats.inflatedBytes += dstoff;
+				stats.addInflate(dstoff, elapsedMicros(start));
 				return dstoff;
 			} else if (inf.needsInput()) {
 				pin(pack, position);
@@ -818,6 +906,12 @@ public DfsReaderIoStats getIoStats() {
 		return new DfsReaderIoStats(stats);
 	}
 
+	/** {@inheritDoc} */
+	@Override
+	public ObjectReaderStatistics getStatistics() {
+		return new ObjectReaderStatistics(stats);
+	}
+
 	/**
 	 * {@inheritDoc}
 	 * <p>
@@ -826,6 +920,9 @@ public DfsReaderIoStats getIoStats() {
 	@Override
 	public void close() {
 		last = null;
+		if (prefetcher != null) {
+			prefetcher.reset();
+		}
 		block = null;
 		baseCache = null;
 		try {
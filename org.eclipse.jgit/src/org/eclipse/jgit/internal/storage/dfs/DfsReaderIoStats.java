@@ -43,12 +43,14 @@
 
 package org.eclipse.jgit.internal.storage.dfs;
 
+import org.eclipse.jgit.lib.ObjectReaderStatistics;
+
 /**
  * IO statistics for a {@link org.eclipse.jgit.internal.storage.dfs.DfsReader}.
  */
 public class DfsReaderIoStats {
 	/** POJO to accumulate IO statistics. */
-	public static class Accumulator {
+	public static class Accumulator extends ObjectReaderStatistics.Accumulator {
 		/** Number of times the reader explicitly called scanPacks. */
 		long scanPacks;
 
@@ -64,27 +66,6 @@ public static class Accumulator {
 		/** Total microseconds spent reading pack or bitmap indexes. */
 		long readIdxMicros;
 
-		/** Total number of block cache hits. */
-		long blockCacheHit;
-
-		/**
-		 * Total number of discrete blocks actually read from pack file(s), that is,
-		 * block cache misses.
-		 */
-		long readBlock;
-
-		/**
-		 * Total number of compressed bytes read during cache misses, as block sized
-		 * units.
-		 */
-		long readBlockBytes;
-
-		/** Total microseconds spent reading {@link #readBlock} blocks. */
-		long readBlockMicros;
-
-		/** Total number of bytes decompressed. */
-		long inflatedBytes;
-
 		Accumulator() {
 		}
 	}
@@ -146,7 +127,7 @@ public long getReadIndexMicros() {
 	 * @return total number of block cache hits.
 	 */
 	public long getBlockCacheHits() {
-		return stats.blockCacheHit;
+		return stats.getCacheHits();
 	}
 
 	/**
@@ -156,7 +137,7 @@ public long getBlockCacheHits() {
 	 * @return total number of discrete blocks read from pack file(s).
 	 */
 	public long getReadBlocksCount() {
-		return stats.readBlock;
+		return stats.getReadCount();
 	}
 
 	/**
@@ -166,7 +147,7 @@ public long getReadBlocksCount() {
 	 * @return total number of compressed bytes read as block sized units.
 	 */
 	public long getReadBlocksBytes() {
-		return stats.readBlockBytes;
+		return stats.getReadBytes();
 	}
 
 	/**
@@ -175,7 +156,7 @@ public long getReadBlocksBytes() {
 	 * @return total microseconds spent reading blocks.
 	 */
 	public long getReadBlocksMicros() {
-		return stats.readBlockMicros;
+		return stats.getReadMicros();
 	}
 
 	/**
@@ -184,6 +165,6 @@ public long getReadBlocksMicros() {
 	 * @return total number of bytes decompressed.
 	 */
 	public long getInflatedBytes() {
-		return stats.inflatedBytes;
+		return stats.getInflatedBytes();
 	}
 }
@@ -46,9 +46,13 @@
 import static org.eclipse.jgit.lib.ConfigConstants.CONFIG_CORE_SECTION;
 import static org.eclipse.jgit.lib.ConfigConstants.CONFIG_DFS_SECTION;
 import static org.eclipse.jgit.lib.ConfigConstants.CONFIG_KEY_DELTA_BASE_CACHE_LIMIT;
+import static org.eclipse.jgit.lib.ConfigConstants.CONFIG_KEY_PREFETCH_LIMIT;
 import static org.eclipse.jgit.lib.ConfigConstants.CONFIG_KEY_STREAM_BUFFER;
 import static org.eclipse.jgit.lib.ConfigConstants.CONFIG_KEY_STREAM_FILE_TRESHOLD;
 
+import java.util.concurrent.Executor;
+
+import org.eclipse.jgit.annotations.Nullable;
 import org.eclipse.jgit.lib.Config;
 import org.eclipse.jgit.storage.pack.PackConfig;
 
@@ -67,6 +71,10 @@ public class DfsReaderOptions {
 
 	private int streamPackBufferSize;
 
+	private int prefetchLimit;
+
+	private Executor prefetchExecutor;
+
 	/**
 	 * Create a default reader configuration.
 	 */
@@ -145,6 +153,68 @@ public DfsReaderOptions setStreamPackBufferSize(int bufsz) {
 		return this;
 	}
 
+	/**
+	 * Get the number of bytes a reader may load ahead of its position.
+	 *
+	 * @return the number of bytes a reader may load ahead of its position
+	 *         while selecting objects to reuse and copying them into a pack.
+	 *         If 0, prefetching is disabled. <b>Default is 0.</b>
+	 * @since 5.3
+	 */
+	public int getPrefetchLimit() {
+		return prefetchLimit;
+	}
+
+	/**
+	 * Set the number of bytes a reader may load ahead of its position.
+	 * <p>
+	 * When packing objects for a fetch or clone the reader knows the offsets
+	 * it is about to read. With a positive limit it loads the blocks holding
+	 * them into the block cache in the background, overlapping the round
+	 * trips to the storage system. At most this many bytes are loaded, but
+	 * not yet read, by each reader.
+	 *
+	 * @param bytes
+	 *            the limit in bytes; 0 disables prefetching.
+	 * @return {@code this}
+	 * @since 5.3
+	 */
+	public DfsReaderOptions setPrefetchLimit(int bytes) {
+		prefetchLimit = Math.max(0, bytes);
+		return this;
+	}
+
+	/**
+	 * Get the executor loading blocks ahead of readers.
+	 *
+	 * @return the executor loading blocks ahead of readers; {@code null} to
+	 *         use a shared pool of daemon threads.
+	 * @since 5.3
+	 */
+	@Nullable
+	public Executor getPrefetchExecutor() {
+		return prefetchExecutor;
+	}
+
+	/**
+	 * Set the executor loading blocks ahead of readers.
+	 * <p>
+	 * The executor should be bounded; the number of its threads limits the
+	 * number of concurrent reads issued ahead of all readers. Its queue should
+	 * be bounded too, rejecting or discarding loads it cannot run in time;
+	 * readers load such blocks on demand.
+	 *
+	 * @param executor
+	 *            the executor; {@code null} to use a shared pool of daemon
+	 *            threads.
+	 * @return {@code this}
+	 * @since 5.3
+	 */
+	public DfsReaderOptions setPrefetchExecutor(@Nullable Executor executor) {
+		prefetchExecutor = executor;
+		return this;
+	}
+
 	/**
 	 * Update properties by setting fields from the configuration.
 	 * <p>
@@ -177,6 +247,12 @@ public DfsReaderOptions fromConfig(Config rc) {
 				CONFIG_DFS_SECTION,
 				CONFIG_KEY_STREAM_BUFFER,
 				getStreamPackBufferSize()));
+
+		setPrefetchLimit(rc.getInt(
+				CONFIG_CORE_SECTION,
+				CONFIG_DFS_SECTION,
+				CONFIG_KEY_PREFETCH_LIMIT,
+				getPrefetchLimit()));
 		return this;
 	}
 }
@@ -74,6 +74,9 @@ public static DfsStreamKey of(DfsRepositoryDescription repo, String name,
 
 	final int packExtPos;
 
+	/** Extension at {@link #packExtPos}, {@link PackExt#PACK} by default. */
+	final PackExt packExt;
+
 	/**
 	 * Constructor for DfsStreamKey.
 	 *
@@ -86,7 +89,8 @@ protected DfsStreamKey(int hash, @Nullable PackExt ext) {
 		// Multiply by 31 here so we can more directly combine with another
 		// value without doing the multiply there.
 		this.hash = hash * 31;
-		this.packExtPos = ext == null ? 0 : ext.getPosition();
+		this.packExt = ext == null ? PackExt.PACK : ext;
+		this.packExtPos = packExt.getPosition();
 	}
 
 	/** {@inheritDoc} */
@@ -0,0 +1,169 @@
+/*
+ * Copyright (C) 2019, Google LLC.
+ * and other copyright owners as documented in the project's IP log.
+ *
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Distribution License v1.0 which
+ * accompanies this distribution, is reproduced below, and is
+ * available at http://www.eclipse.org/org/documents/edl-v10.php
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or
+ * without modification, are permitted provided that the following
+ * conditions are met:
+ *
+ * - Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * - Redistributions in binary form must reproduce the above
+ *   copyright notice, this list of conditions and the following
+ *   disclaimer in the documentation and/or other materials provided
+ *   with the distribution.
+ *
+ * - Neither the name of the Eclipse Foundation, Inc. nor the
+ *   names of its contributors may be used to endorse or promote
+ *   products derived from this software without specific prior
+ *   written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND
+ * CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+package org.eclipse.jgit.internal.storage.dfs;
+
+import java.lang.ref.PhantomReference;
+import java.lang.ref.ReferenceQueue;
+import java.nio.ByteBuffer;
+
+/**
+ * Fixed-size slots for {@link DfsBlock}s outside of the Java heap.
+ * <p>
+ * Slots are carved out of large direct {@link ByteBuffer} slabs, allocated
+ * lazily as the cache fills. A block evicted from the {@link DfsBlockCache}
+ * may still be pinned by a reader, so its slot is only reused after the block
+ * itself has been garbage collected. If no slot is free the cache keeps the
+ * block on the heap instead.
+ */
+final class OffHeapBlockStore {
+	/** Largest slab allocated by a single {@code allocateDirect} call. */
+	private static final int MAX_SLAB_SIZE = 1 << 30;
+
+	private final int slotSize;
+
+	private final int slotsPerSlab;
+
+	private final int maxSlots;
+
+	private final ByteBuffer[] slabs;
+
+	/** Reference per slot in use, keeping the phantom reachable. */
+	private final SlotRef[] refs;
+
+	private final ReferenceQueue<DfsBlock> released = new ReferenceQueue<>();
+
+	/** Stack of slots whose blocks have been collected; guarded by this. */
+	private final int[] free;
+
+	private int freeCnt;
+
+	/** Slots below this index have been handed out at least once. */
+	private int allocated;
+
+	private boolean exhausted;
+
+	OffHeapBlockStore(int slotSize, long limit) {
+		this.slotSize = slotSize;
+		this.maxSlots = (int) Math.min((limit + slotSize - 1) / slotSize,
+				Integer.MAX_VALUE - 8);
+		this.slotsPerSlab = Math.max(1,
+				Math.min(maxSlots, MAX_SLAB_SIZE / slotSize));
+		this.slabs = new ByteBuffer[(maxSlots + slotsPerSlab - 1)
+				/ slotsPerSlab];
+		this.refs = new SlotRef[maxSlots];
+		this.free = new int[maxSlots];
+	}
+
+	/**
+	 * Copy a heap block into a free slot.
+	 *
+	 * @param v
+	 *            block to copy.
+	 * @return the off-heap copy of {@code v}; or {@code v} itself if it does
+	 *         not fit into a slot or no slot is available.
+	 */
+	DfsBlock store(DfsBlock v) {
+		if (v.isDirect() || v.size() > slotSize) {
+			return v;
+		}
+		int slot = allocateSlot();
+		if (slot < 0) {
+			return v;
+		}
+
+		ByteBuffer buf = slabs[slot / slotsPerSlab].duplicate();
+		int p = (slot % slotsPerSlab) * slotSize;
+		buf.limit(p + v.size());
+		buf.position(p);
+		buf = buf.slice();
+		v.copyTo(buf);
+		buf.flip();
+
+		DfsBlock b = new DfsBlock(v.stream, v.start, buf);
+		synchronized (this) {
+			refs[slot] = new SlotRef(b, released, slot);
+		}
+		return b;
+	}
+
+	private synchronized int allocateSlot() {
+		SlotRef r;
+		while ((r = (SlotRef) released.poll()) != null) {
+			refs[r.slot] = null;
+			free[freeCnt++] = r.slot;
+		}
+		if (freeCnt > 0) {
+			return free[--freeCnt];
+		}
+		if (allocated == maxSlots || exhausted) {
+			return -1;
+		}
+
+		int slot = allocated;
+		int s = slot / slotsPerSlab;
+		if (slabs[s] == null) {
+			int n = Math.min(slotsPerSlab, maxSlots - s * slotsPerSlab);
+			try {
+				slabs[s] = ByteBuffer.allocateDirect(n * slotSize);
+			} catch (OutOfMemoryError noDirectMemory) {
+				// -XX:MaxDirectMemorySize is smaller than the cache. Keep
+				// the remaining blocks on the heap.
+				exhausted = true;
+				return -1;
+			}
+		}
+		allocated++;
+		return slot;
+	}
+
+	private static final class SlotRef extends PhantomReference<DfsBlock> {
+		final int slot;
+
+		SlotRef(DfsBlock b, ReferenceQueue<DfsBlock> q, int slot) {
+			super(b, q);
+			this.slot = slot;
+		}
+	}
+}
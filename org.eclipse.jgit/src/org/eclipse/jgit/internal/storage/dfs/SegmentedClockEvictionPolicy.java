@@ -0,0 +1,203 @@
+/*
+ * Copyright (C) 2019, Google LLC.
+ * and other copyright owners as documented in the project's IP log.
+ *
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Distribution License v1.0 which
+ * accompanies this distribution, is reproduced below, and is
+ * available at http://www.eclipse.org/org/documents/edl-v10.php
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or
+ * without modification, are permitted provided that the following
+ * conditions are met:
+ *
+ * - Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * - Redistributions in binary form must reproduce the above
+ *   copyright notice, this list of conditions and the following
+ *   disclaimer in the documentation and/or other materials provided
+ *   with the distribution.
+ *
+ * - Neither the name of the Eclipse Foundation, Inc. nor the
+ *   names of its contributors may be used to endorse or promote
+ *   products derived from this software without specific prior
+ *   written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND
+ * CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+package org.eclipse.jgit.internal.storage.dfs;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.eclipse.jgit.internal.storage.pack.PackExt;
+
+/**
+ * Clock replacement split over independently locked segments.
+ * <p>
+ * Entries are spread randomly over the segments. An evicting thread sweeps
+ * the first segment it can lock without waiting, so concurrent evictions
+ * rarely contend. Within a segment, an entry read since the hand last passed
+ * is given {@link DfsBlockCacheConfig#getRetentionWeight(PackExt)} further
+ * passes before it can be evicted, letting index-like data outlive a scan
+ * over pack data.
+ */
+final class SegmentedClockEvictionPolicy
+		implements DfsBlockCacheEvictionPolicy {
+	private static final int MAX_SEGMENTS = 64;
+
+	private final Segment[] segments;
+
+	/** Retention weight by {@link PackExt#getPosition()}. */
+	private final int[] weights;
+
+	private final int maxWeight;
+
+	SegmentedClockEvictionPolicy(DfsBlockCacheConfig cfg) {
+		int n = Math.max(1, Math.min(cfg.getConcurrencyLevel(), MAX_SEGMENTS));
+		segments = new Segment[n];
+		for (int i = 0; i < n; i++) {
+			segments[i] = new Segment();
+		}
+
+		weights = new int[32];
+		int max = 0;
+		for (PackExt ext : PackExt.values()) {
+			int w = cfg.getRetentionWeight(ext);
+			weights[ext.getPosition()] = w;
+			max = Math.max(max, w);
+		}
+		maxWeight = max;
+	}
+
+	@Override
+	public void add(Entry e) {
+		Node n = new Node(e);
+		Segment s = segments[ThreadLocalRandom.current()
+				.nextInt(segments.length)];
+		s.lock.lock();
+		try {
+			s.add(n);
+		} finally {
+			s.lock.unlock();
+		}
+	}
+
+	@Override
+	public Entry evict() {
+		int start = ThreadLocalRandom.current().nextInt(segments.length);
+		for (int i = 0; i < segments.length; i++) {
+			Segment s = segments[(start + i) % segments.length];
+			if (s.lock.tryLock()) {
+				try {
+					Entry e = s.evict();
+					if (e != null) {
+						return e;
+					}
+				} finally {
+					s.lock.unlock();
+				}
+			}
+		}
+		for (int i = 0; i < segments.length; i++) {
+			Segment s = segments[(start + i) % segments.length];
+			s.lock.lock();
+			try {
+				Entry e = s.evict();
+				if (e != null) {
+					return e;
+				}
+			} finally {
+				s.lock.unlock();
+			}
+		}
+		return null;
+	}
+
+	private int weight(Entry e) {
+		return weights[e.getPackExt().getPosition()];
+	}
+
+	private static final class Node {
+		final Entry entry;
+
+		Node next;
+
+		/** Remaining passes of the hand this node survives unread. */
+		int credits;
+
+		Node(Entry entry) {
+			this.entry = entry;
+		}
+	}
+
+	private final class Segment {
+		final ReentrantLock lock = new ReentrantLock();
+
+		/** Most recently added or swept node; null if empty. */
+		private Node hand;
+
+		private int size;
+
+		void add(Node n) {
+			if (hand == null) {
+				n.next = n;
+			} else {
+				n.next = hand.next;
+				hand.next = n;
+			}
+			hand = n;
+			size++;
+		}
+
+		Entry evict() {
+			if (hand == null) {
+				return null;
+			}
+
+			// Readers may keep marking entries as accessed while the hand
+			// moves; bound the sweep so that eviction always terminates.
+			long budget = (long) size * (maxWeight + 2);
+			Node prev = hand;
+			Node h = hand.next;
+			for (; budget > 0; budget--) {
+				if (h.entry.clearAccessed()) {
+					h.credits = weight(h.entry);
+				} else if (h.credits > 0) {
+					h.credits--;
+				} else {
+					break;
+				}
+				prev = h;
+				h = h.next;
+			}
+
+			if (h == prev) {
+				hand = null;
+			} else {
+				prev.next = h.next;
+				hand = prev;
+			}
+			h.next = null;
+			size--;
+			return h.entry;
+		}
+	}
+}
@@ -112,6 +112,12 @@ int findPosition(AnyObjectId objectId) {
 		return position;
 	}
 
+	ObjectId getObject(int position) {
+		if (position < indexObjectCount)
+			return packIndex.getObject(position);
+		return mutableIndex.getObject(position - indexObjectCount);
+	}
+
 	int findOrInsert(AnyObjectId objectId, int type) {
 		int position = findPosition(objectId);
 		if (position < 0) {
@@ -265,6 +271,21 @@ public int cardinality() {
 			return bitset.combine().cardinality();
 		}
 
+		@Override
+		public int cardinality(int type) {
+			// Objects in the pack are counted with the type bitmaps of the
+			// index; only objects added since have to be looked at.
+			int count = bitmapIndex.packIndex
+					.ofObjectType(bitset.combine(), type).cardinality();
+			for (MutableEntry entry : bitmapIndex.mutableIndex.revList) {
+				if (entry.type == type && bitset.contains(
+						bitmapIndex.indexObjectCount + entry.position)) {
+					count++;
+				}
+			}
+			return count;
+		}
+
 		@Override
 		public boolean removeAllOrNone(PackBitmapIndex index) {
 			if (!bitmapIndex.packIndex.equals(index))
@@ -84,7 +84,6 @@ void crc32(CRC32 out, long pos, int cnt) {
 		out.update(array, (int) (pos - start), cnt);
 	}
 
-	@Override
 	void write(PackOutputStream out, long pos, int cnt)
 			throws IOException {
 		int ptr = (int) (pos - start);
@@ -45,13 +45,10 @@
 
 package org.eclipse.jgit.internal.storage.file;
 
-import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.util.zip.DataFormatException;
 import java.util.zip.Inflater;
 
-import org.eclipse.jgit.internal.storage.pack.PackOutputStream;
-
 /**
  * A window for accessing git packs using a {@link ByteBuffer} for storage.
  *
@@ -75,21 +72,6 @@ protected int copy(int p, byte[] b, int o, int n) {
 		return n;
 	}
 
-	@Override
-	void write(PackOutputStream out, long pos, int cnt)
-			throws IOException {
-		final ByteBuffer s = buffer.slice();
-		s.position((int) (pos - start));
-
-		while (0 < cnt) {
-			byte[] buf = out.getCopyBuffer();
-			int n = Math.min(cnt, buf.length);
-			s.get(buf, 0, n);
-			out.write(buf, 0, n);
-			cnt -= n;
-		}
-	}
-
 	/** {@inheritDoc} */
 	@Override
 	protected int setInput(int pos, Inflater inf)
@@ -44,12 +44,9 @@
 
 package org.eclipse.jgit.internal.storage.file;
 
-import java.io.IOException;
 import java.util.zip.DataFormatException;
 import java.util.zip.Inflater;
 
-import org.eclipse.jgit.internal.storage.pack.PackOutputStream;
-
 /**
  * A window of data currently stored within a cache.
  * <p>
@@ -130,9 +127,6 @@ final int copy(long pos, byte[] dstbuf, int dstoff, int cnt) {
 	 */
 	protected abstract int copy(int pos, byte[] dstbuf, int dstoff, int cnt);
 
-	abstract void write(PackOutputStream out, long pos, int cnt)
-			throws IOException;
-
 	final int setInput(long pos, Inflater inf) throws DataFormatException {
 		return setInput((int) (pos - start), inf);
 	}
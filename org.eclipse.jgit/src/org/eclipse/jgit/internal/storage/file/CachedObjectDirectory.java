@@ -55,6 +55,7 @@
 import org.eclipse.jgit.internal.storage.pack.PackWriter;
 import org.eclipse.jgit.lib.AbbreviatedObjectId;
 import org.eclipse.jgit.lib.AnyObjectId;
+import org.eclipse.jgit.lib.CommitGraph;
 import org.eclipse.jgit.lib.Config;
 import org.eclipse.jgit.lib.Constants;
 import org.eclipse.jgit.lib.ObjectDatabase;
@@ -154,6 +155,11 @@ Set<ObjectId> getShallowCommits() throws IOException {
 		return wrapped.getShallowCommits();
 	}
 
+	@Override
+	CommitGraph getCommitGraph() {
+		return wrapped.getCommitGraph();
+	}
+
 	private CachedObjectDirectory[] myAlternates() {
 		if (alts == null) {
 			ObjectDirectory.AlternateHandle[] src = wrapped.myAlternates();
@@ -233,6 +239,14 @@ private ObjectLoader openObject(final WindowCursor curs,
 		return null;
 	}
 
+	@Override
+	boolean findPackedObject(WindowCursor.FoundObject<?> obj) {
+		if (unpackedObjects.contains(obj.id)) {
+			return false;
+		}
+		return wrapped.findPackedObject(obj);
+	}
+
 	@Override
 	long getObjectSize(WindowCursor curs, AnyObjectId objectId)
 			throws IOException {
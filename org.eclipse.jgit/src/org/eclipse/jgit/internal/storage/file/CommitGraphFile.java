@@ -0,0 +1,337 @@
+/*
+ * Copyright (C) 2019, Google LLC.
+ * and other copyright owners as documented in the project's IP log.
+ *
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Distribution License v1.0 which
+ * accompanies this distribution, is reproduced below, and is
+ * available at http://www.eclipse.org/org/documents/edl-v10.php
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or
+ * without modification, are permitted provided that the following
+ * conditions are met:
+ *
+ * - Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * - Redistributions in binary form must reproduce the above
+ *   copyright notice, this list of conditions and the following
+ *   disclaimer in the documentation and/or other materials provided
+ *   with the distribution.
+ *
+ * - Neither the name of the Eclipse Foundation, Inc. nor the
+ *   names of its contributors may be used to endorse or promote
+ *   products derived from this software without specific prior
+ *   written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND
+ * CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+package org.eclipse.jgit.internal.storage.file;
+
+import static java.nio.charset.StandardCharsets.US_ASCII;
+import static org.eclipse.jgit.lib.Constants.OBJECT_ID_LENGTH;
+
+import java.io.File;
+import java.io.IOException;
+import java.text.MessageFormat;
+
+import org.eclipse.jgit.internal.JGitText;
+import org.eclipse.jgit.lib.AnyObjectId;
+import org.eclipse.jgit.lib.CommitGraph;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.util.IO;
+import org.eclipse.jgit.util.IntList;
+import org.eclipse.jgit.util.NB;
+
+/**
+ * Support for the Git commit-graph file format, version 1.
+ * <p>
+ * The file is loaded into memory as a single array. Commit ids are searched
+ * in place and commit data is decoded on demand, so opening a graph costs no
+ * more than reading the file.
+ */
+class CommitGraphFile implements CommitGraph {
+	/** Signature at the start of every commit-graph file, {@code "CGPH"}. */
+	static final int SIGNATURE = 0x43475048;
+
+	static final byte VERSION = 1;
+
+	static final byte HASH_VERSION_SHA1 = 1;
+
+	static final int HEADER_LENGTH = 8;
+
+	static final int CHUNK_LOOKUP_WIDTH = 12;
+
+	/** Chunk holding the 256 entry fan-out of the commit ids. */
+	static final int CHUNK_ID_OID_FANOUT = 0x4f494446;
+
+	/** Chunk holding the sorted commit ids. */
+	static final int CHUNK_ID_OID_LOOKUP = 0x4f49444c;
+
+	/** Chunk holding tree, parents, generation and time of each commit. */
+	static final int CHUNK_ID_COMMIT_DATA = 0x43444154;
+
+	/** Chunk holding the parents of octopus merges beyond the first. */
+	static final int CHUNK_ID_EXTRA_EDGE_LIST = 0x45444745;
+
+	static final int FANOUT = 256;
+
+	/** Length of the fixed width data following the tree in CDAT. */
+	static final int COMMIT_DATA_EXTRA_LENGTH = 16;
+
+	static final int COMMIT_DATA_WIDTH = OBJECT_ID_LENGTH
+			+ COMMIT_DATA_EXTRA_LENGTH;
+
+	static final int GRAPH_PARENT_NONE = 0x70000000;
+
+	static final int GRAPH_EXTRA_EDGES_NEEDED = 0x80000000;
+
+	static final int GRAPH_LAST_EDGE = 0x80000000;
+
+	static final int GRAPH_EDGE_MASK = 0x7fffffff;
+
+	private static final int[] NO_PARENTS = {};
+
+	/**
+	 * Open an existing commit-graph file for reading.
+	 *
+	 * @param graphFile
+	 *            the commit-graph file.
+	 * @return the commit-graph.
+	 * @throws IOException
+	 *             the file cannot be read, or is not a valid commit-graph.
+	 */
+	static CommitGraphFile open(File graphFile) throws IOException {
+		if (graphFile.length() > Integer.MAX_VALUE - 8) {
+			throw new IOException(
+					JGitText.get().commitGraphFileIsTooLargeForJgit);
+		}
+		return new CommitGraphFile(IO.readFully(graphFile));
+	}
+
+	private final byte[] data;
+
+	private final int commitCnt;
+
+	private int oidFanout = -1;
+
+	private int oidLookup = -1;
+
+	private int commitData = -1;
+
+	private int extraEdgeList = -1;
+
+	CommitGraphFile(byte[] data) throws IOException {
+		this.data = data;
+		if (data.length < HEADER_LENGTH + OBJECT_ID_LENGTH
+				|| NB.decodeInt32(data, 0) != SIGNATURE) {
+			throw new IOException(JGitText.get().notACommitGraph);
+		}
+		if (data[4] != VERSION) {
+			throw new IOException(MessageFormat.format(
+					JGitText.get().unsupportedCommitGraphVersion,
+					Integer.valueOf(data[4])));
+		}
+		if (data[5] != HASH_VERSION_SHA1) {
+			throw new IOException(MessageFormat.format(
+					JGitText.get().unsupportedCommitGraphHashVersion,
+					Integer.valueOf(data[5])));
+		}
+
+		int numChunks = data[6] & 0xff;
+		int end = data.length - OBJECT_ID_LENGTH;
+		if (HEADER_LENGTH + (numChunks + 1) * CHUNK_LOOKUP_WIDTH > end) {
+			throw new IOException(JGitText.get().notACommitGraph);
+		}
+		for (int i = 0; i < numChunks; i++) {
+			int p = HEADER_LENGTH + i * CHUNK_LOOKUP_WIDTH;
+			int id = NB.decodeInt32(data, p);
+			long offset = NB.decodeInt64(data, p + 4);
+			if (offset < 0 || offset > end) {
+				throw new IOException(JGitText.get().notACommitGraph);
+			}
+			switch (id) {
+			case CHUNK_ID_OID_FANOUT:
+				oidFanout = (int) offset;
+				break;
+			case CHUNK_ID_OID_LOOKUP:
+				oidLookup = (int) offset;
+				break;
+			case CHUNK_ID_COMMIT_DATA:
+				commitData = (int) offset;
+				break;
+			case CHUNK_ID_EXTRA_EDGE_LIST:
+				extraEdgeList = (int) offset;
+				break;
+			default:
+				// Chunks added by later versions of the format are optional
+				// and can be ignored by this reader.
+				break;
+			}
+		}
+
+		requireChunk(oidFanout, CHUNK_ID_OID_FANOUT);
+		requireChunk(oidLookup, CHUNK_ID_OID_LOOKUP);
+		requireChunk(commitData, CHUNK_ID_COMMIT_DATA);
+
+		if (oidFanout + FANOUT * 4 > end) {
+			throw new IOException(JGitText.get().notACommitGraph);
+		}
+		long cnt = NB.decodeUInt32(data, oidFanout + (FANOUT - 1) * 4);
+		if (oidLookup + cnt * OBJECT_ID_LENGTH > end
+				|| commitData + cnt * COMMIT_DATA_WIDTH > end) {
+			throw new IOException(JGitText.get().notACommitGraph);
+		}
+		commitCnt = (int) cnt;
+	}
+
+	private static void requireChunk(int offset, int id) throws IOException {
+		if (offset < 0) {
+			throw new IOException(MessageFormat.format(
+					JGitText.get().commitGraphChunkMissing, chunkName(id)));
+		}
+	}
+
+	private static String chunkName(int id) {
+		byte[] name = new byte[4];
+		NB.encodeInt32(name, 0, id);
+		return new String(name, US_ASCII);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public int findGraphPosition(AnyObjectId commit) {
+		int levelOne = commit.getFirstByte();
+		int low = levelOne == 0 ? 0 : fanout(levelOne - 1);
+		int high = fanout(levelOne);
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			int cmp = commit.compareTo(data, oidLookup + mid * OBJECT_ID_LENGTH);
+			if (cmp < 0) {
+				high = mid;
+			} else if (cmp == 0) {
+				return mid;
+			} else {
+				low = mid + 1;
+			}
+		}
+		return -1;
+	}
+
+	private int fanout(int levelOne) {
+		return NB.decodeInt32(data, oidFanout + levelOne * 4);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public ObjectId getObjectId(int graphPos) {
+		return ObjectId.fromRaw(data, oidLookup + graphPos * OBJECT_ID_LENGTH);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public CommitData getCommitData(int graphPos) {
+		int p = commitData + graphPos * COMMIT_DATA_WIDTH;
+		ObjectId tree = ObjectId.fromRaw(data, p);
+		p += OBJECT_ID_LENGTH;
+
+		int parent1 = NB.decodeInt32(data, p);
+		int parent2 = NB.decodeInt32(data, p + 4);
+		int[] parents;
+		if (parent1 == GRAPH_PARENT_NONE) {
+			parents = NO_PARENTS;
+		} else if (parent2 == GRAPH_PARENT_NONE) {
+			parents = new int[] { parent1 };
+		} else if ((parent2 & GRAPH_EXTRA_EDGES_NEEDED) == 0) {
+			parents = new int[] { parent1, parent2 };
+		} else {
+			parents = readExtraEdges(parent1, parent2 & GRAPH_EDGE_MASK);
+		}
+
+		int genAndTime = NB.decodeInt32(data, p + 8);
+		long time = ((genAndTime & 0x3L) << 32) | NB.decodeUInt32(data, p + 12);
+		return new GraphCommitData(tree, parents, time, genAndTime >>> 2);
+	}
+
+	private int[] readExtraEdges(int parent1, int edge) {
+		if (extraEdgeList < 0) {
+			throw new IllegalStateException(MessageFormat.format(
+					JGitText.get().commitGraphChunkMissing,
+					chunkName(CHUNK_ID_EXTRA_EDGE_LIST)));
+		}
+		IntList parents = new IntList(4);
+		parents.add(parent1);
+		for (int p = extraEdgeList + edge * 4;; p += 4) {
+			int e = NB.decodeInt32(data, p);
+			parents.add(e & GRAPH_EDGE_MASK);
+			if ((e & GRAPH_LAST_EDGE) != 0) {
+				break;
+			}
+		}
+		int[] r = new int[parents.size()];
+		for (int i = 0; i < r.length; i++) {
+			r[i] = parents.get(i);
+		}
+		return r;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public long getCommitCnt() {
+		return commitCnt;
+	}
+
+	private static final class GraphCommitData implements CommitData {
+		private final ObjectId tree;
+
+		private final int[] parents;
+
+		private final long commitTime;
+
+		private final int generation;
+
+		GraphCommitData(ObjectId tree, int[] parents, long commitTime,
+				int generation) {
+			this.tree = tree;
+			this.parents = parents;
+			this.commitTime = commitTime;
+			this.generation = generation;
+		}
+
+		@Override
+		public ObjectId getTree() {
+			return tree;
+		}
+
+		@Override
+		public int[] getParents() {
+			return parents;
+		}
+
+		@Override
+		public long getCommitTime() {
+			return commitTime;
+		}
+
+		@Override
+		public int getGeneration() {
+			return generation;
+		}
+	}
+}
@@ -0,0 +1,337 @@
+/*
+ * Copyright (C) 2019, Google LLC.
+ * and other copyright owners as documented in the project's IP log.
+ *
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Distribution License v1.0 which
+ * accompanies this distribution, is reproduced below, and is
+ * available at http://www.eclipse.org/org/documents/edl-v10.php
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or
+ * without modification, are permitted provided that the following
+ * conditions are met:
+ *
+ * - Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * - Redistributions in binary form must reproduce the above
+ *   copyright notice, this list of conditions and the following
+ *   disclaimer in the documentation and/or other materials provided
+ *   with the distribution.
+ *
+ * - Neither the name of the Eclipse Foundation, Inc. nor the
+ *   names of its contributors may be used to endorse or promote
+ *   products derived from this software without specific prior
+ *   written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND
+ * CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+package org.eclipse.jgit.internal.storage.file;
+
+import static org.eclipse.jgit.internal.storage.file.CommitGraphFile.CHUNK_ID_COMMIT_DATA;
+import static org.eclipse.jgit.internal.storage.file.CommitGraphFile.CHUNK_ID_EXTRA_EDGE_LIST;
+import static org.eclipse.jgit.internal.storage.file.CommitGraphFile.CHUNK_ID_OID_FANOUT;
+import static org.eclipse.jgit.internal.storage.file.CommitGraphFile.CHUNK_ID_OID_LOOKUP;
+import static org.eclipse.jgit.internal.storage.file.CommitGraphFile.CHUNK_LOOKUP_WIDTH;
+import static org.eclipse.jgit.internal.storage.file.CommitGraphFile.COMMIT_DATA_WIDTH;
+import static org.eclipse.jgit.internal.storage.file.CommitGraphFile.FANOUT;
+import static org.eclipse.jgit.internal.storage.file.CommitGraphFile.GRAPH_EXTRA_EDGES_NEEDED;
+import static org.eclipse.jgit.internal.storage.file.CommitGraphFile.GRAPH_LAST_EDGE;
+import static org.eclipse.jgit.internal.storage.file.CommitGraphFile.GRAPH_PARENT_NONE;
+import static org.eclipse.jgit.internal.storage.file.CommitGraphFile.HASH_VERSION_SHA1;
+import static org.eclipse.jgit.internal.storage.file.CommitGraphFile.HEADER_LENGTH;
+import static org.eclipse.jgit.internal.storage.file.CommitGraphFile.SIGNATURE;
+import static org.eclipse.jgit.internal.storage.file.CommitGraphFile.VERSION;
+import static org.eclipse.jgit.lib.Constants.OBJECT_ID_LENGTH;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.security.DigestOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+import org.eclipse.jgit.internal.JGitText;
+import org.eclipse.jgit.lib.AnyObjectId;
+import org.eclipse.jgit.lib.CommitGraph;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.lib.ProgressMonitor;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevObject;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.util.NB;
+
+/**
+ * Writes a commit-graph file covering all commits reachable from a set of
+ * tips.
+ *
+ * @see CommitGraphFile
+ */
+class CommitGraphWriter {
+	private final ObjectReader reader;
+
+	private RevCommit[] commits;
+
+	private int[] generations;
+
+	private int extraEdgeCnt;
+
+	/**
+	 * Create a writer reading commits through the given reader.
+	 *
+	 * @param reader
+	 *            reader used to parse the commits. The reader is not closed
+	 *            by this writer.
+	 */
+	CommitGraphWriter(ObjectReader reader) {
+		this.reader = reader;
+	}
+
+	/**
+	 * Write the commit-graph of all commits reachable from {@code tips}.
+	 * <p>
+	 * After writing the stream is flushed but remains open. Callers are
+	 * always responsible for closing the output stream.
+	 *
+	 * @param pm
+	 *            progress monitor receiving one update per commit.
+	 * @param dst
+	 *            stream to write the commit-graph to.
+	 * @param tips
+	 *            objects to start the walk from. Annotated tags are peeled,
+	 *            trees and blobs are ignored.
+	 * @return number of commits written to the commit-graph.
+	 * @throws IOException
+	 *             the commits cannot be read, or the stream cannot be written.
+	 */
+	int write(ProgressMonitor pm, OutputStream dst,
+			Collection<? extends AnyObjectId> tips) throws IOException {
+		pm.beginTask(JGitText.get().writingCommitGraph,
+				ProgressMonitor.UNKNOWN);
+		try {
+			collectCommits(pm, tips);
+			computeGenerations();
+
+			DigestOutputStream out = new DigestOutputStream(
+					dst instanceof BufferedOutputStream ? dst
+							: new BufferedOutputStream(dst),
+					Constants.newMessageDigest());
+			writeHeaderAndChunkLookup(out);
+			writeOidFanout(out);
+			writeOidLookup(out);
+			writeCommitData(out);
+			writeExtraEdges(out);
+
+			out.on(false);
+			out.write(out.getMessageDigest().digest());
+			out.flush();
+			return commits.length;
+		} finally {
+			pm.endTask();
+		}
+	}
+
+	private void collectCommits(ProgressMonitor pm,
+			Collection<? extends AnyObjectId> tips) throws IOException {
+		List<RevCommit> list = new ArrayList<>();
+		try (RevWalk rw = new RevWalk(reader)) {
+			rw.setRetainBody(false);
+			for (AnyObjectId tip : tips) {
+				RevObject o = rw.peel(rw.parseAny(tip));
+				if (o instanceof RevCommit) {
+					rw.markStart((RevCommit) o);
+				}
+			}
+			RevCommit c;
+			while ((c = rw.next()) != null) {
+				list.add(c);
+				pm.update(1);
+			}
+		}
+		commits = list.toArray(new RevCommit[0]);
+		Arrays.sort(commits);
+	}
+
+	private int position(AnyObjectId id) {
+		return Arrays.binarySearch(commits, id);
+	}
+
+	private void computeGenerations() {
+		generations = new int[commits.length];
+		extraEdgeCnt = 0;
+		int[] stack = new int[32];
+		for (int i = 0; i < commits.length; i++) {
+			int parentCnt = commits[i].getParentCount();
+			if (parentCnt > 2) {
+				extraEdgeCnt += parentCnt - 1;
+			}
+			if (generations[i] != 0) {
+				continue;
+			}
+
+			// Compute generations depth first without recursion, a parent
+			// chain may be millions of commits long.
+			int top = 0;
+			stack[top++] = i;
+			while (top > 0) {
+				int cur = stack[top - 1];
+				if (generations[cur] != 0) {
+					top--;
+					continue;
+				}
+				int max = 0;
+				boolean ready = true;
+				for (RevCommit p : commits[cur].getParents()) {
+					int pos = position(p);
+					int g = generations[pos];
+					if (g == 0) {
+						if (top == stack.length) {
+							stack = Arrays.copyOf(stack, stack.length * 2);
+						}
+						stack[top++] = pos;
+						ready = false;
+					} else if (g > max) {
+						max = g;
+					}
+				}
+				if (ready) {
+					generations[cur] = Math.min(max + 1,
+							CommitGraph.GENERATION_NUMBER_MAX);
+					top--;
+				}
+			}
+		}
+	}
+
+	private void writeHeaderAndChunkLookup(OutputStream out)
+			throws IOException {
+		int[] ids;
+		long[] lengths;
+		long n = commits.length;
+		if (extraEdgeCnt > 0) {
+			ids = new int[] { CHUNK_ID_OID_FANOUT, CHUNK_ID_OID_LOOKUP,
+					CHUNK_ID_COMMIT_DATA, CHUNK_ID_EXTRA_EDGE_LIST };
+			lengths = new long[] { FANOUT * 4, n * OBJECT_ID_LENGTH,
+					n * COMMIT_DATA_WIDTH, extraEdgeCnt * 4L };
+		} else {
+			ids = new int[] { CHUNK_ID_OID_FANOUT, CHUNK_ID_OID_LOOKUP,
+					CHUNK_ID_COMMIT_DATA };
+			lengths = new long[] { FANOUT * 4, n * OBJECT_ID_LENGTH,
+					n * COMMIT_DATA_WIDTH };
+		}
+
+		byte[] hdr = new byte[HEADER_LENGTH
+				+ (ids.length + 1) * CHUNK_LOOKUP_WIDTH];
+		NB.encodeInt32(hdr, 0, SIGNATURE);
+		hdr[4] = VERSION;
+		hdr[5] = HASH_VERSION_SHA1;
+		hdr[6] = (byte) ids.length;
+		hdr[7] = 0; // number of base commit-graphs
+
+		long offset = hdr.length;
+		int p = HEADER_LENGTH;
+		for (int i = 0; i < ids.length; i++) {
+			NB.encodeInt32(hdr, p, ids[i]);
+			NB.encodeInt64(hdr, p + 4, offset);
+			offset += lengths[i];
+			p += CHUNK_LOOKUP_WIDTH;
+		}
+		// Terminating entry recording where the last chunk ends.
+		NB.encodeInt32(hdr, p, 0);
+		NB.encodeInt64(hdr, p + 4, offset);
+		out.write(hdr);
+	}
+
+	private void writeOidFanout(OutputStream out) throws IOException {
+		int[] fanout = new int[FANOUT];
+		for (RevCommit c : commits) {
+			fanout[c.getFirstByte() & 0xff]++;
+		}
+		byte[] tmp = new byte[4];
+		int cnt = 0;
+		for (int i = 0; i < FANOUT; i++) {
+			cnt += fanout[i];
+			NB.encodeInt32(tmp, 0, cnt);
+			out.write(tmp, 0, 4);
+		}
+	}
+
+	private void writeOidLookup(OutputStream out) throws IOException {
+		byte[] tmp = new byte[OBJECT_ID_LENGTH];
+		for (RevCommit c : commits) {
+			c.copyRawTo(tmp, 0);
+			out.write(tmp);
+		}
+	}
+
+	private void writeCommitData(OutputStream out) throws IOException {
+		byte[] tmp = new byte[COMMIT_DATA_WIDTH];
+		int edge = 0;
+		for (int i = 0; i < commits.length; i++) {
+			RevCommit c = commits[i];
+			c.getTree().copyRawTo(tmp, 0);
+
+			int p = OBJECT_ID_LENGTH;
+			int parentCnt = c.getParentCount();
+			int parent1 = parentCnt > 0 ? position(c.getParent(0))
+					: GRAPH_PARENT_NONE;
+			int parent2;
+			if (parentCnt < 2) {
+				parent2 = GRAPH_PARENT_NONE;
+			} else if (parentCnt == 2) {
+				parent2 = position(c.getParent(1));
+			} else {
+				parent2 = GRAPH_EXTRA_EDGES_NEEDED | edge;
+				edge += parentCnt - 1;
+			}
+			NB.encodeInt32(tmp, p, parent1);
+			NB.encodeInt32(tmp, p + 4, parent2);
+
+			long time = c.getCommitTime() & 0x3FFFFFFFFL;
+			NB.encodeInt32(tmp, p + 8,
+					(generations[i] << 2) | (int) (time >>> 32));
+			NB.encodeInt32(tmp, p + 12, (int) time);
+			out.write(tmp);
+		}
+	}
+
+	private void writeExtraEdges(OutputStream out) throws IOException {
+		if (extraEdgeCnt == 0) {
+			return;
+		}
+		byte[] tmp = new byte[4];
+		for (RevCommit c : commits) {
+			int parentCnt = c.getParentCount();
+			if (parentCnt <= 2) {
+				continue;
+			}
+			for (int j = 1; j < parentCnt; j++) {
+				int e = position(c.getParent(j));
+				if (j == parentCnt - 1) {
+					e |= GRAPH_LAST_EDGE;
+				}
+				NB.encodeInt32(tmp, 0, e);
+				out.write(tmp, 0, 4);
+			}
+		}
+	}
+}
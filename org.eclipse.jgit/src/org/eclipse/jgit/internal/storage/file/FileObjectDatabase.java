@@ -52,6 +52,7 @@
 import org.eclipse.jgit.internal.storage.pack.PackWriter;
 import org.eclipse.jgit.lib.AbbreviatedObjectId;
 import org.eclipse.jgit.lib.AnyObjectId;
+import org.eclipse.jgit.lib.CommitGraph;
 import org.eclipse.jgit.lib.Config;
 import org.eclipse.jgit.lib.ObjectDatabase;
 import org.eclipse.jgit.lib.ObjectId;
@@ -85,6 +86,8 @@ abstract void resolve(Set<ObjectId> matches, AbbreviatedObjectId id)
 
 	abstract Set<ObjectId> getShallowCommits() throws IOException;
 
+	abstract CommitGraph getCommitGraph();
+
 	abstract void selectObjectRepresentation(PackWriter packer,
 			ObjectToPack otp, WindowCursor curs) throws IOException;
 
@@ -98,6 +101,16 @@ abstract ObjectLoader openObject(WindowCursor curs, AnyObjectId objectId)
 	abstract long getObjectSize(WindowCursor curs, AnyObjectId objectId)
 			throws IOException;
 
+	/**
+	 * Locate a packed object without reading the pack.
+	 *
+	 * @param obj
+	 *            the object to locate; receives its pack and offset.
+	 * @return true if the object was found in a pack; false if it is loose,
+	 *         missing, or its pack could not be searched.
+	 */
+	abstract boolean findPackedObject(WindowCursor.FoundObject<?> obj);
+
 	abstract ObjectLoader openLooseObject(WindowCursor curs, AnyObjectId id)
 			throws IOException;
 
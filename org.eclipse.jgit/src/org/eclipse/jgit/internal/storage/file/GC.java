@@ -71,6 +71,7 @@
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
@@ -88,17 +89,21 @@
 import org.eclipse.jgit.errors.CancelledException;
 import org.eclipse.jgit.errors.CorruptObjectException;
 import org.eclipse.jgit.errors.IncorrectObjectTypeException;
+import org.eclipse.jgit.errors.LockFailedException;
 import org.eclipse.jgit.errors.MissingObjectException;
 import org.eclipse.jgit.errors.NoWorkTreeException;
 import org.eclipse.jgit.internal.JGitText;
+import org.eclipse.jgit.internal.storage.file.BitmapIndexImpl.CompressedBitmap;
 import org.eclipse.jgit.internal.storage.pack.PackExt;
 import org.eclipse.jgit.internal.storage.pack.PackWriter;
 import org.eclipse.jgit.internal.storage.reftree.RefTreeNames;
+import org.eclipse.jgit.lib.BitmapIndex.BitmapBuilder;
 import org.eclipse.jgit.lib.ConfigConstants;
 import org.eclipse.jgit.lib.Constants;
 import org.eclipse.jgit.lib.FileMode;
 import org.eclipse.jgit.lib.NullProgressMonitor;
 import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectIdHashSet;
 import org.eclipse.jgit.lib.ObjectIdSet;
 import org.eclipse.jgit.lib.ObjectLoader;
 import org.eclipse.jgit.lib.ObjectReader;
@@ -109,6 +114,7 @@
 import org.eclipse.jgit.lib.ReflogEntry;
 import org.eclipse.jgit.lib.ReflogReader;
 import org.eclipse.jgit.lib.internal.WorkQueue;
+import org.eclipse.jgit.revwalk.BitmapWalker;
 import org.eclipse.jgit.revwalk.ObjectWalk;
 import org.eclipse.jgit.revwalk.RevObject;
 import org.eclipse.jgit.revwalk.RevWalk;
@@ -121,6 +127,8 @@
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.googlecode.javaewah.IntIterator;
+
 /**
  * A garbage collector for git
  * {@link org.eclipse.jgit.internal.storage.file.FileRepository}. Instances of
@@ -294,11 +302,20 @@ private Collection<PackFile> doGc() throws IOException, ParseException {
 		if (automatic && !needGc()) {
 			return Collections.emptyList();
 		}
-		pm.start(6 /* tasks */);
+		pm.start(7 /* tasks */);
 		packRefs();
 		// TODO: implement reflog_expire(pm, repo);
 		Collection<PackFile> newPacks = repack();
 		prune(Collections.emptySet());
+		if (repo.getConfig().getBoolean(ConfigConstants.CONFIG_GC_SECTION,
+				ConfigConstants.CONFIG_KEY_WRITE_COMMIT_GRAPH, true)) {
+			writeCommitGraph();
+		}
+		if (repo.getConfig().getBoolean(ConfigConstants.CONFIG_GC_SECTION,
+				ConfigConstants.CONFIG_KEY_WRITE_MULTI_PACK_INDEX, false)
+				|| repo.getObjectDatabase().getMultiPackIndexFile().exists()) {
+			writeMultiPackIndex();
+		}
 		// TODO: implement rerere_gc(pm);
 		return newPacks;
 	}
@@ -313,7 +330,7 @@ private Collection<PackFile> doGc() throws IOException, ParseException {
 	 * @param existing
 	 * @throws IOException
 	 */
-	private void loosen(ObjectDirectoryInserter inserter, ObjectReader reader, PackFile pack, HashSet<ObjectId> existing)
+	private void loosen(ObjectDirectoryInserter inserter, ObjectReader reader, PackFile pack, ObjectIdHashSet existing)
 			throws IOException {
 		for (PackIndex.MutableEntry entry : pack) {
 			ObjectId oid = entry.toObjectId();
@@ -347,7 +364,12 @@ private void loosen(ObjectDirectoryInserter inserter, ObjectReader reader, PackF
 	 */
 	private void deleteOldPacks(Collection<PackFile> oldPacks,
 			Collection<PackFile> newPacks) throws ParseException, IOException {
-		HashSet<ObjectId> ids = new HashSet<>();
+		long cnt = 0;
+		for (PackFile pack : newPacks) {
+			cnt += pack.getObjectCount();
+		}
+		ObjectIdHashSet ids = new ObjectIdHashSet(
+				(int) Math.min(cnt, Integer.MAX_VALUE), false);
 		for (PackFile pack : newPacks) {
 			for (PackIndex.MutableEntry entry : pack) {
 				ids.add(entry.toObjectId());
@@ -898,6 +920,102 @@ public Collection<PackFile> repack() throws IOException {
 		return ret;
 	}
 
+	/**
+	 * Write a commit-graph file for all commits reachable from any ref.
+	 * <p>
+	 * The commit-graph allows {@link RevWalk} to obtain parents, commit time
+	 * and root tree of a commit without inflating the commit object. An
+	 * existing commit-graph is replaced. Shallow repositories do not get a
+	 * commit-graph, as their history is incomplete.
+	 *
+	 * @throws java.io.IOException
+	 *             when the refs or commits cannot be read, or the commit-graph
+	 *             cannot be written
+	 * @since 5.3
+	 */
+	public void writeCommitGraph() throws IOException {
+		ObjectDirectory odb = repo.getObjectDatabase();
+		if (!odb.getShallowCommits().isEmpty()) {
+			return;
+		}
+
+		Set<ObjectId> tips = new HashSet<>();
+		for (Ref ref : getAllRefs()) {
+			checkCancelled();
+			if (!ref.isSymbolic() && ref.getObjectId() != null) {
+				tips.add(ref.getObjectId());
+			}
+		}
+
+		File graphFile = odb.getCommitGraphFile();
+		if (tips.isEmpty()) {
+			FileUtils.delete(graphFile, FileUtils.SKIP_MISSING);
+			return;
+		}
+
+		FileUtils.mkdirs(graphFile.getParentFile(), true);
+		LockFile lck = new LockFile(graphFile);
+		if (!lck.lock()) {
+			throw new LockFailedException(graphFile);
+		}
+		try (ObjectReader reader = repo.newObjectReader()) {
+			try (OutputStream out = lck.getOutputStream()) {
+				new CommitGraphWriter(reader).write(pm, out, tips);
+			}
+			if (!lck.commit()) {
+				throw new LockFailedException(graphFile);
+			}
+		} finally {
+			lck.unlock();
+		}
+	}
+
+	/**
+	 * Write a multi-pack-index covering all packs of the repository.
+	 * <p>
+	 * The multi-pack-index allows objects to be found with a single lookup
+	 * instead of one lookup per pack. It is most useful for repositories
+	 * accumulating many packs between garbage collections. An existing
+	 * multi-pack-index is replaced, or deleted if there are less than two
+	 * packs.
+	 *
+	 * @throws java.io.IOException
+	 *             when a pack index cannot be read, or the multi-pack-index
+	 *             cannot be written
+	 * @since 5.3
+	 */
+	public void writeMultiPackIndex() throws IOException {
+		ObjectDirectory odb = repo.getObjectDatabase();
+		File midxFile = odb.getMultiPackIndexFile();
+		List<PackFile> packs = new ArrayList<>();
+		for (PackFile p : odb.getPacks()) {
+			checkCancelled();
+			// Packs deleted by this garbage collection may still be listed.
+			if (p.getPackFile().exists()) {
+				packs.add(p);
+			}
+		}
+		if (packs.size() < 2) {
+			FileUtils.delete(midxFile, FileUtils.SKIP_MISSING);
+			return;
+		}
+
+		LockFile lck = new LockFile(midxFile);
+		if (!lck.lock()) {
+			throw new LockFailedException(midxFile);
+		}
+		try {
+			try (OutputStream out = lck.getOutputStream()) {
+				new MultiPackIndexWriter(packs).write(pm, out);
+			}
+			if (!lck.commit()) {
+				throw new LockFailedException(midxFile);
+			}
+		} finally {
+			lck.unlock();
+		}
+	}
+
 	private static boolean isHead(Ref ref) {
 		return ref.getName().startsWith(Constants.R_HEADS);
 	}
@@ -1337,6 +1455,139 @@ public String toString() {
 		}
 	}
 
+	/**
+	 * Statistics about the objects reachable from the refs of a namespace.
+	 *
+	 * @since 5.3
+	 */
+	public static class ReachableStatistics {
+		/** The number of reachable commits. */
+		public long numberOfCommits;
+
+		/** The number of reachable trees. */
+		public long numberOfTrees;
+
+		/** The number of reachable blobs. */
+		public long numberOfBlobs;
+
+		/** The number of reachable annotated tags. */
+		public long numberOfTags;
+
+		/**
+		 * The approximate number of bytes used to store the reachable objects.
+		 * A packed object is counted with the length of its possibly
+		 * deltified representation in the pack holding it, a loose object
+		 * with the length of its file.
+		 */
+		public long sizeOfObjects;
+
+		/**
+		 * Get the number of reachable objects of all types.
+		 *
+		 * @return the number of reachable objects of all types.
+		 */
+		public long getNumberOfObjects() {
+			return numberOfCommits + numberOfTrees + numberOfBlobs
+					+ numberOfTags;
+		}
+
+		@Override
+		public String toString() {
+			final StringBuilder b = new StringBuilder();
+			b.append("numberOfCommits=").append(numberOfCommits); //$NON-NLS-1$
+			b.append(", numberOfTrees=").append(numberOfTrees); //$NON-NLS-1$
+			b.append(", numberOfBlobs=").append(numberOfBlobs); //$NON-NLS-1$
+			b.append(", numberOfTags=").append(numberOfTags); //$NON-NLS-1$
+			b.append(", sizeOfObjects=").append(sizeOfObjects); //$NON-NLS-1$
+			return b.toString();
+		}
+	}
+
+	/**
+	 * Count the objects reachable from the refs of some namespaces.
+	 * <p>
+	 * The reachable objects of a namespace are found by OR-ing the bitmaps of
+	 * the bitmap index of the repository, walking only the history that is
+	 * not covered by a bitmap. If the repository has no bitmap index, the
+	 * entire history is walked.
+	 *
+	 * @param refPrefixes
+	 *            namespaces to count, such as {@code refs/heads/}. The empty
+	 *            string selects all refs.
+	 * @return statistics for each of {@code refPrefixes}, in iteration order.
+	 * @throws java.io.IOException
+	 *             the refs or objects could not be read.
+	 * @since 5.3
+	 */
+	public Map<String, ReachableStatistics> getReachableStatistics(
+			Collection<String> refPrefixes) throws IOException {
+		Map<String, ReachableStatistics> ret = new LinkedHashMap<>();
+		try (ObjectReader reader = repo.newObjectReader()) {
+			// Like WindowCursor.getBitmapIndex(), use the first pack with a
+			// bitmap index.
+			PackFile bitmapPack = null;
+			PackBitmapIndex packBitmapIndex = null;
+			for (PackFile p : repo.getObjectDatabase().getPacks()) {
+				packBitmapIndex = p.getBitmapIndex();
+				if (packBitmapIndex != null) {
+					bitmapPack = p;
+					break;
+				}
+			}
+			BitmapIndexImpl bitmapIndex = new BitmapIndexImpl(
+					packBitmapIndex != null ? packBitmapIndex
+							: new PackBitmapIndexBuilder(
+									Collections.emptyList()));
+			RefDatabase refDb = repo.getRefDatabase();
+			for (String prefix : refPrefixes) {
+				Set<ObjectId> tips = new HashSet<>();
+				for (Ref ref : refDb.getRefsByPrefix(prefix)) {
+					if (ref.getObjectId() != null) {
+						tips.add(ref.getObjectId());
+					}
+				}
+				BitmapWalker walker = new BitmapWalker(new ObjectWalk(reader),
+						bitmapIndex, null);
+				ret.put(prefix, getReachableStatistics(bitmapIndex, bitmapPack,
+						walker.findObjects(tips, null, true)));
+			}
+		}
+		return ret;
+	}
+
+	private ReachableStatistics getReachableStatistics(
+			BitmapIndexImpl bitmapIndex, PackFile bitmapPack,
+			BitmapBuilder reachable) throws IOException {
+		ReachableStatistics ret = new ReachableStatistics();
+		ret.numberOfCommits = reachable.cardinality(Constants.OBJ_COMMIT);
+		ret.numberOfTrees = reachable.cardinality(Constants.OBJ_TREE);
+		ret.numberOfBlobs = reachable.cardinality(Constants.OBJ_BLOB);
+		ret.numberOfTags = reachable.cardinality(Constants.OBJ_TAG);
+
+		// Bitmap positions below indexObjectCount are positions in the
+		// reverse index of bitmapPack, so the size of those objects is the
+		// distance to the next offset. Only objects added to the bitmap
+		// after the index was built have to be looked up.
+		ObjectDirectory odb = repo.getObjectDatabase();
+		CompressedBitmap bitmap = (CompressedBitmap) reachable.build();
+		for (IntIterator i = bitmap.bitmap.intIterator(); i.hasNext();) {
+			checkCancelled();
+			int position = i.next();
+			if (position < bitmapIndex.indexObjectCount) {
+				ret.sizeOfObjects += bitmapPack.getPackedLengthAt(position);
+				continue;
+			}
+			WindowCursor.FoundObject<ObjectId> found = new WindowCursor.FoundObject<>(
+					bitmapIndex.getObject(position));
+			if (odb.findPackedObject(found)) {
+				ret.sizeOfObjects += found.pack.getPackedLength(found.offset);
+			} else {
+				ret.sizeOfObjects += odb.fileFor(found.id).length();
+			}
+		}
+		return ret;
+	}
+
 	/**
 	 * Returns information about objects and pack files for a FileRepository.
 	 *
@@ -80,10 +80,9 @@ public long getObjectCount() throws IOException {
 		return cnt;
 	}
 
-	void copyAsIs(PackOutputStream out, WindowCursor wc)
-			throws IOException {
+	void copyAsIs(PackOutputStream out) throws IOException {
 		for (PackFile pack : getPacks())
-			pack.copyPackAsIs(out, wc);
+			pack.copyPackAsIs(out);
 	}
 
 	/** {@inheritDoc} */
@@ -0,0 +1,341 @@
+/*
+ * Copyright (C) 2019, Google LLC.
+ * and other copyright owners as documented in the project's IP log.
+ *
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Distribution License v1.0 which
+ * accompanies this distribution, is reproduced below, and is
+ * available at http://www.eclipse.org/org/documents/edl-v10.php
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or
+ * without modification, are permitted provided that the following
+ * conditions are met:
+ *
+ * - Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * - Redistributions in binary form must reproduce the above
+ *   copyright notice, this list of conditions and the following
+ *   disclaimer in the documentation and/or other materials provided
+ *   with the distribution.
+ *
+ * - Neither the name of the Eclipse Foundation, Inc. nor the
+ *   names of its contributors may be used to endorse or promote
+ *   products derived from this software without specific prior
+ *   written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND
+ * CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+package org.eclipse.jgit.internal.storage.file;
+
+import static java.nio.charset.StandardCharsets.US_ASCII;
+import static org.eclipse.jgit.lib.Constants.OBJECT_ID_LENGTH;
+
+import java.io.File;
+import java.io.IOException;
+import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.jgit.internal.JGitText;
+import org.eclipse.jgit.lib.AnyObjectId;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.util.IO;
+import org.eclipse.jgit.util.NB;
+
+/**
+ * Support for the Git multi-pack-index file format, version 1.
+ * <p>
+ * A multi-pack-index maps every object of a set of packs to the pack and the
+ * offset holding it, so a lookup costs a single binary search no matter how
+ * many packs are covered. Like a pack index the file is read into the heap and
+ * searched in place, so it does not stay open or mapped once it is replaced.
+ */
+class MultiPackIndexFile {
+	/** Name of the multi-pack-index file in the pack directory. */
+	static final String FILE_NAME = "multi-pack-index"; //$NON-NLS-1$
+
+	/** Signature at the start of every multi-pack-index, {@code "MIDX"}. */
+	static final int SIGNATURE = 0x4d494458;
+
+	static final byte VERSION = 1;
+
+	static final byte HASH_VERSION_SHA1 = 1;
+
+	static final int HEADER_LENGTH = 12;
+
+	static final int CHUNK_LOOKUP_WIDTH = 12;
+
+	/** Chunk holding the names of the covered pack indexes. */
+	static final int CHUNK_ID_PACK_NAMES = 0x504e414d;
+
+	/** Chunk holding the 256 entry fan-out of the object ids. */
+	static final int CHUNK_ID_OID_FANOUT = 0x4f494446;
+
+	/** Chunk holding the sorted object ids. */
+	static final int CHUNK_ID_OID_LOOKUP = 0x4f49444c;
+
+	/** Chunk holding the pack and 32 bit offset of each object. */
+	static final int CHUNK_ID_OBJECT_OFFSETS = 0x4f4f4646;
+
+	/** Chunk holding the offsets that do not fit into 31 bits. */
+	static final int CHUNK_ID_LARGE_OFFSETS = 0x4c4f4646;
+
+	static final int FANOUT = 256;
+
+	static final int OBJECT_OFFSET_WIDTH = 8;
+
+	static final int LARGE_OFFSET_NEEDED = 0x80000000;
+
+	/**
+	 * Open an existing multi-pack-index for reading.
+	 *
+	 * @param midxFile
+	 *            the multi-pack-index file.
+	 * @return the multi-pack-index.
+	 * @throws IOException
+	 *             the file cannot be read, or is not a valid multi-pack-index.
+	 */
+	static MultiPackIndexFile open(File midxFile) throws IOException {
+		if (midxFile.length() > Integer.MAX_VALUE) {
+			throw new IOException(
+					JGitText.get().multiPackIndexFileIsTooLargeForJgit);
+		}
+		return new MultiPackIndexFile(IO.readFully(midxFile));
+	}
+
+	private final byte[] data;
+
+	private final String[] packNames;
+
+	private final int objectCnt;
+
+	private int packNamesStart = -1;
+
+	private int packNamesEnd = -1;
+
+	private int oidFanout = -1;
+
+	private int oidLookup = -1;
+
+	private int objectOffsets = -1;
+
+	private int largeOffsets = -1;
+
+	MultiPackIndexFile(byte[] data) throws IOException {
+		this.data = data;
+		int end = data.length - OBJECT_ID_LENGTH;
+		if (end < HEADER_LENGTH || NB.decodeInt32(data, 0) != SIGNATURE) {
+			throw new IOException(JGitText.get().notAMultiPackIndex);
+		}
+		if (data[4] != VERSION) {
+			throw new IOException(MessageFormat.format(
+					JGitText.get().unsupportedMultiPackIndexVersion,
+					Integer.valueOf(data[4])));
+		}
+		if (data[5] != HASH_VERSION_SHA1) {
+			throw new IOException(MessageFormat.format(
+					JGitText.get().unsupportedMultiPackIndexHashVersion,
+					Integer.valueOf(data[5])));
+		}
+
+		int numChunks = data[6] & 0xff;
+		int packCnt = NB.decodeInt32(data, 8);
+		if (packCnt < 0
+				|| HEADER_LENGTH + (numChunks + 1) * CHUNK_LOOKUP_WIDTH > end) {
+			throw new IOException(JGitText.get().notAMultiPackIndex);
+		}
+		for (int i = 0; i < numChunks; i++) {
+			int p = HEADER_LENGTH + i * CHUNK_LOOKUP_WIDTH;
+			int id = NB.decodeInt32(data, p);
+			long offset = NB.decodeInt64(data, p + 4);
+			long next = NB.decodeInt64(data, p + 4 + CHUNK_LOOKUP_WIDTH);
+			if (offset < 0 || offset > next || next > end) {
+				throw new IOException(JGitText.get().notAMultiPackIndex);
+			}
+			switch (id) {
+			case CHUNK_ID_PACK_NAMES:
+				packNamesStart = (int) offset;
+				packNamesEnd = (int) next;
+				break;
+			case CHUNK_ID_OID_FANOUT:
+				oidFanout = (int) offset;
+				break;
+			case CHUNK_ID_OID_LOOKUP:
+				oidLookup = (int) offset;
+				break;
+			case CHUNK_ID_OBJECT_OFFSETS:
+				objectOffsets = (int) offset;
+				break;
+			case CHUNK_ID_LARGE_OFFSETS:
+				largeOffsets = (int) offset;
+				break;
+			default:
+				// Chunks added by later versions of the format are optional
+				// and can be ignored by this reader.
+				break;
+			}
+		}
+
+		requireChunk(packNamesStart, CHUNK_ID_PACK_NAMES);
+		requireChunk(oidFanout, CHUNK_ID_OID_FANOUT);
+		requireChunk(oidLookup, CHUNK_ID_OID_LOOKUP);
+		requireChunk(objectOffsets, CHUNK_ID_OBJECT_OFFSETS);
+
+		packNames = readPackNames(packNamesStart, packNamesEnd, packCnt);
+
+		if (oidFanout + FANOUT * 4 > end) {
+			throw new IOException(JGitText.get().notAMultiPackIndex);
+		}
+		long cnt = fanout(FANOUT - 1) & 0xffffffffL;
+		if (oidLookup + cnt * OBJECT_ID_LENGTH > end
+				|| objectOffsets + cnt * OBJECT_OFFSET_WIDTH > end) {
+			throw new IOException(JGitText.get().notAMultiPackIndex);
+		}
+		objectCnt = (int) cnt;
+	}
+
+	private String[] readPackNames(int start, int end, int packCnt)
+			throws IOException {
+		List<String> names = new ArrayList<>(packCnt);
+		int p = start;
+		while (names.size() < packCnt) {
+			int nul = p;
+			while (nul < end && data[nul] != 0) {
+				nul++;
+			}
+			if (nul == end) {
+				throw new IOException(JGitText.get().notAMultiPackIndex);
+			}
+			byte[] name = new byte[nul - p];
+			for (int i = 0; i < name.length; i++) {
+				name[i] = data[p + i];
+			}
+			names.add(new String(name, US_ASCII));
+			p = nul + 1;
+		}
+		return names.toArray(new String[0]);
+	}
+
+	private static void requireChunk(int offset, int id) throws IOException {
+		if (offset < 0) {
+			throw new IOException(MessageFormat.format(
+					JGitText.get().multiPackIndexChunkMissing, chunkName(id)));
+		}
+	}
+
+	private static String chunkName(int id) {
+		byte[] name = new byte[4];
+		NB.encodeInt32(name, 0, id);
+		return new String(name, US_ASCII);
+	}
+
+	/**
+	 * Get the names of the pack indexes covered by this multi-pack-index.
+	 *
+	 * @return names of the {@code .idx} files, sorted. The position of a name
+	 *         is the pack id used by {@link #getPackId(int)}.
+	 */
+	String[] getPackNames() {
+		return packNames;
+	}
+
+	/**
+	 * Get the number of objects covered by this multi-pack-index.
+	 *
+	 * @return number of objects.
+	 */
+	long getObjectCount() {
+		return objectCnt;
+	}
+
+	/**
+	 * Find the position of an object.
+	 *
+	 * @param id
+	 *            the object to look for.
+	 * @return position of the object, or -1 if none of the covered packs
+	 *         contains the object.
+	 */
+	int findPosition(AnyObjectId id) {
+		int levelOne = id.getFirstByte();
+		int low = levelOne == 0 ? 0 : fanout(levelOne - 1);
+		int high = fanout(levelOne);
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			int c = id.compareTo(data, oidLookup + mid * OBJECT_ID_LENGTH);
+			if (c < 0) {
+				high = mid;
+			} else if (c == 0) {
+				return mid;
+			} else {
+				low = mid + 1;
+			}
+		}
+		return -1;
+	}
+
+	private int fanout(int levelOne) {
+		return NB.decodeInt32(data, oidFanout + levelOne * 4);
+	}
+
+	/**
+	 * Get the object at a position.
+	 *
+	 * @param pos
+	 *            position of the object.
+	 * @return the object id.
+	 */
+	ObjectId getObjectId(int pos) {
+		return ObjectId.fromRaw(data, oidLookup + pos * OBJECT_ID_LENGTH);
+	}
+
+	/**
+	 * Get the pack holding the object at a position.
+	 *
+	 * @param pos
+	 *            position of the object.
+	 * @return index of the pack into {@link #getPackNames()}.
+	 */
+	int getPackId(int pos) {
+		return NB.decodeInt32(data, objectOffsets + pos * OBJECT_OFFSET_WIDTH);
+	}
+
+	/**
+	 * Get the offset of the object at a position within its pack.
+	 *
+	 * @param pos
+	 *            position of the object.
+	 * @return offset of the object in the pack of {@link #getPackId(int)}.
+	 */
+	long getOffset(int pos) {
+		int offset = NB.decodeInt32(data,
+				objectOffsets + pos * OBJECT_OFFSET_WIDTH + 4);
+		if ((offset & LARGE_OFFSET_NEEDED) == 0) {
+			return offset;
+		}
+		if (largeOffsets < 0) {
+			throw new IllegalStateException(MessageFormat.format(
+					JGitText.get().multiPackIndexChunkMissing,
+					chunkName(CHUNK_ID_LARGE_OFFSETS)));
+		}
+		return NB.decodeInt64(data,
+				largeOffsets + (offset & ~LARGE_OFFSET_NEEDED) * 8);
+	}
+}
@@ -0,0 +1,346 @@
+/*
+ * Copyright (C) 2019, Google LLC.
+ * and other copyright owners as documented in the project's IP log.
+ *
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Distribution License v1.0 which
+ * accompanies this distribution, is reproduced below, and is
+ * available at http://www.eclipse.org/org/documents/edl-v10.php
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or
+ * without modification, are permitted provided that the following
+ * conditions are met:
+ *
+ * - Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * - Redistributions in binary form must reproduce the above
+ *   copyright notice, this list of conditions and the following
+ *   disclaimer in the documentation and/or other materials provided
+ *   with the distribution.
+ *
+ * - Neither the name of the Eclipse Foundation, Inc. nor the
+ *   names of its contributors may be used to endorse or promote
+ *   products derived from this software without specific prior
+ *   written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND
+ * CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+package org.eclipse.jgit.internal.storage.file;
+
+import static java.nio.charset.StandardCharsets.US_ASCII;
+import static org.eclipse.jgit.internal.storage.file.MultiPackIndexFile.CHUNK_ID_LARGE_OFFSETS;
+import static org.eclipse.jgit.internal.storage.file.MultiPackIndexFile.CHUNK_ID_OBJECT_OFFSETS;
+import static org.eclipse.jgit.internal.storage.file.MultiPackIndexFile.CHUNK_ID_OID_FANOUT;
+import static org.eclipse.jgit.internal.storage.file.MultiPackIndexFile.CHUNK_ID_OID_LOOKUP;
+import static org.eclipse.jgit.internal.storage.file.MultiPackIndexFile.CHUNK_ID_PACK_NAMES;
+import static org.eclipse.jgit.internal.storage.file.MultiPackIndexFile.CHUNK_LOOKUP_WIDTH;
+import static org.eclipse.jgit.internal.storage.file.MultiPackIndexFile.FANOUT;
+import static org.eclipse.jgit.internal.storage.file.MultiPackIndexFile.HASH_VERSION_SHA1;
+import static org.eclipse.jgit.internal.storage.file.MultiPackIndexFile.HEADER_LENGTH;
+import static org.eclipse.jgit.internal.storage.file.MultiPackIndexFile.LARGE_OFFSET_NEEDED;
+import static org.eclipse.jgit.internal.storage.file.MultiPackIndexFile.OBJECT_OFFSET_WIDTH;
+import static org.eclipse.jgit.internal.storage.file.MultiPackIndexFile.SIGNATURE;
+import static org.eclipse.jgit.internal.storage.file.MultiPackIndexFile.VERSION;
+import static org.eclipse.jgit.lib.Constants.OBJECT_ID_LENGTH;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.security.DigestOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+import org.eclipse.jgit.internal.JGitText;
+import org.eclipse.jgit.internal.storage.file.PackIndex.MutableEntry;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ProgressMonitor;
+import org.eclipse.jgit.util.NB;
+
+/**
+ * Writes a multi-pack-index covering a set of packs.
+ * <p>
+ * The indexes of the packs are merged in a single pass. If an object is
+ * stored in more than one pack, the pack listed first is recorded.
+ *
+ * @see MultiPackIndexFile
+ */
+class MultiPackIndexWriter {
+	private final List<PackFile> packs;
+
+	private String[] packNames;
+
+	private int objectCnt;
+
+	private byte[] ids;
+
+	private int[] packIds;
+
+	private long[] offsets;
+
+	private int largeOffsetCnt;
+
+	/**
+	 * Create a writer for the given packs.
+	 *
+	 * @param packs
+	 *            packs to cover, in order of preference.
+	 */
+	MultiPackIndexWriter(Collection<PackFile> packs) {
+		this.packs = new ArrayList<>(packs);
+	}
+
+	/**
+	 * Write the multi-pack-index.
+	 * <p>
+	 * After writing the stream is flushed but remains open. Callers are
+	 * always responsible for closing the output stream.
+	 *
+	 * @param pm
+	 *            progress monitor receiving one update per object.
+	 * @param dst
+	 *            stream to write the multi-pack-index to.
+	 * @return number of objects written to the multi-pack-index.
+	 * @throws IOException
+	 *             a pack index cannot be read, or the stream cannot be
+	 *             written.
+	 */
+	int write(ProgressMonitor pm, OutputStream dst) throws IOException {
+		pm.beginTask(JGitText.get().writingMultiPackIndex,
+				ProgressMonitor.UNKNOWN);
+		try {
+			mergeIndexes(pm);
+
+			DigestOutputStream out = new DigestOutputStream(
+					dst instanceof BufferedOutputStream ? dst
+							: new BufferedOutputStream(dst),
+					Constants.newMessageDigest());
+			byte[] names = encodePackNames();
+			writeHeaderAndChunkLookup(out, names.length);
+			out.write(names);
+			writeOidFanout(out);
+			out.write(ids, 0, objectCnt * OBJECT_ID_LENGTH);
+			writeObjectOffsets(out);
+			writeLargeOffsets(out);
+
+			out.on(false);
+			out.write(out.getMessageDigest().digest());
+			out.flush();
+			return objectCnt;
+		} finally {
+			pm.endTask();
+		}
+	}
+
+	private void mergeIndexes(ProgressMonitor pm) throws IOException {
+		packNames = new String[packs.size()];
+		for (int i = 0; i < packNames.length; i++) {
+			packNames[i] = idxName(packs.get(i));
+		}
+		Arrays.sort(packNames);
+
+		long total = 0;
+		PriorityQueue<Cursor> queue = new PriorityQueue<>(
+				Math.max(1, packs.size()));
+		for (int rank = 0; rank < packs.size(); rank++) {
+			PackFile p = packs.get(rank);
+			PackIndex idx = p.getIndex();
+			total += idx.getObjectCount();
+			Cursor c = new Cursor(idx.iterator(),
+					Arrays.binarySearch(packNames, idxName(p)), rank);
+			if (c.next()) {
+				queue.add(c);
+			}
+		}
+		if (total > Integer.MAX_VALUE / OBJECT_ID_LENGTH) {
+			throw new IOException(
+					JGitText.get().multiPackIndexFileIsTooLargeForJgit);
+		}
+
+		int n = (int) total;
+		ids = new byte[n * OBJECT_ID_LENGTH];
+		packIds = new int[n];
+		offsets = new long[n];
+		objectCnt = 0;
+		largeOffsetCnt = 0;
+		ObjectId last = null;
+		Cursor c;
+		while ((c = queue.poll()) != null) {
+			if (last == null || !last.equals(c.id)) {
+				last = c.id;
+				last.copyRawTo(ids, objectCnt * OBJECT_ID_LENGTH);
+				packIds[objectCnt] = c.packId;
+				offsets[objectCnt] = c.offset;
+				if ((c.offset & ~0x7fffffffL) != 0) {
+					largeOffsetCnt++;
+				}
+				objectCnt++;
+				pm.update(1);
+			}
+			if (c.next()) {
+				queue.add(c);
+			}
+		}
+	}
+
+	private static String idxName(PackFile p) {
+		return "pack-" + p.getPackName() + ".idx"; //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+	private byte[] encodePackNames() {
+		int len = 0;
+		for (String name : packNames) {
+			len += name.length() + 1;
+		}
+		// The chunk is padded to keep the following chunks aligned.
+		byte[] buf = new byte[(len + 3) & ~3];
+		int p = 0;
+		for (String name : packNames) {
+			byte[] raw = name.getBytes(US_ASCII);
+			System.arraycopy(raw, 0, buf, p, raw.length);
+			p += raw.length + 1;
+		}
+		return buf;
+	}
+
+	private void writeHeaderAndChunkLookup(OutputStream out, int namesLength)
+			throws IOException {
+		int[] chunkIds;
+		long[] lengths;
+		long n = objectCnt;
+		if (largeOffsetCnt > 0) {
+			chunkIds = new int[] { CHUNK_ID_PACK_NAMES, CHUNK_ID_OID_FANOUT,
+					CHUNK_ID_OID_LOOKUP, CHUNK_ID_OBJECT_OFFSETS,
+					CHUNK_ID_LARGE_OFFSETS };
+			lengths = new long[] { namesLength, FANOUT * 4,
+					n * OBJECT_ID_LENGTH, n * OBJECT_OFFSET_WIDTH,
+					largeOffsetCnt * 8L };
+		} else {
+			chunkIds = new int[] { CHUNK_ID_PACK_NAMES, CHUNK_ID_OID_FANOUT,
+					CHUNK_ID_OID_LOOKUP, CHUNK_ID_OBJECT_OFFSETS };
+			lengths = new long[] { namesLength, FANOUT * 4,
+					n * OBJECT_ID_LENGTH, n * OBJECT_OFFSET_WIDTH };
+		}
+
+		byte[] hdr = new byte[HEADER_LENGTH
+				+ (chunkIds.length + 1) * CHUNK_LOOKUP_WIDTH];
+		NB.encodeInt32(hdr, 0, SIGNATURE);
+		hdr[4] = VERSION;
+		hdr[5] = HASH_VERSION_SHA1;
+		hdr[6] = (byte) chunkIds.length;
+		hdr[7] = 0; // number of base multi-pack-index files
+		NB.encodeInt32(hdr, 8, packNames.length);
+
+		long offset = hdr.length;
+		int p = HEADER_LENGTH;
+		for (int i = 0; i < chunkIds.length; i++) {
+			NB.encodeInt32(hdr, p, chunkIds[i]);
+			NB.encodeInt64(hdr, p + 4, offset);
+			offset += lengths[i];
+			p += CHUNK_LOOKUP_WIDTH;
+		}
+		// Terminating entry recording where the last chunk ends.
+		NB.encodeInt32(hdr, p, 0);
+		NB.encodeInt64(hdr, p + 4, offset);
+		out.write(hdr);
+	}
+
+	private void writeOidFanout(OutputStream out) throws IOException {
+		int[] fanout = new int[FANOUT];
+		for (int i = 0; i < objectCnt; i++) {
+			fanout[ids[i * OBJECT_ID_LENGTH] & 0xff]++;
+		}
+		byte[] tmp = new byte[4];
+		int cnt = 0;
+		for (int i = 0; i < FANOUT; i++) {
+			cnt += fanout[i];
+			NB.encodeInt32(tmp, 0, cnt);
+			out.write(tmp, 0, 4);
+		}
+	}
+
+	private void writeObjectOffsets(OutputStream out) throws IOException {
+		byte[] tmp = new byte[OBJECT_OFFSET_WIDTH];
+		int large = 0;
+		for (int i = 0; i < objectCnt; i++) {
+			NB.encodeInt32(tmp, 0, packIds[i]);
+			long offset = offsets[i];
+			if ((offset & ~0x7fffffffL) == 0) {
+				NB.encodeInt32(tmp, 4, (int) offset);
+			} else {
+				NB.encodeInt32(tmp, 4, LARGE_OFFSET_NEEDED | large++);
+			}
+			out.write(tmp);
+		}
+	}
+
+	private void writeLargeOffsets(OutputStream out) throws IOException {
+		if (largeOffsetCnt == 0) {
+			return;
+		}
+		byte[] tmp = new byte[8];
+		for (int i = 0; i < objectCnt; i++) {
+			long offset = offsets[i];
+			if ((offset & ~0x7fffffffL) != 0) {
+				NB.encodeInt64(tmp, 0, offset);
+				out.write(tmp);
+			}
+		}
+	}
+
+	/** Position within the sorted entries of one pack index. */
+	private static final class Cursor implements Comparable<Cursor> {
+		private final Iterator<MutableEntry> entries;
+
+		final int packId;
+
+		private final int rank;
+
+		ObjectId id;
+
+		long offset;
+
+		Cursor(Iterator<MutableEntry> entries, int packId, int rank) {
+			this.entries = entries;
+			this.packId = packId;
+			this.rank = rank;
+		}
+
+		boolean next() {
+			if (!entries.hasNext()) {
+				return false;
+			}
+			MutableEntry e = entries.next();
+			id = e.toObjectId();
+			offset = e.getOffset();
+			return true;
+		}
+
+		@Override
+		public int compareTo(Cursor o) {
+			int cmp = id.compareTo(o.id);
+			return cmp != 0 ? cmp : Integer.compare(rank, o.rank);
+		}
+	}
+}
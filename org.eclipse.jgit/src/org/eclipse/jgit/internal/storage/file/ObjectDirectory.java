@@ -68,6 +68,7 @@
 import java.util.Set;
 import java.util.concurrent.atomic.AtomicReference;
 
+import org.eclipse.jgit.annotations.Nullable;
 import org.eclipse.jgit.errors.CorruptObjectException;
 import org.eclipse.jgit.errors.PackInvalidException;
 import org.eclipse.jgit.errors.PackMismatchException;
@@ -77,6 +78,7 @@
 import org.eclipse.jgit.internal.storage.pack.PackWriter;
 import org.eclipse.jgit.lib.AbbreviatedObjectId;
 import org.eclipse.jgit.lib.AnyObjectId;
+import org.eclipse.jgit.lib.CommitGraph;
 import org.eclipse.jgit.lib.Config;
 import org.eclipse.jgit.lib.ConfigConstants;
 import org.eclipse.jgit.lib.Constants;
@@ -146,6 +148,14 @@ public class ObjectDirectory extends FileObjectDatabase {
 
 	private Set<ObjectId> shallowCommitsIds;
 
+	private final File commitGraphFile;
+
+	private FileSnapshot commitGraphSnapshot = FileSnapshot.DIRTY;
+
+	private CommitGraph commitGraph;
+
+	private final File multiPackIndexFile;
+
 	/**
 	 * Initialize a reference to an on-disk object directory.
 	 *
@@ -172,6 +182,9 @@ public ObjectDirectory(final Config cfg, final File dir,
 		packDirectory = new File(objects, "pack"); //$NON-NLS-1$
 		preservedDirectory = new File(packDirectory, "preserved"); //$NON-NLS-1$
 		alternatesFile = new File(infoDirectory, "alternates"); //$NON-NLS-1$
+		commitGraphFile = new File(infoDirectory, "commit-graph"); //$NON-NLS-1$
+		multiPackIndexFile = new File(packDirectory,
+				MultiPackIndexFile.FILE_NAME);
 		packList = new AtomicReference<>(NO_PACKS);
 		unpackedObjectCache = new UnpackedObjectCache();
 		this.fs = fs;
@@ -352,7 +365,12 @@ boolean hasPackedObject(AnyObjectId objectId) {
 		PackList pList;
 		do {
 			pList = packList.get();
-			for (PackFile p : pList.packs) {
+			int pos = pList.findInIndex(objectId);
+			if (pos >= 0) {
+				if (pList.packInIndex(pos, objectId) != null)
+					return true;
+			}
+			for (PackFile p : pList.packsToSearch(pos)) {
 				try {
 					if (p.hasObject(objectId))
 						return true;
@@ -481,7 +499,26 @@ ObjectLoader openPackedObject(WindowCursor curs, AnyObjectId objectId) {
 		do {
 			SEARCH: for (;;) {
 				pList = packList.get();
-				for (PackFile p : pList.packs) {
+				int pos = pList.findInIndex(objectId);
+				if (pos >= 0) {
+					PackFile p = pList.packInIndex(pos, objectId);
+					if (p != null) {
+						try {
+							ObjectLoader ldr = p.getAt(curs,
+									pList.offsetInIndex(pos));
+							p.resetTransientErrorCount();
+							if (ldr != null)
+								return ldr;
+						} catch (PackMismatchException e) {
+							// Pack was modified; refresh the entire pack list.
+							if (searchPacksAgain(pList))
+								continue SEARCH;
+						} catch (IOException e) {
+							handlePackError(e, p);
+						}
+					}
+				}
+				for (PackFile p : pList.packsToSearch(pos)) {
 					try {
 						ObjectLoader ldr = p.get(curs, objectId);
 						p.resetTransientErrorCount();
@@ -517,6 +554,54 @@ ObjectLoader openLooseObject(WindowCursor curs, AnyObjectId id)
 		}
 	}
 
+	@Override
+	boolean findPackedObject(WindowCursor.FoundObject<?> obj) {
+		return findPackedInSelfOrAlternate(obj, null);
+	}
+
+	private boolean findPackedInSelfOrAlternate(WindowCursor.FoundObject<?> obj,
+			Set<AlternateHandle.Id> skips) {
+		if (findPackedInSelf(obj)) {
+			return true;
+		}
+		skips = addMe(skips);
+		for (AlternateHandle alt : myAlternates()) {
+			if (!skips.contains(alt.getId())) {
+				if (alt.db.findPackedInSelfOrAlternate(obj, skips)) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	private boolean findPackedInSelf(WindowCursor.FoundObject<?> obj) {
+		PackList pList = packList.get();
+		int pos = pList.findInIndex(obj.id);
+		if (pos >= 0) {
+			PackFile p = pList.packInIndex(pos, obj.id);
+			if (p != null) {
+				obj.pack = p;
+				obj.offset = pList.offsetInIndex(pos);
+				return true;
+			}
+		}
+		for (PackFile p : pList.packsToSearch(pos)) {
+			try {
+				long offset = p.findOffset(obj.id);
+				if (0 < offset && p.hasObjectAt(offset)) {
+					obj.pack = p;
+					obj.offset = offset;
+					return true;
+				}
+			} catch (IOException e) {
+				// Leave the object to the full lookup, which also
+				// handles the pack error.
+			}
+		}
+		return false;
+	}
+
 	@Override
 	long getObjectSize(WindowCursor curs, AnyObjectId id)
 			throws IOException {
@@ -574,7 +659,26 @@ private long getPackedObjectSize(WindowCursor curs, AnyObjectId id) {
 		do {
 			SEARCH: for (;;) {
 				pList = packList.get();
-				for (PackFile p : pList.packs) {
+				int pos = pList.findInIndex(id);
+				if (pos >= 0) {
+					PackFile p = pList.packInIndex(pos, id);
+					if (p != null) {
+						try {
+							long len = p.getObjectSize(curs,
+									pList.offsetInIndex(pos));
+							p.resetTransientErrorCount();
+							if (0 <= len)
+								return len;
+						} catch (PackMismatchException e) {
+							// Pack was modified; refresh the entire pack list.
+							if (searchPacksAgain(pList))
+								continue SEARCH;
+						} catch (IOException e) {
+							handlePackError(e, p);
+						}
+					}
+				}
+				for (PackFile p : pList.packsToSearch(pos)) {
 					try {
 						long len = p.getObjectSize(curs, id);
 						p.resetTransientErrorCount();
@@ -814,6 +918,54 @@ Set<ObjectId> getShallowCommits() throws IOException {
 		return shallowCommitsIds;
 	}
 
+	@Override
+	CommitGraph getCommitGraph() {
+		if (!config.getBoolean(ConfigConstants.CONFIG_CORE_SECTION,
+				ConfigConstants.CONFIG_KEY_COMMIT_GRAPH, true)) {
+			return null;
+		}
+		synchronized (commitGraphFile) {
+			if (commitGraphSnapshot.isModified(commitGraphFile)) {
+				if (!commitGraphFile.isFile()) {
+					commitGraph = null;
+					commitGraphSnapshot = FileSnapshot.MISSING_FILE;
+				} else {
+					FileSnapshot snapshot = FileSnapshot.save(commitGraphFile);
+					try {
+						commitGraph = CommitGraphFile.open(commitGraphFile);
+					} catch (IOException e) {
+						// A damaged commit-graph only costs performance, the
+						// commits can still be parsed from the object store.
+						LOG.warn(MessageFormat.format(
+								JGitText.get().cannotReadCommitGraph,
+								commitGraphFile), e);
+						commitGraph = null;
+					}
+					commitGraphSnapshot = snapshot;
+				}
+			}
+			return commitGraph;
+		}
+	}
+
+	/**
+	 * Get the location of the commit-graph file of this object directory.
+	 *
+	 * @return the location of the {@code info/commit-graph} file.
+	 */
+	File getCommitGraphFile() {
+		return commitGraphFile;
+	}
+
+	/**
+	 * Get the location of the multi-pack-index of this object directory.
+	 *
+	 * @return the location of the {@code pack/multi-pack-index} file.
+	 */
+	File getMultiPackIndexFile() {
+		return multiPackIndexFile;
+	}
+
 	private void insertPack(PackFile pf) {
 		PackList o, n;
 		do {
@@ -833,7 +985,7 @@ private void insertPack(PackFile pf) {
 			final PackFile[] newList = new PackFile[1 + oldList.length];
 			newList[0] = pf;
 			System.arraycopy(oldList, 0, newList, 1, oldList.length);
-			n = new PackList(o.snapshot, newList);
+			n = new PackList(o.snapshot, newList, o.midx, o.midxSnapshot);
 		} while (!packList.compareAndSet(o, n));
 	}
 
@@ -850,7 +1002,7 @@ private void removePack(PackFile deadPack) {
 			final PackFile[] newList = new PackFile[oldList.length - 1];
 			System.arraycopy(oldList, 0, newList, 0, j);
 			System.arraycopy(oldList, j + 1, newList, j, newList.length - j);
-			n = new PackList(o.snapshot, newList);
+			n = new PackList(o.snapshot, newList, o.midx, o.midxSnapshot);
 		} while (!packList.compareAndSet(o, n));
 		deadPack.close();
 	}
@@ -921,12 +1073,29 @@ private PackList scanPacksImpl(PackList old) {
 			foundNew = true;
 		}
 
+		MultiPackIndexFile midx = old.midx;
+		FileSnapshot midxSnapshot = old.midxSnapshot;
+		if (!config.getBoolean(ConfigConstants.CONFIG_CORE_SECTION,
+				ConfigConstants.CONFIG_KEY_MULTI_PACK_INDEX, true)) {
+			midx = null;
+			midxSnapshot = FileSnapshot.DIRTY;
+		} else if (midxSnapshot.isModified(multiPackIndexFile)) {
+			if (!multiPackIndexFile.isFile()) {
+				midx = null;
+				midxSnapshot = FileSnapshot.MISSING_FILE;
+			} else {
+				midxSnapshot = FileSnapshot.save(multiPackIndexFile);
+				midx = openMultiPackIndex();
+			}
+		}
+
 		// If we did not discover any new files, the modification time was not
 		// changed, and we did not remove any files, then the set of files is
 		// the same as the set we were given. Instead of building a new object
 		// return the same collection.
 		//
-		if (!foundNew && forReuse.isEmpty() && snapshot.equals(old.snapshot)) {
+		if (!foundNew && forReuse.isEmpty() && snapshot.equals(old.snapshot)
+				&& midx == old.midx) {
 			old.snapshot.setClean(snapshot);
 			return old;
 		}
@@ -936,11 +1105,25 @@ private PackList scanPacksImpl(PackList old) {
 		}
 
 		if (list.isEmpty())
-			return new PackList(snapshot, NO_PACKS.packs);
+			return new PackList(snapshot, NO_PACKS.packs, null, midxSnapshot);
 
 		final PackFile[] r = list.toArray(new PackFile[0]);
 		Arrays.sort(r, PackFile.SORT);
-		return new PackList(snapshot, r);
+		return new PackList(snapshot, r, midx, midxSnapshot);
+	}
+
+	@Nullable
+	private MultiPackIndexFile openMultiPackIndex() {
+		try {
+			return MultiPackIndexFile.open(multiPackIndexFile);
+		} catch (IOException e) {
+			// A damaged multi-pack-index only costs performance, objects are
+			// still found through the index of each pack.
+			LOG.warn(MessageFormat.format(
+					JGitText.get().cannotReadMultiPackIndex,
+					multiPackIndexFile), e);
+			return null;
+		}
 	}
 
 	private static Map<String, PackFile> reuseMap(PackList old) {
@@ -1076,9 +1259,134 @@ private static final class PackList {
 		/** All known packs, sorted by {@link PackFile#SORT}. */
 		final PackFile[] packs;
 
+		/** Multi-pack-index of the pack directory, null if not available. */
+		@Nullable
+		final MultiPackIndexFile midx;
+
+		/** State just before reading {@link #midx}. */
+		final FileSnapshot midxSnapshot;
+
+		/**
+		 * Packs by their id in {@link #midx}, null for deleted packs and for
+		 * packs found to disagree with {@link #midx}.
+		 */
+		private final PackFile[] midxPacks;
+
+		/**
+		 * Whether one offset of the pack in {@link #midxPacks} was confirmed
+		 * by its own index. Racing threads only repeat the check.
+		 */
+		private final boolean[] midxPackVerified;
+
+		/** Packs that are not covered by {@link #midx}. */
+		private final PackFile[] uncovered;
+
 		PackList(FileSnapshot monitor, PackFile[] packs) {
+			this(monitor, packs, null, FileSnapshot.DIRTY);
+		}
+
+		PackList(FileSnapshot monitor, PackFile[] packs,
+				@Nullable MultiPackIndexFile midx, FileSnapshot midxSnapshot) {
 			this.snapshot = monitor;
 			this.packs = packs;
+			this.midx = midx;
+			this.midxSnapshot = midxSnapshot;
+			if (midx == null) {
+				midxPacks = packs;
+				midxPackVerified = null;
+				uncovered = packs;
+				return;
+			}
+
+			String[] names = midx.getPackNames();
+			midxPacks = new PackFile[names.length];
+			midxPackVerified = new boolean[names.length];
+			List<PackFile> rest = new ArrayList<>();
+			for (PackFile p : packs) {
+				String name = p.getPackFile().getName();
+				name = name.substring(0, name.length() - 4)
+						+ INDEX.getExtension();
+				int id = Arrays.binarySearch(names, name);
+				if (id >= 0)
+					midxPacks[id] = p;
+				else
+					rest.add(p);
+			}
+			uncovered = rest.toArray(new PackFile[0]);
+		}
+
+		/**
+		 * Find an object in the multi-pack-index.
+		 *
+		 * @param id
+		 *            the object to look for.
+		 * @return position of the object in the multi-pack-index; -1 if there
+		 *         is no index, or none of its packs has the object.
+		 */
+		int findInIndex(AnyObjectId id) {
+			MultiPackIndexFile m = midx;
+			return m != null ? m.findPosition(id) : -1;
+		}
+
+		/**
+		 * @param pos
+		 *            position returned by {@link #findInIndex(AnyObjectId)}.
+		 * @param id
+		 *            the object at {@code pos}.
+		 * @return the pack holding the object at
+		 *         {@link #offsetInIndex(int)}; null if the pack was deleted,
+		 *         or if the multi-pack-index is stale for it.
+		 */
+		@Nullable
+		PackFile packInIndex(int pos, AnyObjectId id) {
+			MultiPackIndexFile m = midx;
+			if (m == null)
+				return null;
+			int packId = m.getPackId(pos);
+			if (packId < 0 || midxPacks.length <= packId)
+				return null;
+			PackFile p = midxPacks[packId];
+			long offset = m.getOffset(pos);
+			if (p == null || !p.isValidOffset(offset))
+				return null;
+			if (!midxPackVerified[packId]) {
+				// A pack rewritten under the same name may have moved its
+				// objects. Confirm the first offset used with the index of
+				// the pack, and trust the multi-pack-index afterwards.
+				try {
+					if (!p.hasObjectAt(id, offset)) {
+						midxPacks[packId] = null;
+						return null;
+					}
+				} catch (IOException e) {
+					// Leave the object to the search of all packs, which also
+					// handles the pack error.
+					return null;
+				}
+				midxPackVerified[packId] = true;
+			}
+			return p;
+		}
+
+		/**
+		 * @param pos
+		 *            position returned by {@link #findInIndex(AnyObjectId)}.
+		 * @return offset of the object in {@link #packInIndex(int, AnyObjectId)}.
+		 */
+		long offsetInIndex(int pos) {
+			MultiPackIndexFile m = midx;
+			return m != null ? m.getOffset(pos) : -1;
+		}
+
+		/**
+		 * @param pos
+		 *            position returned by {@link #findInIndex(AnyObjectId)}.
+		 * @return packs that may still hold the object. If the
+		 *         multi-pack-index does not know the object, only the packs it
+		 *         does not cover.
+		 */
+		PackFile[] packsToSearch(int pos) {
+			return pos < 0 ? uncovered : packs;
 		}
 	}
 
@@ -81,6 +81,7 @@ class ObjectDirectoryInserter extends ObjectInserter {
 	ObjectDirectoryInserter(FileObjectDatabase dest, Config cfg) {
 		db = dest;
 		config = cfg.get(WriteConfig.KEY);
+		setSha1Implementation(config.getSha1Implementation());
 	}
 
 	/** {@inheritDoc} */
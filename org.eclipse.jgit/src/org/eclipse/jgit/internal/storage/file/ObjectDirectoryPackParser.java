@@ -50,6 +50,7 @@
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
 import java.nio.file.StandardCopyOption;
 import java.security.MessageDigest;
 import java.text.MessageFormat;
@@ -67,6 +68,7 @@
 import org.eclipse.jgit.lib.ProgressMonitor;
 import org.eclipse.jgit.transport.PackParser;
 import org.eclipse.jgit.transport.PackedObjectInfo;
+import org.eclipse.jgit.transport.TransferConfig;
 import org.eclipse.jgit.util.FileUtils;
 import org.eclipse.jgit.util.NB;
 
@@ -129,6 +131,9 @@ public class ObjectDirectoryPackParser extends PackParser {
 		this.tailDigest = Constants.newMessageDigest();
 
 		indexVersion = db.getConfig().get(CoreConfig.KEY).getPackIndexVersion();
+		TransferConfig tc = db.getConfig().get(TransferConfig.KEY);
+		setLowMemoryIndexing(tc.isLowMemoryIndexing());
+		setThreads(tc.getIndexThreads());
 	}
 
 	/**
@@ -185,6 +190,12 @@ public long getPackSize() {
 		return size;
 	}
 
+	/** {@inheritDoc} */
+	@Override
+	protected File getTemporaryDirectory() {
+		return db.getDirectory();
+	}
+
 	/** {@inheritDoc} */
 	@Override
 	public PackLock parse(ProgressMonitor receiving, ProgressMonitor resolving)
@@ -217,6 +228,7 @@ public PackLock parse(ProgressMonitor receiving, ProgressMonitor resolving)
 				// Ignored. We want to delete the file.
 			}
 			cleanupTemporaryFiles();
+			releaseSpilledObjects();
 		}
 	}
 
@@ -322,6 +334,19 @@ protected int readDatabase(byte[] dst, int pos, int cnt) throws IOException {
 		return out.read(dst, pos, cnt);
 	}
 
+	/** {@inheritDoc} */
+	@Override
+	protected boolean isParallelDeltaResolutionSupported() {
+		return true;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	protected int readDatabase(long position, byte[] dst, int pos, int cnt)
+			throws IOException {
+		return out.getChannel().read(ByteBuffer.wrap(dst, pos, cnt), position);
+	}
+
 	/** {@inheritDoc} */
 	@Override
 	protected boolean checkCRC(int oldCRC) {
@@ -449,8 +474,7 @@ private PackLock renameAndOpenPack(String lockMessage)
 
 		final MessageDigest d = Constants.newMessageDigest();
 		final byte[] oeBytes = new byte[Constants.OBJECT_ID_LENGTH];
-		for (int i = 0; i < getObjectCount(); i++) {
-			final PackedObjectInfo oe = getObject(i);
+		for (PackedObjectInfo oe : getSortedObjectList(null)) {
 			oe.copyRawTo(oeBytes, 0);
 			d.update(oeBytes);
 		}
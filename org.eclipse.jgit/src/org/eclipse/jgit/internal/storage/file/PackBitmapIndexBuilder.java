@@ -58,6 +58,7 @@
 import org.eclipse.jgit.lib.BitmapIndex.BitmapBuilder;
 import org.eclipse.jgit.lib.Constants;
 import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectIdHashSet;
 import org.eclipse.jgit.lib.ObjectIdOwnerMap;
 import org.eclipse.jgit.util.BlockList;
 
@@ -161,6 +162,20 @@ public ObjectIdOwnerMap<ObjectIdOwnerMap.Entry> getObjectSet() {
 		return r;
 	}
 
+	/**
+	 * Get set of objects included in the pack, stored without a Java object
+	 * per id.
+	 *
+	 * @return set of objects included in the pack.
+	 */
+	public ObjectIdHashSet getObjectIdSet() {
+		ObjectIdHashSet r = new ObjectIdHashSet(byOffset.size(), false);
+		for (PositionEntry e : byOffset) {
+			r.add(e);
+		}
+		return r;
+	}
+
 	/**
 	 * Stores the bitmap for the objectId.
 	 *
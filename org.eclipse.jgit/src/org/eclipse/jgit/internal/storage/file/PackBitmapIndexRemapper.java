@@ -197,8 +197,12 @@ public EWAHCompressedBitmap getBitmap(AnyObjectId objectId) {
 			return null;
 
 		inflated.clear();
-		for (IntIterator i = oldBitmap.getBitmap().intIterator(); i.hasNext();)
-			inflated.set(prevToNewMapping[i.next()]);
+		for (IntIterator i = oldBitmap.getBitmap().intIterator(); i.hasNext();) {
+			int pos = prevToNewMapping[i.next()];
+			if (pos < 0)
+				return null; // Part of the history is not in the new pack.
+			inflated.set(pos);
+		}
 		bitmap = inflated.toEWAHCompressedBitmap();
 		bitmap.trim();
 		convertedBitmaps.add(
@@ -70,6 +70,7 @@
 import java.util.zip.DataFormatException;
 import java.util.zip.Inflater;
 
+import org.eclipse.jgit.annotations.Nullable;
 import org.eclipse.jgit.errors.CorruptObjectException;
 import org.eclipse.jgit.errors.LargeObjectException;
 import org.eclipse.jgit.errors.MissingObjectException;
@@ -154,6 +155,9 @@ public int compare(PackFile a, PackFile b) {
 	 */
 	private volatile LongList corruptObjects;
 
+	/** Hits, misses and cached bytes of this pack in the {@link WindowCache}. */
+	final WindowCache.PackStats windowCacheStats = new WindowCache.PackStats();
+
 	/**
 	 * Construct a reader for an existing, pre-indexed packfile.
 	 *
@@ -285,6 +289,87 @@ ObjectLoader get(WindowCursor curs, AnyObjectId id)
 		return 0 < offset && !isCorrupt(offset) ? load(curs, offset) : null;
 	}
 
+	/**
+	 * Get an object at a known offset of this pack.
+	 * <p>
+	 * The caller must have checked the offset with
+	 * {@link #isValidOffset(long)}.
+	 *
+	 * @param curs
+	 *            temporary working space associated with the calling thread.
+	 * @param offset
+	 *            offset of the object, e.g. from a multi-pack-index.
+	 * @return the object loader for the requested object; null if the object
+	 *         is known to be corrupt.
+	 * @throws IOException
+	 *             the pack file could not be read.
+	 */
+	ObjectLoader getAt(WindowCursor curs, long offset) throws IOException {
+		return !isCorrupt(offset) ? load(curs, offset) : null;
+	}
+
+	/**
+	 * Find the offset of an object in this pack.
+	 *
+	 * @param id
+	 *            the object to look for.
+	 * @return offset of the object; -1 if it is not in this pack.
+	 * @throws IOException
+	 *             the index file cannot be loaded into memory.
+	 */
+	long findOffset(AnyObjectId id) throws IOException {
+		return idx().findOffset(id);
+	}
+
+	/**
+	 * Determine if an object is readable at a known offset of this pack.
+	 * <p>
+	 * The offset is confirmed by the index of this pack. Packs are named
+	 * after the objects they contain, so a repack writing the same objects in
+	 * a different order keeps the name while moving the objects.
+	 *
+	 * @param id
+	 *            the object expected at {@code offset}.
+	 * @param offset
+	 *            offset of the object, e.g. from a multi-pack-index.
+	 * @return true if the pack is valid, its index places {@code id} at
+	 *         {@code offset}, and the object is not known to be corrupt.
+	 * @throws IOException
+	 *             the index file cannot be loaded into memory.
+	 */
+	boolean hasObjectAt(AnyObjectId id, long offset) throws IOException {
+		return 0 < offset && idx().findOffset(id) == offset
+				&& hasObjectAt(offset);
+	}
+
+	/**
+	 * Determine if an offset taken from a multi-pack-index can be read.
+	 * <p>
+	 * Only the bounds of the pack are checked, the index of this pack is not
+	 * consulted.
+	 *
+	 * @param offset
+	 *            offset of an object in this pack.
+	 * @return true if the offset is before the pack trailer, the pack is
+	 *         valid, and the object is not known to be corrupt.
+	 */
+	boolean isValidOffset(long offset) {
+		return 0 < offset && offset < length - 20 && hasObjectAt(offset);
+	}
+
+	/**
+	 * Determine if an object at an offset found in the index of this pack is
+	 * readable.
+	 *
+	 * @param offset
+	 *            offset of the object, from {@link #findOffset(AnyObjectId)}.
+	 * @return true if the pack is valid and the object is not known to be
+	 *         corrupt.
+	 */
+	boolean hasObjectAt(long offset) {
+		return !invalid && !isCorrupt(offset);
+	}
+
 	void resolve(Set<ObjectId> matches, AbbreviatedObjectId id, int matchLimit)
 			throws IOException {
 		idx().resolve(matches, id, matchLimit);
@@ -371,26 +456,40 @@ private final byte[] decompress(final long position, final int sz,
 		return dstbuf;
 	}
 
-	void copyPackAsIs(PackOutputStream out, WindowCursor curs)
-			throws IOException {
-		// Pin the first window, this ensures the length is accurate.
-		curs.pin(this, 0);
-		curs.copyPackAsIs(this, length, out);
+	void copyPackAsIs(PackOutputStream out) throws IOException {
+		beginCopyRawData();
+		try (RandomAccessFile raw = openForCopy()) {
+			// The pack is open, this ensures the length is accurate.
+			long position = 12;
+			long remaining = length - (12 + 20);
+			byte[] buf = out.getCopyBuffer();
+			while (0 < remaining) {
+				int n = (int) Math.min(remaining, buf.length);
+				readRaw(raw, position, buf, n);
+				out.write(buf, 0, n);
+				position += n;
+				remaining -= n;
+			}
+		} finally {
+			endCopyAsIs();
+		}
 	}
 
 	final void copyAsIs(PackOutputStream out, LocalObjectToPack src,
 			boolean validate, WindowCursor curs) throws IOException,
 			StoredObjectRepresentationNotAvailableException {
 		beginCopyAsIs(src);
-		try {
-			copyAsIs2(out, src, validate, curs);
+		try (RandomAccessFile raw = openForCopyAsIs(src,
+				out.getCopyBuffer().length)) {
+			copyAsIs2(out, src, validate, raw, curs);
 		} finally {
 			endCopyAsIs();
 		}
 	}
 
 	private void copyAsIs2(PackOutputStream out, LocalObjectToPack src,
-			boolean validate, WindowCursor curs) throws IOException,
+			boolean validate, @Nullable RandomAccessFile raw,
+			WindowCursor curs) throws IOException,
 			StoredObjectRepresentationNotAvailableException {
 		final CRC32 crc1 = validate ? new CRC32() : null;
 		final CRC32 crc2 = validate ? new CRC32() : null;
@@ -462,7 +561,7 @@ private void copyAsIs2(PackOutputStream out, LocalObjectToPack src,
 					long cnt = dataLength;
 					while (cnt > 0) {
 						final int n = (int) Math.min(cnt, buf.length);
-						readFully(pos, buf, 0, n, curs);
+						readForCopy(pos, buf, n, raw, curs);
 						crc1.update(buf, 0, n);
 						pos += n;
 						cnt -= n;
@@ -489,7 +588,7 @@ private void copyAsIs2(PackOutputStream out, LocalObjectToPack src,
 					long cnt = dataLength;
 					while (cnt > 0) {
 						final int n = (int) Math.min(cnt, buf.length);
-						readFully(pos, buf, 0, n, curs);
+						readForCopy(pos, buf, n, raw, curs);
 						crc1.update(buf, 0, n);
 						inf.setInput(buf, 0, n);
 						while (inf.inflate(tmp, 0, tmp.length) > 0)
@@ -542,7 +641,7 @@ private void copyAsIs2(PackOutputStream out, LocalObjectToPack src,
 				long cnt = dataLength;
 				while (cnt > 0) {
 					final int n = (int) Math.min(cnt, buf.length);
-					readFully(pos, buf, 0, n, curs);
+					readForCopy(pos, buf, n, raw, curs);
 					pos += n;
 					cnt -= n;
 				}
@@ -559,7 +658,7 @@ private void copyAsIs2(PackOutputStream out, LocalObjectToPack src,
 			long cnt = dataLength;
 			while (cnt > 0) {
 				final int n = (int) Math.min(cnt, buf.length);
-				readFully(pos, buf, 0, n, curs);
+				readForCopy(pos, buf, n, raw, curs);
 				if (validate) {
 					assert(crc2 != null);
 					crc2.update(buf, 0, n);
@@ -602,16 +701,101 @@ private void readFully(final long position, final byte[] dstbuf,
 			throw new EOFException();
 	}
 
-	private synchronized void beginCopyAsIs(ObjectToPack otp)
-			throws StoredObjectRepresentationNotAvailableException {
-		if (++activeCopyRawData == 1 && activeWindows == 0) {
-			try {
-				doOpen();
-			} catch (IOException thisPackNotValid) {
-				throw new StoredObjectRepresentationNotAvailableException(otp,
-						thisPackNotValid);
+	private void readForCopy(long position, byte[] dstbuf, int cnt,
+			@Nullable RandomAccessFile raw, WindowCursor curs)
+			throws IOException {
+		if (raw != null)
+			readRaw(raw, position, dstbuf, cnt);
+		else
+			readFully(position, dstbuf, 0, cnt, curs);
+	}
+
+	/**
+	 * Open the pack file for one copy that bypasses the WindowCache.
+	 * <p>
+	 * Each copy reads through its own file, so that copies don't serialize
+	 * with each other and with window loads on the {@code readLock} of
+	 * {@link #fd}. Unlike a FileChannel the file is not closed if the
+	 * copying thread is interrupted.
+	 * <p>
+	 * The file is opened again by name, and may have been replaced since
+	 * {@link #fd} was validated. Its length and trailer must match the pack
+	 * opened by {@link #doOpen()}, so that offsets from the index of this pack
+	 * are never applied to another pack.
+	 *
+	 * @return the opened pack file.
+	 * @throws IOException
+	 *             the pack file could not be opened.
+	 * @throws PackMismatchException
+	 *             the pack file was replaced by a different pack.
+	 */
+	private RandomAccessFile openForCopy() throws IOException {
+		RandomAccessFile raw = new RandomAccessFile(packFile, "r"); //$NON-NLS-1$
+		try {
+			long len = raw.length();
+			if (len == length) {
+				byte[] trailer = new byte[20];
+				readRaw(raw, len - 20, trailer, 20);
+				if (Arrays.equals(trailer, packChecksum))
+					return raw;
 			}
+		} catch (IOException e) {
+			raw.close();
+			throw e;
 		}
+		raw.close();
+		throw new PackMismatchException(MessageFormat.format(
+				JGitText.get().packChecksumMismatch, getPackFile()));
+	}
+
+	/**
+	 * Open the pack file to copy an object larger than the copy buffer.
+	 * <p>
+	 * Data of such objects is read straight from the file, so that spooling
+	 * them does not allocate windows and push the windows of frequently used
+	 * objects out of the WindowCache.
+	 *
+	 * @param src
+	 *            the object to copy.
+	 * @param bufferSize
+	 *            size of the copy buffer.
+	 * @return the opened pack file; null if the object fits into the copy
+	 *         buffer and is read through the WindowCache.
+	 * @throws StoredObjectRepresentationNotAvailableException
+	 *             the pack file could not be opened.
+	 */
+	@Nullable
+	private RandomAccessFile openForCopyAsIs(LocalObjectToPack src,
+			int bufferSize)
+			throws StoredObjectRepresentationNotAvailableException {
+		if (src.length <= bufferSize)
+			return null;
+		try {
+			return openForCopy();
+		} catch (IOException e) {
+			throw new StoredObjectRepresentationNotAvailableException(src, e);
+		}
+	}
+
+	private static void readRaw(RandomAccessFile raw, long position,
+			byte[] dstbuf, int cnt) throws IOException {
+		raw.seek(position);
+		raw.readFully(dstbuf, 0, cnt);
+	}
+
+	private void beginCopyAsIs(ObjectToPack otp)
+			throws StoredObjectRepresentationNotAvailableException {
+		try {
+			beginCopyRawData();
+		} catch (IOException thisPackNotValid) {
+			throw new StoredObjectRepresentationNotAvailableException(otp,
+					thisPackNotValid);
+		}
+	}
+
+	private synchronized void beginCopyRawData() throws IOException {
+		if (++activeCopyRawData == 1 && activeWindows == 0)
+			doOpen();
 	}
 
 	private synchronized void endCopyAsIs() {
@@ -887,7 +1071,10 @@ else if (delta.next == null)
 					throw new LargeObjectException.OutOfMemory(tooBig);
 				}
 
+				long start = System.nanoTime();
 				BinaryDelta.apply(data, cmds, result);
+				curs.stats.addDelta(result.length,
+						(System.nanoTime() - start) / 1000L);
 				data = result;
 				delta = delta.next;
 			} while (delta != null);
@@ -1100,6 +1287,46 @@ LocalObjectRepresentation representation(final WindowCursor curs,
 		}
 	}
 
+	/**
+	 * Get the number of bytes an object takes up in this pack.
+	 *
+	 * @param offset
+	 *            position of the object's header in the pack.
+	 * @return length of the object's header and compressed data, including
+	 *         the base reference of a delta.
+	 * @throws IOException
+	 *             the reverse index cannot be loaded.
+	 */
+	long getPackedLength(long offset) throws IOException {
+		int position = getReverseIdx().findPostion(offset);
+		if (position < 0)
+			throw new CorruptObjectException(MessageFormat.format(
+					JGitText.get().cantFindObjectInReversePackIndexForTheSpecifiedOffset,
+					Long.valueOf(offset)));
+		return getPackedLengthAt(position);
+	}
+
+	/**
+	 * Get the number of bytes an object takes up in this pack.
+	 *
+	 * @param position
+	 *            position of the object in offset order, as used by the
+	 *            bitmap index of this pack.
+	 * @return length of the object's header and compressed data, including
+	 *         the base reference of a delta.
+	 * @throws IOException
+	 *             the reverse index cannot be loaded.
+	 */
+	long getPackedLengthAt(int position) throws IOException {
+		PackReverseIndex ri = getReverseIdx();
+		long end;
+		if (position + 1 < getObjectCount())
+			end = ri.findOffsetByPosition(position + 1);
+		else
+			end = packFile.length() - 20; // The pack may not be open yet.
+		return end - ri.findOffsetByPosition(position);
+	}
+
 	private long findEndOffset(long startOffset)
 			throws IOException, CorruptObjectException {
 		final long maxOffset = length - 20;
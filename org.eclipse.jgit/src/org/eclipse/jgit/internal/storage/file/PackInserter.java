@@ -78,6 +78,7 @@
 import org.eclipse.jgit.internal.JGitText;
 import org.eclipse.jgit.lib.AbbreviatedObjectId;
 import org.eclipse.jgit.lib.AnyObjectId;
+import org.eclipse.jgit.lib.CommitGraph;
 import org.eclipse.jgit.lib.Constants;
 import org.eclipse.jgit.lib.InflaterCache;
 import org.eclipse.jgit.lib.ObjectId;
@@ -637,6 +638,11 @@ public Set<ObjectId> getShallowCommits() throws IOException {
 			return ctx.getShallowCommits();
 		}
 
+		@Override
+		public CommitGraph getCommitGraph() throws IOException {
+			return ctx.getCommitGraph();
+		}
+
 		@Override
 		public void close() {
 			ctx.close();
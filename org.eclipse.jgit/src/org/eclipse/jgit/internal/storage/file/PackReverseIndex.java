@@ -215,4 +215,8 @@ else if (offset == o)
 	ObjectId findObjectByPosition(int nthPosition) {
 		return index.getObjectId(nth[nthPosition]);
 	}
+
+	long findOffsetByPosition(int nthPosition) {
+		return index.getOffset(nth[nthPosition]);
+	}
 }
@@ -0,0 +1,530 @@
+/*
+ * Copyright (C) 2019, Google LLC.
+ * and other copyright owners as documented in the project's IP log.
+ *
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Distribution License v1.0 which
+ * accompanies this distribution, is reproduced below, and is
+ * available at http://www.eclipse.org/org/documents/edl-v10.php
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or
+ * without modification, are permitted provided that the following
+ * conditions are met:
+ *
+ * - Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * - Redistributions in binary form must reproduce the above
+ *   copyright notice, this list of conditions and the following
+ *   disclaimer in the documentation and/or other materials provided
+ *   with the distribution.
+ *
+ * - Neither the name of the Eclipse Foundation, Inc. nor the
+ *   names of its contributors may be used to endorse or promote
+ *   products derived from this software without specific prior
+ *   written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND
+ * CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+package org.eclipse.jgit.internal.storage.file;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.jgit.annotations.Nullable;
+import org.eclipse.jgit.lib.ObjectReaderStatistics;
+import org.eclipse.jgit.storage.file.WindowCacheConfig;
+
+/**
+ * Window cache holding windows under strong references within a hard byte
+ * limit.
+ * <p>
+ * The cache is split into independently locked segments, each owning an equal
+ * share of the configured byte limit. Lookups, insertions and evictions only
+ * lock the segment the <code>(PackFile,position)</code> tuple hashes to, so
+ * threads working on different segments never contend with each other. Loads
+ * are performed outside of the segment lock, serialized per tuple by an array
+ * of load locks.
+ * <p>
+ * Each segment implements W-TinyLFU: newly loaded windows enter a small LRU
+ * admission window. Windows falling out of the admission window compete with
+ * the least recently used window of the main area, and are only admitted if
+ * they were accessed more often, as estimated by a count-min sketch of recent
+ * accesses. This keeps a burst of one-time reads, e.g. a full clone streaming
+ * every pack, from flushing the windows hot for the rest of the workload. The
+ * main area is a segmented LRU, windows hit again while on probation are
+ * promoted to the protected area.
+ * <p>
+ * Windows are never evicted by the Java garbage collector, so the byte limit
+ * must fit into the heap, or address space when memory mapping is used.
+ */
+class TinyLfuWindowCache extends WindowCache {
+	/** Share of each segment reserved for the admission window, in percent. */
+	private static final int WINDOW_PERCENT = 1;
+
+	/** Share of the main area reserved for protected windows, in percent. */
+	private static final int PROTECTED_PERCENT = 80;
+
+	/** Minimum number of windows per segment. */
+	private static final int MIN_SEGMENT_WINDOWS = 16;
+
+	private static final int MAX_SEGMENTS = 64;
+
+	private static final byte WINDOW = 0;
+
+	private static final byte PROBATION = 1;
+
+	private static final byte PROTECTED = 2;
+
+	private final Segment[] segments;
+
+	private final int segmentMask;
+
+	/** Locks to prevent concurrent loads for same (PackFile,position). */
+	private final Lock[] locks;
+
+	TinyLfuWindowCache(WindowCacheConfig cfg) {
+		super(cfg);
+		int segmentCount = segmentCount(maxBytes / windowSize);
+		long segmentBytes = maxBytes / segmentCount;
+		segments = new Segment[segmentCount];
+		for (int i = 0; i < segmentCount; i++)
+			segments[i] = new Segment(segmentBytes, windowSize);
+		segmentMask = segmentCount - 1;
+
+		locks = new Lock[Math.max(cfg.getPackedGitOpenFiles(), 32)];
+		for (int i = 0; i < locks.length; i++)
+			locks[i] = new Lock();
+	}
+
+	private static int segmentCount(long windows) {
+		int n = Integer.highestOneBit(
+				Runtime.getRuntime().availableProcessors() * 4);
+		n = Math.min(n, MAX_SEGMENTS);
+		while (1 < n && windows / n < MIN_SEGMENT_WINDOWS)
+			n >>>= 1;
+		return n;
+	}
+
+	@Override
+	ByteWindow getOrLoad(PackFile pack, long position,
+			@Nullable ObjectReaderStatistics.Accumulator readerStats)
+			throws IOException {
+		final int h = spread(hash(pack.hash, position));
+		final Segment s = segments[(h >>> 24) & segmentMask];
+		ByteWindow v = s.get(pack, position, h, true);
+		if (v != null) {
+			recordHit(pack, readerStats);
+			return v;
+		}
+
+		List<Node> evicted = new ArrayList<>(2);
+		long waitStart = System.nanoTime();
+		synchronized (locks[(h >>> 1) % locks.length]) {
+			recordWait(readerStats, waitStart);
+			v = s.get(pack, position, h, false);
+			if (v != null) {
+				recordHit(pack, readerStats);
+				return v;
+			}
+
+			v = load(pack, position, readerStats);
+			opened(pack, v.size());
+			s.put(new Node(pack, position, h, v), evicted);
+		}
+		evict(evicted);
+
+		if (isFull())
+			evictFiles(s);
+		return v;
+	}
+
+	private void evictFiles(Segment start) {
+		int i = 0;
+		while (segments[i] != start)
+			i++;
+		int idle = 0;
+		while (isFull() && idle < segments.length) {
+			Node n = segments[i].evictOne();
+			if (n != null) {
+				recordEviction();
+				close(n);
+				idle = 0;
+			} else {
+				idle++;
+			}
+			i = (i + 1) & segmentMask;
+		}
+	}
+
+	@Override
+	void removeAll() {
+		List<Node> evicted = new ArrayList<>();
+		for (Segment s : segments)
+			s.removeAll(null, evicted);
+		release(evicted);
+	}
+
+	@Override
+	void removeAll(PackFile pack) {
+		List<Node> evicted = new ArrayList<>();
+		for (Segment s : segments)
+			s.removeAll(pack, evicted);
+		release(evicted);
+	}
+
+	private void evict(List<Node> evicted) {
+		for (Node n : evicted) {
+			recordEviction();
+			close(n);
+		}
+	}
+
+	private void release(List<Node> evicted) {
+		for (Node n : evicted)
+			close(n);
+	}
+
+	private void close(Node n) {
+		released(n.pack, n.size);
+		close(n.pack);
+	}
+
+	private static int spread(int h) {
+		h ^= h >>> 16;
+		h *= 0x45d9f3b;
+		return h ^ (h >>> 16);
+	}
+
+	/** Independently locked share of the cache. */
+	private static final class Segment {
+		private final Node[] table;
+
+		private final FrequencySketch sketch;
+
+		private final long maxWindowBytes;
+
+		private final long maxMainBytes;
+
+		private final long maxProtectedBytes;
+
+		/** Admission window, least recently used first. */
+		private final Node windowQueue = new Node();
+
+		/** Main area windows not hit since admission or demotion. */
+		private final Node probationQueue = new Node();
+
+		/** Main area windows hit while on probation. */
+		private final Node protectedQueue = new Node();
+
+		private long windowBytes;
+
+		private long probationBytes;
+
+		private long protectedBytes;
+
+		Segment(long maxBytes, int windowSize) {
+			int windows = (int) Math.min(maxBytes / windowSize, 1 << 28);
+			table = new Node[tableSize(windows)];
+			sketch = new FrequencySketch(windows);
+			maxWindowBytes = Math.max(windowSize,
+					maxBytes * WINDOW_PERCENT / 100);
+			maxMainBytes = Math.max(0, maxBytes - maxWindowBytes);
+			maxProtectedBytes = maxMainBytes * PROTECTED_PERCENT / 100;
+		}
+
+		private static int tableSize(int windows) {
+			return Integer.highestOneBit(Math.max(windows, 8)) << 1;
+		}
+
+		synchronized ByteWindow get(PackFile pack, long position, int hash,
+				boolean recordAccess) {
+			if (recordAccess)
+				sketch.increment(hash);
+			for (Node n = table[hash & (table.length - 1)]; n != null;
+					n = n.chain) {
+				if (n.pack == pack && n.position == position) {
+					hit(n);
+					return n.window;
+				}
+			}
+			return null;
+		}
+
+		private void hit(Node n) {
+			switch (n.queue) {
+			case WINDOW:
+				unlink(n);
+				linkLast(windowQueue, n);
+				break;
+			case PROBATION:
+				unlink(n);
+				probationBytes -= n.size;
+				n.queue = PROTECTED;
+				linkLast(protectedQueue, n);
+				protectedBytes += n.size;
+				while (maxProtectedBytes < protectedBytes) {
+					Node d = protectedQueue.next;
+					unlink(d);
+					protectedBytes -= d.size;
+					d.queue = PROBATION;
+					linkLast(probationQueue, d);
+					probationBytes += d.size;
+				}
+				break;
+			case PROTECTED:
+			default:
+				unlink(n);
+				linkLast(protectedQueue, n);
+				break;
+			}
+		}
+
+		synchronized void put(Node n, List<Node> evicted) {
+			int slot = n.hash & (table.length - 1);
+			n.chain = table[slot];
+			table[slot] = n;
+			n.queue = WINDOW;
+			linkLast(windowQueue, n);
+			windowBytes += n.size;
+
+			while (maxWindowBytes < windowBytes) {
+				Node candidate = windowQueue.next;
+				unlink(candidate);
+				windowBytes -= candidate.size;
+				if (admit(candidate, evicted)) {
+					candidate.queue = PROBATION;
+					linkLast(probationQueue, candidate);
+					probationBytes += candidate.size;
+				} else {
+					removeFromTable(candidate);
+					evicted.add(candidate);
+				}
+			}
+		}
+
+		private boolean admit(Node candidate, List<Node> evicted) {
+			if (maxMainBytes < candidate.size)
+				return false;
+			int freq = -1;
+			while (maxMainBytes < probationBytes + protectedBytes
+					+ candidate.size) {
+				Node victim = mainVictim();
+				if (freq < 0)
+					freq = sketch.frequency(candidate.hash);
+				if (freq <= sketch.frequency(victim.hash))
+					return false;
+				remove(victim);
+				evicted.add(victim);
+			}
+			return true;
+		}
+
+		private Node mainVictim() {
+			Node victim = probationQueue.next;
+			if (victim == probationQueue)
+				victim = protectedQueue.next;
+			return victim;
+		}
+
+		synchronized Node evictOne() {
+			Node victim = probationQueue.next;
+			if (victim == probationQueue)
+				victim = windowQueue.next;
+			if (victim == windowQueue)
+				victim = protectedQueue.next;
+			if (victim == protectedQueue)
+				return null;
+			remove(victim);
+			return victim;
+		}
+
+		synchronized void removeAll(PackFile pack, List<Node> evicted) {
+			for (Node n : new Node[] { windowQueue, probationQueue,
+					protectedQueue }) {
+				for (Node e = n.next; e != n;) {
+					Node next = e.next;
+					if (pack == null || e.pack == pack) {
+						remove(e);
+						evicted.add(e);
+					}
+					e = next;
+				}
+			}
+		}
+
+		private void remove(Node n) {
+			unlink(n);
+			switch (n.queue) {
+			case WINDOW:
+				windowBytes -= n.size;
+				break;
+			case PROBATION:
+				probationBytes -= n.size;
+				break;
+			case PROTECTED:
+			default:
+				protectedBytes -= n.size;
+				break;
+			}
+			removeFromTable(n);
+		}
+
+		private void removeFromTable(Node n) {
+			int slot = n.hash & (table.length - 1);
+			Node p = table[slot];
+			if (p == n) {
+				table[slot] = n.chain;
+				return;
+			}
+			for (; p != null; p = p.chain) {
+				if (p.chain == n) {
+					p.chain = n.chain;
+					return;
+				}
+			}
+		}
+
+		private static void linkLast(Node queue, Node n) {
+			n.prev = queue.prev;
+			n.next = queue;
+			queue.prev.next = n;
+			queue.prev = n;
+		}
+
+		private static void unlink(Node n) {
+			n.prev.next = n.next;
+			n.next.prev = n.prev;
+			n.prev = n;
+			n.next = n;
+		}
+	}
+
+	/** A cached window, or the head of a circular queue of windows. */
+	private static final class Node {
+		final PackFile pack;
+
+		final long position;
+
+		final int hash;
+
+		final ByteWindow window;
+
+		final int size;
+
+		/** Next node in the hash table's chain list. */
+		Node chain;
+
+		Node prev;
+
+		Node next;
+
+		byte queue;
+
+		Node() {
+			this(null, 0, 0, null);
+		}
+
+		Node(PackFile pack, long position, int hash, ByteWindow window) {
+			this.pack = pack;
+			this.position = position;
+			this.hash = hash;
+			this.window = window;
+			this.size = window != null ? window.size() : 0;
+			prev = this;
+			next = this;
+		}
+	}
+
+	/**
+	 * Count-min sketch of 4 bit counters estimating how often a window was
+	 * accessed recently.
+	 * <p>
+	 * All counters are halved once the number of recorded accesses reaches ten
+	 * times the number of windows of the segment, so the estimate follows
+	 * changes of the workload.
+	 */
+	private static final class FrequencySketch {
+		private static final long[] SEEDS = { 0xc3a5c85c97cb3127L,
+				0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L };
+
+		private static final long RESET_MASK = 0x7777777777777777L;
+
+		private final long[] table;
+
+		private final int sampleSize;
+
+		private int size;
+
+		FrequencySketch(int windows) {
+			int n = Integer.highestOneBit(Math.max(windows, 8) - 1) << 1;
+			table = new long[n];
+			sampleSize = (int) Math.min(10L * Math.max(windows, 8),
+					Integer.MAX_VALUE);
+		}
+
+		int frequency(int hash) {
+			int freq = 15;
+			for (int i = 0; i < 4; i++) {
+				long word = table[indexOf(hash, i)];
+				freq = Math.min(freq, (int) (word >>> shift(hash, i)) & 0xf);
+			}
+			return freq;
+		}
+
+		void increment(int hash) {
+			boolean added = false;
+			for (int i = 0; i < 4; i++) {
+				int idx = indexOf(hash, i);
+				int shift = shift(hash, i);
+				long mask = 0xfL << shift;
+				if ((table[idx] & mask) != mask) {
+					table[idx] += 1L << shift;
+					added = true;
+				}
+			}
+			if (added && ++size == sampleSize)
+				reset();
+		}
+
+		private void reset() {
+			for (int i = 0; i < table.length; i++)
+				table[i] = (table[i] >>> 1) & RESET_MASK;
+			size /= 2;
+		}
+
+		private int indexOf(int hash, int i) {
+			long h = (hash + SEEDS[i]) * SEEDS[i];
+			h += h >>> 32;
+			return (int) h & (table.length - 1);
+		}
+
+		private static int shift(int hash, int i) {
+			// Each word holds 16 counters, 4 for each hash function. The
+			// counter is chosen by the low 24 bits of the hash, as the bits
+			// above select the segment and are the same for all its windows.
+			return ((((hash >>> (i * 6)) & 3) << 2) | i) << 2;
+		}
+	}
+
+	private static final class Lock {
+		// Used only for its implicit monitor.
+	}
+}
@@ -45,16 +45,23 @@
 package org.eclipse.jgit.internal.storage.file;
 
 import java.io.IOException;
-import java.lang.ref.ReferenceQueue;
-import java.lang.ref.SoftReference;
-import java.util.Random;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
-import java.util.concurrent.atomic.AtomicReferenceArray;
-import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToLongFunction;
 
+import javax.management.ObjectName;
+
+import org.eclipse.jgit.annotations.Nullable;
 import org.eclipse.jgit.internal.JGitText;
+import org.eclipse.jgit.lib.ObjectReaderStatistics;
 import org.eclipse.jgit.storage.file.WindowCacheConfig;
+import org.eclipse.jgit.storage.file.WindowCacheMXBean;
+import org.eclipse.jgit.util.Monitoring;
 
 /**
  * Caches slices of a {@link org.eclipse.jgit.internal.storage.file.PackFile} in
@@ -65,65 +72,32 @@
  * only tiny slices of a file, the WindowCache tries to smooth out these tiny
  * reads into larger block-sized IO operations.
  * <p>
- * Whenever a cache miss occurs, {@link #load(PackFile, long)} is invoked by
- * exactly one thread for the given <code>(PackFile,position)</code> key tuple.
- * This is ensured by an array of locks, with the tuple hashed to a lock
- * instance.
- * <p>
- * During a miss, older entries are evicted from the cache so long as
- * {@link #isFull()} returns true.
- * <p>
- * Its too expensive during object access to be 100% accurate with a least
- * recently used (LRU) algorithm. Strictly ordering every read is a lot of
- * overhead that typically doesn't yield a corresponding benefit to the
- * application.
- * <p>
- * This cache implements a loose LRU policy by randomly picking a window
- * comprised of roughly 10% of the cache, and evicting the oldest accessed entry
- * within that window.
- * <p>
- * Entities created by the cache are held under SoftReferences, permitting the
- * Java runtime's garbage collector to evict entries when heap memory gets low.
- * Most JREs implement a loose least recently used algorithm for this eviction.
- * <p>
- * The internal hash table does not expand at runtime, instead it is fixed in
- * size at cache creation time. The internal lock table used to gate load
- * invocations is also fixed in size.
+ * The replacement policy is chosen by
+ * {@link org.eclipse.jgit.storage.file.WindowCacheConfig#getPackedGitCachePolicy()}
+ * when the cache is configured. {@link ClockWindowCache} holds windows under
+ * SoftReferences and evicts with a loose LRU policy, {@link TinyLfuWindowCache}
+ * holds windows strongly within a hard byte budget and admits new windows based
+ * on their access frequency.
  * <p>
  * The key tuple is passed through to methods as a pair of parameters rather
  * than as a single Object, thus reducing the transient memory allocations of
  * callers. It is more efficient to avoid the allocation, as we can't be 100%
  * sure that a JIT would be able to stack-allocate a key tuple.
  * <p>
- * This cache has an implementation rule such that:
- * <ul>
- * <li>{@link #load(PackFile, long)} is invoked by at most one thread at a time
- * for a given <code>(PackFile,position)</code> tuple.</li>
- * <li>For every <code>load()</code> invocation there is exactly one
- * {@link #createRef(PackFile, long, ByteWindow)} invocation to wrap a
- * SoftReference around the cached entity.</li>
- * <li>For every Reference created by <code>createRef()</code> there will be
- * exactly one call to {@link #clear(Ref)} to cleanup any resources associated
- * with the (now expired) cached entity.</li>
- * </ul>
- * <p>
- * Therefore, it is safe to perform resource accounting increments during the
- * {@link #load(PackFile, long)} or
- * {@link #createRef(PackFile, long, ByteWindow)} methods, and matching
- * decrements during {@link #clear(Ref)}. Implementors may need to override
- * {@link #createRef(PackFile, long, ByteWindow)} in order to embed additional
- * accounting information into an implementation specific
- * {@link org.eclipse.jgit.internal.storage.file.WindowCache.Ref} subclass, as
- * the cached entity may have already been evicted by the JRE's garbage
- * collector.
- * <p>
- * To maintain higher concurrency workloads, during eviction only one thread
- * performs the eviction work, while other threads can continue to insert new
- * objects in parallel. This means that the cache can be temporarily over limit,
- * especially if the nominated eviction thread is being starved relative to the
- * other threads.
+ * Implementations must invoke
+ * {@link #load(PackFile, long, ObjectReaderStatistics.Accumulator)} for a
+ * given <code>(PackFile,position)</code> tuple from at most one thread at a
+ * time, and must call {@link #close(PackFile)} exactly once for every window
+ * they loaded, once the window is no longer cached. Cached bytes are accounted
+ * through {@link #opened(PackFile, int)} and {@link #released(PackFile, int)},
+ * hits and evictions through
+ * {@link #recordHit(PackFile, ObjectReaderStatistics.Accumulator)} and
+ * {@link #recordEviction()}, so that {@link #getStats()} reports the same
+ * figures for every implementation. Time spent waiting on a load lock is
+ * reported to the reader through
+ * {@link #recordWait(ObjectReaderStatistics.Accumulator, long)}.
  */
-public class WindowCache {
+public abstract class WindowCache {
 	private static final int bits(int newSize) {
 		if (newSize < 4096)
 			throw new IllegalArgumentException(JGitText.get().invalidWindowSize);
@@ -132,12 +106,12 @@ private static final int bits(int newSize) {
 		return Integer.numberOfTrailingZeros(newSize);
 	}
 
-	private static final Random rng = new Random();
-
 	private static volatile WindowCache cache;
 
 	private static volatile int streamFileThreshold;
 
+	private static ObjectName mbeanName;
+
 	static {
 		reconfigure(new WindowCacheConfig());
 	}
@@ -157,14 +131,31 @@ private static final int bits(int newSize) {
 	 *             settings, usually too low of a limit.
 	 */
 	@Deprecated
-	public static void reconfigure(WindowCacheConfig cfg) {
-		final WindowCache nc = new WindowCache(cfg);
+	public static synchronized void reconfigure(WindowCacheConfig cfg) {
+		final WindowCache nc = newCache(cfg);
 		final WindowCache oc = cache;
 		if (oc != null)
 			oc.removeAll();
 		cache = nc;
 		streamFileThreshold = cfg.getStreamFileThreshold();
 		DeltaBaseCache.reconfigure(cfg);
+
+		if (mbeanName != null) {
+			Monitoring.unregisterMBean(mbeanName);
+			mbeanName = null;
+		}
+		if (cfg.isExposeStatsViaJmx())
+			mbeanName = Monitoring.registerMBean(nc.getStats(), "WindowCache"); //$NON-NLS-1$
+	}
+
+	private static WindowCache newCache(WindowCacheConfig cfg) {
+		switch (cfg.getPackedGitCachePolicy()) {
+		case TINYLFU:
+			return new TinyLfuWindowCache(cfg);
+		case CLOCK:
+		default:
+			return new ClockWindowCache(cfg);
+		}
 	}
 
 	static int getStreamFileThreshold() {
@@ -180,8 +171,14 @@ public static WindowCache getInstance() {
 
 	static final ByteWindow get(PackFile pack, long offset)
 			throws IOException {
+		return get(pack, offset, null);
+	}
+
+	static final ByteWindow get(PackFile pack, long offset,
+			@Nullable ObjectReaderStatistics.Accumulator readerStats)
+			throws IOException {
 		final WindowCache c = cache;
-		final ByteWindow r = c.getOrLoad(pack, c.toStart(offset));
+		final ByteWindow r = c.getOrLoad(pack, c.toStart(offset), readerStats);
 		if (c != cache) {
 			// The cache was reconfigured while we were using the old one
 			// to load this window. The window is still valid, but our
@@ -194,77 +191,43 @@ static final ByteWindow get(PackFile pack, long offset)
 	}
 
 	static final void purge(PackFile pack) {
-		cache.removeAll(pack);
+		final WindowCache c = cache;
+		c.removeAll(pack);
+		c.stats.packs.remove(pack);
 	}
 
-	/** ReferenceQueue to cleanup released and garbage collected windows. */
-	private final ReferenceQueue<ByteWindow> queue;
-
-	/** Number of entries in {@link #table}. */
-	private final int tableSize;
-
-	/** Access clock for loose LRU. */
-	private final AtomicLong clock;
+	final int maxFiles;
 
-	/** Hash bucket directory; entries are chained below. */
-	private final AtomicReferenceArray<Entry> table;
-
-	/** Locks to prevent concurrent loads for same (PackFile,position). */
-	private final Lock[] locks;
-
-	/** Lock to elect the eviction thread after a load occurs. */
-	private final ReentrantLock evictLock;
-
-	/** Number of {@link #table} buckets to scan for an eviction window. */
-	private final int evictBatch;
-
-	private final int maxFiles;
-
-	private final long maxBytes;
+	final long maxBytes;
 
 	private final boolean mmap;
 
 	private final int windowSizeShift;
 
-	private final int windowSize;
+	final int windowSize;
 
 	private final AtomicInteger openFiles;
 
 	private final AtomicLong openBytes;
 
-	private WindowCache(WindowCacheConfig cfg) {
-		tableSize = tableSize(cfg);
-		final int lockCount = lockCount(cfg);
-		if (tableSize < 1)
-			throw new IllegalArgumentException(JGitText.get().tSizeMustBeGreaterOrEqual1);
-		if (lockCount < 1)
-			throw new IllegalArgumentException(JGitText.get().lockCountMustBeGreaterOrEqual1);
-
-		queue = new ReferenceQueue<>();
-		clock = new AtomicLong(1);
-		table = new AtomicReferenceArray<>(tableSize);
-		locks = new Lock[lockCount];
-		for (int i = 0; i < locks.length; i++)
-			locks[i] = new Lock();
-		evictLock = new ReentrantLock();
-
-		int eb = (int) (tableSize * .1);
-		if (64 < eb)
-			eb = 64;
-		else if (eb < 4)
-			eb = 4;
-		if (tableSize < eb)
-			eb = tableSize;
-		evictBatch = eb;
+	private final Stats stats;
+
+	WindowCache(WindowCacheConfig cfg) {
+		final int wsz = cfg.getPackedGitWindowSize();
+		if (wsz <= 0)
+			throw new IllegalArgumentException(JGitText.get().invalidWindowSize);
+		if (cfg.getPackedGitLimit() < wsz)
+			throw new IllegalArgumentException(JGitText.get().windowSizeMustBeLesserThanLimit);
 
 		maxFiles = cfg.getPackedGitOpenFiles();
 		maxBytes = cfg.getPackedGitLimit();
 		mmap = cfg.isPackedGitMMAP();
-		windowSizeShift = bits(cfg.getPackedGitWindowSize());
+		windowSizeShift = bits(wsz);
 		windowSize = 1 << windowSizeShift;
 
 		openFiles = new AtomicInteger();
 		openBytes = new AtomicLong();
+		stats = new Stats();
 
 		if (maxFiles < 1)
 			throw new IllegalArgumentException(JGitText.get().openFilesMustBeAtLeast1);
@@ -286,47 +249,101 @@ public long getOpenBytes() {
 		return openBytes.get();
 	}
 
-	private int hash(int packHash, long off) {
+	/**
+	 * Get the statistics of this cache.
+	 *
+	 * @return the statistics of this cache.
+	 * @since 5.3
+	 */
+	public WindowCacheMXBean getStats() {
+		return stats;
+	}
+
+	int hash(int packHash, long off) {
 		return packHash + (int) (off >>> windowSizeShift);
 	}
 
-	private ByteWindow load(PackFile pack, long offset)
+	ByteWindow load(PackFile pack, long offset,
+			@Nullable ObjectReaderStatistics.Accumulator readerStats)
 			throws IOException {
+		stats.misses.increment();
+		pack.windowCacheStats.misses.increment();
+		long start = System.nanoTime();
 		if (pack.beginWindowCache())
 			openFiles.incrementAndGet();
 		try {
+			ByteWindow w;
 			if (mmap)
-				return pack.mmap(offset, windowSize);
-			return pack.read(offset, windowSize);
+				w = pack.mmap(offset, windowSize);
+			else
+				w = pack.read(offset, windowSize);
+			stats.loadSuccesses.increment();
+			if (readerStats != null) {
+				readerStats.addRead(w.size(),
+						(System.nanoTime() - start) / 1000L);
+			}
+			return w;
 		} catch (IOException e) {
+			stats.loadFailures.increment();
 			close(pack);
 			throw e;
 		} catch (RuntimeException e) {
+			stats.loadFailures.increment();
 			close(pack);
 			throw e;
 		} catch (Error e) {
+			stats.loadFailures.increment();
 			close(pack);
 			throw e;
+		} finally {
+			stats.totalLoadTime.add(System.nanoTime() - start);
 		}
 	}
 
-	private Ref createRef(PackFile p, long o, ByteWindow v) {
-		final Ref ref = new Ref(p, o, v, queue);
-		openBytes.addAndGet(ref.size);
-		return ref;
+	void opened(PackFile pack, int size) {
+		openBytes.addAndGet(size);
+		pack.windowCacheStats.openBytes.add(size);
+		stats.packs.add(pack);
 	}
 
-	private void clear(Ref ref) {
-		openBytes.addAndGet(-ref.size);
-		close(ref.pack);
+	void released(PackFile pack, int size) {
+		openBytes.addAndGet(-size);
+		pack.windowCacheStats.openBytes.add(-size);
 	}
 
-	private void close(PackFile pack) {
+	void recordHit(PackFile pack,
+			@Nullable ObjectReaderStatistics.Accumulator readerStats) {
+		stats.hits.increment();
+		pack.windowCacheStats.hits.increment();
+		if (readerStats != null)
+			readerStats.addCacheHit();
+	}
+
+	/**
+	 * Record time spent waiting for a load lock held by another reader.
+	 *
+	 * @param readerStats
+	 *            statistics of the waiting reader, may be null.
+	 * @param start
+	 *            {@link System#nanoTime()} before the lock was requested.
+	 */
+	static void recordWait(
+			@Nullable ObjectReaderStatistics.Accumulator readerStats,
+			long start) {
+		if (readerStats != null)
+			readerStats.addCacheWait((System.nanoTime() - start) / 1000L);
+	}
+
+	void recordEviction() {
+		stats.evictions.increment();
+	}
+
+	void close(PackFile pack) {
 		if (pack.endWindowCache())
 			openFiles.decrementAndGet();
 	}
 
-	private boolean isFull() {
+	boolean isFull() {
 		return maxFiles < openFiles.get() || maxBytes < openBytes.get();
 	}
 
@@ -334,20 +351,6 @@ private long toStart(long offset) {
 		return (offset >>> windowSizeShift) << windowSizeShift;
 	}
 
-	private static int tableSize(WindowCacheConfig cfg) {
-		final int wsz = cfg.getPackedGitWindowSize();
-		final long limit = cfg.getPackedGitLimit();
-		if (wsz <= 0)
-			throw new IllegalArgumentException(JGitText.get().invalidWindowSize);
-		if (limit < wsz)
-			throw new IllegalArgumentException(JGitText.get().windowSizeMustBeLesserThanLimit);
-		return (int) Math.min(5 * (limit / wsz) / 2, 2000000000);
-	}
-
-	private static int lockCount(WindowCacheConfig cfg) {
-		return Math.max(cfg.getPackedGitOpenFiles(), 32);
-	}
-
 	/**
 	 * Lookup a cached object, creating and loading it if it doesn't exist.
 	 *
@@ -355,126 +358,27 @@ private static int lockCount(WindowCacheConfig cfg) {
 	 *            the pack that "contains" the cached object.
 	 * @param position
 	 *            offset within <code>pack</code> of the object.
+	 * @param readerStats
+	 *            statistics of the reader requesting the window, may be null.
 	 * @return the object reference.
 	 * @throws IOException
 	 *             the object reference was not in the cache and could not be
-	 *             obtained by {@link #load(PackFile, long)}.
+	 *             obtained by
+	 *             {@link #load(PackFile, long, ObjectReaderStatistics.Accumulator)}.
 	 */
-	private ByteWindow getOrLoad(PackFile pack, long position)
-			throws IOException {
-		final int slot = slot(pack, position);
-		final Entry e1 = table.get(slot);
-		ByteWindow v = scan(e1, pack, position);
-		if (v != null)
-			return v;
-
-		synchronized (lock(pack, position)) {
-			Entry e2 = table.get(slot);
-			if (e2 != e1) {
-				v = scan(e2, pack, position);
-				if (v != null)
-					return v;
-			}
-
-			v = load(pack, position);
-			final Ref ref = createRef(pack, position, v);
-			hit(ref);
-			for (;;) {
-				final Entry n = new Entry(clean(e2), ref);
-				if (table.compareAndSet(slot, e2, n))
-					break;
-				e2 = table.get(slot);
-			}
-		}
-
-		if (evictLock.tryLock()) {
-			try {
-				gc();
-				evict();
-			} finally {
-				evictLock.unlock();
-			}
-		}
-
-		return v;
-	}
-
-	private ByteWindow scan(Entry n, PackFile pack, long position) {
-		for (; n != null; n = n.next) {
-			final Ref r = n.ref;
-			if (r.pack == pack && r.position == position) {
-				final ByteWindow v = r.get();
-				if (v != null) {
-					hit(r);
-					return v;
-				}
-				n.kill();
-				break;
-			}
-		}
-		return null;
-	}
-
-	private void hit(Ref r) {
-		// We don't need to be 100% accurate here. Its sufficient that at least
-		// one thread performs the increment. Any other concurrent access at
-		// exactly the same time can simply use the same clock value.
-		//
-		// Consequently we attempt the set, but we don't try to recover should
-		// it fail. This is why we don't use getAndIncrement() here.
-		//
-		final long c = clock.get();
-		clock.compareAndSet(c, c + 1);
-		r.lastAccess = c;
-	}
-
-	private void evict() {
-		while (isFull()) {
-			int ptr = rng.nextInt(tableSize);
-			Entry old = null;
-			int slot = 0;
-			for (int b = evictBatch - 1; b >= 0; b--, ptr++) {
-				if (tableSize <= ptr)
-					ptr = 0;
-				for (Entry e = table.get(ptr); e != null; e = e.next) {
-					if (e.dead)
-						continue;
-					if (old == null || e.ref.lastAccess < old.ref.lastAccess) {
-						old = e;
-						slot = ptr;
-					}
-				}
-			}
-			if (old != null) {
-				old.kill();
-				gc();
-				final Entry e1 = table.get(slot);
-				table.compareAndSet(slot, e1, clean(e1));
-			}
-		}
-	}
+	abstract ByteWindow getOrLoad(PackFile pack, long position,
+			@Nullable ObjectReaderStatistics.Accumulator readerStats)
+			throws IOException;
 
 	/**
 	 * Clear every entry from the cache.
 	 * <p>
 	 * This is a last-ditch effort to clear out the cache, such as before it
-	 * gets replaced by another cache that is configured differently. This
-	 * method tries to force every cached entry through {@link #clear(Ref)} to
-	 * ensure that resources are correctly accounted for and cleaned up by the
-	 * subclass. A concurrent reader loading entries while this method is
-	 * running may cause resource accounting failures.
+	 * gets replaced by another cache that is configured differently. A
+	 * concurrent reader loading entries while this method is running may cause
+	 * resource accounting failures.
 	 */
-	private void removeAll() {
-		for (int s = 0; s < tableSize; s++) {
-			Entry e1;
-			do {
-				e1 = table.get(s);
-				for (Entry e = e1; e != null; e = e.next)
-					e.kill();
-			} while (!table.compareAndSet(s, e1, null));
-		}
-		gc();
-	}
+	abstract void removeAll();
 
 	/**
 	 * Clear all entries related to a single file.
@@ -487,106 +391,109 @@ private void removeAll() {
 	 * @param pack
 	 *            the file to purge all entries of.
 	 */
-	private void removeAll(PackFile pack) {
-		for (int s = 0; s < tableSize; s++) {
-			final Entry e1 = table.get(s);
-			boolean hasDead = false;
-			for (Entry e = e1; e != null; e = e.next) {
-				if (e.ref.pack == pack) {
-					e.kill();
-					hasDead = true;
-				} else if (e.dead)
-					hasDead = true;
-			}
-			if (hasDead)
-				table.compareAndSet(s, e1, clean(e1));
-		}
-		gc();
+	abstract void removeAll(PackFile pack);
+
+	/** Counters of a pack, held by the pack to keep them off the map. */
+	static final class PackStats {
+		final LongAdder hits = new LongAdder();
+
+		final LongAdder misses = new LongAdder();
+
+		final LongAdder openBytes = new LongAdder();
 	}
 
-	private void gc() {
-		Ref r;
-		while ((r = (Ref) queue.poll()) != null) {
-			clear(r);
-
-			final int s = slot(r.pack, r.position);
-			final Entry e1 = table.get(s);
-			for (Entry n = e1; n != null; n = n.next) {
-				if (n.ref == r) {
-					n.dead = true;
-					table.compareAndSet(s, e1, clean(e1));
-					break;
-				}
-			}
+	private final class Stats implements WindowCacheMXBean {
+		final LongAdder hits = new LongAdder();
+
+		final LongAdder misses = new LongAdder();
+
+		final LongAdder loadSuccesses = new LongAdder();
+
+		final LongAdder loadFailures = new LongAdder();
+
+		final LongAdder totalLoadTime = new LongAdder();
+
+		final LongAdder evictions = new LongAdder();
+
+		/** Packs which had windows loaded into this cache. */
+		final Set<PackFile> packs = ConcurrentHashMap.newKeySet();
+
+		@Override
+		public long getHitCount() {
+			return hits.sum();
 		}
-	}
 
-	private int slot(PackFile pack, long position) {
-		return (hash(pack.hash, position) >>> 1) % tableSize;
-	}
+		@Override
+		public long getMissCount() {
+			return misses.sum();
+		}
 
-	private Lock lock(PackFile pack, long position) {
-		return locks[(hash(pack.hash, position) >>> 1) % locks.length];
-	}
+		@Override
+		public long getLoadSuccessCount() {
+			return loadSuccesses.sum();
+		}
 
-	private static Entry clean(Entry top) {
-		while (top != null && top.dead) {
-			top.ref.enqueue();
-			top = top.next;
+		@Override
+		public long getLoadFailureCount() {
+			return loadFailures.sum();
 		}
-		if (top == null)
-			return null;
-		final Entry n = clean(top.next);
-		return n == top.next ? top : new Entry(n, top.ref);
-	}
 
-	private static class Entry {
-		/** Next entry in the hash table's chain list. */
-		final Entry next;
-
-		/** The referenced object. */
-		final Ref ref;
-
-		/**
-		 * Marked true when ref.get() returns null and the ref is dead.
-		 * <p>
-		 * A true here indicates that the ref is no longer accessible, and that
-		 * we therefore need to eventually purge this Entry object out of the
-		 * bucket's chain.
-		 */
-		volatile boolean dead;
-
-		Entry(Entry n, Ref r) {
-			next = n;
-			ref = r;
+		@Override
+		public long getTotalLoadTime() {
+			return totalLoadTime.sum();
 		}
 
-		final void kill() {
-			dead = true;
-			ref.enqueue();
+		@Override
+		public long getEvictionCount() {
+			return evictions.sum();
 		}
-	}
 
-	/** A soft reference wrapped around a cached object. */
-	private static class Ref extends SoftReference<ByteWindow> {
-		final PackFile pack;
+		@Override
+		public long getOpenFileCount() {
+			return getOpenFiles();
+		}
 
-		final long position;
+		@Override
+		public long getOpenByteCount() {
+			return getOpenBytes();
+		}
 
-		final int size;
+		@Override
+		public Map<String, Long> getHitCountPerPack() {
+			return perPack(p -> p.hits.sum());
+		}
 
-		long lastAccess;
+		@Override
+		public Map<String, Long> getMissCountPerPack() {
+			return perPack(p -> p.misses.sum());
+		}
 
-		protected Ref(final PackFile pack, final long position,
-				final ByteWindow v, final ReferenceQueue<ByteWindow> queue) {
-			super(v, queue);
-			this.pack = pack;
-			this.position = position;
-			this.size = v.size();
+		@Override
+		public Map<String, Long> getOpenByteCountPerPack() {
+			return perPack(p -> p.openBytes.sum());
+		}
+
+		private Map<String, Long> perPack(ToLongFunction<PackStats> counter) {
+			Map<String, Long> m = new HashMap<>();
+			for (PackFile p : packs) {
+				m.put(p.getPackFile().getPath(),
+						Long.valueOf(counter.applyAsLong(p.windowCacheStats)));
+			}
+			return m;
 		}
-	}
 
-	private static final class Lock {
-		// Used only for its implicit monitor.
+		@Override
+		public void resetCounters() {
+			hits.reset();
+			misses.reset();
+			loadSuccesses.reset();
+			loadFailures.reset();
+			totalLoadTime.reset();
+			evictions.reset();
+			for (PackFile p : packs) {
+				p.windowCacheStats.hits.reset();
+				p.windowCacheStats.misses.reset();
+			}
+		}
 	}
 }
@@ -45,11 +45,17 @@
 package org.eclipse.jgit.internal.storage.file;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Executor;
 import java.util.zip.DataFormatException;
 import java.util.zip.Inflater;
 
@@ -63,16 +69,21 @@
 import org.eclipse.jgit.internal.storage.pack.ObjectToPack;
 import org.eclipse.jgit.internal.storage.pack.PackOutputStream;
 import org.eclipse.jgit.internal.storage.pack.PackWriter;
+import org.eclipse.jgit.internal.storage.pack.ParallelSizeLookup;
 import org.eclipse.jgit.lib.AbbreviatedObjectId;
 import org.eclipse.jgit.lib.AnyObjectId;
+import org.eclipse.jgit.lib.AsyncObjectLoaderQueue;
+import org.eclipse.jgit.lib.AsyncObjectSizeQueue;
 import org.eclipse.jgit.lib.BitmapIndex;
 import org.eclipse.jgit.lib.BitmapIndex.BitmapBuilder;
+import org.eclipse.jgit.lib.CommitGraph;
 import org.eclipse.jgit.lib.Constants;
 import org.eclipse.jgit.lib.InflaterCache;
 import org.eclipse.jgit.lib.ObjectId;
 import org.eclipse.jgit.lib.ObjectInserter;
 import org.eclipse.jgit.lib.ObjectLoader;
 import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.lib.ObjectReaderStatistics;
 import org.eclipse.jgit.lib.ProgressMonitor;
 
 /** Active handle to a ByteWindow. */
@@ -80,6 +91,10 @@ final class WindowCursor extends ObjectReader implements ObjectReuseAsIs {
 	/** Temporary buffer large enough for at least one raw object id. */
 	final byte[] tempId = new byte[Constants.OBJECT_ID_LENGTH];
 
+	/** I/O and CPU statistics of this cursor. */
+	final ObjectReaderStatistics.Accumulator stats =
+			new ObjectReaderStatistics.Accumulator();
+
 	private Inflater inf;
 
 	private ByteWindow window;
@@ -174,12 +189,244 @@ public ObjectLoader open(AnyObjectId objectId, int typeHint)
 		return ldr;
 	}
 
+	/**
+	 * Object of a batch, with its location if it is packed.
+	 *
+	 * @param <T>
+	 *            type of the object id.
+	 */
+	static final class FoundObject<T extends ObjectId> {
+		final T id;
+
+		/** Pack holding the object; null if it is loose or missing. */
+		PackFile pack;
+
+		long offset;
+
+		/** Position of {@link #pack} in the batch, to sort by. */
+		int packIndex;
+
+		FoundObject(T id) {
+			this.id = id;
+		}
+	}
+
+	private static final Comparator<FoundObject<?>> FOUND_OBJECT_SORT = (
+			FoundObject<?> a, FoundObject<?> b) -> {
+		// Objects that are not packed are looked up last.
+		if (a.pack == null || b.pack == null)
+			return (a.pack == null ? 1 : 0) - (b.pack == null ? 1 : 0);
+		int cmp = a.packIndex - b.packIndex;
+		if (cmp == 0)
+			cmp = Long.signum(a.offset - b.offset);
+		return cmp;
+	};
+
+	/**
+	 * Locate a batch of objects, and sort them by pack and offset.
+	 * <p>
+	 * Only the indexes are read. Loose and missing objects are placed last,
+	 * in their original order, and are looked up without a known location.
+	 *
+	 * @param objectIds
+	 *            objects to locate.
+	 * @return the objects, sorted by pack and offset.
+	 */
+	private <T extends ObjectId> List<FoundObject<T>> findAll(
+			Iterable<T> objectIds) {
+		List<FoundObject<T>> r = new ArrayList<>();
+		Map<PackFile, Integer> packIndex = new IdentityHashMap<>();
+		for (T id : objectIds) {
+			FoundObject<T> obj = new FoundObject<>(id);
+			if (db.findPackedObject(obj)) {
+				Integer idx = packIndex.get(obj.pack);
+				if (idx == null) {
+					idx = Integer.valueOf(packIndex.size());
+					packIndex.put(obj.pack, idx);
+				}
+				obj.packIndex = idx.intValue();
+			}
+			r.add(obj);
+		}
+		Collections.sort(r, FOUND_OBJECT_SORT);
+		return r;
+	}
+
+	private ObjectLoader openFound(FoundObject<?> obj) throws IOException {
+		if (obj.pack != null) {
+			try {
+				ObjectLoader ldr = obj.pack.getAt(this, obj.offset);
+				if (ldr != null)
+					return ldr;
+			} catch (IOException e) {
+				// Fall through, the full lookup handles pack errors.
+			}
+		}
+		return open(obj.id, OBJ_ANY);
+	}
+
+	private long getFoundSize(FoundObject<?> obj) throws IOException {
+		if (obj.pack != null) {
+			try {
+				long sz = obj.pack.getObjectSize(this, obj.offset);
+				if (0 <= sz)
+					return sz;
+			} catch (IOException e) {
+				// Fall through, the full lookup handles pack errors.
+			}
+		}
+		return db.getObjectSize(this, obj.id);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * Objects are returned in pack and offset order, rather than in the order
+	 * of {@code objectIds}.
+	 */
+	@Override
+	public <T extends ObjectId> AsyncObjectLoaderQueue<T> open(
+			Iterable<T> objectIds, boolean reportMissing) {
+		Iterator<FoundObject<T>> idItr = findAll(objectIds).iterator();
+		return new AsyncObjectLoaderQueue<T>() {
+			private FoundObject<T> cur;
+
+			@Override
+			public boolean next() throws MissingObjectException, IOException {
+				if (idItr.hasNext()) {
+					cur = idItr.next();
+					return true;
+				}
+				return false;
+			}
+
+			@Override
+			public T getCurrent() {
+				return cur.id;
+			}
+
+			@Override
+			public ObjectId getObjectId() {
+				return cur.id;
+			}
+
+			@Override
+			public ObjectLoader open() throws IOException {
+				return openFound(cur);
+			}
+
+			@Override
+			public boolean cancel(boolean mayInterruptIfRunning) {
+				return true;
+			}
+
+			@Override
+			public void release() {
+				// Nothing to clean up.
+			}
+		};
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * Objects are returned in pack and offset order, rather than in the order
+	 * of {@code objectIds}. Large batches are looked up in parallel if a
+	 * {@link #setBatchExecutor(Executor) batch executor} is set.
+	 */
+	@Override
+	public <T extends ObjectId> AsyncObjectSizeQueue<T> getObjectSize(
+			Iterable<T> objectIds, boolean reportMissing) {
+		List<FoundObject<T>> order = findAll(objectIds);
+		long[] sizes = null;
+		IOException error = null;
+		Executor executor = getBatchExecutor();
+		if (executor != null && ParallelSizeLookup
+				.isWorthSplitting(order.size(), getBatchThreads())) {
+			try {
+				sizes = new ParallelSizeLookup<WindowCursor, FoundObject<T>>() {
+					@Override
+					protected WindowCursor newReader() {
+						return new WindowCursor(db);
+					}
+
+					@Override
+					protected long getSize(WindowCursor reader,
+							FoundObject<T> obj) throws IOException {
+						return reader.getFoundSize(obj);
+					}
+				}.getSizes(order, executor, getBatchThreads());
+			} catch (IOException e) {
+				error = e;
+			}
+		}
+
+		Iterator<FoundObject<T>> idItr = order.iterator();
+		long[] knownSizes = sizes;
+		IOException lookupError = error;
+		return new AsyncObjectSizeQueue<T>() {
+			private FoundObject<T> cur;
+
+			private int idx = -1;
+
+			private long sz;
+
+			@Override
+			public boolean next() throws MissingObjectException, IOException {
+				if (lookupError != null) {
+					throw lookupError;
+				} else if (idItr.hasNext()) {
+					cur = idItr.next();
+					idx++;
+					sz = knownSizes != null ? knownSizes[idx]
+							: getFoundSize(cur);
+					if (sz < 0)
+						throw new MissingObjectException(cur.id,
+								JGitText.get().unknownObjectType2);
+					return true;
+				}
+				return false;
+			}
+
+			@Override
+			public T getCurrent() {
+				return cur.id;
+			}
+
+			@Override
+			public ObjectId getObjectId() {
+				return cur.id;
+			}
+
+			@Override
+			public long getSize() {
+				return sz;
+			}
+
+			@Override
+			public boolean cancel(boolean mayInterruptIfRunning) {
+				return true;
+			}
+
+			@Override
+			public void release() {
+				// Nothing to clean up.
+			}
+		};
+	}
+
 	/** {@inheritDoc} */
 	@Override
 	public Set<ObjectId> getShallowCommits() throws IOException {
 		return db.getShallowCommits();
 	}
 
+	/** {@inheritDoc} */
+	@Override
+	public CommitGraph getCommitGraph() {
+		return db.getCommitGraph();
+	}
+
 	/** {@inheritDoc} */
 	@Override
 	public long getObjectSize(AnyObjectId objectId, int typeHint)
@@ -269,22 +516,7 @@ int copy(final PackFile pack, long position, final byte[] dstbuf,
 	@Override
 	public void copyPackAsIs(PackOutputStream out, CachedPack pack)
 			throws IOException {
-		((LocalCachedPack) pack).copyAsIs(out, this);
-	}
-
-	void copyPackAsIs(final PackFile pack, final long length,
-			final PackOutputStream out) throws IOException {
-		long position = 12;
-		long remaining = length - (12 + 20);
-		while (0 < remaining) {
-			pin(pack, position);
-
-			int ptr = (int) (position - window.start);
-			int n = (int) Math.min(window.size() - ptr, remaining);
-			window.write(out, position, n);
-			position += n;
-			remaining -= n;
-		}
+		((LocalCachedPack) pack).copyAsIs(out);
 	}
 
 	/**
@@ -313,11 +545,14 @@ int inflate(final PackFile pack, long position, final byte[] dstbuf,
 		prepareInflater();
 		pin(pack, position);
 		position += window.setInput(position, inf);
+		long start = System.nanoTime();
 		for (int dstoff = 0;;) {
 			int n = inf.inflate(dstbuf, dstoff, dstbuf.length - dstoff);
 			dstoff += n;
-			if (inf.finished() || (headerOnly && dstoff == dstbuf.length))
+			if (inf.finished() || (headerOnly && dstoff == dstbuf.length)) {
+				stats.addInflate(dstoff, (System.nanoTime() - start) / 1000L);
 				return dstoff;
+			}
 			if (inf.needsInput()) {
 				pin(pack, position);
 				position += window.setInput(position, inf);
@@ -357,10 +592,16 @@ void pin(PackFile pack, long position)
 			// it again.
 			//
 			window = null;
-			window = WindowCache.get(pack, position);
+			window = WindowCache.get(pack, position, stats);
 		}
 	}
 
+	/** {@inheritDoc} */
+	@Override
+	public ObjectReaderStatistics getStatistics() {
+		return new ObjectReaderStatistics(stats);
+	}
+
 	/** {@inheritDoc} */
 	@Override
 	@Nullable
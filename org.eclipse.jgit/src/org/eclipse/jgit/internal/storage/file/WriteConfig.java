@@ -45,7 +45,10 @@
 
 import org.eclipse.jgit.lib.Config;
 import org.eclipse.jgit.lib.Config.SectionParser;
+import org.eclipse.jgit.lib.ConfigConstants;
 import org.eclipse.jgit.lib.CoreConfig;
+import org.eclipse.jgit.util.sha1.SHA1;
+import org.eclipse.jgit.util.sha1.SHA1.Sha1Implementation;
 
 class WriteConfig {
 	/** Key for {@link Config#get(SectionParser)}. */
@@ -57,10 +60,15 @@ class WriteConfig {
 
 	private final boolean fsyncRefFiles;
 
+	private final Sha1Implementation sha1Implementation;
+
 	private WriteConfig(Config rc) {
 		compression = rc.get(CoreConfig.KEY).getCompression();
 		fsyncObjectFiles = rc.getBoolean("core", "fsyncobjectfiles", false); //$NON-NLS-1$ //$NON-NLS-2$
 		fsyncRefFiles = rc.getBoolean("core", "fsyncreffiles", false); //$NON-NLS-1$ //$NON-NLS-2$
+		sha1Implementation = rc.getEnum(ConfigConstants.CONFIG_CORE_SECTION,
+				null, ConfigConstants.CONFIG_KEY_SHA1_IMPLEMENTATION,
+				SHA1.getDefaultImplementation());
 	}
 
 	int getCompression() {
@@ -74,4 +82,8 @@ boolean getFSyncObjectFiles() {
 	boolean getFSyncRefFiles() {
 		return fsyncRefFiles;
 	}
+
+	Sha1Implementation getSha1Implementation() {
+		return sha1Implementation;
+	}
 }
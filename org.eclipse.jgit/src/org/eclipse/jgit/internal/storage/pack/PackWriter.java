@@ -44,6 +44,7 @@
 
 package org.eclipse.jgit.internal.storage.pack;
 
+import static java.util.Objects.requireNonNull;
 import static org.eclipse.jgit.internal.storage.pack.StoredObjectRepresentation.PACK_DELTA;
 import static org.eclipse.jgit.internal.storage.pack.StoredObjectRepresentation.PACK_WHOLE;
 import static org.eclipse.jgit.lib.Constants.OBJECT_ID_LENGTH;
@@ -62,6 +63,7 @@
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
@@ -100,6 +102,7 @@
 import org.eclipse.jgit.lib.Constants;
 import org.eclipse.jgit.lib.NullProgressMonitor;
 import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectIdHashSet;
 import org.eclipse.jgit.lib.ObjectIdOwnerMap;
 import org.eclipse.jgit.lib.ObjectIdSet;
 import org.eclipse.jgit.lib.ObjectLoader;
@@ -119,6 +122,7 @@
 import org.eclipse.jgit.revwalk.RevTree;
 import org.eclipse.jgit.storage.pack.PackConfig;
 import org.eclipse.jgit.storage.pack.PackStatistics;
+import org.eclipse.jgit.transport.FilterSpec;
 import org.eclipse.jgit.transport.ObjectCountCallback;
 import org.eclipse.jgit.transport.WriteAbortedException;
 import org.eclipse.jgit.util.BlockList;
@@ -303,7 +307,8 @@ public static Iterable<PackWriter> getInstances() {
 
 	private ObjectCountCallback callback;
 
-	private long filterBlobLimit = -1;
+	@NonNull
+	private FilterSpec filterSpec = FilterSpec.NO_FILTER;
 
 	/**
 	 * Create writer for specified repository.
@@ -645,7 +650,23 @@ public void setShallowPack(int depth,
 	 * @since 5.0
 	 */
 	public void setFilterBlobLimit(long bytes) {
-		filterBlobLimit = bytes;
+		filterSpec = bytes >= 0 ? FilterSpec.withBlobLimit(bytes)
+				: FilterSpec.NO_FILTER;
+	}
+
+	/**
+	 * Set the filter to apply to the objects of the pack.
+	 * <p>
+	 * Objects excluded by the filter are not enumerated, unless they were
+	 * explicitly wanted. Cached packs are not used if the filter excludes
+	 * anything, and bitmaps only if they can evaluate the filter.
+	 *
+	 * @param filter
+	 *            filter to apply
+	 * @since 5.3
+	 */
+	public void setFilterSpec(@NonNull FilterSpec filter) {
+		filterSpec = requireNonNull(filter);
 	}
 
 	/**
@@ -704,6 +725,39 @@ public ObjectIdOwnerMap<ObjectIdOwnerMap.Entry> getObjectSet()
 		return r;
 	}
 
+	/**
+	 * Returns the object ids in the pack file that was created by this writer,
+	 * stored without a Java object per id.
+	 * <p>
+	 * This method can only be invoked after
+	 * {@link #writePack(ProgressMonitor, ProgressMonitor, OutputStream)} has
+	 * been invoked and completed successfully.
+	 *
+	 * @return set of objects in pack.
+	 * @throws java.io.IOException
+	 *             a cached pack cannot supply its object ids.
+	 * @since 5.3
+	 */
+	public ObjectIdHashSet getObjectIdSet() throws IOException {
+		if (!cachedPacks.isEmpty())
+			throw new IOException(
+					JGitText.get().cachedPacksPreventsListingObjects);
+
+		if (writeBitmaps != null) {
+			return writeBitmaps.getObjectIdSet();
+		}
+
+		ObjectIdHashSet r = new ObjectIdHashSet(
+				(int) Math.min(getObjectCount(), Integer.MAX_VALUE), false);
+		for (BlockList<ObjectToPack> objList : objectsLists) {
+			if (objList != null) {
+				for (ObjectToPack otp : objList)
+					r.add(otp);
+			}
+		}
+		return r;
+	}
+
 	/**
 	 * Add a pack index whose contents should be excluded from the result.
 	 *
@@ -1331,8 +1385,18 @@ private void searchForDeltas(ProgressMonitor monitor)
 		//
 		final long sizingStart = System.currentTimeMillis();
 		beginPhase(PackingPhase.GETTING_SIZES, monitor, cnt);
-		AsyncObjectSizeQueue<ObjectToPack> sizeQueue = reader.getObjectSize(
-				Arrays.<ObjectToPack> asList(list).subList(0, cnt), false);
+		Executor readerExecutor = reader.getBatchExecutor();
+		int readerThreads = reader.getBatchThreads();
+		if (config.getExecutor() != null && config.getThreads() != 1)
+			reader.setBatchExecutor(config.getExecutor(),
+					config.getThreads());
+		AsyncObjectSizeQueue<ObjectToPack> sizeQueue;
+		try {
+			sizeQueue = reader.getObjectSize(
+					Arrays.<ObjectToPack> asList(list).subList(0, cnt), false);
+		} finally {
+			reader.setBatchExecutor(readerExecutor, readerThreads);
+		}
 		try {
 			final long limit = Math.min(
 					config.getBigFileThreshold(),
@@ -1786,8 +1850,12 @@ private void findObjectsToPack(@NonNull ProgressMonitor countingMonitor,
 		canBuildBitmaps = config.isBuildBitmaps()
 				&& !shallowPack
 				&& have.isEmpty()
+				&& filterSpec.isNoOp()
 				&& (excludeInPacks == null || excludeInPacks.length == 0);
-		if (!shallowPack && useBitmaps) {
+		// Bitmaps do not know the path of an object, so they can only apply
+		// tree depth filters that exclude every tree.
+		if (!shallowPack && useBitmaps
+				&& filterSpec.getTreeDepthLimit() <= 0) {
 			BitmapIndex bitmapIndex = reader.getBitmapIndex();
 			if (bitmapIndex != null) {
 				BitmapWalker bitmapWalker = new BitmapWalker(
@@ -1893,6 +1961,12 @@ private void findObjectsToPack(@NonNull ProgressMonitor countingMonitor,
 		for (RevObject obj : haveObjs)
 			walker.markUninteresting(obj);
 
+		boolean depthFilter = filterSpec.getTreeDepthLimit() >= 0;
+		if (depthFilter) {
+			walker.setVisitationPolicy(new DepthAwareVisitationPolicy(walker,
+					want, filterSpec.getTreeDepthLimit()));
+		}
+
 		final int maxBases = config.getDeltaSearchWindowSize();
 		Set<RevTree> baseTrees = new HashSet<>();
 		BlockList<RevCommit> commits = new BlockList<>();
@@ -1965,6 +2039,8 @@ private void findObjectsToPack(@NonNull ProgressMonitor countingMonitor,
 					continue;
 				if (exclude(o))
 					continue;
+				if (depthFilter && objectsMap.contains(o))
+					continue;
 
 				int pathHash = walker.getPathHashCode();
 				byte[] pathBuf = walker.getPathBuffer();
@@ -1980,6 +2056,8 @@ private void findObjectsToPack(@NonNull ProgressMonitor countingMonitor,
 					continue;
 				if (exclude(o))
 					continue;
+				if (depthFilter && objectsMap.contains(o))
+					continue;
 				filterAndAddObject(o, o.getType(), walker.getPathHashCode(), want);
 				countingMonitor.update(1);
 			}
@@ -2003,6 +2081,7 @@ private void findObjectsToPackUsingBitmaps(
 		BitmapBuilder needBitmap = wantBitmap.andNot(haveBitmap);
 
 		if (useCachedPacks && reuseSupport != null && !reuseValidate
+				&& filterSpec.isNoOp()
 				&& (excludeInPacks == null || excludeInPacks.length == 0))
 			cachedPacks.addAll(
 					reuseSupport.getCachedPacksAndUpdate(needBitmap));
@@ -2073,22 +2152,63 @@ private void addObject(
 	}
 
 	// Adds the given object as an object to be packed, first performing
-	// filtering on blobs at or exceeding a given size.
+	// filtering on blobs at or exceeding a given size, and on trees and blobs
+	// if no tree may be included.
 	private void filterAndAddObject(@NonNull AnyObjectId src, int type,
 			int pathHashCode, @NonNull Set<? extends AnyObjectId> want)
 			throws IOException {
 
 		// Check if this object needs to be rejected, doing the cheaper
 		// checks first.
-		boolean reject = filterBlobLimit >= 0 &&
-			type == OBJ_BLOB &&
-			!want.contains(src) &&
-			reader.getObjectSize(src, OBJ_BLOB) > filterBlobLimit;
+		long blobLimit = filterSpec.getBlobLimit();
+		boolean reject = (filterSpec.getTreeDepthLimit() == 0
+				&& (type == OBJ_TREE || type == OBJ_BLOB)
+				&& !want.contains(src))
+				|| (blobLimit >= 0 && type == OBJ_BLOB
+						&& !want.contains(src)
+						&& reader.getObjectSize(src, OBJ_BLOB) > blobLimit);
 		if (!reject) {
 			addObject(src, type, pathHashCode);
 		}
 	}
 
+	/**
+	 * Visits trees and blobs no deeper than a limit, and visits an object
+	 * again if it is found at a lower depth than before, so that its subtrees
+	 * are not omitted because it was first found too deep.
+	 */
+	private static class DepthAwareVisitationPolicy
+			implements ObjectWalk.VisitationPolicy {
+		private final Map<ObjectId, Integer> lowestDepthVisited = new HashMap<>();
+
+		private final ObjectWalk walker;
+
+		private final Set<? extends ObjectId> want;
+
+		private final long limit;
+
+		DepthAwareVisitationPolicy(ObjectWalk walker,
+				Set<? extends ObjectId> want, long limit) {
+			this.walker = walker;
+			this.want = want;
+			this.limit = limit;
+		}
+
+		@Override
+		public boolean shouldVisit(RevObject o) {
+			int depth = walker.getTreeDepth();
+			if (depth >= limit && !want.contains(o))
+				return false;
+			Integer last = lowestDepthVisited.get(o);
+			return last == null || depth < last.intValue();
+		}
+
+		@Override
+		public void visited(RevObject o) {
+			lowestDepthVisited.put(o, Integer.valueOf(walker.getTreeDepth()));
+		}
+	}
+
 	private boolean exclude(AnyObjectId objectId) {
 		if (excludeInPacks == null)
 			return false;
@@ -2219,6 +2339,15 @@ public boolean prepareBitmapIndex(ProgressMonitor pm) throws IOException {
 		BitmapWalker walker = bitmapPreparer.newBitmapWalker();
 		AnyObjectId last = null;
 		for (PackWriterBitmapPreparer.BitmapCommit cmit : selectedCommits) {
+			if (cmit.isReused()) {
+				// Carried over from the previous pack, already remapped to
+				// this pack's positions. No need to walk its history again.
+				last = cmit;
+				writeBitmaps.addBitmap(cmit,
+						bitmapPreparer.getReusedBitmap(cmit), cmit.getFlags());
+				pm.update(1);
+				continue;
+			}
 			if (!cmit.isReuseWalker()) {
 				walker = bitmapPreparer.newBitmapWalker();
 			}
@@ -112,6 +112,7 @@ public int compare(RevCommit a, RevCommit b) {
 	private final int distantCommitSpan;
 	private final int excessiveBranchCount;
 	private final long inactiveBranchTimestamp;
+	private final boolean incremental;
 
 	PackWriterBitmapPreparer(ObjectReader reader,
 			PackBitmapIndexBuilder writeBitmaps, ProgressMonitor pm,
@@ -134,6 +135,7 @@ public int compare(RevCommit a, RevCommit b) {
 		long ageInSeconds = config.getBitmapInactiveBranchAgeInDays()
 				* DAY_IN_SECONDS;
 		this.inactiveBranchTimestamp = (now / 1000) - ageInSeconds;
+		this.incremental = config.isBitmapIncremental();
 	}
 
 	/**
@@ -173,8 +175,8 @@ Collection<BitmapCommit> selectCommits(int expectedCommitCount,
 			pm.endTask();
 
 			// Add reused bitmaps from the previous GC pack's bitmap indices.
-			// Currently they are always fully reused, even if their spans don't
-			// match this run's PackConfig values.
+			// They are always fully reused, even if their spans don't match
+			// this run's PackConfig values.
 			int newCommits = selectionHelper.getCommitCount();
 			BlockList<BitmapCommit> selections = new BlockList<>(
 					selectionHelper.reusedCommits.size()
@@ -408,22 +410,49 @@ private CommitSelectionHelper captureOldAndNewCommits(RevWalk rw,
 		// Track bitmaps and commits from the previous GC pack bitmap indices.
 		BitmapBuilder reuse = commitBitmapIndex.newBitmapBuilder();
 		List<BitmapCommit> reuseCommits = new ArrayList<>();
+		List<OldBitmap> reusable = new ArrayList<>();
+		List<OldBitmap> recent = new ArrayList<>();
 		for (PackBitmapIndexRemapper.Entry entry : bitmapRemapper) {
-			// More recent commits did not have the reuse flag set, so skip them
-			if ((entry.getFlags() & FLAG_REUSE) != FLAG_REUSE) {
+			// More recent commits did not have the reuse flag set, so skip
+			// them unless they are carried over incrementally.
+			boolean distant = (entry.getFlags() & FLAG_REUSE) == FLAG_REUSE;
+			if (!incremental && !distant) {
+				continue;
+			}
+			RevObject ro;
+			try {
+				ro = rw.peel(rw.parseAny(entry));
+			} catch (MissingObjectException e) {
+				// The commit of a deleted or rewritten branch was pruned.
 				continue;
 			}
-			RevObject ro = rw.peel(rw.parseAny(entry));
 			if (!(ro instanceof RevCommit)) {
 				continue;
 			}
 
+			// Null if the commit or its history is not in the new pack.
 			RevCommit rc = (RevCommit) ro;
-			reuseCommits.add(new BitmapCommit(rc, false, entry.getFlags()));
-			if (!reuse.contains(rc)) {
-				EWAHCompressedBitmap bitmap = bitmapRemapper.ofObjectType(
-						bitmapRemapper.getBitmap(rc), Constants.OBJ_COMMIT);
-				reuse.or(new CompressedBitmap(bitmap, commitBitmapIndex));
+			EWAHCompressedBitmap bitmap = bitmapRemapper.getBitmap(rc);
+			if (bitmap == null) {
+				continue;
+			}
+			OldBitmap old = new OldBitmap(rc, entry.getFlags(),
+					bitmapRemapper.ofObjectType(bitmap, Constants.OBJ_COMMIT));
+			if (distant) {
+				reusable.add(old);
+			} else {
+				recent.add(old);
+			}
+		}
+		if (!recent.isEmpty()) {
+			reusable.addAll(selectRecentBitmaps(recent, reusable));
+		}
+		for (OldBitmap old : reusable) {
+			reuseCommits.add(
+					new BitmapCommit(old.commit, false, old.flags, true));
+			if (!reuse.contains(old.commit)) {
+				reuse.or(new CompressedBitmap(old.commits,
+						commitBitmapIndex));
 			}
 		}
 
@@ -461,6 +490,102 @@ private CommitSelectionHelper captureOldAndNewCommits(RevWalk rw,
 				newWantsByNewest, reuse, reuseCommits);
 	}
 
+	/**
+	 * Selects the bitmaps of recent commits from the previous GC pack to
+	 * carry over in incremental mode.
+	 * <p>
+	 * Bitmaps within {@code contiguousCommitCount} commits of a branch tip
+	 * are kept. Further from the tips the spans of
+	 * {@link #selectCommits(int, Set)} are applied again, so that the density
+	 * of the recent commits is thinned out once they are no longer recent,
+	 * and the number of bitmaps does not grow with the history.
+	 *
+	 * @param recent
+	 *            bitmaps of the previous pack without the reuse flag.
+	 * @param distant
+	 *            bitmaps of the previous pack with the reuse flag, which are
+	 *            always carried over.
+	 * @return the bitmaps of {@code recent} to carry over.
+	 * @throws IOException
+	 *             on errors reading pack or index files
+	 */
+	private List<OldBitmap> selectRecentBitmaps(List<OldBitmap> recent,
+			List<OldBitmap> distant) throws IOException {
+		// Find the distance of each bitmap from the nearest tip containing
+		// it, in commits. The history of a tip is the union of the remapped
+		// bitmaps of the previous pack it reaches, so only commits newer than
+		// those bitmaps are walked, and a tip that has a bitmap itself is not
+		// walked at all.
+		Set<RevCommit> tips = new HashSet<>();
+		try (RevWalk tw = new RevWalk(reader)) {
+			tw.setRetainBody(false);
+			BitmapBuilder none = bitmapIndex.newBitmapBuilder();
+			for (AnyObjectId objectId : want) {
+				RevObject ro = tw.peel(tw.parseAny(objectId));
+				if (!(ro instanceof RevCommit) || !tips.add((RevCommit) ro)) {
+					continue;
+				}
+				BitmapBuilder tip = bitmapIndex.newBitmapBuilder();
+				CompressedBitmap old = bitmapIndex.getBitmap(ro);
+				if (old != null) {
+					tip.or(old);
+				} else {
+					tw.reset();
+					tw.markStart((RevCommit) ro);
+					tw.setRevFilter(new AddUnseenToBitmapFilter(none, tip));
+					while (tw.next() != null) {
+						// The filter adds the reachable commits to tip, and
+						// stops at commits with a bitmap.
+					}
+				}
+				int tipCount = tip.cardinality(Constants.OBJ_COMMIT);
+				for (OldBitmap r : recent) {
+					if (r.count <= tipCount && tip.contains(r.commit)) {
+						r.distance = Math.min(r.distance,
+								tipCount - r.count + 1);
+					}
+				}
+			}
+		}
+
+		// From the oldest to the newest commit, keep a bitmap if it is close
+		// to a tip, or far enough from the previous bitmap in its history.
+		Collections.sort(recent, (a, b) -> Integer.compare(a.count, b.count));
+		List<OldBitmap> anchors = new ArrayList<>(distant);
+		List<OldBitmap> selected = new ArrayList<>();
+		for (OldBitmap old : recent) {
+			if (old.distance == Integer.MAX_VALUE) {
+				// No longer reachable from the wants.
+				continue;
+			}
+			if (old.distance <= contiguousCommitCount) {
+				selected.add(old);
+				continue;
+			}
+
+			BitmapBuilder history = commitBitmapIndex.newBitmapBuilder();
+			history.or(new CompressedBitmap(old.commits, commitBitmapIndex));
+			int previous = 0;
+			for (OldBitmap a : anchors) {
+				if (previous < a.count && history.contains(a.commit)) {
+					previous = a.count;
+				}
+			}
+			int gap = old.count - previous;
+			int span = nextSpan(old.distance);
+			boolean isMergeCommit = old.commit.getParentCount() > 1;
+			if (gap >= span + recentCommitSpan
+					|| (gap > span && isMergeCommit)) {
+				if (span == distantCommitSpan) {
+					old.flags |= FLAG_REUSE;
+				}
+				selected.add(old);
+				anchors.add(old);
+			}
+		}
+		return selected;
+	}
+
 	/*-
 	 * Returns the desired distance to the next bitmap based on the distance
 	 * from the tip commit. Only differentiates recent from distant spans,
@@ -498,28 +623,76 @@ int nextSpan(int distanceFromTip) {
 		return Math.max(next, recentCommitSpan);
 	}
 
+	/**
+	 * Get the bitmap of a commit reused from the previous pack.
+	 *
+	 * @param cmit
+	 *            a commit returned by {@link #selectCommits(int, Set)} for
+	 *            which {@link BitmapCommit#isReused()} is true.
+	 * @return the previous bitmap of {@code cmit}, remapped to the positions
+	 *         in the new pack. Never null, as commits whose bitmap cannot be
+	 *         remapped are not reused.
+	 */
+	EWAHCompressedBitmap getReusedBitmap(BitmapCommit cmit) {
+		return bitmapRemapper.getBitmap(cmit);
+	}
+
 	BitmapWalker newBitmapWalker() {
 		return new BitmapWalker(
 				new ObjectWalk(reader), bitmapIndex, null);
 	}
 
+	/** A bitmap of the previous GC pack that may be carried over. */
+	private static final class OldBitmap {
+		final RevCommit commit;
+
+		/** Commits reachable from {@link #commit}, in the new pack. */
+		final EWAHCompressedBitmap commits;
+
+		/** Number of commits reachable from {@link #commit}. */
+		final int count;
+
+		int flags;
+
+		/** Commits from the nearest tip containing {@link #commit}. */
+		int distance = Integer.MAX_VALUE;
+
+		OldBitmap(RevCommit commit, int flags, EWAHCompressedBitmap commits) {
+			this.commit = commit;
+			this.flags = flags;
+			this.commits = commits;
+			this.count = commits.cardinality();
+		}
+	}
+
 	/**
 	 * A commit object for which a bitmap index should be built.
 	 */
 	static final class BitmapCommit extends ObjectId {
 		private final boolean reuseWalker;
 		private final int flags;
+		private final boolean reused;
 
 		BitmapCommit(AnyObjectId objectId, boolean reuseWalker, int flags) {
+			this(objectId, reuseWalker, flags, false);
+		}
+
+		BitmapCommit(AnyObjectId objectId, boolean reuseWalker, int flags,
+				boolean reused) {
 			super(objectId);
 			this.reuseWalker = reuseWalker;
 			this.flags = flags;
+			this.reused = reused;
 		}
 
 		boolean isReuseWalker() {
 			return reuseWalker;
 		}
 
+		boolean isReused() {
+			return reused;
+		}
+
 		int getFlags() {
 			return flags;
 		}
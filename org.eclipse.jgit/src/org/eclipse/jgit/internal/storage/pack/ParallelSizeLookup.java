@@ -0,0 +1,197 @@
+/*
+ * Copyright (C) 2019, Google LLC.
+ * and other copyright owners as documented in the project's IP log.
+ *
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Distribution License v1.0 which
+ * accompanies this distribution, is reproduced below, and is
+ * available at http://www.eclipse.org/org/documents/edl-v10.php
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or
+ * without modification, are permitted provided that the following
+ * conditions are met:
+ *
+ * - Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * - Redistributions in binary form must reproduce the above
+ *   copyright notice, this list of conditions and the following
+ *   disclaimer in the documentation and/or other materials provided
+ *   with the distribution.
+ *
+ * - Neither the name of the Eclipse Foundation, Inc. nor the
+ *   names of its contributors may be used to endorse or promote
+ *   products derived from this software without specific prior
+ *   written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND
+ * CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.eclipse.jgit.internal.storage.pack;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.eclipse.jgit.annotations.Nullable;
+import org.eclipse.jgit.lib.ObjectReader;
+
+/**
+ * Looks up the sizes of a batch of objects on an executor.
+ * <p>
+ * The batch should already be sorted by storage location. It is split into
+ * contiguous chunks, so objects stored near each other are still read in
+ * order by one thread. Readers are not thread-safe, so each chunk is looked up
+ * with its own reader.
+ * <p>
+ * The calling thread looks up the first chunk, and then any chunk the
+ * executor has not started yet. It never waits for a chunk that is only
+ * queued, so the lookup completes even if the caller runs on the executor
+ * itself and all of its threads are busy.
+ *
+ * @param <R>
+ *            type of reader used to look up a chunk.
+ * @param <E>
+ *            type of the entries of the batch.
+ */
+public abstract class ParallelSizeLookup<R extends ObjectReader, E> {
+	/** Smallest number of objects worth handing to another thread. */
+	public static final int MIN_CHUNK = 1024;
+
+	/**
+	 * Whether a batch is large enough to be split.
+	 *
+	 * @param count
+	 *            number of objects in the batch.
+	 * @param threads
+	 *            number of threads to look up the batch with. If &lt;= 0 the
+	 *            number of available processors for this JVM is used.
+	 * @return true if the batch has at least two chunks.
+	 */
+	public static boolean isWorthSplitting(int count, int threads) {
+		return 2 * MIN_CHUNK <= count && 1 < threads(threads);
+	}
+
+	private static int threads(int threads) {
+		if (threads <= 0)
+			return Runtime.getRuntime().availableProcessors();
+		return threads;
+	}
+
+	/**
+	 * Create the reader to look up one chunk with.
+	 *
+	 * @return a new reader; it is closed once its chunk is done.
+	 */
+	protected abstract R newReader();
+
+	/**
+	 * Look up the size of one object.
+	 *
+	 * @param reader
+	 *            reader of the chunk holding the entry.
+	 * @param entry
+	 *            the object to look up.
+	 * @return size of the object in bytes; -1 if the object does not exist.
+	 * @throws IOException
+	 *             the object store cannot be accessed.
+	 */
+	protected abstract long getSize(R reader, E entry) throws IOException;
+
+	/**
+	 * Look up the sizes of all entries.
+	 *
+	 * @param entries
+	 *            objects to look up, sorted by storage location.
+	 * @param executor
+	 *            executor to run the chunks on; null to look up all entries
+	 *            in the calling thread. The calling thread waits for all
+	 *            chunks to finish.
+	 * @param threads
+	 *            number of threads to look up the batch with, including the
+	 *            calling thread. If &lt;= 0 the number of available
+	 *            processors for this JVM is used.
+	 * @return sizes of the entries, in the same order; -1 for entries that
+	 *         do not exist.
+	 * @throws IOException
+	 *             the object store cannot be accessed, or the calling thread
+	 *             was interrupted.
+	 */
+	public long[] getSizes(List<E> entries, @Nullable Executor executor,
+			int threads) throws IOException {
+		int cnt = entries.size();
+		long[] sizes = new long[cnt];
+		int chunks = 1;
+		if (executor != null)
+			chunks = Math.max(1, Math.min(threads(threads), cnt / MIN_CHUNK));
+		List<FutureTask<Void>> tasks = new ArrayList<>(chunks);
+		for (int i = 0; i < chunks; i++) {
+			int from = (int) ((long) cnt * i / chunks);
+			int to = (int) ((long) cnt * (i + 1) / chunks);
+			tasks.add(new FutureTask<>(() -> {
+				try (R reader = newReader()) {
+					for (int j = from; j < to; j++) {
+						sizes[j] = getSize(reader, entries.get(j));
+					}
+				}
+				return null;
+			}));
+		}
+		if (executor != null) {
+			for (int i = 1; i < chunks; i++) {
+				try {
+					executor.execute(tasks.get(i));
+				} catch (RejectedExecutionException e) {
+					// The calling thread looks it up below.
+				}
+			}
+		}
+
+		try {
+			for (FutureTask<Void> task : tasks) {
+				// Does nothing if the executor already started the task.
+				task.run();
+				task.get();
+			}
+		} catch (InterruptedException e) {
+			cancel(tasks);
+			throw new InterruptedIOException();
+		} catch (ExecutionException e) {
+			cancel(tasks);
+			Throwable err = e.getCause();
+			if (err instanceof Error)
+				throw (Error) err;
+			if (err instanceof RuntimeException)
+				throw (RuntimeException) err;
+			if (err instanceof IOException)
+				throw (IOException) err;
+			throw new IOException(err.getMessage(), err);
+		}
+		return sizes;
+	}
+
+	private static void cancel(List<FutureTask<Void>> tasks) {
+		for (FutureTask<Void> task : tasks) {
+			task.cancel(true);
+		}
+	}
+}
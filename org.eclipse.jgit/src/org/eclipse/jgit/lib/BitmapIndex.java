@@ -200,6 +200,25 @@ public interface BitmapBuilder extends Bitmap {
 		/** @return the number of elements in the bitmap. */
 		int cardinality();
 
+		/**
+		 * Count the objects of one type in the bitmap.
+		 *
+		 * @param type
+		 *            the type of object to count, one of the
+		 *            {@link org.eclipse.jgit.lib.Constants} OBJ_* constants.
+		 * @return the number of objects of {@code type} in the bitmap.
+		 * @since 5.3
+		 */
+		default int cardinality(int type) {
+			int count = 0;
+			for (BitmapObject obj : this) {
+				if (obj.getType() == type) {
+					count++;
+				}
+			}
+			return count;
+		}
+
 		/**
 		 * Get the BitmapIndex for this BitmapBuilder.
 		 *
@@ -0,0 +1,155 @@
+/*
+ * Copyright (C) 2019, Google LLC.
+ * and other copyright owners as documented in the project's IP log.
+ *
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Distribution License v1.0 which
+ * accompanies this distribution, is reproduced below, and is
+ * available at http://www.eclipse.org/org/documents/edl-v10.php
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or
+ * without modification, are permitted provided that the following
+ * conditions are met:
+ *
+ * - Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * - Redistributions in binary form must reproduce the above
+ *   copyright notice, this list of conditions and the following
+ *   disclaimer in the documentation and/or other materials provided
+ *   with the distribution.
+ *
+ * - Neither the name of the Eclipse Foundation, Inc. nor the
+ *   names of its contributors may be used to endorse or promote
+ *   products derived from this software without specific prior
+ *   written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND
+ * CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+package org.eclipse.jgit.lib;
+
+/**
+ * The commit-graph stores the list of commits of a repository together with
+ * their parents, root tree, commit time and generation number.
+ * <p>
+ * A commit-graph allows {@link org.eclipse.jgit.revwalk.RevWalk} to obtain
+ * the headers of a commit without inflating and parsing the commit object.
+ * Commits are identified within the graph by their graph position, an index
+ * into the graph's table of commit ids sorted by object id.
+ *
+ * @since 5.3
+ */
+public interface CommitGraph {
+	/**
+	 * Generation number of a commit whose generation was not computed.
+	 * <p>
+	 * Commits not contained in a commit-graph report this value, as their
+	 * generation is unknown and must be treated as larger than any known
+	 * generation.
+	 */
+	int GENERATION_NUMBER_INFINITY = Integer.MAX_VALUE;
+
+	/**
+	 * Generation number written by implementations which do not compute
+	 * generation numbers.
+	 */
+	int GENERATION_NUMBER_ZERO = 0;
+
+	/**
+	 * Largest generation number that can be stored in a commit-graph.
+	 */
+	int GENERATION_NUMBER_MAX = 0x3FFFFFFF;
+
+	/**
+	 * Find the position of a commit in the commit-graph.
+	 *
+	 * @param commit
+	 *            the commit to look up.
+	 * @return the graph position of the commit, or -1 if the commit is not
+	 *         contained in the commit-graph.
+	 */
+	int findGraphPosition(AnyObjectId commit);
+
+	/**
+	 * Get the object id of the commit at a graph position.
+	 *
+	 * @param graphPos
+	 *            the graph position of the commit, must be in
+	 *            {@code [0, getCommitCnt())}.
+	 * @return the object id of the commit.
+	 */
+	ObjectId getObjectId(int graphPos);
+
+	/**
+	 * Get the metadata of the commit at a graph position.
+	 *
+	 * @param graphPos
+	 *            the graph position of the commit, must be in
+	 *            {@code [0, getCommitCnt())}.
+	 * @return the metadata of the commit.
+	 */
+	CommitData getCommitData(int graphPos);
+
+	/**
+	 * Get the number of commits in this commit-graph.
+	 *
+	 * @return the number of commits in this commit-graph.
+	 */
+	long getCommitCnt();
+
+	/**
+	 * Metadata of a commit stored in a commit-graph.
+	 */
+	interface CommitData {
+		/**
+		 * Get the root tree of the commit.
+		 *
+		 * @return the object id of the commit's root tree.
+		 */
+		ObjectId getTree();
+
+		/**
+		 * Get the graph positions of the commit's parents.
+		 *
+		 * @return the graph positions of the parents, in the order they are
+		 *         listed in the commit. Never null.
+		 */
+		int[] getParents();
+
+		/**
+		 * Get the committer time of the commit.
+		 *
+		 * @return the committer time, in seconds since the epoch.
+		 */
+		long getCommitTime();
+
+		/**
+		 * Get the generation number of the commit.
+		 * <p>
+		 * The generation of a commit without parents is 1, the generation of
+		 * any other commit is one more than the largest generation of its
+		 * parents.
+		 *
+		 * @return the generation number of the commit, or
+		 *         {@link CommitGraph#GENERATION_NUMBER_ZERO} if it was not
+		 *         computed by the writer.
+		 */
+		int getGeneration();
+	}
+}
@@ -149,6 +149,24 @@ public final class ConfigConstants {
 	 */
 	public static final String CONFIG_KEY_GPGSIGN = "gpgSign";
 
+	/**
+	 * The "index" section
+	 * @since 5.3
+	 */
+	public static final String CONFIG_INDEX_SECTION = "index";
+
+	/**
+	 * The "version" key
+	 * @since 5.3
+	 */
+	public static final String CONFIG_KEY_VERSION = "version";
+
+	/**
+	 * The "threads" key
+	 * @since 5.3
+	 */
+	public static final String CONFIG_KEY_THREADS = "threads";
+
 	/** The "algorithm" key */
 	public static final String CONFIG_KEY_ALGORITHM = "algorithm";
 
@@ -476,4 +494,88 @@ public final class ConfigConstants {
 	 * @since 5.2
 	 */
 	public static final String CONFIG_KEY_LOG_OUTPUT_ENCODING = "logOutputEncoding";
+
+	/**
+	 * The "commitGraph" key
+	 *
+	 * @since 5.3
+	 */
+	public static final String CONFIG_KEY_COMMIT_GRAPH = "commitGraph";
+
+	/**
+	 * The "writeCommitGraph" key
+	 *
+	 * @since 5.3
+	 */
+	public static final String CONFIG_KEY_WRITE_COMMIT_GRAPH = "writeCommitGraph";
+
+	/**
+	 * The "multiPackIndex" key
+	 *
+	 * @since 5.3
+	 */
+	public static final String CONFIG_KEY_MULTI_PACK_INDEX = "multiPackIndex";
+
+	/**
+	 * The "writeMultiPackIndex" key
+	 *
+	 * @since 5.3
+	 */
+	public static final String CONFIG_KEY_WRITE_MULTI_PACK_INDEX = "writeMultiPackIndex";
+
+	/**
+	 * The "offHeap" key
+	 *
+	 * @since 5.3
+	 */
+	public static final String CONFIG_KEY_OFF_HEAP = "offHeap";
+
+	/**
+	 * The "prefetchLimit" key
+	 *
+	 * @since 5.3
+	 */
+	public static final String CONFIG_KEY_PREFETCH_LIMIT = "prefetchLimit";
+
+	/**
+	 * The "sha1Implementation" key
+	 *
+	 * @since 5.3
+	 */
+	public static final String CONFIG_KEY_SHA1_IMPLEMENTATION = "sha1Implementation";
+
+	/**
+	 * The "untrackedCache" key in the "core" section
+	 *
+	 * @since 5.3
+	 */
+	public static final String CONFIG_KEY_UNTRACKED_CACHE = "untrackedCache";
+
+	/**
+	 * The "sparseCheckout" key in the "core" section
+	 *
+	 * @since 5.3
+	 */
+	public static final String CONFIG_KEY_SPARSE_CHECKOUT = "sparseCheckout";
+
+	/**
+	 * The "sparseCheckoutCone" key in the "core" section
+	 *
+	 * @since 5.3
+	 */
+	public static final String CONFIG_KEY_SPARSE_CHECKOUT_CONE = "sparseCheckoutCone";
+
+	/**
+	 * The "extensions" section
+	 *
+	 * @since 5.3
+	 */
+	public static final String CONFIG_EXTENSIONS_SECTION = "extensions";
+
+	/**
+	 * The "worktreeConfig" key in the "extensions" section
+	 *
+	 * @since 5.3
+	 */
+	public static final String CONFIG_KEY_WORKTREE_CONFIG = "worktreeConfig";
 }
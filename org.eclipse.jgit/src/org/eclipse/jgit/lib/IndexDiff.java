@@ -48,18 +48,25 @@
 package org.eclipse.jgit.lib;
 
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.text.MessageFormat;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
 
+import org.eclipse.jgit.annotations.Nullable;
 import org.eclipse.jgit.dircache.DirCache;
 import org.eclipse.jgit.dircache.DirCacheEntry;
 import org.eclipse.jgit.dircache.DirCacheIterator;
+import org.eclipse.jgit.dircache.UntrackedCache;
 import org.eclipse.jgit.errors.ConfigInvalidException;
 import org.eclipse.jgit.errors.IncorrectObjectTypeException;
 import org.eclipse.jgit.errors.MissingObjectException;
@@ -69,6 +76,7 @@
 import org.eclipse.jgit.submodule.SubmoduleWalk;
 import org.eclipse.jgit.submodule.SubmoduleWalk.IgnoreSubmoduleMode;
 import org.eclipse.jgit.treewalk.AbstractTreeIterator;
+import org.eclipse.jgit.treewalk.CanonicalTreeParser;
 import org.eclipse.jgit.treewalk.EmptyTreeIterator;
 import org.eclipse.jgit.treewalk.FileTreeIterator;
 import org.eclipse.jgit.treewalk.TreeWalk;
@@ -76,8 +84,10 @@
 import org.eclipse.jgit.treewalk.WorkingTreeIterator;
 import org.eclipse.jgit.treewalk.filter.AndTreeFilter;
 import org.eclipse.jgit.treewalk.filter.IndexDiffFilter;
+import org.eclipse.jgit.treewalk.filter.PathFilterGroup;
 import org.eclipse.jgit.treewalk.filter.SkipWorkTreeFilter;
 import org.eclipse.jgit.treewalk.filter.TreeFilter;
+import org.eclipse.jgit.util.RawParseUtils;
 
 /**
  * Compares the index, a tree, and the working directory Ignored files are not
@@ -251,6 +261,8 @@ public TreeFilter clone() {
 
 	private TreeFilter filter = null;
 
+	private TreeFilter partitionFilter;
+
 	private final WorkingTreeIterator initialWorkingTreeIterator;
 
 	private Set<String> added = new HashSet<>();
@@ -269,6 +281,8 @@ public TreeFilter clone() {
 
 	private Set<String> ignored;
 
+	private Collection<String> untrackedFolders;
+
 	private Set<String> assumeUnchanged;
 
 	private DirCache dirCache;
@@ -281,6 +295,12 @@ public TreeFilter clone() {
 
 	private Map<FileMode, Set<String>> fileModes = new HashMap<>();
 
+	private Executor executor;
+
+	private UntrackedCache untrackedCache;
+
+	private UntrackedCacheFilter untrackedCacheFilter;
+
 	/**
 	 * Construct an IndexDiff
 	 *
@@ -322,6 +342,18 @@ public IndexDiff(Repository repository, ObjectId objectId,
 		this.initialWorkingTreeIterator = workingTreeIterator;
 	}
 
+	private IndexDiff(IndexDiff parent, TreeFilter paths) {
+		repository = parent.repository;
+		tree = parent.tree;
+		initialWorkingTreeIterator = null;
+		dirCache = parent.dirCache;
+		ignoreSubmoduleMode = parent.ignoreSubmoduleMode;
+		untrackedCache = parent.untrackedCache;
+		if (parent.filter != null)
+			filter = parent.filter.clone();
+		partitionFilter = paths;
+	}
+
 	/**
 	 * Defines how modifications in submodules are treated
 	 *
@@ -374,6 +406,28 @@ public void setFilter(TreeFilter filter) {
 		this.filter = filter;
 	}
 
+	/**
+	 * Set the executor used to scan the working tree in parallel.
+	 * <p>
+	 * If set, {@link #diff(ProgressMonitor, int, int, String)} splits the
+	 * working tree by its top-level entries into partitions of about equal
+	 * index size and scans each partition with its own
+	 * {@link org.eclipse.jgit.treewalk.TreeWalk} on the executor. Every
+	 * partition walks the working tree with a new iterator obtained from the
+	 * {@link WorkingTreeIteratorFactory}, so ignore rules and attributes are
+	 * evaluated exactly as in a single walk. The iterator passed to the
+	 * constructor is not used in this mode. The results of all partitions
+	 * are merged before {@code diff} returns.
+	 *
+	 * @param executor
+	 *            executor to scan the working tree on; null to scan on the
+	 *            calling thread.
+	 * @since 5.3
+	 */
+	public void setExecutor(@Nullable Executor executor) {
+		this.executor = executor;
+	}
+
 	/**
 	 * Run the diff operation. Until this is called, all lists will be empty.
 	 * Use {@link #diff(ProgressMonitor, int, int, String)} if a progress
@@ -410,7 +464,92 @@ public boolean diff(final ProgressMonitor monitor, int estWorkTreeSize,
 			int estIndexSize, final String title)
 			throws IOException {
 		dirCache = repository.readDirCache();
+		fileModes.clear();
+		if (filter == null)
+			untrackedCache = UntrackedCacheFilter
+					.getUntrackedCache(repository, dirCache);
+
+		List<IndexDiff> walked = null;
+		if (executor != null)
+			walked = diffParallel(monitor, title);
+		if (walked == null) {
+			walk(monitor, estWorkTreeSize, estIndexSize, title,
+					initialWorkingTreeIterator);
+			ignored = indexDiffFilter.getIgnoredPaths();
+			untrackedFolders = indexDiffFilter.getUntrackedFolders();
+			walked = Collections.singletonList(this);
+		}
+		if (untrackedCache != null
+				&& (monitor == null || !monitor.isCancelled()))
+			updateUntrackedCache(walked);
 
+		if (ignoreSubmoduleMode != IgnoreSubmoduleMode.ALL) {
+			IgnoreSubmoduleMode localIgnoreSubmoduleMode = ignoreSubmoduleMode;
+			SubmoduleWalk smw = SubmoduleWalk.forIndex(repository);
+			while (smw.next()) {
+				try {
+					if (localIgnoreSubmoduleMode == null)
+						localIgnoreSubmoduleMode = smw.getModulesIgnore();
+					if (IgnoreSubmoduleMode.ALL
+							.equals(localIgnoreSubmoduleMode))
+						continue;
+				} catch (ConfigInvalidException e) {
+					throw new IOException(MessageFormat.format(
+							JGitText.get().invalidIgnoreParamSubmodule,
+							smw.getPath()), e);
+				}
+				try (Repository subRepo = smw.getRepository()) {
+					if (subRepo != null) {
+						String subRepoPath = smw.getPath();
+						ObjectId subHead = subRepo.resolve("HEAD"); //$NON-NLS-1$
+						if (subHead != null
+								&& !subHead.equals(smw.getObjectId())) {
+							modified.add(subRepoPath);
+							recordFileMode(subRepoPath, FileMode.GITLINK);
+						} else if (ignoreSubmoduleMode != IgnoreSubmoduleMode.DIRTY) {
+							IndexDiff smid = submoduleIndexDiffs.get(smw
+									.getPath());
+							if (smid == null) {
+								smid = new IndexDiff(subRepo,
+										smw.getObjectId(),
+										wTreeIt.getWorkingTreeIterator(subRepo));
+								submoduleIndexDiffs.put(subRepoPath, smid);
+							}
+							if (smid.diff()) {
+								if (ignoreSubmoduleMode == IgnoreSubmoduleMode.UNTRACKED
+										&& smid.getAdded().isEmpty()
+										&& smid.getChanged().isEmpty()
+										&& smid.getConflicting().isEmpty()
+										&& smid.getMissing().isEmpty()
+										&& smid.getModified().isEmpty()
+										&& smid.getRemoved().isEmpty()) {
+									continue;
+								}
+								modified.add(subRepoPath);
+								recordFileMode(subRepoPath, FileMode.GITLINK);
+							}
+						}
+					}
+				}
+			}
+
+		}
+
+		// consume the remaining work
+		if (monitor != null)
+			monitor.endTask();
+
+		if (added.isEmpty() && changed.isEmpty() && removed.isEmpty()
+				&& missing.isEmpty() && modified.isEmpty()
+				&& untracked.isEmpty())
+			return false;
+		else
+			return true;
+	}
+
+	private void walk(ProgressMonitor monitor, int estWorkTreeSize,
+			int estIndexSize, String title,
+			WorkingTreeIterator workingTreeIt) throws IOException {
 		try (TreeWalk treeWalk = new TreeWalk(repository)) {
 			treeWalk.setOperationType(OperationType.CHECKIN_OP);
 			treeWalk.setRecursive(true);
@@ -420,8 +559,8 @@ public boolean diff(final ProgressMonitor monitor, int estWorkTreeSize,
 			else
 				treeWalk.addTree(new EmptyTreeIterator());
 			treeWalk.addTree(new DirCacheIterator(dirCache));
-			treeWalk.addTree(initialWorkingTreeIterator);
-			initialWorkingTreeIterator.setDirCacheIterator(treeWalk, 1);
+			treeWalk.addTree(workingTreeIt);
+			workingTreeIt.setDirCacheIterator(treeWalk, 1);
 			Collection<TreeFilter> filters = new ArrayList<>(4);
 
 			if (monitor != null) {
@@ -435,13 +574,20 @@ public boolean diff(final ProgressMonitor monitor, int estWorkTreeSize,
 				filters.add(new ProgressReportingFilter(monitor, total));
 			}
 
+			if (partitionFilter != null)
+				filters.add(partitionFilter);
 			if (filter != null)
 				filters.add(filter);
 			filters.add(new SkipWorkTreeFilter(INDEX));
 			indexDiffFilter = new IndexDiffFilter(INDEX, WORKDIR);
 			filters.add(indexDiffFilter);
+			if (untrackedCache != null) {
+				// Must be last, it only records what the walk returns.
+				untrackedCacheFilter = new UntrackedCacheFilter(repository,
+						untrackedCache, WORKDIR);
+				filters.add(untrackedCacheFilter);
+			}
 			treeWalk.setFilter(AndTreeFilter.create(filters));
-			fileModes.clear();
 			while (treeWalk.next()) {
 				AbstractTreeIterator treeIterator = treeWalk.getTree(TREE,
 						AbstractTreeIterator.class);
@@ -525,71 +671,196 @@ public boolean diff(final ProgressMonitor monitor, int estWorkTreeSize,
 					}
 				}
 			}
-		}
 
-		if (ignoreSubmoduleMode != IgnoreSubmoduleMode.ALL) {
-			IgnoreSubmoduleMode localIgnoreSubmoduleMode = ignoreSubmoduleMode;
-			SubmoduleWalk smw = SubmoduleWalk.forIndex(repository);
-			while (smw.next()) {
-				try {
-					if (localIgnoreSubmoduleMode == null)
-						localIgnoreSubmoduleMode = smw.getModulesIgnore();
-					if (IgnoreSubmoduleMode.ALL
-							.equals(localIgnoreSubmoduleMode))
-						continue;
-				} catch (ConfigInvalidException e) {
-					throw new IOException(MessageFormat.format(
-							JGitText.get().invalidIgnoreParamSubmodule,
-							smw.getPath()), e);
+			if (untrackedCacheFilter != null) {
+				// not in repo, not in index, skipped by the cache => untracked
+				for (String path : untrackedCacheFilter.getCachedFiles()) {
+					untracked.add(path);
+					recordFileMode(path, FileMode.MISSING);
+					recordFileMode(path,
+							untrackedCacheFilter.getFileMode(path));
 				}
-				try (Repository subRepo = smw.getRepository()) {
-					if (subRepo != null) {
-						String subRepoPath = smw.getPath();
-						ObjectId subHead = subRepo.resolve("HEAD"); //$NON-NLS-1$
-						if (subHead != null
-								&& !subHead.equals(smw.getObjectId())) {
-							modified.add(subRepoPath);
-							recordFileMode(subRepoPath, FileMode.GITLINK);
-						} else if (ignoreSubmoduleMode != IgnoreSubmoduleMode.DIRTY) {
-							IndexDiff smid = submoduleIndexDiffs.get(smw
-									.getPath());
-							if (smid == null) {
-								smid = new IndexDiff(subRepo,
-										smw.getObjectId(),
-										wTreeIt.getWorkingTreeIterator(subRepo));
-								submoduleIndexDiffs.put(subRepoPath, smid);
-							}
-							if (smid.diff()) {
-								if (ignoreSubmoduleMode == IgnoreSubmoduleMode.UNTRACKED
-										&& smid.getAdded().isEmpty()
-										&& smid.getChanged().isEmpty()
-										&& smid.getConflicting().isEmpty()
-										&& smid.getMissing().isEmpty()
-										&& smid.getModified().isEmpty()
-										&& smid.getRemoved().isEmpty()) {
-									continue;
-								}
-								modified.add(subRepoPath);
-								recordFileMode(subRepoPath, FileMode.GITLINK);
-							}
-						}
-					}
+			}
+		}
+	}
+
+	private void updateUntrackedCache(List<IndexDiff> walked)
+			throws IOException {
+		boolean cacheChanged = untrackedCache != dirCache.getUntrackedCache();
+		for (IndexDiff d : walked) {
+			if (d.untrackedCacheFilter != null)
+				cacheChanged |= d.untrackedCacheFilter
+						.apply(d.indexDiffFilter.getIgnoredPaths());
+		}
+		if (!cacheChanged)
+			return;
+
+		// Like C git, store the cache opportunistically. If the index is
+		// locked or was changed meanwhile the cache is rebuilt next time.
+		try {
+			dirCache.writeUntrackedCache(untrackedCache);
+		} catch (IOException e) {
+			// ignore, the cache is only an optimization
+		}
+	}
+
+	private List<IndexDiff> diffParallel(ProgressMonitor monitor,
+			String title) throws IOException {
+		Map<String, Integer> weights = getTopLevelWeights();
+		if (weights.size() < 2)
+			return null;
+
+		List<Map.Entry<String, Integer>> entries = new ArrayList<>(
+				weights.entrySet());
+		entries.sort((a, b) -> Integer.compare(b.getValue().intValue(),
+				a.getValue().intValue()));
+		int cnt = Math.min(entries.size(),
+				4 * Runtime.getRuntime().availableProcessors());
+		List<List<String>> partitions = new ArrayList<>(cnt);
+		int[] load = new int[cnt];
+		for (int i = 0; i < cnt; i++)
+			partitions.add(new ArrayList<>());
+		for (Map.Entry<String, Integer> e : entries) {
+			int min = 0;
+			for (int i = 1; i < cnt; i++) {
+				if (load[i] < load[min])
+					min = i;
+			}
+			partitions.get(min).add(e.getKey());
+			load[min] += e.getValue().intValue();
+		}
+
+		if (monitor != null) {
+			int total = 0;
+			for (int l : load)
+				total += l;
+			monitor.beginTask(title, total);
+		}
+
+		List<FutureTask<IndexDiff>> tasks = new ArrayList<>(cnt);
+		for (List<String> paths : partitions) {
+			IndexDiff part = new IndexDiff(this,
+					PathFilterGroup.createFromStrings(paths));
+			WorkingTreeIterator it = wTreeIt.getWorkingTreeIterator(repository);
+			FutureTask<IndexDiff> task = new FutureTask<>(() -> {
+				part.walk(null, 0, 0, null, it);
+				return part;
+			});
+			tasks.add(task);
+			executor.execute(task);
+		}
+
+		List<IndexDiff> walked = new ArrayList<>(cnt);
+		ignored = new HashSet<>();
+		untrackedFolders = new ArrayList<>();
+		try {
+			for (int i = 0; i < cnt; i++) {
+				if (monitor != null && monitor.isCancelled()) {
+					cancel(tasks);
+					break;
 				}
+				IndexDiff part = tasks.get(i).get();
+				merge(part);
+				walked.add(part);
+				if (monitor != null)
+					monitor.update(load[i]);
 			}
+		} catch (InterruptedException e) {
+			cancel(tasks);
+			throw new InterruptedIOException();
+		} catch (ExecutionException e) {
+			cancel(tasks);
+			Throwable err = e.getCause();
+			if (err instanceof Error)
+				throw (Error) err;
+			if (err instanceof RuntimeException)
+				throw (RuntimeException) err;
+			if (err instanceof IOException)
+				throw (IOException) err;
+			throw new IOException(err.getMessage(), err);
+		}
+		return walked;
+	}
 
+	/**
+	 * Collect the top-level names of the tree, the index and the working tree.
+	 *
+	 * @return top-level names, mapped to the number of index entries below
+	 *         them; at least 1 for names not in the index.
+	 * @throws IOException
+	 */
+	private Map<String, Integer> getTopLevelWeights() throws IOException {
+		Map<String, Integer> weights = new HashMap<>();
+		int cnt = dirCache.getEntryCount();
+		for (int i = 0; i < cnt;) {
+			byte[] path = dirCache.getEntry(i).getRawPath();
+			int len = topLevelLength(path);
+			int next = i + 1;
+			while (next < cnt && isSameTopLevel(
+					dirCache.getEntry(next).getRawPath(), path, len))
+				next++;
+			weights.merge(RawParseUtils.decode(path, 0, len),
+					Integer.valueOf(next - i), Integer::sum);
+			i = next;
 		}
 
-		// consume the remaining work
-		if (monitor != null)
-			monitor.endTask();
+		if (tree != null) {
+			try (ObjectReader reader = repository.newObjectReader()) {
+				CanonicalTreeParser p = new CanonicalTreeParser(null, reader,
+						tree);
+				for (; !p.eof(); p.next(1))
+					weights.putIfAbsent(p.getEntryPathString(),
+							Integer.valueOf(1));
+			}
+		}
 
-		ignored = indexDiffFilter.getIgnoredPaths();
-		if (added.isEmpty() && changed.isEmpty() && removed.isEmpty()
-				&& missing.isEmpty() && modified.isEmpty()
-				&& untracked.isEmpty())
+		String[] names = repository.getWorkTree().list();
+		if (names != null) {
+			for (String name : names) {
+				if (!Constants.DOT_GIT.equals(name))
+					weights.putIfAbsent(name, Integer.valueOf(1));
+			}
+		}
+		return weights;
+	}
+
+	private static int topLevelLength(byte[] path) {
+		int len = 0;
+		while (len < path.length && path[len] != '/')
+			len++;
+		return len;
+	}
+
+	private static boolean isSameTopLevel(byte[] path, byte[] other,
+			int len) {
+		if (path.length < len || (path.length > len && path[len] != '/'))
 			return false;
-		else
-			return true;
+		for (int i = 0; i < len; i++) {
+			if (path[i] != other[i])
+				return false;
+		}
+		return true;
+	}
+
+	private void merge(IndexDiff part) {
+		added.addAll(part.added);
+		changed.addAll(part.changed);
+		removed.addAll(part.removed);
+		missing.addAll(part.missing);
+		modified.addAll(part.modified);
+		untracked.addAll(part.untracked);
+		conflicts.putAll(part.conflicts);
+		for (Map.Entry<FileMode, Set<String>> e : part.fileModes.entrySet()) {
+			fileModes.computeIfAbsent(e.getKey(), m -> new HashSet<>())
+					.addAll(e.getValue());
+		}
+		ignored.addAll(part.indexDiffFilter.getIgnoredPaths());
+		untrackedFolders.addAll(part.indexDiffFilter.getUntrackedFolders());
+	}
+
+	private static void cancel(List<FutureTask<IndexDiff>> tasks) {
+		for (FutureTask<IndexDiff> task : tasks)
+			task.cancel(true);
 	}
 
 	private void recordFileMode(String path, FileMode mode) {
@@ -732,8 +1003,8 @@ public Set<String> getAssumeUnchanged() {
 	 * @return list of folders containing only untracked files/folders
 	 */
 	public Set<String> getUntrackedFolders() {
-		return ((indexDiffFilter == null) ? Collections.<String> emptySet()
-				: new HashSet<>(indexDiffFilter.getUntrackedFolders()));
+		return ((untrackedFolders == null) ? Collections.<String> emptySet()
+				: new HashSet<>(untrackedFolders));
 	}
 
 	/**
@@ -0,0 +1,380 @@
+/*
+ * Copyright (C) 2019, Google LLC.
+ * and other copyright owners as documented in the project's IP log.
+ *
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Distribution License v1.0 which
+ * accompanies this distribution, is reproduced below, and is
+ * available at http://www.eclipse.org/org/documents/edl-v10.php
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or
+ * without modification, are permitted provided that the following
+ * conditions are met:
+ *
+ * - Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * - Redistributions in binary form must reproduce the above
+ *   copyright notice, this list of conditions and the following
+ *   disclaimer in the documentation and/or other materials provided
+ *   with the distribution.
+ *
+ * - Neither the name of the Eclipse Foundation, Inc. nor the
+ *   names of its contributors may be used to endorse or promote
+ *   products derived from this software without specific prior
+ *   written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND
+ * CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.eclipse.jgit.lib;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.text.MessageFormat;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import org.eclipse.jgit.internal.JGitText;
+
+/**
+ * Set of object ids stored in primitive arrays.
+ * <p>
+ * Unlike {@link org.eclipse.jgit.lib.ObjectIdOwnerMap} and
+ * {@link org.eclipse.jgit.lib.ObjectIdSubclassMap} no Java object is kept per
+ * member. The raw ids are stored as five ints in an open addressing table, so
+ * each slot costs 20 bytes and the table is kept between 3/8 and 3/4 full.
+ * This makes the set suitable to track which objects were seen by walks over
+ * very large repositories, when no per-object state is needed.
+ * <p>
+ * The table can be allocated outside of the Java heap. It is then released
+ * when the set is garbage collected.
+ * <p>
+ * This set is not thread-safe.
+ *
+ * @since 5.3
+ */
+public class ObjectIdHashSet implements ObjectIdSet, Iterable<ObjectId> {
+	/** Ints needed to store one object id. */
+	private static final int WORDS = 5;
+
+	private static final int MIN_CAPACITY = 64;
+
+	/** Maximum number of slots in one segment of the table, 2^20. */
+	private static final int SEGMENT_BITS = 20;
+
+	private static final int SEGMENT_MASK = (1 << SEGMENT_BITS) - 1;
+
+	private static final int MAX_CAPACITY = 1 << 30;
+
+	private final boolean offHeap;
+
+	/** Segments of the table; all full sized, except for small tables. */
+	private Segment[] table;
+
+	/** Number of slots in {@link #table}, a power of 2. */
+	private int capacity;
+
+	private int mask;
+
+	/** The table doubles in capacity when {@link #size} reaches this. */
+	private int grow;
+
+	private int size;
+
+	/** The zero id marks empty slots, so it is tracked on its own. */
+	private boolean containsZero;
+
+	/** Create an empty set on the Java heap. */
+	public ObjectIdHashSet() {
+		this(0, false);
+	}
+
+	/**
+	 * Create an empty set.
+	 *
+	 * @param expectedSize
+	 *            number of ids the set should hold without growing.
+	 * @param offHeap
+	 *            true to allocate the table outside of the Java heap.
+	 */
+	public ObjectIdHashSet(int expectedSize, boolean offHeap) {
+		if (expectedSize < 0)
+			throw new IllegalArgumentException(String.valueOf(expectedSize));
+		this.offHeap = offHeap;
+		int cap = MIN_CAPACITY;
+		while (cap < MAX_CAPACITY && growAt(cap) < expectedSize)
+			cap <<= 1;
+		allocate(cap);
+	}
+
+	/**
+	 * Whether the table is allocated outside of the Java heap.
+	 *
+	 * @return true if the table is allocated outside of the Java heap.
+	 */
+	public boolean isOffHeap() {
+		return offHeap;
+	}
+
+	/**
+	 * Get the number of ids in this set.
+	 *
+	 * @return number of ids in this set.
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Whether this set is empty.
+	 *
+	 * @return true if {@link #size()} is 0.
+	 */
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public boolean contains(AnyObjectId id) {
+		if (isZero(id))
+			return containsZero;
+		for (int slot = id.w2 & mask;; slot = (slot + 1) & mask) {
+			Segment s = table[slot >>> SEGMENT_BITS];
+			int p = (slot & SEGMENT_MASK) * WORDS;
+			if (s.isEmpty(p))
+				return false;
+			if (s.matches(p, id))
+				return true;
+		}
+	}
+
+	/**
+	 * Add an id to this set.
+	 * <p>
+	 * The id is copied, so {@code id} may be a mutable id that is reused by
+	 * the caller.
+	 *
+	 * @param id
+	 *            the id to add.
+	 * @return true if the id was added; false if it already was in the set.
+	 */
+	public boolean add(AnyObjectId id) {
+		if (isZero(id)) {
+			if (containsZero)
+				return false;
+			containsZero = true;
+			size++;
+			return true;
+		}
+
+		for (int slot = id.w2 & mask;; slot = (slot + 1) & mask) {
+			Segment s = table[slot >>> SEGMENT_BITS];
+			int p = (slot & SEGMENT_MASK) * WORDS;
+			if (s.isEmpty(p)) {
+				if (size + 1 >= grow) {
+					rehash();
+					insert(id);
+				} else {
+					s.write(p, id);
+				}
+				size++;
+				return true;
+			}
+			if (s.matches(p, id))
+				return false;
+		}
+	}
+
+	/** Remove all ids from this set, and release the table. */
+	public void clear() {
+		size = 0;
+		containsZero = false;
+		allocate(MIN_CAPACITY);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * The iterator returns a new ObjectId for each member. The set must not be
+	 * modified while it is iterated.
+	 */
+	@Override
+	public Iterator<ObjectId> iterator() {
+		return new Iterator<ObjectId>() {
+			private boolean zero = containsZero;
+
+			private int slot = nextSlot(0);
+
+			@Override
+			public boolean hasNext() {
+				return zero || slot < capacity;
+			}
+
+			@Override
+			public ObjectId next() {
+				if (zero) {
+					zero = false;
+					return ObjectId.zeroId();
+				}
+				if (capacity <= slot)
+					throw new NoSuchElementException();
+				ObjectId id = table[slot >>> SEGMENT_BITS]
+						.read((slot & SEGMENT_MASK) * WORDS);
+				slot = nextSlot(slot + 1);
+				return id;
+			}
+		};
+	}
+
+	private int nextSlot(int slot) {
+		for (; slot < capacity; slot++) {
+			if (!table[slot >>> SEGMENT_BITS]
+					.isEmpty((slot & SEGMENT_MASK) * WORDS))
+				break;
+		}
+		return slot;
+	}
+
+	private void insert(AnyObjectId id) {
+		for (int slot = id.w2 & mask;; slot = (slot + 1) & mask) {
+			Segment s = table[slot >>> SEGMENT_BITS];
+			int p = (slot & SEGMENT_MASK) * WORDS;
+			if (s.isEmpty(p)) {
+				s.write(p, id);
+				return;
+			}
+		}
+	}
+
+	private void rehash() {
+		if (capacity == MAX_CAPACITY)
+			throw new IllegalStateException(MessageFormat.format(
+					JGitText.get().objectIdSetFull, Integer.valueOf(size)));
+		Segment[] old = table;
+		int oldCapacity = capacity;
+		allocate(oldCapacity << 1);
+
+		MutableObjectId id = new MutableObjectId();
+		for (int slot = 0; slot < oldCapacity; slot++) {
+			Segment s = old[slot >>> SEGMENT_BITS];
+			int p = (slot & SEGMENT_MASK) * WORDS;
+			if (!s.isEmpty(p)) {
+				s.readInto(p, id);
+				insert(id);
+			}
+		}
+	}
+
+	private void allocate(int cap) {
+		int segSlots = Math.min(cap, 1 << SEGMENT_BITS);
+		Segment[] t = new Segment[cap / segSlots];
+		for (int i = 0; i < t.length; i++) {
+			t[i] = offHeap ? new DirectSegment(segSlots * WORDS)
+					: new HeapSegment(segSlots * WORDS);
+		}
+		table = t;
+		capacity = cap;
+		mask = cap - 1;
+		grow = growAt(cap);
+	}
+
+	private static int growAt(int cap) {
+		return cap - (cap >>> 2);
+	}
+
+	private static boolean isZero(AnyObjectId id) {
+		return (id.w1 | id.w2 | id.w3 | id.w4 | id.w5) == 0;
+	}
+
+	private static abstract class Segment {
+		abstract int get(int i);
+
+		abstract void set(int i, int v);
+
+		boolean isEmpty(int p) {
+			return (get(p) | get(p + 1) | get(p + 2) | get(p + 3)
+					| get(p + 4)) == 0;
+		}
+
+		boolean matches(int p, AnyObjectId id) {
+			return get(p + 1) == id.w2 && get(p) == id.w1
+					&& get(p + 2) == id.w3 && get(p + 3) == id.w4
+					&& get(p + 4) == id.w5;
+		}
+
+		void write(int p, AnyObjectId id) {
+			set(p, id.w1);
+			set(p + 1, id.w2);
+			set(p + 2, id.w3);
+			set(p + 3, id.w4);
+			set(p + 4, id.w5);
+		}
+
+		ObjectId read(int p) {
+			return new ObjectId(get(p), get(p + 1), get(p + 2), get(p + 3),
+					get(p + 4));
+		}
+
+		void readInto(int p, MutableObjectId id) {
+			id.w1 = get(p);
+			id.w2 = get(p + 1);
+			id.w3 = get(p + 2);
+			id.w4 = get(p + 3);
+			id.w5 = get(p + 4);
+		}
+	}
+
+	private static final class HeapSegment extends Segment {
+		private final int[] words;
+
+		HeapSegment(int size) {
+			words = new int[size];
+		}
+
+		@Override
+		int get(int i) {
+			return words[i];
+		}
+
+		@Override
+		void set(int i, int v) {
+			words[i] = v;
+		}
+	}
+
+	private static final class DirectSegment extends Segment {
+		private final IntBuffer words;
+
+		DirectSegment(int size) {
+			words = ByteBuffer.allocateDirect(size * 4)
+					.order(ByteOrder.nativeOrder()).asIntBuffer();
+		}
+
+		@Override
+		int get(int i) {
+			return words.get(i);
+		}
+
+		@Override
+		void set(int i, int v) {
+			words.put(i, v);
+		}
+	}
+}
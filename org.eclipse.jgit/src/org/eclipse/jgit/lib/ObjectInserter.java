@@ -54,6 +54,7 @@
 import org.eclipse.jgit.internal.JGitText;
 import org.eclipse.jgit.transport.PackParser;
 import org.eclipse.jgit.util.sha1.SHA1;
+import org.eclipse.jgit.util.sha1.SHA1.Sha1Implementation;
 
 /**
  * Inserts objects into an existing {@code ObjectDatabase}.
@@ -107,6 +108,16 @@ protected byte[] buffer() {
 			return delegate().buffer();
 		}
 
+		@Override
+		public void setSha1Implementation(Sha1Implementation impl) {
+			delegate().setSha1Implementation(impl);
+		}
+
+		@Override
+		public Sha1Implementation getSha1Implementation() {
+			return delegate().getSha1Implementation();
+		}
+
 		@Override
 		public ObjectId idFor(int type, byte[] data) {
 			return delegate().idFor(type, data);
@@ -177,7 +188,10 @@ public void close() {
 		}
 	}
 
-	private final SHA1 hasher = SHA1.newInstance();
+	private Sha1Implementation sha1Implementation = SHA1
+			.getDefaultImplementation();
+
+	private SHA1 hasher = SHA1.newInstance(sha1Implementation);
 
 	/** Temporary working buffer for streaming data through. */
 	private byte[] tempBuffer;
@@ -219,6 +233,34 @@ protected byte[] buffer() {
 		return b;
 	}
 
+	/**
+	 * Set the SHA-1 implementation used to name objects.
+	 * <p>
+	 * {@link Sha1Implementation#JDKNATIVE} is faster, but does not detect
+	 * collision attacks. Use it only when the content is trusted, such as
+	 * objects created locally.
+	 *
+	 * @param impl
+	 *            the SHA-1 implementation.
+	 * @since 5.3
+	 */
+	public void setSha1Implementation(Sha1Implementation impl) {
+		if (impl != sha1Implementation) {
+			sha1Implementation = impl;
+			hasher = SHA1.newInstance(impl);
+		}
+	}
+
+	/**
+	 * Get the SHA-1 implementation used to name objects.
+	 *
+	 * @return the SHA-1 implementation.
+	 * @since 5.3
+	 */
+	public Sha1Implementation getSha1Implementation() {
+		return sha1Implementation;
+	}
+
 	/**
 	 * Compute digest to help compute an ObjectId
 	 *
@@ -256,7 +298,7 @@ public ObjectId idFor(int type, byte[] data) {
 	 * @return the name of the object.
 	 */
 	public ObjectId idFor(int type, byte[] data, int off, int len) {
-		SHA1 md = SHA1.newInstance();
+		SHA1 md = SHA1.newInstance(sha1Implementation);
 		md.update(Constants.encodedTypeString(type));
 		md.update((byte) ' ');
 		md.update(Constants.encodeASCII(len));
@@ -281,7 +323,7 @@ public ObjectId idFor(int type, byte[] data, int off, int len) {
 	 */
 	public ObjectId idFor(int objectType, long length, InputStream in)
 			throws IOException {
-		SHA1 md = SHA1.newInstance();
+		SHA1 md = SHA1.newInstance(sha1Implementation);
 		md.update(Constants.encodedTypeString(objectType));
 		md.update((byte) ' ');
 		md.update(Constants.encodeASCII(length));
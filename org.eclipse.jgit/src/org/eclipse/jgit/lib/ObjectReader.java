@@ -49,6 +49,7 @@
 import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.Executor;
 
 import org.eclipse.jgit.annotations.Nullable;
 import org.eclipse.jgit.errors.IncorrectObjectTypeException;
@@ -72,6 +73,11 @@ public abstract class ObjectReader implements AutoCloseable {
 	 */
 	protected int streamFileThreshold;
 
+	@Nullable
+	private Executor batchExecutor;
+
+	private int batchThreads;
+
 	/**
 	 * Construct a new reader from the same data.
 	 * <p>
@@ -430,6 +436,67 @@ public void setAvoidUnreachableObjects(boolean avoid) {
 		// Do nothing by default.
 	}
 
+	/**
+	 * Set the executor used to look up large batches of objects.
+	 * <p>
+	 * Implementations may split a large batch passed to
+	 * {@link #getObjectSize(Iterable, boolean)} into chunks of objects stored
+	 * near each other, and look up the chunks concurrently on this executor,
+	 * each with its own reader. By default batches are looked up by the
+	 * calling thread. Batches are split for one thread per available
+	 * processor.
+	 *
+	 * @param executor
+	 *            executor for batched lookups; null to look them up in the
+	 *            calling thread.
+	 * @since 5.3
+	 */
+	public void setBatchExecutor(@Nullable Executor executor) {
+		setBatchExecutor(executor, 0);
+	}
+
+	/**
+	 * Set the executor used to look up large batches of objects, and the
+	 * number of threads to split them for.
+	 *
+	 * @param executor
+	 *            executor for batched lookups; null to look them up in the
+	 *            calling thread.
+	 * @param threads
+	 *            number of threads looking up a batch, including the calling
+	 *            thread. If &lt;= 0 the number of available processors for
+	 *            this JVM is used.
+	 * @see #setBatchExecutor(Executor)
+	 * @since 5.3
+	 */
+	public void setBatchExecutor(@Nullable Executor executor, int threads) {
+		batchExecutor = executor;
+		batchThreads = threads;
+	}
+
+	/**
+	 * Get the executor used to look up large batches of objects.
+	 *
+	 * @return the executor for batched lookups; null if they are looked up
+	 *         in the calling thread.
+	 * @since 5.3
+	 */
+	@Nullable
+	public Executor getBatchExecutor() {
+		return batchExecutor;
+	}
+
+	/**
+	 * Get the number of threads to split large batches of objects for.
+	 *
+	 * @return number of threads looking up a batch, including the calling
+	 *         thread; &lt;= 0 for the number of available processors.
+	 * @since 5.3
+	 */
+	public int getBatchThreads() {
+		return batchThreads;
+	}
+
 	/**
 	 * An index that can be used to speed up ObjectWalks.
 	 *
@@ -442,6 +509,32 @@ public BitmapIndex getBitmapIndex() throws IOException {
 		return null;
 	}
 
+	/**
+	 * Get the commit-graph of the repository this reader reads from.
+	 *
+	 * @return the commit-graph, or null if the repository has no
+	 *         commit-graph or its use is disabled.
+	 * @throws java.io.IOException
+	 *             when the commit-graph fails to load
+	 * @since 5.3
+	 */
+	@Nullable
+	public CommitGraph getCommitGraph() throws IOException {
+		return null;
+	}
+
+	/**
+	 * Get the I/O and CPU statistics of this reader.
+	 *
+	 * @return statistics of the work done by this reader since it was
+	 *         created, or null if the reader does not collect statistics.
+	 * @since 5.3
+	 */
+	@Nullable
+	public ObjectReaderStatistics getStatistics() {
+		return null;
+	}
+
 	/**
 	 * Get the {@link org.eclipse.jgit.lib.ObjectInserter} from which this
 	 * reader was created using {@code inserter.newReader()}
@@ -579,11 +672,40 @@ public void setAvoidUnreachableObjects(boolean avoid) {
 			delegate().setAvoidUnreachableObjects(avoid);
 		}
 
+		@Override
+		public void setBatchExecutor(@Nullable Executor executor,
+				int threads) {
+			delegate().setBatchExecutor(executor, threads);
+		}
+
+		@Override
+		@Nullable
+		public Executor getBatchExecutor() {
+			return delegate().getBatchExecutor();
+		}
+
+		@Override
+		public int getBatchThreads() {
+			return delegate().getBatchThreads();
+		}
+
 		@Override
 		public BitmapIndex getBitmapIndex() throws IOException {
 			return delegate().getBitmapIndex();
 		}
 
+		@Override
+		@Nullable
+		public CommitGraph getCommitGraph() throws IOException {
+			return delegate().getCommitGraph();
+		}
+
+		@Override
+		@Nullable
+		public ObjectReaderStatistics getStatistics() {
+			return delegate().getStatistics();
+		}
+
 		@Override
 		@Nullable
 		public ObjectInserter getCreatedFromInserter() {
@@ -0,0 +1,356 @@
+/*
+ * Copyright (C) 2019, Google LLC.
+ * and other copyright owners as documented in the project's IP log.
+ *
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Distribution License v1.0 which
+ * accompanies this distribution, is reproduced below, and is
+ * available at http://www.eclipse.org/org/documents/edl-v10.php
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or
+ * without modification, are permitted provided that the following
+ * conditions are met:
+ *
+ * - Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * - Redistributions in binary form must reproduce the above
+ *   copyright notice, this list of conditions and the following
+ *   disclaimer in the documentation and/or other materials provided
+ *   with the distribution.
+ *
+ * - Neither the name of the Eclipse Foundation, Inc. nor the
+ *   names of its contributors may be used to endorse or promote
+ *   products derived from this software without specific prior
+ *   written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND
+ * CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+package org.eclipse.jgit.lib;
+
+import java.util.Arrays;
+import java.util.function.ToLongFunction;
+
+/**
+ * I/O and CPU statistics of an {@link org.eclipse.jgit.lib.ObjectReader}.
+ * <p>
+ * Times are wall-clock time measured by the reader's own thread, in
+ * microseconds. The statistics are a live view: they keep changing while the
+ * reader is in use.
+ *
+ * @since 5.3
+ */
+public class ObjectReaderStatistics {
+	/**
+	 * Accumulates the statistics of a reader.
+	 * <p>
+	 * An accumulator is updated only by the thread using its reader.
+	 */
+	public static class Accumulator {
+		private long cacheHits;
+
+		private long cacheWaitMicros;
+
+		private long readCount;
+
+		private long readBytes;
+
+		private long readMicros;
+
+		private long inflatedBytes;
+
+		private long inflateMicros;
+
+		private long deltaCount;
+
+		private long deltaBytes;
+
+		private long deltaMicros;
+
+		/** Record a read served by the reader's storage cache. */
+		public void addCacheHit() {
+			cacheHits++;
+		}
+
+		/**
+		 * Record time spent waiting for another thread to load a cache entry.
+		 *
+		 * @param micros
+		 *            microseconds spent waiting.
+		 */
+		public void addCacheWait(long micros) {
+			cacheWaitMicros += micros;
+		}
+
+		/**
+		 * Record a discrete read from storage.
+		 *
+		 * @param bytes
+		 *            number of bytes read.
+		 * @param micros
+		 *            microseconds spent reading.
+		 */
+		public void addRead(long bytes, long micros) {
+			readCount++;
+			readBytes += bytes;
+			readMicros += micros;
+		}
+
+		/**
+		 * Record decompression of data.
+		 *
+		 * @param bytes
+		 *            number of bytes decompressed.
+		 * @param micros
+		 *            microseconds spent decompressing.
+		 */
+		public void addInflate(long bytes, long micros) {
+			inflatedBytes += bytes;
+			inflateMicros += micros;
+		}
+
+		/**
+		 * Record a delta applied to reconstruct an object.
+		 *
+		 * @param bytes
+		 *            size of the object produced by the delta.
+		 * @param micros
+		 *            microseconds spent applying the delta.
+		 */
+		public void addDelta(long bytes, long micros) {
+			deltaCount++;
+			deltaBytes += bytes;
+			deltaMicros += micros;
+		}
+
+		/**
+		 * Get number of reads served by the reader's storage cache.
+		 *
+		 * @return number of reads served by the reader's storage cache.
+		 */
+		public long getCacheHits() {
+			return cacheHits;
+		}
+
+		/**
+		 * Get microseconds spent waiting on cache load locks.
+		 *
+		 * @return microseconds spent waiting on cache load locks.
+		 */
+		public long getCacheWaitMicros() {
+			return cacheWaitMicros;
+		}
+
+		/**
+		 * Get number of discrete reads from storage.
+		 *
+		 * @return number of discrete reads from storage.
+		 */
+		public long getReadCount() {
+			return readCount;
+		}
+
+		/**
+		 * Get number of bytes read from storage.
+		 *
+		 * @return number of bytes read from storage.
+		 */
+		public long getReadBytes() {
+			return readBytes;
+		}
+
+		/**
+		 * Get microseconds spent reading from storage.
+		 *
+		 * @return microseconds spent reading from storage.
+		 */
+		public long getReadMicros() {
+			return readMicros;
+		}
+
+		/**
+		 * Get number of bytes decompressed.
+		 *
+		 * @return number of bytes decompressed.
+		 */
+		public long getInflatedBytes() {
+			return inflatedBytes;
+		}
+
+		/**
+		 * Get microseconds spent decompressing.
+		 *
+		 * @return microseconds spent decompressing.
+		 */
+		public long getInflateMicros() {
+			return inflateMicros;
+		}
+
+		/**
+		 * Get number of deltas applied.
+		 *
+		 * @return number of deltas applied.
+		 */
+		public long getDeltaCount() {
+			return deltaCount;
+		}
+
+		/**
+		 * Get number of bytes produced by applying deltas.
+		 *
+		 * @return number of bytes produced by applying deltas.
+		 */
+		public long getDeltaBytes() {
+			return deltaBytes;
+		}
+
+		/**
+		 * Get microseconds spent applying deltas.
+		 *
+		 * @return microseconds spent applying deltas.
+		 */
+		public long getDeltaMicros() {
+			return deltaMicros;
+		}
+	}
+
+	private final Accumulator[] stats;
+
+	/**
+	 * Create statistics summing the given accumulators.
+	 *
+	 * @param stats
+	 *            accumulators of one or more readers. They are not copied;
+	 *            later updates are visible through this object.
+	 */
+	public ObjectReaderStatistics(Accumulator... stats) {
+		this.stats = stats;
+	}
+
+	/**
+	 * Combine the statistics of several readers.
+	 *
+	 * @param all
+	 *            statistics of the readers; null elements are skipped.
+	 * @return statistics summing all readers.
+	 */
+	public static ObjectReaderStatistics sum(ObjectReaderStatistics... all) {
+		return new ObjectReaderStatistics(Arrays.stream(all)
+				.filter(s -> s != null).flatMap(s -> Arrays.stream(s.stats))
+				.toArray(Accumulator[]::new));
+	}
+
+	private long sum(ToLongFunction<Accumulator> field) {
+		long n = 0;
+		for (Accumulator s : stats) {
+			n += field.applyAsLong(s);
+		}
+		return n;
+	}
+
+	/**
+	 * Get number of reads served by the reader's storage cache.
+	 *
+	 * @return number of reads served by the reader's storage cache.
+	 */
+	public long getCacheHits() {
+		return sum(Accumulator::getCacheHits);
+	}
+
+	/**
+	 * Get microseconds spent waiting for another thread to load a cache entry.
+	 *
+	 * @return microseconds spent waiting on cache load locks.
+	 */
+	public long getCacheWaitMicros() {
+		return sum(Accumulator::getCacheWaitMicros);
+	}
+
+	/**
+	 * Get number of discrete reads from storage, that is, cache misses.
+	 *
+	 * @return number of discrete reads from storage.
+	 */
+	public long getReadCount() {
+		return sum(Accumulator::getReadCount);
+	}
+
+	/**
+	 * Get number of bytes read from storage.
+	 *
+	 * @return number of bytes read from storage.
+	 */
+	public long getReadBytes() {
+		return sum(Accumulator::getReadBytes);
+	}
+
+	/**
+	 * Get microseconds spent reading from storage.
+	 *
+	 * @return microseconds spent reading from storage.
+	 */
+	public long getReadMicros() {
+		return sum(Accumulator::getReadMicros);
+	}
+
+	/**
+	 * Get number of bytes decompressed.
+	 *
+	 * @return number of bytes decompressed.
+	 */
+	public long getInflatedBytes() {
+		return sum(Accumulator::getInflatedBytes);
+	}
+
+	/**
+	 * Get microseconds spent decompressing.
+	 *
+	 * @return microseconds spent decompressing.
+	 */
+	public long getInflateMicros() {
+		return sum(Accumulator::getInflateMicros);
+	}
+
+	/**
+	 * Get number of deltas applied to reconstruct objects.
+	 *
+	 * @return number of deltas applied.
+	 */
+	public long getDeltaCount() {
+		return sum(Accumulator::getDeltaCount);
+	}
+
+	/**
+	 * Get number of bytes of objects produced by applying deltas.
+	 *
+	 * @return number of bytes produced by applying deltas.
+	 */
+	public long getDeltaBytes() {
+		return sum(Accumulator::getDeltaBytes);
+	}
+
+	/**
+	 * Get microseconds spent applying deltas.
+	 *
+	 * @return microseconds spent applying deltas.
+	 */
+	public long getDeltaMicros() {
+		return sum(Accumulator::getDeltaMicros);
+	}
+}
@@ -0,0 +1,441 @@
+/*
+ * Copyright (C) 2019, Google LLC.
+ * and other copyright owners as documented in the project's IP log.
+ *
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Distribution License v1.0 which
+ * accompanies this distribution, is reproduced below, and is
+ * available at http://www.eclipse.org/org/documents/edl-v10.php
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or
+ * without modification, are permitted provided that the following
+ * conditions are met:
+ *
+ * - Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * - Redistributions in binary form must reproduce the above
+ *   copyright notice, this list of conditions and the following
+ *   disclaimer in the documentation and/or other materials provided
+ *   with the distribution.
+ *
+ * - Neither the name of the Eclipse Foundation, Inc. nor the
+ *   names of its contributors may be used to endorse or promote
+ *   products derived from this software without specific prior
+ *   written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND
+ * CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.eclipse.jgit.lib;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.eclipse.jgit.dircache.DirCache;
+import org.eclipse.jgit.dircache.UntrackedCache;
+import org.eclipse.jgit.dircache.UntrackedCache.Directory;
+import org.eclipse.jgit.treewalk.TreeWalk;
+import org.eclipse.jgit.treewalk.WorkingTreeIterator;
+import org.eclipse.jgit.treewalk.filter.TreeFilter;
+import org.eclipse.jgit.util.FS;
+import org.eclipse.jgit.util.IO;
+import org.eclipse.jgit.util.StringUtils;
+
+/**
+ * Skips untracked directories whose untracked files are known from the
+ * {@link UntrackedCache}, and records the untracked directories it does not
+ * skip.
+ * <p>
+ * Only directories that exist solely in the working tree are cached. A cached
+ * directory is used if it and all directories below it still have the
+ * recorded modification time, and if the {@code .gitignore} files in it and
+ * in all its parents are unchanged. Directories containing ignored files or
+ * files other than regular files are not cached, as the cache cannot
+ * reproduce them.
+ * <p>
+ * The cache is only read during the walk; {@link #apply(Set)} updates it
+ * afterwards. This filter must be the last one of the walk, so that it only
+ * sees the entries the walk returns.
+ */
+class UntrackedCacheFilter extends TreeFilter {
+	/**
+	 * Flags of the cache: every untracked file is listed, untracked
+	 * directories are not collapsed. C git writes its caches with
+	 * {@code DIR_SHOW_OTHER_DIRECTORIES | DIR_HIDE_EMPTY_DIRECTORIES}, which
+	 * this filter cannot read; such a cache is only replaced if
+	 * {@code core.untrackedCache} is true.
+	 */
+	private static final int DIR_FLAGS = 0;
+
+	/**
+	 * Directories modified less than this many milliseconds before the walk
+	 * started are not cached, as a later modification might not change their
+	 * modification time.
+	 */
+	private static final long RACY_INTERVAL = 2000;
+
+	private static final ObjectId NO_FILE = ObjectId.zeroId();
+
+	/**
+	 * Get the untracked cache to use for a status of the working tree.
+	 *
+	 * @param repo
+	 *            the repository.
+	 * @param dirCache
+	 *            the index of the repository.
+	 * @return the cache of the index if it is still valid, a new empty cache
+	 *         if the index's cache is outdated or {@code core.untrackedCache}
+	 *         is true; null if no cache should be used, or if the index's
+	 *         cache was written with other flags and {@code
+	 *         core.untrackedCache} is not true.
+	 * @throws IOException
+	 */
+	static UntrackedCache getUntrackedCache(Repository repo,
+			DirCache dirCache) throws IOException {
+		Boolean enabled = StringUtils.toBooleanOrNull(repo.getConfig()
+				.getString(ConfigConstants.CONFIG_CORE_SECTION, null,
+						ConfigConstants.CONFIG_KEY_UNTRACKED_CACHE));
+		UntrackedCache cache = dirCache.getUntrackedCache();
+		if (Boolean.FALSE.equals(enabled)
+				|| (cache == null && !Boolean.TRUE.equals(enabled)))
+			return null;
+		if (cache != null && cache.getDirFlags() != DIR_FLAGS
+				&& !Boolean.TRUE.equals(enabled))
+			return null;
+
+		FS fs = repo.getFS();
+		String ident = getIdent(repo);
+		ObjectId infoExclude = idFor(
+				fs.resolve(repo.getDirectory(), Constants.INFO_EXCLUDE));
+		ObjectId excludesFile = null;
+		String path = repo.getConfig().get(CoreConfig.KEY).getExcludesFile();
+		if (path != null) {
+			if (path.startsWith("~/")) //$NON-NLS-1$
+				excludesFile = idFor(fs.resolve(fs.userHome(),
+						path.substring(2)));
+			else
+				excludesFile = idFor(fs.resolve(null, path));
+		}
+
+		if (cache == null || !cache.hasIdent(ident)
+				|| cache.getDirFlags() != DIR_FLAGS
+				|| !Constants.DOT_GIT_IGNORE.equals(cache.getExcludePerDir())
+				|| !Objects.equals(cache.getInfoExcludeId(), infoExclude)
+				|| !Objects.equals(cache.getExcludesFileId(), excludesFile))
+			cache = new UntrackedCache(ident, DIR_FLAGS, infoExclude,
+					excludesFile);
+		return cache;
+	}
+
+	private static String getIdent(Repository repo) {
+		return "Location " + repo.getWorkTree().getAbsolutePath() //$NON-NLS-1$
+				+ ", system " + System.getProperty("os.name"); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+	private static ObjectId idFor(File file) throws IOException {
+		byte[] data;
+		try {
+			data = IO.readFully(file);
+		} catch (FileNotFoundException e) {
+			return null;
+		}
+		try (ObjectInserter.Formatter fmt = new ObjectInserter.Formatter()) {
+			return fmt.idFor(Constants.OBJ_BLOB, data);
+		}
+	}
+
+	/** An untracked directory walked during this walk. */
+	private static class Recording {
+		final String path;
+
+		final Directory dir;
+
+		final Map<String, Directory> dirs = new HashMap<>();
+
+		boolean usable = true;
+
+		Recording(String path, Directory dir) {
+			this.path = path;
+			this.dir = dir;
+			dirs.put(path, dir);
+		}
+	}
+
+	private final UntrackedCache cache;
+
+	private final int workingTree;
+
+	private final FS fs;
+
+	private final File workTree;
+
+	private final long racyTime;
+
+	private final Map<String, ObjectId> excludeIds = new HashMap<>();
+
+	private final List<String> cachedFiles = new ArrayList<>();
+
+	private final List<Recording> recordings = new ArrayList<>();
+
+	private Recording current;
+
+	/**
+	 * Create a filter for one walk.
+	 *
+	 * @param repo
+	 *            the repository.
+	 * @param cache
+	 *            the untracked cache. It is not modified during the walk.
+	 * @param workingTree
+	 *            index of the working tree iterator in the walk.
+	 */
+	UntrackedCacheFilter(Repository repo, UntrackedCache cache,
+			int workingTree) {
+		this.cache = cache;
+		this.workingTree = workingTree;
+		this.fs = repo.getFS();
+		this.workTree = repo.getWorkTree();
+		this.racyTime = System.currentTimeMillis() - RACY_INTERVAL;
+	}
+
+	private UntrackedCacheFilter(UntrackedCacheFilter src) {
+		this.cache = src.cache;
+		this.workingTree = src.workingTree;
+		this.fs = src.fs;
+		this.workTree = src.workTree;
+		this.racyTime = src.racyTime;
+	}
+
+	/**
+	 * Get the untracked files taken from the cache.
+	 *
+	 * @return paths of untracked files in skipped directories. They were
+	 *         regular files when cached, see {@link #getFileMode(String)}.
+	 */
+	List<String> getCachedFiles() {
+		return cachedFiles;
+	}
+
+	/**
+	 * Get the current mode of a cached untracked file.
+	 * <p>
+	 * Changing the mode of a file or replacing it with a symbolic link does
+	 * not necessarily change the modification time of its directory, so the
+	 * mode is read from the working tree instead of being cached.
+	 *
+	 * @param path
+	 *            path of a file returned by {@link #getCachedFiles()}.
+	 * @return mode of the file in the working tree.
+	 * @throws IOException
+	 *             the file could not be examined.
+	 */
+	FileMode getFileMode(String path) throws IOException {
+		File f = new File(workTree, path);
+		if (fs.isSymLink(f))
+			return FileMode.SYMLINK;
+		if (fs.supportsExecute() && fs.canExecute(f))
+			return FileMode.EXECUTABLE_FILE;
+		return FileMode.REGULAR_FILE;
+	}
+
+	@Override
+	public boolean include(TreeWalk tw) throws IOException {
+		WorkingTreeIterator wi = tw.getTree(workingTree,
+				WorkingTreeIterator.class);
+		if (wi == null)
+			return true;
+
+		String path = tw.getPathString();
+		if (current != null && !isInside(path, current.path))
+			current = null;
+		if (current != null) {
+			record(tw, wi, path);
+			return true;
+		}
+
+		if (!tw.isSubtree() || !isOnlyInWorkingTree(tw))
+			return true;
+		long lastModified = wi.getEntryLastModified();
+		Directory d = cache.find(path);
+		if (d != null && d.getLastModified() == lastModified
+				&& isValid(d, path) && hasSameIgnoreRules(path)) {
+			addCachedFiles(d, path);
+			return false;
+		}
+
+		d = new Directory(path.substring(path.lastIndexOf('/') + 1));
+		current = new Recording(path, d);
+		recordings.add(current);
+		setLastModified(d, lastModified);
+		return true;
+	}
+
+	private boolean isOnlyInWorkingTree(TreeWalk tw) {
+		for (int i = 0; i < tw.getTreeCount(); i++) {
+			if (i != workingTree && tw.getRawMode(i) != FileMode.TYPE_MISSING)
+				return false;
+		}
+		return true;
+	}
+
+	private void record(TreeWalk tw, WorkingTreeIterator wi, String path)
+			throws IOException {
+		int slash = path.lastIndexOf('/');
+		String name = path.substring(slash + 1);
+		Directory parent = current.dirs.get(path.substring(0, slash));
+		if (parent == null) {
+			current.usable = false;
+			return;
+		}
+
+		if (tw.isSubtree()) {
+			Directory d = new Directory(name);
+			parent.addChild(d);
+			current.dirs.put(path, d);
+			setLastModified(d, wi.getEntryLastModified());
+		} else {
+			parent.addUntracked(name);
+			if (!FileMode.REGULAR_FILE.equals(wi.getEntryFileMode()))
+				current.usable = false;
+			else if (Constants.DOT_GIT_IGNORE.equals(name))
+				parent.setExcludeId(idFor(new File(workTree, path)));
+		}
+	}
+
+	private void setLastModified(Directory d, long lastModified) {
+		if (lastModified >= racyTime)
+			current.usable = false;
+		d.setLastModified(lastModified);
+	}
+
+	private boolean isValid(Directory d, String path) throws IOException {
+		if (!d.isValid())
+			return false;
+		ObjectId id = d.getExcludeId();
+		if (id != null && !id.equals(getExcludeId(path)))
+			return false;
+		for (Directory c : d.getChildren()) {
+			String p = path + '/' + c.getName();
+			long lastModified;
+			try {
+				lastModified = fs.lastModified(new File(workTree, p));
+			} catch (IOException e) {
+				return false;
+			}
+			if (lastModified != c.getLastModified() || !isValid(c, p))
+				return false;
+		}
+		return true;
+	}
+
+	private boolean hasSameIgnoreRules(String path) throws IOException {
+		String p = path;
+		do {
+			p = p.substring(0, Math.max(p.lastIndexOf('/'), 0));
+			Directory d = cache.find(p);
+			if (d == null
+					|| !Objects.equals(d.getExcludeId(), getExcludeId(p)))
+				return false;
+		} while (!p.isEmpty());
+		return true;
+	}
+
+	private ObjectId getExcludeId(String dir) throws IOException {
+		ObjectId id = excludeIds.get(dir);
+		if (id == null) {
+			String name = dir.isEmpty() ? Constants.DOT_GIT_IGNORE
+					: dir + '/' + Constants.DOT_GIT_IGNORE;
+			id = idFor(new File(workTree, name));
+			excludeIds.put(dir, id != null ? id : NO_FILE);
+		}
+		return id != NO_FILE ? id : null;
+	}
+
+	private void addCachedFiles(Directory d, String path) {
+		for (String name : d.getUntracked())
+			cachedFiles.add(path + '/' + name);
+		for (Directory c : d.getChildren())
+			addCachedFiles(c, path + '/' + c.getName());
+	}
+
+	private static boolean isInside(String path, String dir) {
+		return path.length() > dir.length() && path.startsWith(dir)
+				&& path.charAt(dir.length()) == '/';
+	}
+
+	/**
+	 * Record the directories walked into the cache.
+	 * <p>
+	 * Must not be called while any walk reads the cache.
+	 *
+	 * @param ignoredPaths
+	 *            the ignored paths found by the walk.
+	 * @return whether the cache was modified.
+	 * @throws IOException
+	 */
+	boolean apply(Set<String> ignoredPaths) throws IOException {
+		NavigableSet<String> ignored = new TreeSet<>(ignoredPaths);
+		boolean modified = false;
+		for (Recording r : recordings) {
+			String next = ignored.ceiling(r.path);
+			if (!r.usable || (next != null && (next.equals(r.path)
+					|| isInside(next, r.path))))
+				continue;
+
+			String p = r.path;
+			do {
+				p = p.substring(0, Math.max(p.lastIndexOf('/'), 0));
+				cache.setExcludeId(p, getExcludeId(p));
+			} while (!p.isEmpty());
+			cache.put(r.path.substring(0, Math.max(r.path.lastIndexOf('/'), 0)),
+					r.dir);
+			modified = true;
+		}
+		return modified;
+	}
+
+	@Override
+	public boolean shouldBeRecursive() {
+		return false;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * The copy reads the same cache, but records the files and directories
+	 * of its own walk.
+	 */
+	@Override
+	public TreeFilter clone() {
+		return new UntrackedCacheFilter(this);
+	}
+
+	@Override
+	public String toString() {
+		return "UNTRACKED_CACHE_FILTER"; //$NON-NLS-1$
+	}
+}
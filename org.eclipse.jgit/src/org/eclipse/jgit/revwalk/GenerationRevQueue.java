@@ -0,0 +1,151 @@
+/*
+ * Copyright (C) 2019, Google LLC.
+ * and other copyright owners as documented in the project's IP log.
+ *
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Distribution License v1.0 which
+ * accompanies this distribution, is reproduced below, and is
+ * available at http://www.eclipse.org/org/documents/edl-v10.php
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or
+ * without modification, are permitted provided that the following
+ * conditions are met:
+ *
+ * - Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * - Redistributions in binary form must reproduce the above
+ *   copyright notice, this list of conditions and the following
+ *   disclaimer in the documentation and/or other materials provided
+ *   with the distribution.
+ *
+ * - Neither the name of the Eclipse Foundation, Inc. nor the
+ *   names of its contributors may be used to endorse or promote
+ *   products derived from this software without specific prior
+ *   written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND
+ * CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+package org.eclipse.jgit.revwalk;
+
+import java.util.Arrays;
+
+/**
+ * A queue of commits sorted by descending generation number.
+ * <p>
+ * Commits with equal generation, including those whose generation is not
+ * known, are sorted by descending commit time. A commit is therefore never
+ * produced before any of its descendants that are also in the queue, as long
+ * as the generation of every queued commit is known.
+ */
+class GenerationRevQueue extends AbstractRevQueue {
+	private RevCommit[] heap = new RevCommit[16];
+
+	private int size;
+
+	/** {@inheritDoc} */
+	@Override
+	public void add(RevCommit c) {
+		if (size == heap.length)
+			heap = Arrays.copyOf(heap, size * 2);
+		int i = size++;
+		while (i > 0) {
+			int parent = (i - 1) >>> 1;
+			if (!before(c, heap[parent]))
+				break;
+			heap[i] = heap[parent];
+			i = parent;
+		}
+		heap[i] = c;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public RevCommit next() {
+		if (size == 0)
+			return null;
+		RevCommit r = heap[0];
+		RevCommit last = heap[--size];
+		heap[size] = null;
+		if (size > 0) {
+			int i = 0;
+			int half = size >>> 1;
+			while (i < half) {
+				int child = 2 * i + 1;
+				if (child + 1 < size && before(heap[child + 1], heap[child]))
+					child++;
+				if (!before(heap[child], last))
+					break;
+				heap[i] = heap[child];
+				i = child;
+			}
+			heap[i] = last;
+		}
+		return r;
+	}
+
+	/**
+	 * Peek at the next commit, without removing it.
+	 *
+	 * @return the next available commit; null if there are no commits left.
+	 */
+	RevCommit peek() {
+		return size > 0 ? heap[0] : null;
+	}
+
+	private static boolean before(RevCommit a, RevCommit b) {
+		if (a.generation != b.generation)
+			return a.generation > b.generation;
+		return a.commitTime > b.commitTime;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public void clear() {
+		Arrays.fill(heap, 0, size, null);
+		size = 0;
+	}
+
+	@Override
+	boolean everbodyHasFlag(int f) {
+		for (int i = 0; i < size; i++) {
+			if ((heap[i].flags & f) == 0)
+				return false;
+		}
+		return true;
+	}
+
+	@Override
+	boolean anybodyHasFlag(int f) {
+		for (int i = 0; i < size; i++) {
+			if ((heap[i].flags & f) != 0)
+				return true;
+		}
+		return false;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public String toString() {
+		final StringBuilder s = new StringBuilder();
+		for (int i = 0; i < size; i++)
+			describe(s, heap[i]);
+		return s.toString();
+	}
+}
@@ -66,6 +66,11 @@
  * Several internal flags are reused here for a different purpose, but this
  * should not have any impact as this generator should be run alone, and without
  * any other generators wrapped around it.
+ * <p>
+ * In pruning mode commits are visited in generation order, and the traversal
+ * ends once every pending commit has a generation below a minimum. Only merge
+ * bases with at least that generation are produced, which is sufficient to
+ * answer whether a commit of that generation is reachable from another.
  */
 class MergeBaseGenerator extends Generator {
 	private static final int PARSED = RevWalk.PARSED;
@@ -74,7 +79,9 @@ class MergeBaseGenerator extends Generator {
 	private static final int MERGE_BASE = RevWalk.REWRITE;
 
 	private final RevWalk walker;
-	private final DateRevQueue pending;
+	private final AbstractRevQueue pending;
+	private final boolean pruning;
+	private final int minGeneration;
 
 	private int branchMask;
 	private int recarryTest;
@@ -87,6 +94,24 @@ class MergeBaseGenerator extends Generator {
 	MergeBaseGenerator(RevWalk w) {
 		walker = w;
 		pending = new DateRevQueue();
+		pruning = false;
+		minGeneration = 0;
+	}
+
+	/**
+	 * Create a generator in pruning mode.
+	 *
+	 * @param w
+	 *            the walker to obtain commits and generations from.
+	 * @param minGeneration
+	 *            commits with a lower generation are not traversed, and can
+	 *            thus not be produced as merge base.
+	 */
+	MergeBaseGenerator(RevWalk w, int minGeneration) {
+		walker = w;
+		pending = new GenerationRevQueue();
+		pruning = true;
+		this.minGeneration = minGeneration;
 	}
 
 	void init(AbstractRevQueue p) throws IOException {
@@ -119,7 +144,7 @@ void init(AbstractRevQueue p) throws IOException {
 		}
 	}
 
-	private void add(RevCommit c) {
+	private void add(RevCommit c) throws IOException {
 		final int flag = walker.allocFlag();
 		branchMask |= flag;
 		if ((c.flags & branchMask) != 0) {
@@ -130,6 +155,8 @@ private void add(RevCommit c) {
 			throw new IllegalStateException(MessageFormat.format(JGitText.get().staleRevFlagsOn, c.name()));
 		}
 		c.flags |= flag;
+		if (pruning)
+			walker.getGeneration(c);
 		pending.add(c);
 	}
 
@@ -145,12 +172,19 @@ private RevCommit _next() throws MissingObjectException,
 			if (c == null) {
 				return null;
 			}
+			if (pruning && c.generation < minGeneration) {
+				// The queue is ordered by generation, so no pending commit
+				// can reach a commit with the minimum generation.
+				return null;
+			}
 
 			for (RevCommit p : c.parents) {
 				if ((p.flags & IN_PENDING) != 0)
 					continue;
 				if ((p.flags & PARSED) == 0)
 					p.parseHeaders(walker);
+				if (pruning)
+					walker.getGeneration(p);
 				p.flags |= IN_PENDING;
 				pending.add(p);
 			}
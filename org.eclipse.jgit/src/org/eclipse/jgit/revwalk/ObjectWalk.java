@@ -43,6 +43,7 @@
 
 package org.eclipse.jgit.revwalk;
 
+import static java.util.Objects.requireNonNull;
 import static org.eclipse.jgit.lib.Constants.OBJ_BLOB;
 import static org.eclipse.jgit.lib.Constants.OBJ_COMMIT;
 import static org.eclipse.jgit.lib.Constants.OBJ_TREE;
@@ -52,6 +53,7 @@
 import java.util.ArrayList;
 import java.util.List;
 
+import org.eclipse.jgit.annotations.NonNull;
 import org.eclipse.jgit.errors.CorruptObjectException;
 import org.eclipse.jgit.errors.IncorrectObjectTypeException;
 import org.eclipse.jgit.errors.LargeObjectException;
@@ -97,6 +99,55 @@ public class ObjectWalk extends RevWalk {
 	 */
 	private static final int IN_PENDING = RevWalk.REWRITE;
 
+	/**
+	 * When walking over a tree and blob graph, objects are usually marked as
+	 * seen as they are visited and this "seen" status is checked upon the next
+	 * visit. If they are already "seen" then they are not processed (returned
+	 * by {@link ObjectWalk#nextObject()}) again. However, this behavior can be
+	 * overridden by supplying a different implementation of this class.
+	 *
+	 * @since 5.3
+	 */
+	public interface VisitationPolicy {
+		/**
+		 * Whenever the rev or object walk reaches a Git object, if that object
+		 * already exists as a RevObject, this method is called to determine if
+		 * that object should be visited.
+		 *
+		 * @param o
+		 *            the object to check if it should be visited
+		 * @return true if the object should be visited
+		 */
+		boolean shouldVisit(RevObject o);
+
+		/**
+		 * Called when an object is visited.
+		 *
+		 * @param o
+		 *            the object that was visited
+		 */
+		void visited(RevObject o);
+	}
+
+	/**
+	 * The default visitation policy: causes all objects to be visited exactly
+	 * once.
+	 *
+	 * @since 5.3
+	 */
+	public static final VisitationPolicy SIMPLE_VISITATION_POLICY =
+			new VisitationPolicy() {
+		@Override
+		public boolean shouldVisit(RevObject o) {
+			return (o.flags & SEEN) == 0;
+		}
+
+		@Override
+		public void visited(RevObject o) {
+			o.flags |= SEEN;
+		}
+	};
+
 	private List<RevObject> rootObjects;
 
 	private BlockObjQueue pendingObjects;
@@ -113,6 +164,11 @@ public class ObjectWalk extends RevWalk {
 
 	private boolean boundary;
 
+	private int treeDepth;
+
+	@NonNull
+	private VisitationPolicy visitationPolicy = SIMPLE_VISITATION_POLICY;
+
 	/**
 	 * Create a new revision and object walker for a given repository.
 	 *
@@ -299,6 +355,18 @@ public void setObjectFilter(ObjectFilter newFilter) {
 		objectFilter = newFilter != null ? newFilter : ObjectFilter.ALL;
 	}
 
+	/**
+	 * Sets the visitation policy to use during this walk.
+	 *
+	 * @param policy
+	 *            the {@code VisitationPolicy} to use
+	 * @since 5.3
+	 */
+	public void setVisitationPolicy(@NonNull VisitationPolicy policy) {
+		assertNotStarted();
+		visitationPolicy = requireNonNull(policy);
+	}
+
 	/** {@inheritDoc} */
 	@Override
 	public RevCommit next() throws MissingObjectException,
@@ -346,6 +414,7 @@ public RevObject nextObject() throws MissingObjectException,
 		TreeVisit tv = currVisit;
 		while (tv != null) {
 			byte[] buf = tv.buf;
+			treeDepth = tv.depth + 1;
 			for (int ptr = tv.ptr; ptr < buf.length;) {
 				int startPtr = ptr;
 				ptr = findObjectId(buf, ptr);
@@ -357,24 +426,25 @@ public RevObject nextObject() throws MissingObjectException,
 				}
 
 				RevObject obj = objects.get(idBuffer);
-				if (obj != null && (obj.flags & SEEN) != 0)
+				if (obj != null && !visitationPolicy.shouldVisit(obj))
 					continue;
 
 				int mode = parseMode(buf, startPtr, ptr, tv);
-				int flags;
 				switch (mode >>> TYPE_SHIFT) {
 				case TYPE_FILE:
 				case TYPE_SYMLINK:
 					if (obj == null) {
 						obj = new RevBlob(idBuffer);
-						obj.flags = SEEN;
 						objects.add(obj);
+						if (!visitationPolicy.shouldVisit(obj))
+							continue;
+						visitationPolicy.visited(obj);
 						return obj;
 					}
 					if (!(obj instanceof RevBlob))
 						throw new IncorrectObjectTypeException(obj, OBJ_BLOB);
-					obj.flags = flags = obj.flags | SEEN;
-					if ((flags & UNINTERESTING) == 0)
+					visitationPolicy.visited(obj);
+					if ((obj.flags & UNINTERESTING) == 0)
 						return obj;
 					if (boundary)
 						return obj;
@@ -383,14 +453,16 @@ public RevObject nextObject() throws MissingObjectException,
 				case TYPE_TREE:
 					if (obj == null) {
 						obj = new RevTree(idBuffer);
-						obj.flags = SEEN;
 						objects.add(obj);
+						if (!visitationPolicy.shouldVisit(obj))
+							continue;
+						visitationPolicy.visited(obj);
 						return enterTree(obj);
 					}
 					if (!(obj instanceof RevTree))
 						throw new IncorrectObjectTypeException(obj, OBJ_TREE);
-					obj.flags = flags = obj.flags | SEEN;
-					if ((flags & UNINTERESTING) == 0)
+					visitationPolicy.visited(obj);
+					if ((obj.flags & UNINTERESTING) == 0)
 						return enterTree(obj);
 					if (boundary)
 						return enterTree(obj);
@@ -414,20 +486,20 @@ public RevObject nextObject() throws MissingObjectException,
 			tv = currVisit;
 		}
 
+		treeDepth = 0;
 		for (;;) {
 			RevObject o = pendingObjects.next();
 			if (o == null) {
 				return null;
 			}
-			int flags = o.flags;
-			if ((flags & SEEN) != 0)
+			if (!visitationPolicy.shouldVisit(o))
 				continue;
-			flags |= SEEN;
-			o.flags = flags;
-			if ((flags & UNINTERESTING) == 0 | boundary) {
+			visitationPolicy.visited(o);
+			if ((o.flags & UNINTERESTING) == 0 | boundary) {
 				if (o instanceof RevTree) {
 					tv = newTreeVisit(o);
 					tv.parent = null;
+					tv.depth = 0;
 					currVisit = tv;
 				}
 				return o;
@@ -439,10 +511,26 @@ private RevObject enterTree(RevObject obj) throws MissingObjectException,
 			IncorrectObjectTypeException, IOException {
 		TreeVisit tv = newTreeVisit(obj);
 		tv.parent = currVisit;
+		tv.depth = treeDepth;
 		currVisit = tv;
 		return obj;
 	}
 
+	/**
+	 * Skips the rest of the current tree.
+	 * <p>
+	 * If the last object returned by {@link #nextObject()} is a tree, its
+	 * entries are not visited. Otherwise the remaining entries of the tree
+	 * containing it are skipped.
+	 *
+	 * @since 5.3
+	 */
+	public void skipTree() {
+		if (currVisit != null) {
+			currVisit.ptr = currVisit.buf.length;
+		}
+	}
+
 	private static int findObjectId(byte[] buf, int ptr) {
 		// Skip over the mode and name until the NUL before the ObjectId
 		// can be located. Skip the NUL as the function returns.
@@ -653,6 +741,19 @@ public int getPathLength() {
 		return pathLen;
 	}
 
+	/**
+	 * Get the depth of the current object within its tree.
+	 * <p>
+	 * Root trees, and any object that was not reached through a tree, have a
+	 * depth of 0. The entries of a tree are one level deeper than the tree.
+	 *
+	 * @return depth of the object last returned by {@link #nextObject()}.
+	 * @since 5.3
+	 */
+	public int getTreeDepth() {
+		return treeDepth;
+	}
+
 	private int updatePathBuf(TreeVisit tv) {
 		if (tv == null)
 			return 0;
@@ -812,5 +913,8 @@ private static class TreeVisit {
 
 		/** Number of bytes in the path leading up to this tree. */
 		int pathLen;
+
+		/** Number of trees between {@link #obj} and the root tree. */
+		int depth;
 	}
 }
@@ -0,0 +1,179 @@
+/*
+ * Copyright (C) 2019, Google LLC.
+ * and other copyright owners as documented in the project's IP log.
+ *
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Distribution License v1.0 which
+ * accompanies this distribution, is reproduced below, and is
+ * available at http://www.eclipse.org/org/documents/edl-v10.php
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or
+ * without modification, are permitted provided that the following
+ * conditions are met:
+ *
+ * - Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * - Redistributions in binary form must reproduce the above
+ *   copyright notice, this list of conditions and the following
+ *   disclaimer in the documentation and/or other materials provided
+ *   with the distribution.
+ *
+ * - Neither the name of the Eclipse Foundation, Inc. nor the
+ *   names of its contributors may be used to endorse or promote
+ *   products derived from this software without specific prior
+ *   written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND
+ * CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.eclipse.jgit.revwalk;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.eclipse.jgit.lib.AnyObjectId;
+import org.eclipse.jgit.lib.ObjectId;
+
+/**
+ * Headers of commits parsed by earlier walks, shared between walks.
+ * <p>
+ * A {@link org.eclipse.jgit.revwalk.RevWalk} that does not retain bodies
+ * consults the cache set by
+ * {@link RevWalk#setParsedCommitCache(ParsedCommitCache)} before reading a
+ * commit from the object database. Only the tree, parents and commit time
+ * of a commit are kept, which is all such a walk needs.
+ * <p>
+ * The content of a commit never changes, but a cached commit may be pruned
+ * from the repository while it is still in the cache. Applications should
+ * only add commits reachable from the current refs, and {@link #clear()} the
+ * cache whenever the refs or the packs of the repository change.
+ * <p>
+ * Instances are safe for use by multiple threads.
+ *
+ * @since 5.3
+ */
+public class ParsedCommitCache {
+	private final Map<ObjectId, Entry> commits = new ConcurrentHashMap<>();
+
+	private volatile int limit;
+
+	/**
+	 * Create an empty cache.
+	 *
+	 * @param limit
+	 *            maximum number of commits the cache may hold. Commits added
+	 *            once the limit is reached are ignored.
+	 */
+	public ParsedCommitCache(int limit) {
+		this.limit = limit;
+	}
+
+	/**
+	 * Get the maximum number of commits the cache may hold.
+	 *
+	 * @return the maximum number of commits the cache may hold.
+	 */
+	public int getLimit() {
+		return limit;
+	}
+
+	/**
+	 * Set the maximum number of commits the cache may hold.
+	 * <p>
+	 * Lowering the limit does not remove commits already in the cache.
+	 *
+	 * @param limit
+	 *            maximum number of commits the cache may hold.
+	 */
+	public void setLimit(int limit) {
+		this.limit = limit;
+	}
+
+	/**
+	 * Get the number of commits in the cache.
+	 *
+	 * @return the number of commits in the cache.
+	 */
+	public int size() {
+		return commits.size();
+	}
+
+	/**
+	 * Check whether a commit is in the cache.
+	 *
+	 * @param id
+	 *            the commit to look for.
+	 * @return true if the headers of {@code id} are cached.
+	 */
+	public boolean contains(AnyObjectId id) {
+		return commits.containsKey(id);
+	}
+
+	/**
+	 * Add the headers of a parsed commit.
+	 * <p>
+	 * Commits whose parents were cut off by a shallow boundary are not
+	 * cached, as the next walk may not share the same boundary.
+	 *
+	 * @param c
+	 *            the commit, parsed by any walk.
+	 * @return true if the commit is in the cache after this call.
+	 */
+	public boolean add(RevCommit c) {
+		if ((c.flags & RevWalk.PARSED) == 0
+				|| c.parents == RevCommit.SHALLOW_PARENTS) {
+			return false;
+		}
+		if (commits.containsKey(c)) {
+			return true;
+		}
+		if (commits.size() >= limit) {
+			return false;
+		}
+		ObjectId[] parents = new ObjectId[c.parents.length];
+		for (int i = 0; i < parents.length; i++) {
+			parents[i] = c.parents[i].copy();
+		}
+		commits.put(c.copy(),
+				new Entry(c.getTree().copy(), parents, c.commitTime));
+		return true;
+	}
+
+	/** Remove all commits from the cache. */
+	public void clear() {
+		commits.clear();
+	}
+
+	Entry get(AnyObjectId id) {
+		return commits.get(id);
+	}
+
+	static final class Entry {
+		final ObjectId tree;
+
+		final ObjectId[] parents;
+
+		final int commitTime;
+
+		Entry(ObjectId tree, ObjectId[] parents, int commitTime) {
+			this.tree = tree;
+			this.parents = parents;
+			this.commitTime = commitTime;
+		}
+	}
+}
@@ -59,8 +59,10 @@
 import org.eclipse.jgit.errors.IncorrectObjectTypeException;
 import org.eclipse.jgit.errors.MissingObjectException;
 import org.eclipse.jgit.lib.AnyObjectId;
+import org.eclipse.jgit.lib.CommitGraph;
 import org.eclipse.jgit.lib.Constants;
 import org.eclipse.jgit.lib.MutableObjectId;
+import org.eclipse.jgit.lib.ObjectId;
 import org.eclipse.jgit.lib.ObjectInserter;
 import org.eclipse.jgit.lib.ObjectReader;
 import org.eclipse.jgit.lib.PersonIdent;
@@ -133,6 +135,14 @@ public static RevCommit parse(RevWalk rw, byte[] raw) throws IOException {
 
 	static final RevCommit[] NO_PARENTS = {};
 
+	/**
+	 * Parents of a commit cut off by a shallow boundary.
+	 * <p>
+	 * Empty like {@link #NO_PARENTS}, but a distinct instance so that a
+	 * shallow commit can be told apart from a root commit.
+	 */
+	static final RevCommit[] SHALLOW_PARENTS = {};
+
 	private RevTree tree;
 
 	RevCommit[] parents;
@@ -141,6 +151,8 @@ public static RevCommit parse(RevWalk rw, byte[] raw) throws IOException {
 
 	int inDegree;
 
+	int generation = CommitGraph.GENERATION_NUMBER_INFINITY;
+
 	private byte[] buffer;
 
 	/**
@@ -156,7 +168,16 @@ protected RevCommit(AnyObjectId id) {
 	@Override
 	void parseHeaders(RevWalk walk) throws MissingObjectException,
 			IncorrectObjectTypeException, IOException {
-		parseCanonical(walk, walk.getCachedBytes(this));
+		int graphPos = walk.findGraphPosition(this);
+		if (graphPos >= 0) {
+			parseInGraph(walk, graphPos);
+			return;
+		}
+		ParsedCommitCache.Entry cached = walk.findParsedCommit(this);
+		if (cached != null)
+			parseInCache(walk, cached);
+		else
+			parseCanonical(walk, walk.getCachedBytes(this));
 	}
 
 	@Override
@@ -226,6 +247,61 @@ void parseCanonical(RevWalk walk, byte[] raw) throws IOException {
 		flags |= PARSED;
 	}
 
+	void parseInGraph(RevWalk walk, int graphPos) throws IOException {
+		if (!walk.shallowCommitsInitialized) {
+			walk.initializeShallowCommits(this);
+		}
+
+		CommitGraph graph = walk.commitGraph();
+		CommitGraph.CommitData data = graph.getCommitData(graphPos);
+		tree = walk.lookupTree(data.getTree());
+
+		if (parents == null) {
+			int[] pGraph = data.getParents();
+			if (pGraph.length == 0) {
+				parents = NO_PARENTS;
+			} else {
+				RevCommit[] pList = new RevCommit[pGraph.length];
+				for (int i = 0; i < pList.length; i++) {
+					pList[i] = walk.lookupCommit(graph.getObjectId(pGraph[i]));
+				}
+				parents = pList;
+			}
+		}
+
+		// In 2038 commitTime will overflow unless it is changed to long.
+		commitTime = (int) data.getCommitTime();
+		if (data.getGeneration() != CommitGraph.GENERATION_NUMBER_ZERO) {
+			generation = data.getGeneration();
+		}
+		flags |= PARSED;
+	}
+
+	void parseInCache(RevWalk walk, ParsedCommitCache.Entry cached)
+			throws IOException {
+		if (!walk.shallowCommitsInitialized) {
+			walk.initializeShallowCommits(this);
+		}
+
+		tree = walk.lookupTree(cached.tree);
+
+		if (parents == null) {
+			ObjectId[] pIds = cached.parents;
+			if (pIds.length == 0) {
+				parents = NO_PARENTS;
+			} else {
+				RevCommit[] pList = new RevCommit[pIds.length];
+				for (int i = 0; i < pList.length; i++) {
+					pList[i] = walk.lookupCommit(pIds[i]);
+				}
+				parents = pList;
+			}
+		}
+
+		commitTime = cached.commitTime;
+		flags |= PARSED;
+	}
+
 	/** {@inheritDoc} */
 	@Override
 	public final int getType() {
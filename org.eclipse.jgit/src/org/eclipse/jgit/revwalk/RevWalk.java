@@ -63,6 +63,7 @@
 import org.eclipse.jgit.internal.JGitText;
 import org.eclipse.jgit.lib.AnyObjectId;
 import org.eclipse.jgit.lib.AsyncObjectLoaderQueue;
+import org.eclipse.jgit.lib.CommitGraph;
 import org.eclipse.jgit.lib.Constants;
 import org.eclipse.jgit.lib.MutableObjectId;
 import org.eclipse.jgit.lib.ObjectId;
@@ -202,6 +203,14 @@ public class RevWalk implements Iterable<RevCommit>, AutoCloseable {
 
 	boolean shallowCommitsInitialized;
 
+	private CommitGraph commitGraph;
+
+	private boolean commitGraphLoaded;
+
+	private boolean computeGenerations;
+
+	private ParsedCommitCache parsedCommitCache;
+
 	/**
 	 * Create a new revision walker for a given repository.
 	 *
@@ -384,6 +393,11 @@ public void markUninteresting(RevCommit c)
 	 * commits, and then executes a walk until an answer can be obtained.
 	 * Currently allocated RevFlags that have been added to RevCommit instances
 	 * will be retained through the reset.
+	 * <p>
+	 * Commits are visited in generation order. Once every pending commit has a
+	 * lower generation than <code>base</code> the walk stops, as none of them
+	 * can reach <code>base</code>. Generations are taken from the commit-graph,
+	 * or computed if {@link #setComputeGenerations(boolean)} is enabled.
 	 *
 	 * @param base
 	 *            commit the caller thinks is reachable from <code>tip</code>.
@@ -406,23 +420,197 @@ public void markUninteresting(RevCommit c)
 	public boolean isMergedInto(RevCommit base, RevCommit tip)
 			throws MissingObjectException, IncorrectObjectTypeException,
 			IOException {
-		final RevFilter oldRF = filter;
-		final TreeFilter oldTF = treeFilter;
+		finishDelayedFreeFlags();
+		reset(~freeFlags & APP_FLAGS);
+		markStart(tip);
+		markStart(base);
+
+		MergeBaseGenerator mbg = new MergeBaseGenerator(this,
+				getGeneration(base));
+		AbstractRevQueue q = queue;
+		queue = AbstractRevQueue.EMPTY_QUEUE;
+		pending = mbg;
+		mbg.init(q);
+		RevCommit mergeBase;
+		while ((mergeBase = next()) != null)
+			if (mergeBase == base)
+				return true;
+		return false;
+	}
+
+	/**
+	 * Find a commit that is not reachable from any of a set of tips.
+	 * <p>
+	 * This utility function resets the walker and walks the history of
+	 * <code>tips</code> in generation order. The walk ends as soon as every
+	 * target was found, or every pending commit has a lower generation than
+	 * the remaining targets. It is only bounded if generations are available
+	 * from the commit-graph or through
+	 * {@link #setComputeGenerations(boolean)}; otherwise it visits the entire
+	 * history of <code>tips</code> if any target is unreachable.
+	 *
+	 * @param targets
+	 *            commits that are expected to be reachable.
+	 * @param tips
+	 *            commits to start the walk from.
+	 * @return a commit of <code>targets</code> that is not reachable from any
+	 *         of <code>tips</code>; null if all targets are reachable.
+	 * @throws org.eclipse.jgit.errors.MissingObjectException
+	 *             a commit in the history of the tips is missing.
+	 * @throws org.eclipse.jgit.errors.IncorrectObjectTypeException
+	 *             a parent of a commit is not a commit.
+	 * @throws java.io.IOException
+	 *             a pack file or loose object could not be read.
+	 * @since 5.3
+	 */
+	@Nullable
+	public RevCommit findUnreachable(Collection<RevCommit> targets,
+			Collection<RevCommit> tips) throws MissingObjectException,
+			IncorrectObjectTypeException, IOException {
+		finishDelayedFreeFlags();
+		reset(~freeFlags & APP_FLAGS);
+
+		final int target = TEMP_MARK;
+		final int queued = SEEN;
+		List<RevCommit> marked = new ArrayList<>();
 		try {
-			finishDelayedFreeFlags();
-			reset(~freeFlags & APP_FLAGS);
-			filter = RevFilter.MERGE_BASE;
-			treeFilter = TreeFilter.ALL;
-			markStart(tip);
-			markStart(base);
-			RevCommit mergeBase;
-			while ((mergeBase = next()) != null)
-				if (mergeBase == base)
-					return true;
-			return false;
+			int remaining = 0;
+			int minGeneration = CommitGraph.GENERATION_NUMBER_INFINITY;
+			for (RevCommit t : targets) {
+				if ((t.flags & target) == 0) {
+					parseHeaders(t);
+					t.flags |= target;
+					marked.add(t);
+					remaining++;
+					minGeneration = Math.min(minGeneration, getGeneration(t));
+				}
+			}
+
+			GenerationRevQueue q = new GenerationRevQueue();
+			for (RevCommit c : tips) {
+				if ((c.flags & queued) == 0) {
+					parseHeaders(c);
+					getGeneration(c);
+					c.flags |= queued;
+					marked.add(c);
+					q.add(c);
+				}
+			}
+
+			RevCommit c;
+			while (remaining > 0 && (c = q.next()) != null) {
+				if (c.generation < minGeneration)
+					break;
+				if ((c.flags & target) != 0) {
+					c.flags &= ~target;
+					remaining--;
+				}
+				for (RevCommit p : c.parents) {
+					if ((p.flags & queued) != 0)
+						continue;
+					if ((p.flags & PARSED) == 0)
+						p.parseHeaders(this);
+					getGeneration(p);
+					p.flags |= queued;
+					marked.add(p);
+					q.add(p);
+				}
+			}
+
+			if (remaining > 0) {
+				for (RevCommit t : targets) {
+					if ((t.flags & target) != 0)
+						return t;
+				}
+			}
+			return null;
 		} finally {
-			filter = oldRF;
-			treeFilter = oldTF;
+			for (RevCommit c : marked)
+				c.flags &= ~(target | queued);
+		}
+	}
+
+	/**
+	 * Set whether generation numbers are computed for commits that are not
+	 * covered by the repository's commit-graph.
+	 * <p>
+	 * Generation numbers allow reachability queries such as
+	 * {@link #isMergedInto(RevCommit, RevCommit)} to stop before reaching the
+	 * root commits. Without a commit-graph the generation of a commit is
+	 * computed by walking its entire history once. The result is kept by the
+	 * commits of this walker, so long lived walkers answering many queries
+	 * amortize the cost.
+	 *
+	 * @param compute
+	 *            true to compute generation numbers on demand.
+	 * @since 5.3
+	 */
+	public void setComputeGenerations(boolean compute) {
+		computeGenerations = compute;
+	}
+
+	/**
+	 * Get the generation number of a commit.
+	 *
+	 * @param c
+	 *            a commit of this walker.
+	 * @return the generation of the commit, or
+	 *         {@link CommitGraph#GENERATION_NUMBER_INFINITY} if it is not
+	 *         known.
+	 * @throws IOException
+	 *             the commit-graph or a commit in the history of {@code c}
+	 *             cannot be read.
+	 */
+	int getGeneration(RevCommit c) throws IOException {
+		if (c.generation == CommitGraph.GENERATION_NUMBER_INFINITY
+				&& !loadGeneration(c) && computeGenerations)
+			computeGeneration(c);
+		return c.generation;
+	}
+
+	private boolean loadGeneration(RevCommit c) throws IOException {
+		CommitGraph graph = commitGraph();
+		if (graph == null)
+			return false;
+		int graphPos = graph.findGraphPosition(c);
+		if (graphPos < 0)
+			return false;
+		int g = graph.getCommitData(graphPos).getGeneration();
+		if (g == CommitGraph.GENERATION_NUMBER_ZERO)
+			return false;
+		c.generation = g;
+		return true;
+	}
+
+	private void computeGeneration(RevCommit c) throws IOException {
+		// Parent chains may be millions of commits long, so walk with an
+		// explicit stack instead of recursing.
+		ArrayList<RevCommit> stack = new ArrayList<>();
+		stack.add(c);
+		while (!stack.isEmpty()) {
+			RevCommit top = stack.get(stack.size() - 1);
+			if (top.generation != CommitGraph.GENERATION_NUMBER_INFINITY) {
+				stack.remove(stack.size() - 1);
+				continue;
+			}
+			if ((top.flags & PARSED) == 0)
+				top.parseHeaders(this);
+
+			int max = 0;
+			boolean ready = true;
+			for (RevCommit p : top.parents) {
+				if (p.generation == CommitGraph.GENERATION_NUMBER_INFINITY
+						&& !loadGeneration(p)) {
+					stack.add(p);
+					ready = false;
+				} else if (p.generation > max)
+					max = p.generation;
+			}
+			if (ready) {
+				top.generation = Math.min(max + 1,
+						CommitGraph.GENERATION_NUMBER_MAX);
+				stack.remove(stack.size() - 1);
+			}
 		}
 	}
 
@@ -643,6 +831,34 @@ public void setRetainBody(boolean retain) {
 		retainBody = retain;
 	}
 
+	/**
+	 * Get the cache of commit headers shared with other walks.
+	 *
+	 * @return the cache consulted before parsing a commit, or null.
+	 * @since 5.3
+	 */
+	@Nullable
+	public ParsedCommitCache getParsedCommitCache() {
+		return parsedCommitCache;
+	}
+
+	/**
+	 * Set the cache of commit headers shared with other walks.
+	 * <p>
+	 * When bodies are not retained (see {@link #setRetainBody(boolean)}),
+	 * commits found in the cache are parsed from it instead of being read
+	 * from the object database. The walk never adds commits to the cache
+	 * itself; that is left to the application, which knows which commits are
+	 * safe to share.
+	 *
+	 * @param cache
+	 *            the cache to consult, or null to always read commits.
+	 * @since 5.3
+	 */
+	public void setParsedCommitCache(@Nullable ParsedCommitCache cache) {
+		parsedCommitCache = cache;
+	}
+
 	/**
 	 * Locate a reference to a blob without loading it.
 	 * <p>
@@ -886,13 +1102,83 @@ public RevTag parseTag(AnyObjectId id) throws MissingObjectException,
 	public RevObject parseAny(AnyObjectId id)
 			throws MissingObjectException, IOException {
 		RevObject r = objects.get(id);
-		if (r == null)
-			r = parseNew(id, reader.open(id));
-		else
+		if (r == null) {
+			r = parseNewFromCommitGraph(id);
+			if (r == null)
+				r = parseNewFromCache(id);
+			if (r == null)
+				r = parseNew(id, reader.open(id));
+		} else
 			parseHeaders(r);
 		return r;
 	}
 
+	private RevCommit parseNewFromCommitGraph(AnyObjectId id)
+			throws IOException {
+		int graphPos = findGraphPosition(id);
+		if (graphPos < 0)
+			return null;
+		RevCommit c = createCommit(id);
+		c.parseInGraph(this, graphPos);
+		objects.add(c);
+		return c;
+	}
+
+	private RevCommit parseNewFromCache(AnyObjectId id) throws IOException {
+		ParsedCommitCache.Entry cached = findParsedCommit(id);
+		if (cached == null)
+			return null;
+		RevCommit c = createCommit(id);
+		c.parseInCache(this, cached);
+		objects.add(c);
+		return c;
+	}
+
+	/**
+	 * Find the headers of a commit in the cache set by
+	 * {@link #setParsedCommitCache(ParsedCommitCache)}.
+	 * <p>
+	 * Like the commit-graph, the cache is only consulted if bodies are not
+	 * retained.
+	 *
+	 * @param id
+	 *            the commit to look up.
+	 * @return the cached headers, or null if the commit has to be parsed.
+	 */
+	ParsedCommitCache.Entry findParsedCommit(AnyObjectId id) {
+		if (retainBody || parsedCommitCache == null)
+			return null;
+		return parsedCommitCache.get(id);
+	}
+
+	/**
+	 * Find the position of a commit in the repository's commit-graph.
+	 * <p>
+	 * The commit-graph is only consulted if bodies are not retained, as the
+	 * graph does not store the message, author or committer of a commit.
+	 *
+	 * @param id
+	 *            the commit to look up.
+	 * @return the graph position of the commit, or -1 if its headers have to
+	 *         be parsed from the commit object.
+	 * @throws IOException
+	 *             the commit-graph cannot be loaded.
+	 */
+	int findGraphPosition(AnyObjectId id) throws IOException {
+		if (retainBody)
+			return -1;
+		CommitGraph graph = commitGraph();
+		return graph != null ? graph.findGraphPosition(id) : -1;
+	}
+
+	CommitGraph commitGraph() throws IOException {
+		if (!commitGraphLoaded) {
+			commitGraph = reader != null ? reader.getCommitGraph() : null;
+			commitGraphLoaded = true;
+		}
+		return commitGraph;
+	}
+
 	private RevObject parseNew(AnyObjectId id, ObjectLoader ldr)
 			throws LargeObjectException, CorruptObjectException,
 			MissingObjectException, IOException {
@@ -966,6 +1252,9 @@ public <T extends ObjectId> AsyncRevObjectQueue parseAny(
 			RevObject r = objects.get(id);
 			if (r != null && (r.flags & PARSED) != 0)
 				have.add(r);
+			else if ((r == null || r instanceof RevCommit)
+					&& findParsedCommit(id) != null)
+				have.add(r != null ? r : lookupCommit(id));
 			else
 				need.add(id);
 		}
@@ -974,8 +1263,9 @@ public <T extends ObjectId> AsyncRevObjectQueue parseAny(
 		if (need.isEmpty()) {
 			return new AsyncRevObjectQueue() {
 				@Override
-				public RevObject next() {
-					return objItr.hasNext() ? objItr.next() : null;
+				public RevObject next() throws MissingObjectException,
+						IncorrectObjectTypeException, IOException {
+					return objItr.hasNext() ? nextHave(objItr) : null;
 				}
 
 				@Override
@@ -996,7 +1286,7 @@ public void release() {
 			public RevObject next() throws MissingObjectException,
 					IncorrectObjectTypeException, IOException {
 				if (objItr.hasNext())
-					return objItr.next();
+					return nextHave(objItr);
 				if (!lItr.next())
 					return null;
 
@@ -1028,6 +1318,13 @@ public void release() {
 		};
 	}
 
+	private RevObject nextHave(Iterator<RevObject> objItr)
+			throws MissingObjectException, IOException {
+		RevObject r = objItr.next();
+		parseHeaders(r);
+		return r;
+	}
+
 	/**
 	 * Ensure the object's critical headers have been parsed.
 	 * <p>
@@ -1334,6 +1631,8 @@ public void dispose() {
 		queue = new DateRevQueue();
 		pending = new StartGenerator(this);
 		shallowCommitsInitialized = false;
+		commitGraph = null;
+		commitGraphLoaded = false;
 	}
 
 	/**
@@ -1457,7 +1756,7 @@ void carryFlagsImpl(RevCommit c) {
 	 */
 	public void assumeShallow(Collection<? extends ObjectId> ids) {
 		for (ObjectId id : ids)
-			lookupCommit(id).parents = RevCommit.NO_PARENTS;
+			lookupCommit(id).parents = RevCommit.SHALLOW_PARENTS;
 	}
 
 	/**
@@ -1494,9 +1793,9 @@ void initializeShallowCommits(RevCommit rc) throws IOException {
 
 		for (ObjectId id : reader.getShallowCommits()) {
 			if (id.equals(rc.getId())) {
-				rc.parents = RevCommit.NO_PARENTS;
+				rc.parents = RevCommit.SHALLOW_PARENTS;
 			} else {
-				lookupCommit(id).parents = RevCommit.NO_PARENTS;
+				lookupCommit(id).parents = RevCommit.SHALLOW_PARENTS;
 			}
 		}
 	}
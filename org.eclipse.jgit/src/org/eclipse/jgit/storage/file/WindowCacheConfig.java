@@ -57,6 +57,28 @@ public class WindowCacheConfig {
 	/** 1024 {@link #KB} (number of bytes in one mebibyte/megabyte) */
 	public static final int MB = 1024 * KB;
 
+	/**
+	 * Replacement policy of the window cache.
+	 *
+	 * @since 5.3
+	 */
+	public enum Policy {
+		/**
+		 * Hold windows under soft references and evict the least recently used
+		 * window of a randomly chosen sample. The Java garbage collector may
+		 * evict windows when heap memory gets low.
+		 */
+		CLOCK,
+
+		/**
+		 * Hold windows under strong references within a hard byte limit.
+		 * Eviction is striped across segments of the cache, and a window only
+		 * displaces another window if it was accessed more frequently
+		 * (W-TinyLFU).
+		 */
+		TINYLFU;
+	}
+
 	private int packedGitOpenFiles;
 
 	private long packedGitLimit;
@@ -69,6 +91,10 @@ public class WindowCacheConfig {
 
 	private int streamFileThreshold;
 
+	private Policy packedGitCachePolicy;
+
+	private boolean exposeStats;
+
 	/**
 	 * Create a default configuration.
 	 */
@@ -79,6 +105,8 @@ public WindowCacheConfig() {
 		packedGitMMAP = false;
 		deltaBaseCacheLimit = 10 * MB;
 		streamFileThreshold = PackConfig.DEFAULT_BIG_FILE_THRESHOLD;
+		packedGitCachePolicy = Policy.CLOCK;
+		exposeStats = true;
 	}
 
 	/**
@@ -215,6 +243,53 @@ public void setStreamFileThreshold(int newLimit) {
 		streamFileThreshold = newLimit;
 	}
 
+	/**
+	 * Get the replacement policy of the window cache.
+	 *
+	 * @return the replacement policy of the window cache. <b>Default is
+	 *         {@link Policy#CLOCK}.</b>
+	 * @since 5.3
+	 */
+	public Policy getPackedGitCachePolicy() {
+		return packedGitCachePolicy;
+	}
+
+	/**
+	 * Set the replacement policy of the window cache.
+	 *
+	 * @param policy
+	 *            the replacement policy of the window cache.
+	 * @since 5.3
+	 */
+	public void setPackedGitCachePolicy(Policy policy) {
+		packedGitCachePolicy = policy;
+	}
+
+	/**
+	 * Whether the window cache statistics should be registered as a JMX MBean.
+	 *
+	 * @return {@code true} to register {@link WindowCacheMXBean} with the
+	 *         platform MBean server when this configuration is installed.
+	 *         <b>Default true.</b>
+	 * @since 5.3
+	 */
+	public boolean isExposeStatsViaJmx() {
+		return exposeStats;
+	}
+
+	/**
+	 * Set whether the window cache statistics should be registered as a JMX
+	 * MBean.
+	 *
+	 * @param expose
+	 *            {@code true} to register {@link WindowCacheMXBean} with the
+	 *            platform MBean server when this configuration is installed.
+	 * @since 5.3
+	 */
+	public void setExposeStatsViaJmx(boolean expose) {
+		exposeStats = expose;
+	}
+
 	/**
 	 * Update properties by setting fields from the configuration.
 	 * <p>
@@ -237,6 +312,8 @@ public WindowCacheConfig fromConfig(Config rc) {
 				"core", null, "packedgitmmap", isPackedGitMMAP())); //$NON-NLS-1$ //$NON-NLS-2$
 		setDeltaBaseCacheLimit(rc.getInt(
 				"core", null, "deltabasecachelimit", getDeltaBaseCacheLimit())); //$NON-NLS-1$ //$NON-NLS-2$
+		setPackedGitCachePolicy(rc.getEnum(
+				"core", null, "packedgitcachepolicy", getPackedGitCachePolicy())); //$NON-NLS-1$ //$NON-NLS-2$
 
 		long maxMem = Runtime.getRuntime().maxMemory();
 		long sft = rc.getLong(
@@ -0,0 +1,205 @@
+/*
+ * Copyright (C) 2019, Google LLC.
+ * and other copyright owners as documented in the project's IP log.
+ *
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Distribution License v1.0 which
+ * accompanies this distribution, is reproduced below, and is
+ * available at http://www.eclipse.org/org/documents/edl-v10.php
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or
+ * without modification, are permitted provided that the following
+ * conditions are met:
+ *
+ * - Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * - Redistributions in binary form must reproduce the above
+ *   copyright notice, this list of conditions and the following
+ *   disclaimer in the documentation and/or other materials provided
+ *   with the distribution.
+ *
+ * - Neither the name of the Eclipse Foundation, Inc. nor the
+ *   names of its contributors may be used to endorse or promote
+ *   products derived from this software without specific prior
+ *   written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND
+ * CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.eclipse.jgit.storage.file;
+
+import java.util.Map;
+
+import javax.management.MXBean;
+
+import org.eclipse.jgit.internal.storage.file.WindowCache;
+
+/**
+ * Cache statistics for {@link WindowCache}, registered with the platform MBean
+ * server unless disabled by
+ * {@link WindowCacheConfig#setExposeStatsViaJmx(boolean)}.
+ * <p>
+ * Counters are updated without locking while the cache is in use, so values
+ * read from different getters may not be consistent with each other.
+ *
+ * @since 5.3
+ */
+@MXBean
+public interface WindowCacheMXBean {
+	/**
+	 * Number of cache hits
+	 *
+	 * @return number of windows found in the cache
+	 */
+	long getHitCount();
+
+	/**
+	 * Ratio of cache requests which were hits defined as
+	 * {@code hitCount / requestCount}, or {@code 1.0} when
+	 * {@code requestCount == 0}.
+	 *
+	 * @return the ratio of cache requests which were hits
+	 */
+	default double getHitRatio() {
+		long requestCount = getRequestCount();
+		return requestCount == 0 ? 1.0
+				: (double) getHitCount() / requestCount;
+	}
+
+	/**
+	 * Number of cache misses.
+	 *
+	 * @return number of windows which had to be loaded from their pack
+	 */
+	long getMissCount();
+
+	/**
+	 * Ratio of cache requests which were misses defined as
+	 * {@code missCount / requestCount}, or {@code 0.0} when
+	 * {@code requestCount == 0}.
+	 *
+	 * @return the ratio of cache requests which were misses
+	 */
+	default double getMissRatio() {
+		long requestCount = getRequestCount();
+		return requestCount == 0 ? 0.0
+				: (double) getMissCount() / requestCount;
+	}
+
+	/**
+	 * Number of requests to the cache, the sum of {@link #getHitCount()} and
+	 * {@link #getMissCount()}.
+	 *
+	 * @return number of times windows were requested from the cache
+	 */
+	default long getRequestCount() {
+		return getHitCount() + getMissCount();
+	}
+
+	/**
+	 * Number of successful loads
+	 *
+	 * @return number of windows successfully read or mapped from their pack
+	 */
+	long getLoadSuccessCount();
+
+	/**
+	 * Number of failed loads
+	 *
+	 * @return number of times reading or mapping a window failed with an
+	 *         exception
+	 */
+	long getLoadFailureCount();
+
+	/**
+	 * Total time spent loading windows, including failed loads.
+	 *
+	 * @return total time spent loading windows in nanoseconds
+	 */
+	long getTotalLoadTime();
+
+	/**
+	 * Average time spent loading a window defined as
+	 * {@code totalLoadTime / (loadSuccessCount + loadFailureCount)}, or
+	 * {@code 0.0} when nothing was loaded.
+	 *
+	 * @return the average time spent loading a window in nanoseconds
+	 */
+	default double getAverageLoadTime() {
+		long loads = getLoadSuccessCount() + getLoadFailureCount();
+		return loads == 0 ? 0.0 : (double) getTotalLoadTime() / loads;
+	}
+
+	/**
+	 * Number of cache evictions
+	 * <p>
+	 * Windows dropped because their pack was closed, or because a new
+	 * configuration was installed, are not counted.
+	 *
+	 * @return number of windows evicted to stay within the configured limits
+	 */
+	long getEvictionCount();
+
+	/**
+	 * Number of files currently held open by the cache.
+	 *
+	 * @return number of open pack files
+	 */
+	long getOpenFileCount();
+
+	/**
+	 * Number of bytes currently cached.
+	 *
+	 * @return number of bytes held by cached windows
+	 */
+	long getOpenByteCount();
+
+	/**
+	 * Number of cache hits per pack file.
+	 * <p>
+	 * Packs are reported once this cache loaded a window of them. Their hit
+	 * and miss counts are held by the open pack, and survive the installation
+	 * of a new configuration.
+	 *
+	 * @return map of pack file path to the number of windows of that pack found
+	 *         in the cache
+	 */
+	Map<String, Long> getHitCountPerPack();
+
+	/**
+	 * Number of cache misses per pack file.
+	 *
+	 * @return map of pack file path to the number of windows of that pack
+	 *         loaded into the cache
+	 */
+	Map<String, Long> getMissCountPerPack();
+
+	/**
+	 * Number of cached bytes per pack file.
+	 *
+	 * @return map of pack file path to the number of bytes cached for that
+	 *         pack
+	 */
+	Map<String, Long> getOpenByteCountPerPack();
+
+	/**
+	 * Reset all hit, miss, load and eviction counters. Open file and byte
+	 * counts are not affected.
+	 */
+	void resetCounters();
+}
@@ -54,15 +54,32 @@
 public class WindowCacheStats {
 	/**
 	 * @return the number of open files.
+	 * @deprecated use {@link #getStats()} and
+	 *             {@link WindowCacheMXBean#getOpenFileCount()} instead
 	 */
+	@Deprecated
 	public static int getOpenFiles() {
 		return WindowCache.getInstance().getOpenFiles();
 	}
 
 	/**
 	 * @return the number of open bytes.
+	 * @deprecated use {@link #getStats()} and
+	 *             {@link WindowCacheMXBean#getOpenByteCount()} instead
 	 */
+	@Deprecated
 	public static long getOpenBytes() {
 		return WindowCache.getInstance().getOpenBytes();
 	}
+
+	/**
+	 * Get the statistics of the currently installed window cache.
+	 *
+	 * @return statistics of the currently installed window cache. Counters are
+	 *         reset when a new configuration is installed.
+	 * @since 5.3
+	 */
+	public static WindowCacheMXBean getStats() {
+		return WindowCache.getInstance().getStats();
+	}
 }
@@ -212,6 +212,14 @@ public class PackConfig {
 	 */
 	public static final int DEFAULT_BITMAP_INACTIVE_BRANCH_AGE_IN_DAYS = 90;
 
+	/**
+	 * Default setting of the incremental bitmap mode: {@value}
+	 *
+	 * @see #setBitmapIncremental(boolean)
+	 * @since 5.3
+	 */
+	public static final boolean DEFAULT_BITMAP_INCREMENTAL = false;
+
 	private int compressionLevel = Deflater.DEFAULT_COMPRESSION;
 
 	private boolean reuseDeltas = DEFAULT_REUSE_DELTAS;
@@ -258,6 +266,8 @@ public class PackConfig {
 
 	private int bitmapInactiveBranchAgeInDays = DEFAULT_BITMAP_INACTIVE_BRANCH_AGE_IN_DAYS;
 
+	private boolean bitmapIncremental = DEFAULT_BITMAP_INCREMENTAL;
+
 	private boolean cutDeltaChains;
 
 	private boolean singlePack;
@@ -324,6 +334,7 @@ public PackConfig(PackConfig cfg) {
 		this.bitmapDistantCommitSpan = cfg.bitmapDistantCommitSpan;
 		this.bitmapExcessiveBranchCount = cfg.bitmapExcessiveBranchCount;
 		this.bitmapInactiveBranchAgeInDays = cfg.bitmapInactiveBranchAgeInDays;
+		this.bitmapIncremental = cfg.bitmapIncremental;
 		this.cutDeltaChains = cfg.cutDeltaChains;
 		this.singlePack = cfg.singlePack;
 	}
@@ -810,6 +821,10 @@ public Executor getExecutor() {
 	 * executor, the caller must set {@link #setThreads(int)} to enable threaded
 	 * delta search.
 	 *
+	 * If the executor is non-null and threads are enabled, the sizes of the
+	 * delta search candidates are also looked up in parallel on it, see
+	 * {@link org.eclipse.jgit.lib.ObjectReader#setBatchExecutor(Executor)}.
+	 *
 	 * @param executor
 	 *            executor to use for threads. Set to null to create a temporary
 	 *            executor just for the writer.
@@ -1030,6 +1045,46 @@ public void setBitmapInactiveBranchAgeInDays(int ageInDays) {
 		bitmapInactiveBranchAgeInDays = ageInDays;
 	}
 
+	/**
+	 * Whether bitmaps of the previous pack are carried over incrementally.
+	 *
+	 * Default setting: {@value #DEFAULT_BITMAP_INCREMENTAL}
+	 *
+	 * @return true if recent bitmaps of the previous pack are reused in
+	 *         addition to the distant ones
+	 * @since 5.3
+	 */
+	public boolean isBitmapIncremental() {
+		return bitmapIncremental;
+	}
+
+	/**
+	 * Set whether bitmaps of the previous pack are carried over incrementally.
+	 * <p>
+	 * By default only bitmaps selected with the distant commit span are
+	 * reused, and bitmaps for the recent history of each branch are selected
+	 * and computed again on every repack. In incremental mode the recent
+	 * bitmaps of the previous pack are remapped to the new pack as well, and
+	 * new bitmaps are only selected and computed for commits not reachable
+	 * from a reused bitmap.
+	 * <p>
+	 * Recent bitmaps are not all kept. Those within the contiguous commit
+	 * count of a branch tip are reused. Further from the tips a bitmap is
+	 * only reused if it is at least as far from the previous reused bitmap in
+	 * its history as a full selection would space them, so that recent
+	 * history is thinned out as it ages. Bitmaps no longer reachable from a
+	 * branch are dropped.
+	 *
+	 * Default setting: {@value #DEFAULT_BITMAP_INCREMENTAL}
+	 *
+	 * @param incremental
+	 *            true to also reuse the recent bitmaps of the previous pack
+	 * @since 5.3
+	 */
+	public void setBitmapIncremental(boolean incremental) {
+		bitmapIncremental = incremental;
+	}
+
 	/**
 	 * Update properties by setting fields from the configuration.
 	 *
@@ -1083,6 +1138,8 @@ public void fromConfig(Config rc) {
 		setBitmapInactiveBranchAgeInDays(
 				rc.getInt("pack", "bitmapinactivebranchageindays", //$NON-NLS-1$ //$NON-NLS-2$
 						getBitmapInactiveBranchAgeInDays()));
+		setBitmapIncremental(rc.getBoolean("pack", "bitmapincremental", //$NON-NLS-1$ //$NON-NLS-2$
+				isBitmapIncremental()));
 	}
 
 	/** {@inheritDoc} */
@@ -1115,6 +1172,7 @@ public String toString() {
 				.append(getBitmapExcessiveBranchCount());
 		b.append(", bitmapInactiveBranchAge=") //$NON-NLS-1$
 				.append(getBitmapInactiveBranchAgeInDays());
+		b.append(", bitmapIncremental=").append(isBitmapIncremental()); //$NON-NLS-1$
 		b.append(", singlePack=").append(getSinglePack()); //$NON-NLS-1$
 		return b.toString();
 	}
@@ -53,9 +53,11 @@
 import java.util.Map;
 import java.util.Set;
 
+import org.eclipse.jgit.annotations.Nullable;
 import org.eclipse.jgit.internal.JGitText;
 import org.eclipse.jgit.internal.storage.pack.CachedPack;
 import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectReaderStatistics;
 
 /**
  * Statistics about {@link org.eclipse.jgit.internal.storage.pack.PackWriter}
@@ -266,6 +268,13 @@ public static class Accumulator {
 		/** Time in ms spent writing the pack. */
 		public long timeWriting;
 
+		/**
+		 * I/O and CPU statistics of the reader serving the request, if known.
+		 *
+		 * @since 5.3
+		 */
+		public ObjectReaderStatistics readerStatistics;
+
 		/**
 		 * Statistics about each object type in the pack (commits, tags, trees
 		 * and blobs.)
@@ -596,6 +605,18 @@ public long getTimeTotal() {
 				+ statistics.timeWriting;
 	}
 
+	/**
+	 * Get the I/O and CPU statistics of the reader that served the request.
+	 *
+	 * @return statistics of the object reader used while negotiating and
+	 *         writing the pack, or null if the caller did not record them.
+	 * @since 5.3
+	 */
+	@Nullable
+	public ObjectReaderStatistics getReaderStatistics() {
+		return statistics.readerStatistics;
+	}
+
 	/**
 	 * Get the average output speed in terms of bytes-per-second.
 	 *
@@ -96,6 +96,7 @@
 import org.eclipse.jgit.lib.ProgressMonitor;
 import org.eclipse.jgit.lib.Ref;
 import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.AsyncRevObjectQueue;
 import org.eclipse.jgit.revwalk.ObjectWalk;
 import org.eclipse.jgit.revwalk.RevBlob;
 import org.eclipse.jgit.revwalk.RevCommit;
@@ -1493,6 +1494,7 @@ private void receivePack() throws IOException {
 			parser.setMaxObjectSizeLimit(maxObjectSizeLimit);
 			packLock = parser.parse(receiving, resolving);
 			packSize = Long.valueOf(parser.getPackSize());
+			parser.addReaderStatistics(walk.getObjectReader().getStatistics());
 			stats = parser.getReceivedPackStatistics();
 			ins.flush();
 		}
@@ -1612,10 +1614,14 @@ private void checkConnectivity() throws IOException {
 			checking.endTask();
 
 			if (baseObjects != null) {
-				for (ObjectId id : baseObjects) {
-					o = ow.parseAny(id);
-					if (!o.has(RevFlag.UNINTERESTING))
-						throw new MissingObjectException(o, o.getType());
+				AsyncRevObjectQueue q = ow.parseAny(baseObjects, true);
+				try {
+					while ((o = q.next()) != null) {
+						if (!o.has(RevFlag.UNINTERESTING))
+							throw new MissingObjectException(o, o.getType());
+					}
+				} finally {
+					q.release();
 				}
 			}
 		}
@@ -0,0 +1,97 @@
+/*
+ * Copyright (C) 2019, Google LLC.
+ * and other copyright owners as documented in the project's IP log.
+ *
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Distribution License v1.0 which
+ * accompanies this distribution, is reproduced below, and is
+ * available at http://www.eclipse.org/org/documents/edl-v10.php
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or
+ * without modification, are permitted provided that the following
+ * conditions are met:
+ *
+ * - Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * - Redistributions in binary form must reproduce the above
+ *   copyright notice, this list of conditions and the following
+ *   disclaimer in the documentation and/or other materials provided
+ *   with the distribution.
+ *
+ * - Neither the name of the Eclipse Foundation, Inc. nor the
+ *   names of its contributors may be used to endorse or promote
+ *   products derived from this software without specific prior
+ *   written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND
+ * CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+package org.eclipse.jgit.transport;
+
+import static org.eclipse.jgit.lib.Constants.OBJECT_ID_LENGTH;
+
+import java.util.Arrays;
+
+import org.eclipse.jgit.lib.ObjectId;
+
+/**
+ * Append-only list of object name, offset and CRC held in primitive arrays.
+ * <p>
+ * Used by {@link PackParser} in low memory mode to remember the whole objects
+ * of a pack, which are the roots of delta resolution and the candidates for
+ * collision checks, at a fraction of the cost of one
+ * {@link PackedObjectInfo} per object.
+ */
+final class ObjectOffsetList {
+	private byte[] names;
+
+	private long[] offsets;
+
+	private int[] crcs;
+
+	private int size;
+
+	ObjectOffsetList() {
+		names = new byte[64 * OBJECT_ID_LENGTH];
+		offsets = new long[64];
+		crcs = new int[64];
+	}
+
+	int size() {
+		return size;
+	}
+
+	void add(PackedObjectInfo oe) {
+		if (size == offsets.length) {
+			int n = size + (size >>> 1);
+			names = Arrays.copyOf(names, n * OBJECT_ID_LENGTH);
+			offsets = Arrays.copyOf(offsets, n);
+			crcs = Arrays.copyOf(crcs, n);
+		}
+		oe.copyRawTo(names, size * OBJECT_ID_LENGTH);
+		offsets[size] = oe.getOffset();
+		crcs[size] = oe.getCRC();
+		size++;
+	}
+
+	PackedObjectInfo get(int i) {
+		return new PackedObjectInfo(offsets[i], crcs[i],
+				ObjectId.fromRaw(names, i * OBJECT_ID_LENGTH));
+	}
+}
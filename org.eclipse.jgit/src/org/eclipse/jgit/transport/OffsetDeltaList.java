@@ -0,0 +1,174 @@
+/*
+ * Copyright (C) 2019, Google LLC.
+ * and other copyright owners as documented in the project's IP log.
+ *
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Distribution License v1.0 which
+ * accompanies this distribution, is reproduced below, and is
+ * available at http://www.eclipse.org/org/documents/edl-v10.php
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or
+ * without modification, are permitted provided that the following
+ * conditions are met:
+ *
+ * - Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * - Redistributions in binary form must reproduce the above
+ *   copyright notice, this list of conditions and the following
+ *   disclaimer in the documentation and/or other materials provided
+ *   with the distribution.
+ *
+ * - Neither the name of the Eclipse Foundation, Inc. nor the
+ *   names of its contributors may be used to endorse or promote
+ *   products derived from this software without specific prior
+ *   written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND
+ * CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+package org.eclipse.jgit.transport;
+
+import java.util.Arrays;
+
+import org.eclipse.jgit.transport.PackParser.UnresolvedDelta;
+
+/**
+ * Offset deltas of a pack, keyed by the offset of their base.
+ * <p>
+ * Used by {@link PackParser} in low memory mode instead of a map of
+ * {@link UnresolvedDelta} chains. Deltas are appended in stream order while
+ * the pack is received, then sorted once by base offset. Chains for a base
+ * are materialized only while that base is being resolved.
+ */
+final class OffsetDeltaList {
+	private long[] bases;
+
+	private long[] positions;
+
+	private int[] crcs;
+
+	private int size;
+
+	private boolean sorted;
+
+	OffsetDeltaList() {
+		bases = new long[64];
+		positions = new long[64];
+		crcs = new int[64];
+	}
+
+	void add(long base, UnresolvedDelta d) {
+		if (size == bases.length) {
+			int n = size + (size >>> 1);
+			bases = Arrays.copyOf(bases, n);
+			positions = Arrays.copyOf(positions, n);
+			crcs = Arrays.copyOf(crcs, n);
+		}
+		bases[size] = base;
+		positions[size] = d.position;
+		crcs[size] = d.crc;
+		size++;
+		sorted = false;
+	}
+
+	/**
+	 * Remove the deltas based on the object at {@code base}.
+	 *
+	 * @param base
+	 *            offset of the base object.
+	 * @return chain of deltas in ascending stream order, or null.
+	 */
+	UnresolvedDelta remove(long base) {
+		if (!sorted) {
+			sort();
+		}
+
+		int lo = 0;
+		int hi = size;
+		while (lo < hi) {
+			int mid = (lo + hi) >>> 1;
+			if (bases[mid] < base)
+				lo = mid + 1;
+			else
+				hi = mid;
+		}
+
+		int end = lo;
+		while (end < size && bases[end] == base)
+			end++;
+
+		UnresolvedDelta head = null;
+		for (int i = end - 1; i >= lo; i--) {
+			if (positions[i] < 0)
+				continue;
+			UnresolvedDelta d = new UnresolvedDelta();
+			d.position = positions[i];
+			d.crc = crcs[i];
+			d.next = head;
+			head = d;
+			positions[i] = -1;
+		}
+		return head;
+	}
+
+	// Heap sort on (base, position), keeping the parallel arrays in step.
+	private void sort() {
+		for (int i = size / 2 - 1; i >= 0; i--)
+			siftDown(i, size);
+		for (int end = size - 1; end > 0; end--) {
+			swap(0, end);
+			siftDown(0, end);
+		}
+		sorted = true;
+	}
+
+	private void siftDown(int i, int end) {
+		for (;;) {
+			int c = 2 * i + 1;
+			if (c >= end)
+				return;
+			if (c + 1 < end && less(c, c + 1))
+				c++;
+			if (!less(i, c))
+				return;
+			swap(i, c);
+			i = c;
+		}
+	}
+
+	private boolean less(int a, int b) {
+		if (bases[a] != bases[b])
+			return bases[a] < bases[b];
+		return positions[a] < positions[b];
+	}
+
+	private void swap(int a, int b) {
+		long t = bases[a];
+		bases[a] = bases[b];
+		bases[b] = t;
+
+		t = positions[a];
+		positions[a] = positions[b];
+		positions[b] = t;
+
+		int c = crcs[a];
+		crcs[a] = crcs[b];
+		crcs[b] = c;
+	}
+}
@@ -46,18 +46,29 @@
 package org.eclipse.jgit.transport;
 
 import java.io.EOFException;
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.security.MessageDigest;
 import java.text.MessageFormat;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.CRC32;
 import java.util.zip.DataFormatException;
 import java.util.zip.Inflater;
 
+import org.eclipse.jgit.annotations.Nullable;
 import org.eclipse.jgit.errors.CorruptObjectException;
 import org.eclipse.jgit.errors.MissingObjectException;
 import org.eclipse.jgit.errors.TooLargeObjectInPackException;
@@ -78,13 +89,16 @@
 import org.eclipse.jgit.lib.ObjectIdSubclassMap;
 import org.eclipse.jgit.lib.ObjectLoader;
 import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.lib.ObjectReaderStatistics;
 import org.eclipse.jgit.lib.ObjectStream;
 import org.eclipse.jgit.lib.ProgressMonitor;
+import org.eclipse.jgit.lib.ThreadSafeProgressMonitor;
 import org.eclipse.jgit.util.BlockList;
 import org.eclipse.jgit.util.IO;
 import org.eclipse.jgit.util.LongMap;
 import org.eclipse.jgit.util.NB;
 import org.eclipse.jgit.util.sha1.SHA1;
+import org.eclipse.jgit.util.sha1.SHA1.Sha1Implementation;
 
 /**
  * Parses a pack stream and imports it for an
@@ -116,11 +130,18 @@ public static enum Source {
 
 	private InflaterStream inflater;
 
+	private final ObjectInput inputSource = new SourceInput(Source.INPUT);
+
+	private final ObjectInput databaseSource = new SourceInput(
+			Source.DATABASE);
+
 	private byte[] tempBuffer;
 
 	private byte[] hdrBuf;
 
-	private final SHA1 objectHasher = SHA1.newInstance();
+	private Sha1Implementation sha1Implementation = Sha1Implementation.JAVA;
+
+	private SHA1 objectHasher = SHA1.newInstance(sha1Implementation);
 	private final MutableObjectId tempObjectId;
 
 	private InputStream in;
@@ -179,10 +200,36 @@ public static enum Source {
 	/** Objects need to be double-checked for collision after indexing. */
 	private BlockList<PackedObjectInfo> collisionCheckObjs;
 
+	private boolean lowMemoryIndexing;
+
+	private int spillRunSize = PackedObjectInfoSpill.DEFAULT_RUN_SIZE;
+
+	/** Replaces {@link #entries} when {@link #lowMemoryIndexing} is set. */
+	private PackedObjectInfoSpill spill;
+
+	/**
+	 * Whole objects of the pack when {@link #lowMemoryIndexing} is set.
+	 * <p>
+	 * These are the roots of delta resolution, and replace both the leading
+	 * part of {@link #entries} and {@link #collisionCheckObjs}.
+	 */
+	private ObjectOffsetList wholeObjects;
+
+	/** Replaces {@link #baseByPos} when {@link #lowMemoryIndexing} is set. */
+	private OffsetDeltaList ofsDeltas;
+
+	/** Number of threads resolving deltas; 0 uses all processors. */
+	private int threads = 1;
+
+	private Executor executor;
+
 	private MessageDigest packDigest;
 
 	private ObjectReader readCurs;
 
+	/** Statistics of {@link #readCurs} and the delta resolving readers. */
+	private final List<ObjectReaderStatistics> readerStats = new ArrayList<>();
+
 	/** Message to protect the pack data from garbage collection. */
 	private String lockMessage;
 
@@ -206,6 +253,7 @@ protected PackParser(ObjectDatabase odb, InputStream src) {
 
 		inflater = new InflaterStream();
 		readCurs = objectDatabase.newReader();
+		addReaderStatistics(readCurs.getStatistics());
 		buf = new byte[BUFFER_SIZE];
 		tempBuffer = new byte[BUFFER_SIZE];
 		hdrBuf = new byte[64];
@@ -347,6 +395,124 @@ public void setExpectDataAfterPackFooter(boolean e) {
 		expectDataAfterPackFooter = e;
 	}
 
+	/**
+	 * Whether objects are indexed with reduced memory usage.
+	 *
+	 * @return true if objects are indexed with reduced memory usage.
+	 * @since 5.3
+	 */
+	public boolean isLowMemoryIndexing() {
+		return lowMemoryIndexing;
+	}
+
+	/**
+	 * Configure this index pack instance to reduce memory usage.
+	 * <p>
+	 * By default the parser holds a {@link PackedObjectInfo} for every object
+	 * of the pack in memory until the index has been written, as well as
+	 * maps of all unresolved deltas. For packs with millions of objects this
+	 * costs a considerable amount of heap.
+	 * <p>
+	 * In low memory mode whole objects and offset deltas are tracked in
+	 * primitive arrays, and the information needed to write the pack index is
+	 * spilled to temporary files in sorted runs, which are merged when
+	 * {@link #getSortedObjectList(Comparator)} is called. The objects are then
+	 * only available sorted by name: {@link #getObject(int)} is not supported
+	 * and the object type is not retained. Subclasses must call
+	 * {@link #releaseSpilledObjects()} once the list is no longer needed.
+	 *
+	 * @param lowMemory
+	 *            true to reduce memory usage at the cost of temporary disk
+	 *            space.
+	 * @since 5.3
+	 */
+	public void setLowMemoryIndexing(boolean lowMemory) {
+		lowMemoryIndexing = lowMemory;
+	}
+
+	void setSpillRunSize(int objects) {
+		spillRunSize = objects;
+	}
+
+	/**
+	 * Get the number of threads used to resolve deltas.
+	 *
+	 * @return the number of threads used to resolve deltas. 0 uses one
+	 *         thread per available processor.
+	 * @since 5.3
+	 */
+	public int getThreads() {
+		return threads;
+	}
+
+	/**
+	 * Set the number of threads used to resolve deltas.
+	 * <p>
+	 * Delta chains rooted at different whole objects are independent, and
+	 * can be inflated and applied concurrently. Multiple threads are only
+	 * used if the implementation supports parallel delta resolution, see
+	 * {@link #isParallelDeltaResolutionSupported()}. Deltas against bases
+	 * outside of a thin pack are always resolved by the calling thread.
+	 * <p>
+	 * By default one thread is used.
+	 *
+	 * @param threads
+	 *            number of threads to use. 0 uses one thread per available
+	 *            processor.
+	 * @since 5.3
+	 */
+	public void setThreads(int threads) {
+		if (threads < 0)
+			throw new IllegalArgumentException(String.valueOf(threads));
+		this.threads = threads;
+	}
+
+	/**
+	 * Set the executor to run delta resolution threads on.
+	 * <p>
+	 * If null, a temporary thread pool is created for each call to
+	 * {@link #parse(ProgressMonitor, ProgressMonitor)} that resolves deltas
+	 * with more than one thread.
+	 *
+	 * @param executor
+	 *            executor to use for delta resolution; null to create
+	 *            threads as needed.
+	 * @since 5.3
+	 */
+	public void setExecutor(Executor executor) {
+		this.executor = executor;
+	}
+
+	/**
+	 * Get the directory to create temporary files in.
+	 * <p>
+	 * Used only if {@link #isLowMemoryIndexing()} is set. By default the
+	 * system temporary directory is used.
+	 *
+	 * @return the directory for temporary files, or null to use the system
+	 *         temporary directory.
+	 * @since 5.3
+	 */
+	protected File getTemporaryDirectory() {
+		return null;
+	}
+
+	/**
+	 * Delete temporary files created while indexing in low memory mode.
+	 * <p>
+	 * The list returned by {@link #getSortedObjectList(Comparator)} must not
+	 * be used after this method has been called. Calling this method when
+	 * {@link #isLowMemoryIndexing()} is not set has no effect.
+	 *
+	 * @since 5.3
+	 */
+	protected void releaseSpilledObjects() {
+		if (spill != null) {
+			spill.close();
+			spill = null;
+		}
+	}
+
 	/**
 	 * Get the new objects that were sent by the user
 	 *
@@ -423,6 +589,22 @@ public void setLockMessage(String msg) {
 		lockMessage = msg;
 	}
 
+	/**
+	 * Set the SHA-1 implementation used to name the received objects.
+	 * <p>
+	 * Defaults to {@link Sha1Implementation#JAVA}, which detects collision
+	 * attacks. Use {@link Sha1Implementation#JDKNATIVE} only if the pack comes
+	 * from a trusted source, such as a local repository.
+	 *
+	 * @param impl
+	 *            the SHA-1 implementation.
+	 * @since 5.3
+	 */
+	public void setSha1Implementation(Sha1Implementation impl) {
+		sha1Implementation = impl;
+		objectHasher = SHA1.newInstance(impl);
+	}
+
 	/**
 	 * Set the maximum allowed Git object size.
 	 * <p>
@@ -459,8 +641,13 @@ public int getObjectCount() {
 	 *            index of the object in the stream. Must be between 0 and
 	 *            {@link #getObjectCount()}-1.
 	 * @return the object information.
+	 * @throws java.lang.IllegalStateException
+	 *             {@link #isLowMemoryIndexing()} is set.
 	 */
 	public PackedObjectInfo getObject(int nth) {
+		if (lowMemoryIndexing)
+			throw new IllegalStateException(
+					JGitText.get().lowMemoryIndexingRequiresSortedList);
 		return entries[nth];
 	}
 
@@ -473,13 +660,23 @@ public PackedObjectInfo getObject(int nth) {
 	 * To maintain lower memory usage and good runtime performance, this method
 	 * sorts the objects in-place and therefore impacts the ordering presented
 	 * by {@link #getObject(int)}.
+	 * <p>
+	 * If {@link #isLowMemoryIndexing()} is set the list may be backed by a
+	 * temporary file; it should be iterated rather than accessed by position.
 	 *
 	 * @param cmp
 	 *            comparison function, if null objects are stored by ObjectId.
+	 *            Must be null if {@link #isLowMemoryIndexing()} is set.
 	 * @return sorted list of objects in this pack stream.
 	 */
 	public List<PackedObjectInfo> getSortedObjectList(
 			Comparator<PackedObjectInfo> cmp) {
+		if (lowMemoryIndexing) {
+			if (cmp != null)
+				throw new IllegalStateException(
+						JGitText.get().lowMemoryIndexingRequiresSortedList);
+			return spill.sortedList();
+		}
 		Arrays.sort(entries, 0, entryCount, cmp);
 		List<PackedObjectInfo> list = Arrays.asList(entries);
 		if (entryCount < entries.length)
@@ -510,9 +707,30 @@ public long getPackSize() {
 	 * @since 4.6
 	 */
 	public ReceivedPackStatistics getReceivedPackStatistics() {
+		synchronized (readerStats) {
+			if (!readerStats.isEmpty()) {
+				stats.setReaderStatistics(ObjectReaderStatistics.sum(
+						readerStats.toArray(new ObjectReaderStatistics[0])));
+			}
+		}
 		return stats.build();
 	}
 
+	/**
+	 * Include the work of another reader in the statistics of this pack.
+	 *
+	 * @param s
+	 *            statistics of a reader used to receive the pack; null is
+	 *            ignored.
+	 */
+	void addReaderStatistics(@Nullable ObjectReaderStatistics s) {
+		if (s != null) {
+			synchronized (readerStats) {
+				readerStats.add(s);
+			}
+		}
+	}
+
 	/**
 	 * Parse the pack stream.
 	 *
@@ -553,13 +771,21 @@ public PackLock parse(ProgressMonitor receiving, ProgressMonitor resolving)
 
 		if (receiving == resolving)
 			receiving.start(2 /* tasks */);
+		boolean success = false;
 		try {
 			readPackHeader();
 
-			entries = new PackedObjectInfo[(int) expectedObjectCount];
 			baseById = new ObjectIdOwnerMap<>();
-			baseByPos = new LongMap<>();
-			collisionCheckObjs = new BlockList<>();
+			if (lowMemoryIndexing) {
+				spill = new PackedObjectInfoSpill(getTemporaryDirectory(),
+						spillRunSize);
+				wholeObjects = new ObjectOffsetList();
+				ofsDeltas = new OffsetDeltaList();
+			} else {
+				entries = new PackedObjectInfo[(int) expectedObjectCount];
+				baseByPos = new LongMap<>();
+				collisionCheckObjs = new BlockList<>();
+			}
 
 			receiving.beginTask(JGitText.get().receivingObjects,
 					(int) expectedObjectCount);
@@ -576,7 +802,7 @@ public PackLock parse(ProgressMonitor receiving, ProgressMonitor resolving)
 				receiving.endTask();
 			}
 
-			if (!collisionCheckObjs.isEmpty()) {
+			if (isCheckObjectCollisions()) {
 				checkObjectCollision();
 			}
 
@@ -584,10 +810,21 @@ public PackLock parse(ProgressMonitor receiving, ProgressMonitor resolving)
 				processDeltas(resolving);
 			}
 
+			if (spill != null) {
+				spill.finish();
+			}
+
 			packDigest = null;
 			baseById = null;
 			baseByPos = null;
+			collisionCheckObjs = null;
+			wholeObjects = null;
+			ofsDeltas = null;
+			success = true;
 		} finally {
+			if (!success)
+				releaseSpilledObjects();
+
 			try {
 				if (readCurs != null)
 					readCurs.close();
@@ -610,7 +847,12 @@ private void processDeltas(ProgressMonitor resolving) throws IOException {
 					TimeUnit.MILLISECONDS);
 		}
 		resolving.beginTask(JGitText.get().resolvingDeltas, deltaCount);
-		resolveDeltas(resolving);
+		int n = threads == 0 ? Runtime.getRuntime().availableProcessors()
+				: threads;
+		if (1 < n && isParallelDeltaResolutionSupported())
+			resolveDeltasInParallel(resolving, n);
+		else
+			resolveDeltas(resolving);
 		if (entryCount < expectedObjectCount) {
 			if (!isAllowThin()) {
 				throw new IOException(MessageFormat.format(
@@ -629,8 +871,105 @@ private void processDeltas(ProgressMonitor resolving) throws IOException {
 		resolving.endTask();
 	}
 
+	private void resolveDeltasInParallel(ProgressMonitor resolving,
+			int threadCount) throws IOException {
+		int roots = wholeObjects != null ? wholeObjects.size() : entryCount;
+		ThreadSafeProgressMonitor pm = new ThreadSafeProgressMonitor(resolving);
+		AtomicInteger nextRoot = new AtomicInteger();
+		List<DeltaResolver> tasks = new ArrayList<>(threadCount);
+		for (int i = 0; i < threadCount; i++)
+			tasks.add(new DeltaResolver(pm, nextRoot, roots));
+		pm.startWorkers(tasks.size());
+
+		final List<Throwable> errors = Collections
+				.synchronizedList(new ArrayList<Throwable>(threadCount));
+		if (executor instanceof ExecutorService) {
+			runTasks((ExecutorService) executor, pm, tasks, errors);
+		} else if (executor == null) {
+			ExecutorService pool = Executors.newFixedThreadPool(threadCount);
+			try {
+				runTasks(pool, pm, tasks, errors);
+			} finally {
+				pool.shutdown();
+				for (;;) {
+					try {
+						if (pool.awaitTermination(60, TimeUnit.SECONDS))
+							break;
+					} catch (InterruptedException e) {
+						throw new IOException(
+								JGitText.get().downloadCancelledDuringIndexing);
+					}
+				}
+			}
+		} else {
+			for (DeltaResolver task : tasks) {
+				executor.execute(() -> {
+					try {
+						task.call();
+					} catch (Throwable failure) {
+						errors.add(failure);
+					}
+				});
+			}
+			try {
+				pm.waitForCompletion();
+			} catch (InterruptedException ie) {
+				throw new IOException(
+						JGitText.get().downloadCancelledDuringIndexing);
+			}
+		}
+
+		if (!errors.isEmpty()) {
+			Throwable err = errors.get(0);
+			if (err instanceof Error)
+				throw (Error) err;
+			if (err instanceof RuntimeException)
+				throw (RuntimeException) err;
+			if (err instanceof IOException)
+				throw (IOException) err;
+			throw new IOException(err.getMessage(), err);
+		}
+		if (resolving.isCancelled())
+			throw new IOException(
+					JGitText.get().downloadCancelledDuringIndexing);
+	}
+
+	private static void runTasks(ExecutorService pool,
+			ThreadSafeProgressMonitor pm, List<DeltaResolver> tasks,
+			List<Throwable> errors) throws IOException {
+		List<Future<?>> futures = new ArrayList<>(tasks.size());
+		for (DeltaResolver task : tasks)
+			futures.add(pool.submit(task));
+
+		try {
+			pm.waitForCompletion();
+			for (Future<?> f : futures) {
+				try {
+					f.get();
+				} catch (ExecutionException failed) {
+					errors.add(failed.getCause());
+				}
+			}
+		} catch (InterruptedException ie) {
+			for (Future<?> f : futures)
+				f.cancel(true);
+			throw new IOException(
+					JGitText.get().downloadCancelledDuringIndexing);
+		}
+	}
+
 	private void resolveDeltas(ProgressMonitor progress)
 			throws IOException {
+		if (wholeObjects != null) {
+			for (int i = 0; i < wholeObjects.size(); i++) {
+				resolveDeltas(wholeObjects.get(i), progress);
+				if (progress.isCancelled())
+					throw new IOException(
+							JGitText.get().downloadCancelledDuringIndexing);
+			}
+			return;
+		}
+
 		final int last = entryCount;
 		for (int i = 0; i < last; i++) {
 			resolveDeltas(entries[i], progress);
@@ -771,16 +1110,23 @@ private final void checkIfTooLarge(int typeCode, long size)
 	 */
 	protected ObjectTypeAndSize readObjectHeader(ObjectTypeAndSize info)
 			throws IOException {
+		return readObjectHeader(databaseSource, info, hdrBuf);
+	}
+
+	// Parse an object header from src into info, using hdr to collect the
+	// raw header bytes before they are passed to src.onHeader.
+	private static ObjectTypeAndSize readObjectHeader(ObjectInput src,
+			ObjectTypeAndSize info, byte[] hdr) throws IOException {
 		int hdrPtr = 0;
-		int c = readFrom(Source.DATABASE);
-		hdrBuf[hdrPtr++] = (byte) c;
+		int c = src.read();
+		hdr[hdrPtr++] = (byte) c;
 
 		info.type = (c >> 4) & 7;
 		long sz = c & 15;
 		int shift = 4;
 		while ((c & 0x80) != 0) {
-			c = readFrom(Source.DATABASE);
-			hdrBuf[hdrPtr++] = (byte) c;
+			c = src.read();
+			hdr[hdrPtr++] = (byte) c;
 			sz += ((long) (c & 0x7f)) << shift;
 			shift += 7;
 		}
@@ -791,24 +1137,18 @@ protected ObjectTypeAndSize readObjectHeader(ObjectTypeAndSize info)
 		case Constants.OBJ_TREE:
 		case Constants.OBJ_BLOB:
 		case Constants.OBJ_TAG:
-			onObjectHeader(Source.DATABASE, hdrBuf, 0, hdrPtr);
 			break;
 
 		case Constants.OBJ_OFS_DELTA:
-			c = readFrom(Source.DATABASE);
-			hdrBuf[hdrPtr++] = (byte) c;
-			while ((c & 128) != 0) {
-				c = readFrom(Source.DATABASE);
-				hdrBuf[hdrPtr++] = (byte) c;
-			}
-			onObjectHeader(Source.DATABASE, hdrBuf, 0, hdrPtr);
+			do {
+				c = src.read();
+				hdr[hdrPtr++] = (byte) c;
+			} while ((c & 128) != 0);
 			break;
 
 		case Constants.OBJ_REF_DELTA:
-			System.arraycopy(buf, fill(Source.DATABASE, 20), hdrBuf, hdrPtr, 20);
-			hdrPtr += 20;
-			use(20);
-			onObjectHeader(Source.DATABASE, hdrBuf, 0, hdrPtr);
+			for (int i = 0; i < Constants.OBJECT_ID_LENGTH; i++)
+				hdr[hdrPtr++] = (byte) src.read();
 			break;
 
 		default:
@@ -816,6 +1156,7 @@ protected ObjectTypeAndSize readObjectHeader(ObjectTypeAndSize info)
 					JGitText.get().unknownObjectType,
 					Integer.valueOf(info.type)));
 		}
+		src.onHeader(hdr, hdrPtr);
 		return info;
 	}
 
@@ -837,7 +1178,11 @@ private static UnresolvedDelta reverse(UnresolvedDelta c) {
 
 	private UnresolvedDelta firstChildOf(PackedObjectInfo oe) {
 		UnresolvedDelta a = reverse(removeBaseById(oe));
-		UnresolvedDelta b = reverse(baseByPos.remove(oe.getOffset()));
+		UnresolvedDelta b;
+		if (ofsDeltas != null)
+			b = ofsDeltas.remove(oe.getOffset());
+		else
+			b = reverse(baseByPos.remove(oe.getOffset()));
 
 		if (a == null)
 			return b;
@@ -867,7 +1212,8 @@ private UnresolvedDelta firstChildOf(PackedObjectInfo oe) {
 
 	private void resolveDeltasWithExternalBases(ProgressMonitor progress)
 			throws IOException {
-		growEntries(baseById.size());
+		if (entries != null)
+			growEntries(baseById.size());
 
 		if (needBaseObjectIds)
 			baseObjectIds = new ObjectIdSubclassMap<>();
@@ -895,7 +1241,7 @@ private void resolveDeltasWithExternalBases(ProgressMonitor progress)
 			final PackedObjectInfo oe = newInfo(baseId, null, null);
 			oe.setType(typeCode);
 			if (onAppendBase(typeCode, visit.data, oe))
-				entries[entryCount++] = oe;
+				addObject(oe);
 			visit.nextChild = firstChildOf(oe);
 			resolveDeltas(visit.next(), typeCode,
 					new ObjectTypeAndSize(), progress);
@@ -1031,7 +1377,10 @@ private void indexOneObject() throws IOException {
 			inflateAndSkip(Source.INPUT, sz);
 			UnresolvedDelta n = onEndDelta();
 			n.position = streamPosition;
-			n.next = baseByPos.put(base, n);
+			if (ofsDeltas != null)
+				ofsDeltas.add(base, n);
+			else
+				n.next = baseByPos.put(base, n);
 			deltaCount++;
 			break;
 		}
@@ -1112,7 +1461,9 @@ private void whole(long pos, int type, long sz)
 			onInflatedObjectData(obj, type, data);
 		addObjectAndTrack(obj);
 
-		if (isCheckObjectCollisions()) {
+		if (wholeObjects != null) {
+			wholeObjects.add(obj);
+		} else if (isCheckObjectCollisions()) {
 			collisionCheckObjs.add(obj);
 		}
 	}
@@ -1148,6 +1499,16 @@ protected void verifySafeObject(final AnyObjectId id, final int type,
 	}
 
 	private void checkObjectCollision() throws IOException {
+		if (wholeObjects != null) {
+			for (int i = 0; i < wholeObjects.size(); i++) {
+				PackedObjectInfo obj = wholeObjects.get(i);
+				if (readCurs.has(obj)) {
+					checkObjectCollision(obj);
+				}
+			}
+			return;
+		}
+
 		for (PackedObjectInfo obj : collisionCheckObjs) {
 			if (!readCurs.has(obj)) {
 				continue;
@@ -1190,8 +1551,13 @@ private void checkObjectCollision(PackedObjectInfo obj)
 
 	private void checkObjectCollision(AnyObjectId obj, int type, byte[] data)
 			throws IOException {
+		checkObjectCollision(readCurs, obj, type, data);
+	}
+
+	private static void checkObjectCollision(ObjectReader rdr, AnyObjectId obj,
+			int type, byte[] data) throws IOException {
 		try {
-			final ObjectLoader ldr = readCurs.open(obj, type);
+			final ObjectLoader ldr = rdr.open(obj, type);
 			final byte[] existingData = ldr.getCachedBytes(data.length);
 			if (!Arrays.equals(data, existingData)) {
 				throw new IOException(MessageFormat.format(
@@ -1529,6 +1895,50 @@ protected abstract ObjectTypeAndSize seekDatabase(UnresolvedDelta delta,
 	protected abstract int readDatabase(byte[] dst, int pos, int cnt)
 			throws IOException;
 
+	/**
+	 * Whether deltas can be resolved by multiple threads.
+	 * <p>
+	 * Implementations returning true must store the pack stream verbatim, such
+	 * that the CRC-32 of the stored bytes of each object matches the value
+	 * recorded while the stream was received. During parallel resolution
+	 * {@link #newInfo(AnyObjectId, UnresolvedDelta, ObjectId)},
+	 * {@link #onInflatedObjectData(PackedObjectInfo, int, byte[])} and
+	 * {@link #verifySafeObject(AnyObjectId, int, byte[])} are called by worker
+	 * threads, one at a time.
+	 *
+	 * @return true if {@link #readDatabase(long, byte[], int, int)} may be
+	 *         called concurrently. The default is false.
+	 * @since 5.3
+	 */
+	protected boolean isParallelDeltaResolutionSupported() {
+		return false;
+	}
+
+	/**
+	 * Read from the database at an absolute position.
+	 * <p>
+	 * Called concurrently by delta resolution threads if
+	 * {@link #isParallelDeltaResolutionSupported()} returns true. Unlike
+	 * {@link #readDatabase(byte[], int, int)} this method must not depend on
+	 * the position established by {@code seekDatabase}.
+	 *
+	 * @param position
+	 *            offset within the pack to read from.
+	 * @param dst
+	 *            the buffer to copy read data into.
+	 * @param pos
+	 *            position within {@code dst} to start copying data into.
+	 * @param cnt
+	 *            ideal target number of bytes to read. Actual read length may
+	 *            be shorter.
+	 * @return number of bytes stored, or -1 at the end of the data.
+	 * @throws java.io.IOException
+	 *             the database cannot be accessed.
+	 * @since 5.3
+	 */
+	protected abstract int readDatabase(long position, byte[] dst, int pos,
+			int cnt) throws IOException;
+
 	/**
 	 * Check the current CRC matches the expected value.
 	 * <p>
@@ -1645,17 +2055,25 @@ private void inflateAndSkip(Source src, long inflatedSize)
 
 	private byte[] inflateAndReturn(Source src, long inflatedSize)
 			throws IOException {
+		return inflateAndReturn(inflater, input(src), inflatedSize);
+	}
+
+	private static byte[] inflateAndReturn(InflaterStream inf,
+			ObjectInput src, long inflatedSize) throws IOException {
 		final byte[] dst = new byte[(int) inflatedSize];
-		try (InputStream inf = inflate(src, inflatedSize)) {
-			IO.readFully(inf, dst, 0, dst.length);
+		try (InputStream is = inf.open(src, inflatedSize)) {
+			IO.readFully(is, dst, 0, dst.length);
 		}
 		return dst;
 	}
 
 	private InputStream inflate(Source src, long inflatedSize)
 			throws IOException {
-		inflater.open(src, inflatedSize);
-		return inflater;
+		return inflater.open(input(src), inflatedSize);
+	}
+
+	private ObjectInput input(Source src) {
+		return src == Source.INPUT ? inputSource : databaseSource;
 	}
 
 	private static class DeltaChain extends ObjectIdOwnerMap.Entry {
@@ -1744,25 +2162,313 @@ DeltaVisit next() {
 		}
 	}
 
-	private void addObjectAndTrack(PackedObjectInfo oe) {
-		entries[entryCount++] = oe;
+	private void addObjectAndTrack(PackedObjectInfo oe) throws IOException {
+		addObject(oe);
 		if (needNewObjectIds())
 			newObjectIds.add(oe);
 	}
 
-	private class InflaterStream extends InputStream {
+	private void addObject(PackedObjectInfo oe) throws IOException {
+		if (spill != null)
+			spill.add(oe);
+		else
+			entries[entryCount] = oe;
+		entryCount++;
+	}
+
+	/** Resolves the delta chains of whole objects on a worker thread. */
+	private class DeltaResolver implements Callable<Object> {
+		private final ThreadSafeProgressMonitor pm;
+
+		private final AtomicInteger nextRoot;
+
+		private final int roots;
+
+		private final SHA1 hasher = SHA1.newInstance(sha1Implementation);
+
+		private final MutableObjectId id = new MutableObjectId();
+
+		private final PositionalInput src = new PositionalInput();
+
+		private final byte[] hdr = new byte[64];
+
+		private InflaterStream inf;
+
+		private ObjectReader rdr;
+
+		DeltaResolver(ThreadSafeProgressMonitor pm, AtomicInteger nextRoot,
+				int roots) {
+			this.pm = pm;
+			this.nextRoot = nextRoot;
+			this.roots = roots;
+		}
+
+		@Override
+		public Object call() throws IOException {
+			try {
+				inf = new InflaterStream();
+				rdr = objectDatabase.newReader();
+				addReaderStatistics(rdr.getStatistics());
+				for (;;) {
+					int i = nextRoot.getAndIncrement();
+					if (roots <= i || pm.isCancelled())
+						break;
+					resolve(wholeObjects != null ? wholeObjects.get(i)
+							: entries[i]);
+				}
+			} catch (IOException | RuntimeException | Error e) {
+				// Stop the other workers from picking up new roots.
+				nextRoot.set(roots);
+				throw e;
+			} finally {
+				if (inf != null) {
+					inf.release();
+					inf = null;
+				}
+				if (rdr != null) {
+					rdr.close();
+					rdr = null;
+				}
+				pm.endWorker();
+			}
+			return null;
+		}
+
+		private void resolve(PackedObjectInfo oe) throws IOException {
+			UnresolvedDelta children;
+			synchronized (PackParser.this) {
+				children = firstChildOf(oe);
+			}
+			if (children == null)
+				return;
+
+			DeltaVisit visit = new DeltaVisit();
+			visit.nextChild = children;
+
+			src.seek(oe.getOffset());
+			ObjectTypeAndSize info = readObjectHeader(src,
+					new ObjectTypeAndSize(), hdr);
+			final int type = info.type;
+			switch (type) {
+			case Constants.OBJ_COMMIT:
+			case Constants.OBJ_TREE:
+			case Constants.OBJ_BLOB:
+			case Constants.OBJ_TAG:
+				visit.data = inflateAndReturn(inf, src, info.size);
+				visit.id = oe;
+				break;
+			default:
+				throw new IOException(MessageFormat.format(
+						JGitText.get().unknownObjectType,
+						Integer.valueOf(type)));
+			}
+			if (!src.checkCRC(oe.getCRC())) {
+				throw new IOException(MessageFormat.format(
+						JGitText.get().corruptionDetectedReReadingAt,
+						Long.valueOf(oe.getOffset())));
+			}
+
+			synchronized (PackParser.this) {
+				stats.addDeltaObject(type);
+			}
+			visit = visit.next();
+			do {
+				pm.update(1);
+				src.seek(visit.delta.position);
+				info = readObjectHeader(src, info, hdr);
+				switch (info.type) {
+				case Constants.OBJ_OFS_DELTA:
+				case Constants.OBJ_REF_DELTA:
+					break;
+				default:
+					throw new IOException(MessageFormat.format(
+							JGitText.get().unknownObjectType,
+							Integer.valueOf(info.type)));
+				}
+
+				byte[] delta = inflateAndReturn(inf, src, info.size);
+				checkIfTooLarge(type, BinaryDelta.getResultSize(delta));
+				visit.data = BinaryDelta.apply(visit.parent.data, delta);
+				delta = null;
+
+				if (!src.checkCRC(visit.delta.crc))
+					throw new IOException(MessageFormat.format(
+							JGitText.get().corruptionDetectedReReadingAt,
+							Long.valueOf(visit.delta.position)));
+
+				SHA1 objectDigest = hasher.reset();
+				objectDigest.update(Constants.encodedTypeString(type));
+				objectDigest.update((byte) ' ');
+				objectDigest.update(Constants.encodeASCII(visit.data.length));
+				objectDigest.update((byte) 0);
+				objectDigest.update(visit.data);
+				objectDigest.digest(id);
+
+				synchronized (PackParser.this) {
+					verifySafeObject(id, type, visit.data);
+				}
+				if (isCheckObjectCollisions() && rdr.has(id)) {
+					checkObjectCollision(rdr, id, type, visit.data);
+				}
+
+				synchronized (PackParser.this) {
+					PackedObjectInfo obj;
+					obj = newInfo(id, visit.delta, visit.parent.id);
+					obj.setOffset(visit.delta.position);
+					obj.setType(type);
+					onInflatedObjectData(obj, type, visit.data);
+					addObjectAndTrack(obj);
+					visit.id = obj;
+					visit.nextChild = firstChildOf(obj);
+				}
+				visit = visit.next();
+			} while (visit != null);
+		}
+	}
+
+	/** Buffered pack data that object headers and data are decoded from. */
+	private interface ObjectInput {
+		// Consume one byte without checksumming it.
+		int read() throws IOException;
+
+		// Ensure at least one byte is available, returning its index within
+		// buffer().
+		int fill() throws IOException;
+
+		byte[] buffer();
+
+		int available();
+
+		// Checksum and consume cnt bytes of object data at the fill position.
+		void use(int cnt) throws IOException;
+
+		// Checksum the raw header bytes of the object.
+		void onHeader(byte[] raw, int len) throws IOException;
+	}
+
+	/** Reads through {@link PackParser#buf} on the parsing thread. */
+	private class SourceInput implements ObjectInput {
+		private final Source src;
+
+		SourceInput(Source source) {
+			src = source;
+		}
+
+		@Override
+		public int read() throws IOException {
+			return readFrom(src);
+		}
+
+		@Override
+		public int fill() throws IOException {
+			return PackParser.this.fill(src, 1);
+		}
+
+		@Override
+		public byte[] buffer() {
+			return buf;
+		}
+
+		@Override
+		public int available() {
+			return bAvail;
+		}
+
+		@Override
+		public void use(int cnt) throws IOException {
+			onObjectData(src, buf, bOffset, cnt);
+			PackParser.this.use(cnt);
+		}
+
+		@Override
+		public void onHeader(byte[] raw, int len) throws IOException {
+			onObjectHeader(src, raw, 0, len);
+		}
+	}
+
+	/** Reads the stored pack at absolute positions on a worker thread. */
+	private class PositionalInput implements ObjectInput {
+		private final byte[] window = new byte[BUFFER_SIZE];
+
+		private final CRC32 crc = new CRC32();
+
+		/** Pack position of {@code window[end]}. */
+		private long windowEnd;
+
+		private int ptr;
+
+		private int end;
+
+		// Position on the object at pos, reusing buffered data if possible.
+		void seek(long pos) {
+			if (pos < windowEnd - end || windowEnd <= pos) {
+				windowEnd = pos;
+				ptr = 0;
+				end = 0;
+			} else {
+				ptr = end - (int) (windowEnd - pos);
+			}
+			crc.reset();
+		}
+
+		boolean checkCRC(int oldCRC) {
+			return oldCRC == (int) crc.getValue();
+		}
+
+		@Override
+		public int read() throws IOException {
+			if (ptr == end)
+				fill();
+			return window[ptr++] & 0xff;
+		}
+
+		@Override
+		public int fill() throws IOException {
+			if (ptr == end) {
+				int n = readDatabase(windowEnd, window, 0, window.length);
+				if (n <= 0)
+					throw new EOFException(
+							JGitText.get().packfileIsTruncatedNoParam);
+				windowEnd += n;
+				ptr = 0;
+				end = n;
+			}
+			return ptr;
+		}
+
+		@Override
+		public byte[] buffer() {
+			return window;
+		}
+
+		@Override
+		public int available() {
+			return end - ptr;
+		}
+
+		@Override
+		public void use(int cnt) {
+			crc.update(window, ptr, cnt);
+			ptr += cnt;
+		}
+
+		@Override
+		public void onHeader(byte[] raw, int len) {
+			crc.update(raw, 0, len);
+		}
+	}
+
+	private static class InflaterStream extends InputStream {
 		private final Inflater inf;
 
 		private final byte[] skipBuffer;
 
-		private Source src;
+		private ObjectInput src;
 
 		private long expectedSize;
 
 		private long actualSize;
 
-		private int p;
-
 		InflaterStream() {
 			inf = InflaterCache.get();
 			skipBuffer = new byte[512];
@@ -1773,13 +2479,15 @@ void release() {
 			InflaterCache.release(inf);
 		}
 
-		void open(Source source, long inflatedSize) throws IOException {
+		InflaterStream open(ObjectInput source, long inflatedSize)
+				throws IOException {
 			src = source;
 			expectedSize = inflatedSize;
 			actualSize = 0;
 
-			p = fill(src, 1);
-			inf.setInput(buf, p, bAvail);
+			int p = src.fill();
+			inf.setInput(src.buffer(), p, src.available());
+			return this;
 		}
 
 		@Override
@@ -1811,11 +2519,10 @@ public int read(byte[] dst, int pos, int cnt) throws IOException {
 					if (inf.finished())
 						break;
 					if (inf.needsInput()) {
-						onObjectData(src, buf, p, bAvail);
-						use(bAvail);
+						src.use(src.available());
 
-						p = fill(src, 1);
-						inf.setInput(buf, p, bAvail);
+						int p = src.fill();
+						inf.setInput(src.buffer(), p, src.available());
 					} else if (r == 0) {
 						throw new CorruptObjectException(MessageFormat.format(
 								JGitText.get().packfileCorruptionDetected,
@@ -1842,11 +2549,9 @@ public void close() throws IOException {
 						JGitText.get().wrongDecompressedLength));
 			}
 
-			int used = bAvail - inf.getRemaining();
-			if (0 < used) {
-				onObjectData(src, buf, p, used);
-				use(used);
-			}
+			int used = src.available() - inf.getRemaining();
+			if (0 < used)
+				src.use(used);
 
 			inf.reset();
 		}
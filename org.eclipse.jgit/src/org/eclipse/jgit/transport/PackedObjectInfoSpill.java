@@ -0,0 +1,402 @@
+/*
+ * Copyright (C) 2019, Google LLC.
+ * and other copyright owners as documented in the project's IP log.
+ *
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Distribution License v1.0 which
+ * accompanies this distribution, is reproduced below, and is
+ * available at http://www.eclipse.org/org/documents/edl-v10.php
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or
+ * without modification, are permitted provided that the following
+ * conditions are met:
+ *
+ * - Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * - Redistributions in binary form must reproduce the above
+ *   copyright notice, this list of conditions and the following
+ *   disclaimer in the documentation and/or other materials provided
+ *   with the distribution.
+ *
+ * - Neither the name of the Eclipse Foundation, Inc. nor the
+ *   names of its contributors may be used to endorse or promote
+ *   products derived from this software without specific prior
+ *   written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND
+ * CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+package org.eclipse.jgit.transport;
+
+import static org.eclipse.jgit.lib.Constants.OBJECT_ID_LENGTH;
+
+import java.io.BufferedOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+
+import org.eclipse.jgit.internal.JGitText;
+import org.eclipse.jgit.lib.MutableObjectId;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.util.FileUtils;
+import org.eclipse.jgit.util.NB;
+
+/**
+ * Sorted list of {@link PackedObjectInfo} that spills to disk.
+ * <p>
+ * Objects are buffered in memory until a run of {@code runSize} objects has
+ * accumulated. The run is then sorted by name and appended to a temporary
+ * file as fixed size records of object name, offset and CRC. When the list
+ * is requested the runs are merged into a second temporary file, which backs
+ * the returned list. If no run was spilled the list is held in memory.
+ * <p>
+ * The object type is not retained for spilled objects.
+ */
+final class PackedObjectInfoSpill {
+	/** Default number of objects held in memory before spilling a run. */
+	static final int DEFAULT_RUN_SIZE = 128 * 1024;
+
+	private static final int RECORD_SIZE = OBJECT_ID_LENGTH + 8 + 4;
+
+	private static final int READ_BUFFER = 256 * RECORD_SIZE;
+
+	private final File directory;
+
+	private final int runSize;
+
+	private PackedObjectInfo[] run;
+
+	private int runCount;
+
+	private int spilledCount;
+
+	private File runFile;
+
+	private OutputStream runOut;
+
+	private File mergedFile;
+
+	private RandomAccessFile merged;
+
+	private List<PackedObjectInfo> sorted;
+
+	/**
+	 * @param directory
+	 *            directory to create temporary files in; null selects the
+	 *            system temporary directory.
+	 * @param runSize
+	 *            number of objects to hold in memory before spilling.
+	 */
+	PackedObjectInfoSpill(File directory, int runSize) {
+		this.directory = directory;
+		this.runSize = runSize;
+		this.run = new PackedObjectInfo[Math.min(runSize, 64)];
+	}
+
+	/** @return number of objects added. */
+	int size() {
+		return spilledCount + runCount;
+	}
+
+	/**
+	 * Add an object to the list.
+	 *
+	 * @param oe
+	 *            the object; its name, offset and CRC must be final.
+	 * @throws IOException
+	 *             a full run could not be written to the temporary file.
+	 */
+	void add(PackedObjectInfo oe) throws IOException {
+		if (sorted != null)
+			throw new IllegalStateException();
+		if (runCount == run.length)
+			run = Arrays.copyOf(run, Math.min(runSize, 2 * run.length));
+		run[runCount++] = oe;
+		if (runCount == runSize)
+			spill();
+	}
+
+	private void spill() throws IOException {
+		if (runOut == null) {
+			runFile = File.createTempFile("jgit_", ".spill", directory); //$NON-NLS-1$ //$NON-NLS-2$
+			runOut = new BufferedOutputStream(new FileOutputStream(runFile),
+					READ_BUFFER);
+		}
+		Arrays.sort(run, 0, runCount);
+		byte[] rec = new byte[RECORD_SIZE];
+		for (int i = 0; i < runCount; i++) {
+			encode(run[i], rec);
+			runOut.write(rec);
+			run[i] = null;
+		}
+		spilledCount += runCount;
+		runCount = 0;
+	}
+
+	/**
+	 * Sort all objects by name, merging any spilled runs.
+	 *
+	 * @throws IOException
+	 *             the spilled runs could not be merged.
+	 */
+	void finish() throws IOException {
+		if (runOut == null) {
+			Arrays.sort(run, 0, runCount);
+			sorted = Arrays.asList(run).subList(0, runCount);
+			return;
+		}
+
+		if (runCount > 0)
+			spill();
+		runOut.close();
+		runOut = null;
+
+		mergedFile = File.createTempFile("jgit_", ".spill", directory); //$NON-NLS-1$ //$NON-NLS-2$
+		try (RandomAccessFile in = new RandomAccessFile(runFile, "r"); //$NON-NLS-1$
+				OutputStream out = new BufferedOutputStream(
+						new FileOutputStream(mergedFile), READ_BUFFER)) {
+			merge(in.getChannel(), out);
+		}
+		FileUtils.delete(runFile, FileUtils.RETRY);
+		runFile = null;
+
+		merged = new RandomAccessFile(mergedFile, "r"); //$NON-NLS-1$
+		sorted = new MergedList(merged.getChannel(), spilledCount);
+	}
+
+	/**
+	 * Get all objects sorted by name.
+	 * <p>
+	 * Iterating the list reads the backing file sequentially, while
+	 * {@link List#get(int)} performs a random read for each object.
+	 *
+	 * @return the sorted objects.
+	 */
+	List<PackedObjectInfo> sortedList() {
+		if (sorted == null)
+			throw new IllegalStateException();
+		return sorted;
+	}
+
+	private void merge(FileChannel in, OutputStream out) throws IOException {
+		PriorityQueue<RunReader> queue = new PriorityQueue<>(
+				Math.max(1, (spilledCount + runSize - 1) / runSize));
+		for (long start = 0; start < spilledCount; start += runSize) {
+			long end = Math.min(start + runSize, spilledCount);
+			RunReader r = new RunReader(in, start * RECORD_SIZE,
+					end * RECORD_SIZE);
+			if (r.next())
+				queue.add(r);
+		}
+
+		byte[] rec = new byte[RECORD_SIZE];
+		while (!queue.isEmpty()) {
+			RunReader r = queue.poll();
+			r.copyRecord(rec);
+			out.write(rec);
+			if (r.next())
+				queue.add(r);
+		}
+	}
+
+	/** Delete all temporary files and discard buffered objects. */
+	void close() {
+		Arrays.fill(run, null);
+		runCount = 0;
+		sorted = null;
+		try {
+			if (runOut != null)
+				runOut.close();
+		} catch (IOException e) {
+			// Ignored, the file is deleted below.
+		}
+		runOut = null;
+		try {
+			if (merged != null)
+				merged.close();
+		} catch (IOException e) {
+			// Ignored, the file is deleted below.
+		}
+		merged = null;
+		delete(runFile);
+		runFile = null;
+		delete(mergedFile);
+		mergedFile = null;
+	}
+
+	private static void delete(File f) {
+		if (f != null && !f.delete() && f.exists())
+			f.deleteOnExit();
+	}
+
+	private static void encode(PackedObjectInfo oe, byte[] rec) {
+		oe.copyRawTo(rec, 0);
+		NB.encodeInt64(rec, OBJECT_ID_LENGTH, oe.getOffset());
+		NB.encodeInt32(rec, OBJECT_ID_LENGTH + 8, oe.getCRC());
+	}
+
+	private static PackedObjectInfo decode(byte[] rec, int ptr) {
+		return new PackedObjectInfo(
+				NB.decodeInt64(rec, ptr + OBJECT_ID_LENGTH),
+				NB.decodeInt32(rec, ptr + OBJECT_ID_LENGTH + 8),
+				ObjectId.fromRaw(rec, ptr));
+	}
+
+	private static void readFully(FileChannel ch, ByteBuffer bb, long pos)
+			throws IOException {
+		while (bb.hasRemaining()) {
+			int n = ch.read(bb, pos);
+			if (n < 0)
+				throw new EOFException(JGitText.get().unexpectedEndOfInput);
+			pos += n;
+		}
+	}
+
+	private static class RunReader implements Comparable<RunReader> {
+		private final FileChannel ch;
+
+		private final ByteBuffer bb;
+
+		private final MutableObjectId id = new MutableObjectId();
+
+		private long pos;
+
+		private final long end;
+
+		private int ptr;
+
+		private int cur;
+
+		RunReader(FileChannel ch, long start, long end) {
+			this.ch = ch;
+			this.bb = ByteBuffer.allocate(
+					(int) Math.min(READ_BUFFER, end - start));
+			this.pos = start;
+			this.end = end;
+			bb.limit(0);
+		}
+
+		boolean next() throws IOException {
+			if (ptr == bb.limit()) {
+				if (pos == end)
+					return false;
+				bb.clear();
+				bb.limit((int) Math.min(bb.capacity(), end - pos));
+				readFully(ch, bb, pos);
+				pos += bb.limit();
+				ptr = 0;
+			}
+			cur = ptr;
+			ptr += RECORD_SIZE;
+			id.fromRaw(bb.array(), cur);
+			return true;
+		}
+
+		void copyRecord(byte[] rec) {
+			System.arraycopy(bb.array(), cur, rec, 0, RECORD_SIZE);
+		}
+
+		@Override
+		public int compareTo(RunReader o) {
+			return id.compareTo(o.id);
+		}
+	}
+
+	private static class MergedList extends AbstractList<PackedObjectInfo> {
+		private final FileChannel ch;
+
+		private final int size;
+
+		MergedList(FileChannel ch, int size) {
+			this.ch = ch;
+			this.size = size;
+		}
+
+		@Override
+		public int size() {
+			return size;
+		}
+
+		@Override
+		public PackedObjectInfo get(int index) {
+			if (index < 0 || size <= index)
+				throw new IndexOutOfBoundsException(String.valueOf(index));
+			ByteBuffer bb = ByteBuffer.allocate(RECORD_SIZE);
+			try {
+				readFully(ch, bb, (long) index * RECORD_SIZE);
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+			return decode(bb.array(), 0);
+		}
+
+		@Override
+		public Iterator<PackedObjectInfo> iterator() {
+			return new Iterator<PackedObjectInfo>() {
+				private final ByteBuffer bb = ByteBuffer.allocate(READ_BUFFER);
+
+				private int next;
+
+				private int ptr;
+
+				private int avail;
+
+				@Override
+				public boolean hasNext() {
+					return next < size;
+				}
+
+				@Override
+				public PackedObjectInfo next() {
+					if (!hasNext())
+						throw new NoSuchElementException();
+					if (ptr == avail) {
+						long pos = (long) next * RECORD_SIZE;
+						bb.clear();
+						bb.limit((int) Math.min(bb.capacity(),
+								(long) size * RECORD_SIZE - pos));
+						try {
+							readFully(ch, bb, pos);
+						} catch (IOException e) {
+							throw new UncheckedIOException(e);
+						}
+						avail = bb.limit();
+						ptr = 0;
+					}
+					PackedObjectInfo oe = decode(bb.array(), ptr);
+					ptr += RECORD_SIZE;
+					next++;
+					return oe;
+				}
+			};
+		}
+	}
+}
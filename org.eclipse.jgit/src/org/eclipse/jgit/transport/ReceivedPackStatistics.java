@@ -43,7 +43,9 @@
 
 package org.eclipse.jgit.transport;
 
+import org.eclipse.jgit.annotations.Nullable;
 import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectReaderStatistics;
 
 /**
  * Statistics about {@link org.eclipse.jgit.transport.PackParser}.
@@ -65,6 +67,8 @@ public class ReceivedPackStatistics {
 	private long numDeltaBlob;
 	private long numDeltaTag;
 
+	private ObjectReaderStatistics readerStatistics;
+
 	/**
 	 * Get number of bytes read from the input stream
 	 *
@@ -164,6 +168,22 @@ public long getNumDeltaTag() {
 		return numDeltaTag;
 	}
 
+	/**
+	 * Get I/O and CPU statistics of the readers used to receive the pack.
+	 * <p>
+	 * This includes the parser's reader, used to check for collisions and to
+	 * read the bases of a thin pack, the readers of the threads resolving
+	 * deltas, and the reader of a
+	 * {@link org.eclipse.jgit.transport.ReceivePack} checking connectivity.
+	 *
+	 * @return statistics of the object readers, or null if unknown.
+	 * @since 5.3
+	 */
+	@Nullable
+	public ObjectReaderStatistics getReaderStatistics() {
+		return readerStatistics;
+	}
+
 	/** A builder for {@link ReceivedPackStatistics}. */
 	public static class Builder {
 		private long numBytesRead;
@@ -180,6 +200,8 @@ public static class Builder {
 		private long numDeltaBlob;
 		private long numDeltaTag;
 
+		private ObjectReaderStatistics readerStatistics;
+
 		/**
 		 * @param numBytesRead number of bytes read from the input stream
 		 * @return this
@@ -189,6 +211,19 @@ public Builder setNumBytesRead(long numBytesRead) {
 			return this;
 		}
 
+		/**
+		 * @param readerStatistics
+		 *            I/O and CPU statistics of the object readers used to
+		 *            receive the pack
+		 * @return this
+		 * @since 5.3
+		 */
+		public Builder setReaderStatistics(
+				@Nullable ObjectReaderStatistics readerStatistics) {
+			this.readerStatistics = readerStatistics;
+			return this;
+		}
+
 		/**
 		 * Increment a whole object count.
 		 *
@@ -269,6 +304,7 @@ ReceivedPackStatistics build() {
 			s.numDeltaTree = numDeltaTree;
 			s.numDeltaBlob = numDeltaBlob;
 			s.numDeltaTag = numDeltaTag;
+			s.readerStatistics = readerStatistics;
 			return s;
 		}
 	}
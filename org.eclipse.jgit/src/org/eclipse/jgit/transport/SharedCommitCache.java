@@ -0,0 +1,115 @@
+/*
+ * Copyright (C) 2019, Google LLC.
+ * and other copyright owners as documented in the project's IP log.
+ *
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Distribution License v1.0 which
+ * accompanies this distribution, is reproduced below, and is
+ * available at http://www.eclipse.org/org/documents/edl-v10.php
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or
+ * without modification, are permitted provided that the following
+ * conditions are met:
+ *
+ * - Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * - Redistributions in binary form must reproduce the above
+ *   copyright notice, this list of conditions and the following
+ *   disclaimer in the documentation and/or other materials provided
+ *   with the distribution.
+ *
+ * - Neither the name of the Eclipse Foundation, Inc. nor the
+ *   names of its contributors may be used to endorse or promote
+ *   products derived from this software without specific prior
+ *   written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND
+ * CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.eclipse.jgit.transport;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import org.eclipse.jgit.events.ListenerList;
+import org.eclipse.jgit.internal.storage.dfs.DfsPacksChangedListener;
+import org.eclipse.jgit.internal.storage.file.ObjectDirectory;
+import org.eclipse.jgit.lib.ObjectDatabase;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.ParsedCommitCache;
+
+/**
+ * The {@link ParsedCommitCache} shared by all uploads from a repository.
+ * <p>
+ * The first use of a repository registers listeners that clear its cache
+ * when {@link org.eclipse.jgit.events.RefsChangedEvent}s or
+ * {@link org.eclipse.jgit.internal.storage.dfs.DfsPacksChangedEvent}s are
+ * fired. Every use also compares the pack list of a file based repository
+ * with the one seen by the previous use, and clears the cache if it differs.
+ */
+final class SharedCommitCache {
+	private static final Map<Repository, SharedCommitCache> caches = new WeakHashMap<>();
+
+	/**
+	 * Get the cache shared by all uploads from a repository.
+	 *
+	 * @param repo
+	 *            the repository the cached commits belong to.
+	 * @param limit
+	 *            maximum number of commits the cache may hold.
+	 * @return the cache of {@code repo}.
+	 */
+	static ParsedCommitCache get(Repository repo, int limit) {
+		SharedCommitCache shared;
+		synchronized (caches) {
+			shared = caches.get(repo);
+			if (shared == null) {
+				shared = new SharedCommitCache(limit);
+				ParsedCommitCache c = shared.cache;
+				ListenerList listeners = repo.getListenerList();
+				listeners.addRefsChangedListener(event -> c.clear());
+				listeners.addListener(DfsPacksChangedListener.class,
+						event -> c.clear());
+				caches.put(repo, shared);
+			}
+		}
+		shared.cache.setLimit(limit);
+		shared.checkPacks(repo.getObjectDatabase());
+		return shared.cache;
+	}
+
+	private final ParsedCommitCache cache;
+
+	private Object[] packs;
+
+	private SharedCommitCache(int limit) {
+		cache = new ParsedCommitCache(limit);
+	}
+
+	private synchronized void checkPacks(ObjectDatabase odb) {
+		if (!(odb instanceof ObjectDirectory)) {
+			return;
+		}
+		Object[] current = ((ObjectDirectory) odb).getPacks().toArray();
+		if (packs != null && !Arrays.equals(packs, current)) {
+			cache.clear();
+		}
+		packs = current;
+	}
+}
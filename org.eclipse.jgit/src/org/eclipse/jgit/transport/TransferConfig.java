@@ -131,6 +131,9 @@ static ProtocolVersion parse(@Nullable String name) {
 	private final boolean allowTipSha1InWant;
 	private final boolean allowReachableSha1InWant;
 	private final boolean allowFilter;
+	private final boolean lowMemoryIndexing;
+	private final int indexThreads;
+	private final int commitCacheSize;
 	final @Nullable ProtocolVersion protocolVersion;
 	final String[] hideRefs;
 
@@ -189,6 +192,12 @@ static ProtocolVersion parse(@Nullable String name) {
 				"uploadpack", "allowreachablesha1inwant", false);
 		allowFilter = rc.getBoolean(
 				"uploadpack", "allowfilter", false);
+		lowMemoryIndexing = rc.getBoolean(
+				"transfer", "lowmemoryindexing", false);
+		int threads = rc.getInt("transfer", "indexthreads", 1);
+		// Negative values would be rejected by PackParser.setThreads(int).
+		indexThreads = threads < 0 ? 1 : threads;
+		commitCacheSize = rc.getInt("uploadpack", "commitcachesize", 0);
 		protocolVersion = ProtocolVersion.parse(rc.getString("protocol", null, "version"));
 		hideRefs = rc.getStringList("uploadpack", null, "hiderefs");
 	}
@@ -272,6 +281,42 @@ public boolean isAllowRefInWant() {
 		return allowRefInWant;
 	}
 
+	/**
+	 * Whether received packs are indexed in low memory mode
+	 *
+	 * @return true if received packs should be indexed with reduced memory
+	 *         usage, spilling object information to temporary files.
+	 * @see PackParser#setLowMemoryIndexing(boolean)
+	 * @since 5.3
+	 */
+	public boolean isLowMemoryIndexing() {
+		return lowMemoryIndexing;
+	}
+
+	/**
+	 * Get the number of threads used to resolve deltas of received packs
+	 *
+	 * @return the number of threads used to resolve deltas of received
+	 *         packs. 0 uses one thread per available processor.
+	 * @see PackParser#setThreads(int)
+	 * @since 5.3
+	 */
+	public int getIndexThreads() {
+		return indexThreads;
+	}
+
+	/**
+	 * Get the number of commits UploadPack may keep parsed between requests
+	 *
+	 * @return the maximum number of commits in the
+	 *         {@link org.eclipse.jgit.revwalk.ParsedCommitCache} shared by all
+	 *         uploads from the repository. 0 disables the cache.
+	 * @since 5.3
+	 */
+	public int getCommitCacheSize() {
+		return commitCacheSize;
+	}
+
 	/**
 	 * Get {@link org.eclipse.jgit.transport.RefFilter} respecting configured
 	 * hidden refs.
@@ -47,6 +47,7 @@
 package org.eclipse.jgit.transport;
 
 import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Objects.requireNonNull;
 
 import java.io.BufferedReader;
 import java.io.IOException;
@@ -70,6 +71,7 @@
 import java.util.Vector;
 import java.util.concurrent.CopyOnWriteArrayList;
 
+import org.eclipse.jgit.annotations.NonNull;
 import org.eclipse.jgit.api.errors.AbortedByHookException;
 import org.eclipse.jgit.errors.NotSupportedException;
 import org.eclipse.jgit.errors.TransportException;
@@ -790,7 +792,7 @@ private static String findTrackingRefName(final String remoteName,
 	/** Should refs no longer on the source be pruned from the destination? */
 	private boolean removeDeletedRefs;
 
-	private long filterBlobLimit = -1;
+	private FilterSpec filterSpec = FilterSpec.NO_FILTER;
 
 	/** Timeout in seconds to wait before aborting an IO read or write. */
 	private int timeout;
@@ -1072,7 +1074,7 @@ public void setRemoveDeletedRefs(boolean remove) {
 	 * @since 5.0
 	 */
 	public long getFilterBlobLimit() {
-		return filterBlobLimit;
+		return filterSpec.getBlobLimit();
 	}
 
 	/**
@@ -1080,7 +1082,25 @@ public long getFilterBlobLimit() {
 	 * @since 5.0
 	 */
 	public void setFilterBlobLimit(long bytes) {
-		filterBlobLimit = bytes;
+		setFilterSpec(bytes >= 0 ? FilterSpec.withBlobLimit(bytes)
+				: FilterSpec.NO_FILTER);
+	}
+
+	/**
+	 * @return the last filter spec set with {@link #setFilterSpec(FilterSpec)},
+	 *         or {@link FilterSpec#NO_FILTER} if it was never invoked.
+	 * @since 5.3
+	 */
+	public FilterSpec getFilterSpec() {
+		return filterSpec;
+	}
+
+	/**
+	 * @param filter a new filter to use for this transport
+	 * @since 5.3
+	 */
+	public void setFilterSpec(@NonNull FilterSpec filter) {
+		filterSpec = requireNonNull(filter);
 	}
 
 	/**
@@ -91,6 +91,7 @@
 import org.eclipse.jgit.internal.transport.parser.FirstWant;
 import org.eclipse.jgit.lib.BitmapIndex;
 import org.eclipse.jgit.lib.BitmapIndex.BitmapBuilder;
+import org.eclipse.jgit.lib.CommitGraph;
 import org.eclipse.jgit.lib.Constants;
 import org.eclipse.jgit.lib.NullProgressMonitor;
 import org.eclipse.jgit.lib.ObjectId;
@@ -102,6 +103,7 @@
 import org.eclipse.jgit.revwalk.BitmapWalker;
 import org.eclipse.jgit.revwalk.DepthWalk;
 import org.eclipse.jgit.revwalk.ObjectWalk;
+import org.eclipse.jgit.revwalk.ParsedCommitCache;
 import org.eclipse.jgit.revwalk.RevCommit;
 import org.eclipse.jgit.revwalk.RevFlag;
 import org.eclipse.jgit.revwalk.RevFlagSet;
@@ -233,6 +235,9 @@ public Set<String> getOptions() {
 	/** Revision traversal support over {@link #db}. */
 	private final RevWalk walk;
 
+	/** Headers of commits shared with earlier requests, or null. */
+	private ParsedCommitCache commitCache;
+
 	/** Configuration to pass into the PackWriter. */
 	private PackConfig packConfig;
 
@@ -672,6 +677,44 @@ public void setTransferConfig(TransferConfig tc) {
 			setRequestPolicy(transferConfig.isAllowReachableSha1InWant()
 				? RequestPolicy.REACHABLE_COMMIT : RequestPolicy.ADVERTISED);
 		}
+
+		int commitCacheSize = transferConfig.getCommitCacheSize();
+		if (commitCacheSize > 0) {
+			setParsedCommitCache(SharedCommitCache.get(db, commitCacheSize));
+		}
+	}
+
+	/**
+	 * Get the cache of commits shared with earlier requests.
+	 *
+	 * @return the cache consulted and filled by this upload, or null.
+	 * @since 5.3
+	 */
+	@Nullable
+	public ParsedCommitCache getParsedCommitCache() {
+		return commitCache;
+	}
+
+	/**
+	 * Set the cache of commits shared with earlier requests.
+	 * <p>
+	 * The upload parses commits it finds in the cache without reading them
+	 * from the repository, and adds the advertised commits the client wants
+	 * as well as their ancestors examined during negotiation. The cache must
+	 * be cleared when the refs or the packs of the repository change.
+	 * <p>
+	 * If {@link TransferConfig#getCommitCacheSize()} is positive, uploads from
+	 * the same {@link Repository} instance share a cache by default, which is
+	 * cleared on {@link org.eclipse.jgit.events.RefsChangedEvent}s and when
+	 * the packs change.
+	 *
+	 * @param cache
+	 *            the cache, or null to parse every commit from the repository.
+	 * @since 5.3
+	 */
+	public void setParsedCommitCache(@Nullable ParsedCommitCache cache) {
+		commitCache = cache;
+		walk.setParsedCommitCache(cache);
 	}
 
 	/**
@@ -1572,6 +1615,7 @@ private void parseWants() throws IOException {
 			while ((obj = q.next()) != null) {
 				want(obj);
 
+				boolean share = advertised.contains(obj);
 				if (!(obj instanceof RevCommit))
 					obj.add(SATISFIED);
 				if (obj instanceof RevTag) {
@@ -1579,6 +1623,8 @@ private void parseWants() throws IOException {
 					if (obj instanceof RevCommit)
 						want(obj);
 				}
+				if (share && obj instanceof RevCommit)
+					addToCommitCache((RevCommit) obj);
 			}
 			wantIds.clear();
 		} catch (MissingObjectException notFound) {
@@ -1700,6 +1746,8 @@ private static void checkNotAdvertisedWants(UploadPack up,
 
 		ObjectReader reader = up.getRevWalk().getObjectReader();
 		try (RevWalk walk = new RevWalk(reader)) {
+			walk.setRetainBody(false);
+			List<RevCommit> wantCommits = new ArrayList<>();
 			AsyncRevObjectQueue q = walk.parseAny(notAdvertisedWants, true);
 			try {
 				RevObject obj;
@@ -1720,7 +1768,7 @@ private static void checkNotAdvertisedWants(UploadPack up,
 						}
 						throw new WantNotValidException(obj);
 					}
-					walk.markStart((RevCommit) obj);
+					wantCommits.add((RevCommit) obj);
 				}
 			} catch (MissingObjectException notFound) {
 				throw new WantNotValidException(notFound.getObjectId(),
@@ -1728,14 +1776,33 @@ private static void checkNotAdvertisedWants(UploadPack up,
 			} finally {
 				q.release();
 			}
+			List<RevCommit> tips = new ArrayList<>(reachableFrom.size());
 			for (ObjectId id : reachableFrom) {
 				try {
-					walk.markUninteresting(walk.parseCommit(id));
+					tips.add(walk.parseCommit(id));
 				} catch (IncorrectObjectTypeException notCommit) {
 					continue;
 				}
 			}
 
+			CommitGraph graph = reader.getCommitGraph();
+			if (graph != null && hasGenerations(graph, wantCommits)
+					&& hasGenerations(graph, tips)) {
+				// Generation numbers bound the walk by the oldest want,
+				// even if a want is not reachable at all.
+				RevCommit bad = walk.findUnreachable(wantCommits, tips);
+				if (bad != null) {
+					throw new WantNotValidException(bad);
+				}
+				return;
+			}
+
+			for (RevCommit c : wantCommits) {
+				walk.markStart(c);
+			}
+			for (RevCommit c : tips) {
+				walk.markUninteresting(c);
+			}
 			RevCommit bad = walk.next();
 			if (bad != null) {
 				throw new WantNotValidException(bad);
@@ -1743,6 +1810,20 @@ private static void checkNotAdvertisedWants(UploadPack up,
 		}
 	}
 
+	// Whether the commit-graph holds a generation for every commit. Commits
+	// outside of it have an infinite generation, which does not bound the
+	// walk of RevWalk#findUnreachable.
+	private static boolean hasGenerations(CommitGraph graph,
+			List<RevCommit> commits) {
+		for (RevCommit c : commits) {
+			int graphPos = graph.findGraphPosition(c);
+			if (graphPos < 0 || graph.getCommitData(graphPos)
+					.getGeneration() == CommitGraph.GENERATION_NUMBER_ZERO)
+				return false;
+		}
+		return true;
+	}
+
 	private void addCommonBase(RevObject o) {
 		if (!o.has(COMMON)) {
 			o.add(COMMON);
@@ -1776,6 +1857,10 @@ private boolean wantSatisfied(RevObject want) throws IOException {
 		if (want.has(SATISFIED))
 			return true;
 
+		// Ancestors of an advertised commit are reachable from the refs, so
+		// they can be shared with later requests.
+		boolean share = commitCache != null && advertised != null
+				&& advertised.contains(want);
 		walk.resetRetain(SAVE);
 		walk.markStart((RevCommit) want);
 		if (oldestTime != 0)
@@ -1784,6 +1869,8 @@ private boolean wantSatisfied(RevObject want) throws IOException {
 			final RevCommit c = walk.next();
 			if (c == null)
 				break;
+			if (share)
+				addToCommitCache(c);
 			if (c.has(PEER_HAS)) {
 				addCommonBase(c);
 				want.add(SATISFIED);
@@ -1793,6 +1880,11 @@ private boolean wantSatisfied(RevObject want) throws IOException {
 		return false;
 	}
 
+	private void addToCommitCache(RevCommit c) {
+		if (commitCache != null)
+			commitCache.add(c);
+	}
+
 	/**
 	 * Send the requested objects to the client.
 	 *
@@ -1934,12 +2026,8 @@ private void sendPack(final boolean sideband,
 				accumulator);
 		try {
 			pw.setIndexDisabled(true);
-			if (req.getFilterBlobLimit() >= 0) {
-				pw.setFilterBlobLimit(req.getFilterBlobLimit());
-				pw.setUseCachedPacks(false);
-			} else {
-				pw.setUseCachedPacks(true);
-			}
+			pw.setFilterSpec(req.getFilterSpec());
+			pw.setUseCachedPacks(req.getFilterSpec().isNoOp());
 			pw.setUseBitmaps(
 					req.getDepth() == 0
 							&& req.getClientShallowCommits().isEmpty());
@@ -2032,6 +2120,8 @@ else if (ref.getName().startsWith(Constants.R_HEADS))
 			}
 
 		} finally {
+			accumulator.readerStatistics = walk.getObjectReader()
+					.getStatistics();
 			statistics = pw.getStatistics();
 			if (statistics != null) {
 				postUploadHook.onPostUpload(statistics);
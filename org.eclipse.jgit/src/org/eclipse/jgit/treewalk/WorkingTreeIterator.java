@@ -1174,7 +1174,8 @@ private static long computeLength(InputStream in) throws IOException {
 	}
 
 	private byte[] computeHash(InputStream in, long length) throws IOException {
-		SHA1 contentDigest = SHA1.newInstance();
+		SHA1 contentDigest = SHA1
+				.newInstance(state.options.getSha1Implementation());
 		final byte[] contentReadBuffer = state.contentReadBuffer;
 
 		contentDigest.update(hblob);
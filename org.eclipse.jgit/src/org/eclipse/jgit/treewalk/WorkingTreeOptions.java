@@ -51,6 +51,8 @@
 import org.eclipse.jgit.lib.CoreConfig.EOL;
 import org.eclipse.jgit.lib.CoreConfig.HideDotFiles;
 import org.eclipse.jgit.lib.CoreConfig.SymLinks;
+import org.eclipse.jgit.util.sha1.SHA1;
+import org.eclipse.jgit.util.sha1.SHA1.Sha1Implementation;
 
 /**
  * Options used by the {@link org.eclipse.jgit.treewalk.WorkingTreeIterator}.
@@ -74,6 +76,8 @@ public class WorkingTreeOptions {
 
 	private final boolean dirNoGitLinks;
 
+	private final Sha1Implementation sha1Implementation;
+
 	private WorkingTreeOptions(Config rc) {
 		fileMode = rc.getBoolean(ConfigConstants.CONFIG_CORE_SECTION,
 				ConfigConstants.CONFIG_KEY_FILEMODE, true);
@@ -91,6 +95,9 @@ private WorkingTreeOptions(Config rc) {
 		dirNoGitLinks = rc.getBoolean(ConfigConstants.CONFIG_CORE_SECTION, null,
 				ConfigConstants.CONFIG_KEY_DIRNOGITLINKS,
 				false);
+		sha1Implementation = rc.getEnum(ConfigConstants.CONFIG_CORE_SECTION,
+				null, ConfigConstants.CONFIG_KEY_SHA1_IMPLEMENTATION,
+				SHA1.getDefaultImplementation());
 	}
 
 	/** @return true if the execute bit on working files should be trusted. */
@@ -161,4 +168,14 @@ public HideDotFiles getHideDotFiles() {
 	 * @since 4.3
 	 */
 	public boolean isDirNoGitLinks() { return dirNoGitLinks; }
+
+	/**
+	 * Get the SHA-1 implementation used to hash working tree files.
+	 *
+	 * @return the SHA-1 implementation, from {@code core.sha1Implementation}.
+	 * @since 5.3
+	 */
+	public Sha1Implementation getSha1Implementation() {
+		return sha1Implementation;
+	}
 }
@@ -46,11 +46,20 @@
 
 import org.eclipse.jgit.dircache.DirCacheEntry;
 import org.eclipse.jgit.dircache.DirCacheIterator;
+import org.eclipse.jgit.treewalk.AbstractTreeIterator;
 import org.eclipse.jgit.treewalk.TreeWalk;
+import org.eclipse.jgit.treewalk.WorkingTreeIterator;
 
 /**
  * To be used in combination with a DirCacheIterator: includes only tree entries
  * for which 'skipWorkTree' flag is not set.
+ * <p>
+ * Sparse directories, i.e. trees in which all index entries have the
+ * 'skipWorkTree' flag set, are excluded as a whole if no other tree of the walk
+ * differs from the index at their path: every other tree must either be
+ * absent, or be a tree with the same object id as the index. A working tree
+ * which has an entry at the path always differs. This avoids recursing into
+ * the directories outside of a sparse checkout.
  */
 public class SkipWorkTreeFilter extends TreeFilter {
 
@@ -76,10 +85,28 @@ public boolean include(TreeWalk walker) {
 		if (i == null)
 			return true;
 
+		if (i.isSparseDirectory())
+			return differsFromIndex(walker, i);
+
 		DirCacheEntry e = i.getDirCacheEntry();
 		return e == null || !e.isSkipWorkTree();
 	}
 
+	private boolean differsFromIndex(TreeWalk walker, DirCacheIterator i) {
+		for (int n = 0; n < walker.getTreeCount(); n++) {
+			if (n == treeIdx)
+				continue;
+			AbstractTreeIterator t = walker.getTree(n,
+					AbstractTreeIterator.class);
+			if (t == null)
+				continue;
+			if (t instanceof WorkingTreeIterator || !i.hasId()
+					|| !walker.idEqual(n, treeIdx))
+				return true;
+		}
+		return false;
+	}
+
 	/** {@inheritDoc} */
 	@Override
 	public boolean shouldBeRecursive() {
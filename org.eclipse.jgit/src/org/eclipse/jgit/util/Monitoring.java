@@ -0,0 +1,121 @@
+/*
+ * Copyright (C) 2019, Google LLC.
+ * and other copyright owners as documented in the project's IP log.
+ *
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Distribution License v1.0 which
+ * accompanies this distribution, is reproduced below, and is
+ * available at http://www.eclipse.org/org/documents/edl-v10.php
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or
+ * without modification, are permitted provided that the following
+ * conditions are met:
+ *
+ * - Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * - Redistributions in binary form must reproduce the above
+ *   copyright notice, this list of conditions and the following
+ *   disclaimer in the documentation and/or other materials provided
+ *   with the distribution.
+ *
+ * - Neither the name of the Eclipse Foundation, Inc. nor the
+ *   names of its contributors may be used to endorse or promote
+ *   products derived from this software without specific prior
+ *   written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND
+ * CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+package org.eclipse.jgit.util;
+
+import java.lang.management.ManagementFactory;
+import java.text.MessageFormat;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.eclipse.jgit.annotations.Nullable;
+import org.eclipse.jgit.internal.JGitText;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Enables monitoring JGit via JMX
+ *
+ * @since 5.3
+ */
+public class Monitoring {
+	private final static Logger LOG = LoggerFactory.getLogger(Monitoring.class);
+
+	private Monitoring() {
+		// Static utility methods only
+	}
+
+	/**
+	 * Register a MBean with the platform MBean server
+	 * <p>
+	 * A MBean previously registered under the same name is replaced.
+	 *
+	 * @param mbean
+	 *            the mbean object to register
+	 * @param metricName
+	 *            name of the JGit metric, used as the {@code type} key of the
+	 *            MBean's object name in the {@code org.eclipse.jgit} domain
+	 * @return the registered mbean's object name, or {@code null} if
+	 *         registration failed
+	 */
+	@Nullable
+	public static ObjectName registerMBean(Object mbean, String metricName) {
+		ObjectName name = null;
+		try {
+			name = new ObjectName("org.eclipse.jgit", "type", metricName); //$NON-NLS-1$ //$NON-NLS-2$
+			MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			if (server.isRegistered(name)) {
+				server.unregisterMBean(name);
+			}
+			server.registerMBean(mbean, name);
+			return name;
+		} catch (JMException | SecurityException e) {
+			LOG.error(MessageFormat.format(
+					JGitText.get().mbeanRegistrationFailed,
+					name != null ? name : metricName), e);
+			return null;
+		}
+	}
+
+	/**
+	 * Unregister a MBean from the platform MBean server
+	 *
+	 * @param name
+	 *            object name returned by
+	 *            {@link #registerMBean(Object, String)}
+	 */
+	public static void unregisterMBean(ObjectName name) {
+		try {
+			MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			if (server.isRegistered(name)) {
+				server.unregisterMBean(name);
+			}
+		} catch (JMException | SecurityException e) {
+			LOG.error(MessageFormat.format(
+					JGitText.get().mbeanUnregistrationFailed, name), e);
+		}
+	}
+}